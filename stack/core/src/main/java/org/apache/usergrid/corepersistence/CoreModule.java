@@ -93,6 +93,7 @@ public class CoreModule extends AbstractModule {
         bind( ApplicationIdCacheFactory.class );
         bind( CollectionSettingsFactory.class );
         bind( CollectionSettingsCache.class );
+        bind( EntityIndexStateStore.class );
 
 
         /**
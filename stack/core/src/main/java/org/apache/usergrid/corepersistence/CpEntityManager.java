@@ -45,6 +45,7 @@ import org.apache.usergrid.persistence.cassandra.*;
 import org.apache.usergrid.persistence.cassandra.util.TraceParticipant;
 import org.apache.usergrid.persistence.collection.EntityCollectionManager;
 import org.apache.usergrid.persistence.collection.EntitySet;
+import org.apache.usergrid.persistence.collection.MvccEntity;
 import org.apache.usergrid.persistence.collection.FieldSet;
 import org.apache.usergrid.persistence.collection.exception.WriteUniqueVerifyException;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
@@ -54,6 +55,7 @@ import org.apache.usergrid.persistence.exceptions.DuplicateUniquePropertyExistsE
 import org.apache.usergrid.persistence.exceptions.EntityNotFoundException;
 import org.apache.usergrid.persistence.exceptions.RequiredPropertyNotFoundException;
 import org.apache.usergrid.persistence.exceptions.UnexpectedEntityTypeException;
+import org.apache.usergrid.persistence.graph.Edge;
 import org.apache.usergrid.persistence.graph.GraphManager;
 import org.apache.usergrid.persistence.graph.GraphManagerFactory;
 import org.apache.usergrid.persistence.graph.SearchEdgeType;
@@ -67,12 +69,14 @@ import org.apache.usergrid.persistence.model.entity.SimpleId;
 import org.apache.usergrid.persistence.model.field.Field;
 import org.apache.usergrid.persistence.model.field.StringField;
 import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+import org.apache.usergrid.persistence.schema.CollectionInfo;
 import org.apache.usergrid.mq.Message;
 import org.apache.usergrid.utils.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 import rx.Observable;
+import rx.schedulers.Schedulers;
 
 import java.nio.ByteBuffer;
 import java.time.Instant;
@@ -464,25 +468,54 @@ public class CpEntityManager implements EntityManager {
 
         String type = Schema.getDefaultSchema().getEntityType( entityClass );
 
-        ArrayList<Entity> entities = new ArrayList<Entity>();
+        return get( entityIds, type, entityClass, resultsLevel );
+    }
+
+
+    @Override
+    public Results get( Collection<UUID> entityIds, String entityType, Class<? extends Entity> entityClass,
+                        Level resultsLevel ) throws Exception {
+
+        Preconditions.checkNotNull( entityIds, "entityIds must not be null" );
+        Preconditions.checkNotNull( entityType, "entityType must not be null" );
+
+        final List<Id> ids = new ArrayList<>( entityIds.size() );
 
         for ( UUID uuid : entityIds ) {
-            EntityRef ref = new SimpleEntityRef( type, uuid );
-            Entity entity = get( ref, entityClass );
+            ids.add( new SimpleId( uuid, entityType ) );
+        }
+
+        // one multi-row read per page, with a bounded number of pages in flight at once
+        final Map<Id, MvccEntity> loaded = Observable.from( ids ).buffer( entityManagerFig.getLoadPageSize() )
+            .flatMap( page -> ecm.load( page ).subscribeOn( Schedulers.io() ),
+                entityManagerFig.getLoadConcurrency() )
+            .collect( () -> new HashMap<Id, MvccEntity>( ids.size() ),
+                ( map, entitySet ) -> entitySet.getEntities().forEach( mvccEntity -> map.put( mvccEntity.getId(),
+                    mvccEntity ) ) )
+            .toBlocking().last();
+
+        final List<Entity> entities = new ArrayList<>( ids.size() );
+
+        // return in the order requested, skipping anything that doesn't exist
+        for ( Id id : ids ) {
 
-            if ( entity != null ) {
-                entities.add( entity );
+            final MvccEntity mvccEntity = loaded.get( id );
+
+            if ( mvccEntity == null || !mvccEntity.getEntity().isPresent() ) {
+                if ( logger.isDebugEnabled() ) {
+                    logger.debug( "FAILED to load entity {}:{} from app {}", id.getType(), id.getUuid(),
+                        applicationId );
+                }
+                continue;
             }
-        }
 
-        return Results.fromEntities( entities );
-    }
+            Entity entity = EntityFactory.newEntity( id.getUuid(), entityType, entityClass );
+            entity.setProperties( mvccEntity.getEntity().get() );
 
+            entities.add( entity );
+        }
 
-    @Override
-    public Results get( Collection<UUID> entityIds, String entityType, Class<? extends Entity> entityClass,
-                        Level resultsLevel ) throws Exception {
-        throw new UnsupportedOperationException( "Not supported yet." );
+        return Results.fromEntities( entities );
     }
 
 
@@ -1121,8 +1154,9 @@ public class CpEntityManager implements EntityManager {
         //                "Entity Id " + entityId.getType() + ":"+entityId.getUuid() +" uuid not time based");
         //        }
 
+        // we modify and re-write the entity, so make sure we start from the latest version
         org.apache.usergrid.persistence.model.entity.Entity cpEntity =
-                load( entityId );
+                ecm.load( entityId, false ).toBlocking().lastOrDefault( null );
 
         cpEntity.removeField( propertyName );
 
@@ -1496,8 +1530,51 @@ public class CpEntityManager implements EntityManager {
             entity = get( itemRef );
         }
 
+        if ( entity == null ) {
+            return null;
+        }
+
+        final Id memberId = new SimpleId( entity.getUuid(), entity.getType() );
+        final List<Edge> edges = new ArrayList<>( ownerEntities.size() );
+
         for ( EntityRef eref : ownerEntities ) {
-            addToCollection( eref, collectionName, entity );
+            CollectionInfo collection = getDefaultSchema().getCollection( eref.getType(), collectionName );
+
+            // typed and linked collections keep the single edge path, which validates and writes the reverse edge
+            if ( collection == null || collection.getLinkedCollection() != null
+                || ( collection.getType() != null && !collection.getType().equals( entity.getType() ) ) ) {
+                addToCollection( eref, collectionName, entity );
+                continue;
+            }
+
+            // a resumed fan-out re-writes its last batch, the same timestamp keeps that from duplicating the edges
+            edges.add( createIdempotentCollectionEdge( new SimpleId( eref.getUuid(), eref.getType() ),
+                collectionName, memberId ) );
+        }
+
+        if ( edges.isEmpty() ) {
+            return entity;
+        }
+
+        // one graph batch for all the owners, then index each new edge against the member loaded once
+        managerCache.getGraphManager( applicationScope ).writeEdges( edges ).toBlocking().lastOrDefault( null );
+
+        if ( !skipIndexingForType( memberId.getType() ) ) {
+            org.apache.usergrid.persistence.model.entity.Entity memberEntity = load( memberId );
+
+            if ( memberEntity == null ) {
+                throw new RuntimeException(
+                    "Unable to load entity uuid=" + entity.getUuid() + " type=" + entity.getType() );
+            }
+
+            for ( Edge edge : edges ) {
+                indexService.queueNewEdge( applicationScope, memberEntity, edge );
+            }
+        }
+
+        if ( logger.isDebugEnabled() ) {
+            logger.debug( "Added entity {}:{} to collection {} of {} owners",
+                entity.getUuid(), entity.getType(), collectionName, edges.size() );
         }
 
         return entity;
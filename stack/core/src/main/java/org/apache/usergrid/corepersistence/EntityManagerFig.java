@@ -50,4 +50,19 @@ public interface EntityManagerFig extends GuicyFig {
     @Default("us-east-1")
     String getRegionList();
 
+    /**
+     * The most entities loaded from Cassandra in a single multi-row read.  Larger gets are split into pages of this
+     * size.  Should not exceed collection.max.load.size.
+     */
+    @Key( "usergrid.entityManager.load_page_size" )
+    @Default( "100" )
+    int getLoadPageSize();
+
+    /**
+     * The number of pages of a multi-entity get that may be read at once.
+     */
+    @Key( "usergrid.entityManager.load_concurrency" )
+    @Default( "4" )
+    int getLoadConcurrency();
+
 }
@@ -39,7 +39,6 @@ import org.apache.usergrid.corepersistence.index.IndexProcessorFig;
 import org.apache.usergrid.corepersistence.index.ReplicatedIndexLocationStrategy;
 import org.apache.usergrid.corepersistence.rx.impl.EdgeScope;
 import org.apache.usergrid.corepersistence.util.CpNamingUtils;
-import org.apache.usergrid.corepersistence.util.ObjectJsonSerializer;
 import org.apache.usergrid.persistence.collection.EntityCollectionManager;
 import org.apache.usergrid.persistence.collection.EntityCollectionManagerFactory;
 import org.apache.usergrid.persistence.collection.serialization.impl.migration.EntityIdScope;
@@ -523,7 +522,7 @@ public class AsyncEventServiceImpl implements AsyncEventService {
         final EntityCollectionManager ecm = entityCollectionManagerFactory.createCollectionManager( edgeIndexEvent.getApplicationScope() );
 
         // default this observable's return to empty index operation message if nothing is emitted
-        return ecm.load( edgeIndexEvent.getEntityId() )
+        return ecm.load( edgeIndexEvent.getEntityId(), false )
             .flatMap( loadedEntity -> eventBuilder.buildNewEdge(edgeIndexEvent.getApplicationScope(), loadedEntity, edgeIndexEvent.getEdge()) )
             .toBlocking().lastOrDefault(new IndexOperationMessage());
 
@@ -576,20 +575,35 @@ public class AsyncEventServiceImpl implements AsyncEventService {
             return;
         }
 
-        final String jsonValue = ObjectJsonSerializer.INSTANCE.toString( indexOperationMessage );
+        // consumers from earlier releases only read json staged in the map
+        final boolean legacyFormat = indexProcessorFig.isIndexMessageLegacyFormat();
+
+        final String encodedValue = legacyFormat
+            ? IndexOperationMessageCodec.INSTANCE.encodeLegacy( indexOperationMessage )
+            : IndexOperationMessageCodec.INSTANCE.encode( indexOperationMessage );
 
         final UUID newMessageId = UUIDGenerator.newTimeUUID();
 
-        final int expirationTimeInSeconds =
-            ( int ) TimeUnit.MILLISECONDS.toSeconds( indexProcessorFig.getIndexMessageTtl() );
+        final ElasticsearchIndexEvent elasticsearchIndexEvent;
+
+        // small batches ride along with the event and never touch map persistence
+        if ( !legacyFormat && encodedValue.length() <= indexProcessorFig.getIndexMessageInlineSize() ) {
+
+            elasticsearchIndexEvent =
+                new ElasticsearchIndexEvent( queueFig.getPrimaryRegion(), newMessageId, encodedValue );
+        }
+        else {
+
+            final int expirationTimeInSeconds =
+                ( int ) TimeUnit.MILLISECONDS.toSeconds( indexProcessorFig.getIndexMessageTtl() );
 
-        //write to the map in ES
-        esMapPersistence.putString( newMessageId.toString(), jsonValue, expirationTimeInSeconds );
+            //write to the map in ES
+            esMapPersistence.putString( newMessageId.toString(), encodedValue, expirationTimeInSeconds );
 
-        //now queue up the index message
+            //now queue up the index message
 
-        final ElasticsearchIndexEvent elasticsearchIndexEvent =
-            new ElasticsearchIndexEvent(queueFig.getPrimaryRegion(), newMessageId );
+            elasticsearchIndexEvent = new ElasticsearchIndexEvent( queueFig.getPrimaryRegion(), newMessageId );
+        }
 
         //send to the topic so all regions index the batch
 
@@ -604,7 +618,8 @@ public class AsyncEventServiceImpl implements AsyncEventService {
         Preconditions.checkNotNull( messageId, "messageId must not be null" );
 
 
-        final String message = esMapPersistence.getString( messageId.toString() );
+        final String message = elasticsearchIndexEvent.getIndexBatch() != null ?
+            elasticsearchIndexEvent.getIndexBatch() : esMapPersistence.getString( messageId.toString() );
 
 
         final IndexOperationMessage indexOperationMessage;
@@ -623,7 +638,7 @@ public class AsyncEventServiceImpl implements AsyncEventService {
                    throw new RuntimeException("ES batch with id "+messageId+" not found when reading with strong consistency");
                }
 
-               indexOperationMessage = ObjectJsonSerializer.INSTANCE.fromString(highConsistency, IndexOperationMessage.class);
+               indexOperationMessage = IndexOperationMessageCodec.INSTANCE.decode( highConsistency );
 
            } else {
 
@@ -633,7 +648,7 @@ public class AsyncEventServiceImpl implements AsyncEventService {
 
         } else {
 
-            indexOperationMessage = ObjectJsonSerializer.INSTANCE.fromString( message, IndexOperationMessage.class );
+            indexOperationMessage = IndexOperationMessageCodec.INSTANCE.decode( message );
         }
 
 
@@ -31,6 +31,7 @@ import org.apache.usergrid.persistence.queue.LocalQueueManager;
 import org.apache.usergrid.persistence.map.MapManagerFactory;
 import org.apache.usergrid.persistence.queue.QueueFig;
 import org.apache.usergrid.persistence.queue.QueueManagerFactory;
+import org.apache.usergrid.persistence.queue.impl.LocalDiskQueueManagerFactoryImpl;
 
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -55,6 +56,7 @@ public class AsyncIndexProvider implements Provider<AsyncEventService> {
     private final IndexProducer indexProducer;
     private final MapManagerFactory mapManagerFactory;
     private final QueueFig queueFig;
+    private final LocalDiskQueueManagerFactoryImpl localDiskQueueManagerFactory;
 
     private AsyncEventService asyncEventService;
 
@@ -70,7 +72,8 @@ public class AsyncIndexProvider implements Provider<AsyncEventService> {
                               final EntityIndexFactory entityIndexFactory,
                               final IndexProducer indexProducer,
                               final MapManagerFactory mapManagerFactory,
-                              final QueueFig queueFig) {
+                              final QueueFig queueFig,
+                              final LocalDiskQueueManagerFactoryImpl localDiskQueueManagerFactory) {
 
         this.indexProcessorFig = indexProcessorFig;
         this.queueManagerFactory = queueManagerFactory;
@@ -83,6 +86,7 @@ public class AsyncIndexProvider implements Provider<AsyncEventService> {
         this.indexProducer = indexProducer;
         this.mapManagerFactory = mapManagerFactory;
         this.queueFig = queueFig;
+        this.localDiskQueueManagerFactory = localDiskQueueManagerFactory;
     }
 
 
@@ -108,6 +112,13 @@ public class AsyncIndexProvider implements Provider<AsyncEventService> {
                     entityCollectionManagerFactory, indexLocationStrategyFactory, entityIndexFactory, eventBuilder,mapManagerFactory, queueFig,rxTaskScheduler);
                 eventService.MAX_TAKE = 1000;
                 return eventService;
+            case DISK:
+                AsyncEventServiceImpl diskEventService = new AsyncEventServiceImpl(localDiskQueueManagerFactory,
+                    indexProcessorFig, indexProducer, metricsFactory, entityCollectionManagerFactory,
+                    indexLocationStrategyFactory, entityIndexFactory, eventBuilder, mapManagerFactory, queueFig,
+                    rxTaskScheduler);
+                diskEventService.MAX_TAKE = 1000;
+                return diskEventService;
             case SQS:
                 throw new IllegalArgumentException("Configuration value of SQS is no longer allowed. Use SNS instead with only a single region");
             case SNS:
@@ -138,6 +149,7 @@ public class AsyncIndexProvider implements Provider<AsyncEventService> {
     public static enum Implementations { //TODO see about removing SNS and SQS and use AMZN? - michaelarusso
         TEST,
         LOCAL,
+        DISK,
         SQS,
         SNS;
 
@@ -152,8 +152,8 @@ public class EventBuilderImpl implements EventBuilder {
 
         final Id entityId = entityIndexOperation.getId();
 
-        //load the entity
-        return entityCollectionManagerFactory.createCollectionManager( applicationScope ).load( entityId ).filter(
+        //load the entity, skipping the cache so we always index the latest version
+        return entityCollectionManagerFactory.createCollectionManager( applicationScope ).load( entityId, false ).filter(
             entity -> {
                 final Field<Long> modified = entity.getField( Schema.PROPERTY_MODIFIED );
 
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.corepersistence.asyncevents;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.usergrid.corepersistence.util.ObjectJsonSerializer;
+import org.apache.usergrid.persistence.index.impl.IndexOperationMessage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.base.Preconditions;
+import com.google.common.io.BaseEncoding;
+
+
+/**
+ * Encodes index operation messages for staging between the producer and the queue consumers.  Messages are written
+ * as Smile, deflated once they grow past {@link #COMPRESSION_THRESHOLD} bytes, and prefixed with a single format byte
+ * so the layout can evolve.  The result is base64 encoded since map persistence and the queues only carry strings.
+ *
+ * Values staged by earlier releases as plain json are still decoded, so messages in flight survive an upgrade.  Older
+ * consumers can't decode the binary form, so {@link #encodeLegacy(IndexOperationMessage)} keeps writing json until
+ * every consumer has been upgraded.
+ */
+public final class IndexOperationMessageCodec {
+
+    /**
+     * Uncompressed smile
+     */
+    public static final byte FORMAT_SMILE = 1;
+
+    /**
+     * Smile wrapped in a deflate stream
+     */
+    public static final byte FORMAT_SMILE_DEFLATE = 2;
+
+    /**
+     * Encoded smile payloads smaller than this are not worth the cost of compressing
+     */
+    public static final int COMPRESSION_THRESHOLD = 1024;
+
+    private static final BaseEncoding ENCODING = BaseEncoding.base64();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper( new SmileFactory() );
+
+    /**
+     * Singleton instance of our codec, the mapper is expensive to create.
+     */
+    public static final IndexOperationMessageCodec INSTANCE = new IndexOperationMessageCodec();
+
+
+    private IndexOperationMessageCodec() {
+
+    }
+
+
+    /**
+     * Encode the message to its staged string form
+     */
+    public String encode( final IndexOperationMessage message ) {
+
+        Preconditions.checkNotNull( message, "message must not be null" );
+
+        try {
+            final byte[] smile = MAPPER.writeValueAsBytes( message );
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream( smile.length + 1 );
+
+            if ( smile.length < COMPRESSION_THRESHOLD ) {
+                bytes.write( FORMAT_SMILE );
+                bytes.write( smile );
+            }
+            else {
+                bytes.write( FORMAT_SMILE_DEFLATE );
+
+                final Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+
+                try ( OutputStream deflate = new DeflaterOutputStream( bytes, deflater ) ) {
+                    deflate.write( smile );
+                }
+                finally {
+                    deflater.end();
+                }
+            }
+
+            return ENCODING.encode( bytes.toByteArray() );
+        }
+        catch ( IOException e ) {
+            throw new RuntimeException( "Unable to serialize index operation message", e );
+        }
+    }
+
+
+    /**
+     * Encode the message as the plain json read by consumers from earlier releases
+     */
+    public String encodeLegacy( final IndexOperationMessage message ) {
+
+        Preconditions.checkNotNull( message, "message must not be null" );
+
+        return ObjectJsonSerializer.INSTANCE.toString( message );
+    }
+
+
+    /**
+     * Decode a staged value, accepting both the versioned binary form and legacy json
+     */
+    public IndexOperationMessage decode( final String value ) {
+
+        Preconditions.checkNotNull( value, "value must not be null" );
+
+        // json documents always start with an object, which can never be the first character of base64
+        if ( value.startsWith( "{" ) ) {
+            return ObjectJsonSerializer.INSTANCE.fromString( value, IndexOperationMessage.class );
+        }
+
+        final byte[] bytes = ENCODING.decode( value );
+
+        Preconditions.checkArgument( bytes.length > 0, "value must not be empty" );
+
+        final InputStream payload = new ByteArrayInputStream( bytes, 1, bytes.length - 1 );
+
+        try {
+            switch ( bytes[0] ) {
+                case FORMAT_SMILE:
+                    return MAPPER.readValue( payload, IndexOperationMessage.class );
+
+                case FORMAT_SMILE_DEFLATE:
+                    try ( InputStream inflate = new InflaterInputStream( payload ) ) {
+                        return MAPPER.readValue( inflate, IndexOperationMessage.class );
+                    }
+
+                default:
+                    throw new IllegalArgumentException( "Unknown index operation message format " + bytes[0] );
+            }
+        }
+        catch ( IOException e ) {
+            throw new RuntimeException( "Unable to deserialize index operation message", e );
+        }
+    }
+}
@@ -32,6 +32,12 @@ public final class ElasticsearchIndexEvent extends AsyncEvent {
     @JsonProperty
     protected UUID indexBatchId;
 
+    /**
+     * The encoded batch when it was small enough to travel with the event instead of map persistence
+     */
+    @JsonProperty
+    protected String indexBatch;
+
     public ElasticsearchIndexEvent() {
     }
 
@@ -40,6 +46,11 @@ public final class ElasticsearchIndexEvent extends AsyncEvent {
         this.indexBatchId = indexBatchId;
     }
 
+    public ElasticsearchIndexEvent(String sourceRegion, UUID indexBatchId, String indexBatch) {
+        this(sourceRegion, indexBatchId);
+        this.indexBatch = indexBatch;
+    }
+
 
     /**
      * Get the unique message id of the
@@ -48,4 +59,13 @@ public final class ElasticsearchIndexEvent extends AsyncEvent {
     public UUID getIndexBatchId() {
         return indexBatchId;
     }
+
+
+    /**
+     * Get the inlined batch, or null if it must be read from map persistence
+     * @return
+     */
+    public String getIndexBatch() {
+        return indexBatch;
+    }
 }
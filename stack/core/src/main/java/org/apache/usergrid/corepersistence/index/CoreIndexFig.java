@@ -34,6 +34,10 @@ public interface CoreIndexFig extends GuicyFig {
 
     String ELASTICSEARCH_MANAGEMENT_NUMBER_OF_REPLICAS = "elasticsearch.management_number_replicas";
 
+    String ELASTICSEARCH_INDEX_SKIP_UNCHANGED = "elasticsearch.index.skip_unchanged";
+
+    String ELASTICSEARCH_INDEX_SKIP_UNCHANGED_IGNORED_FIELDS = "elasticsearch.index.skip_unchanged.ignored_fields";
+
 
     /**
      * The number of primary shards to use for an index in Elasticsearch.  Typically 2x or 3x the ES nodes.
@@ -67,4 +71,21 @@ public interface CoreIndexFig extends GuicyFig {
     @Default( "0" )
     @Key( "elasticsearch.index_bucket_offset" )
     int getBucketOffset();
+
+
+    /**
+     * When true, an entity update whose indexable fields did not change keeps its existing documents instead of
+     * writing a new document per edge.
+     */
+    @Default( "true" )
+    @Key( ELASTICSEARCH_INDEX_SKIP_UNCHANGED )
+    boolean isSkipUnchangedEnabled();
+
+    /**
+     * Comma separated fields left out of the unchanged check.  Skipped updates keep the old values of these fields
+     * in the index.
+     */
+    @Default( "modified" )
+    @Key( ELASTICSEARCH_INDEX_SKIP_UNCHANGED_IGNORED_FIELDS )
+    String getSkipUnchangedIgnoredFields();
 }
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.usergrid.corepersistence.index;
+
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.usergrid.utils.JsonUtils;
+
+import com.fasterxml.uuid.UUIDComparator;
+
+
+/**
+ * What the index holds for one entity.  For every projection (the set of fields an edge indexes) we keep a digest of
+ * the projected fields and the entity version its documents were written with.  The checked version is the latest
+ * entity version compared against those digests.  Documents are left at an older version when an update did not
+ * change any indexed field, this state is how readers tell such documents apart from stale ones.
+ */
+public class EntityIndexState {
+
+    private static final String CHECKED = "checked";
+    private static final String PROJECTIONS = "projections";
+    private static final String DIGEST = "digest";
+    private static final String VERSION = "version";
+
+    private final UUID checkedVersion;
+    private final Map<String, Projection> projections;
+
+
+    public EntityIndexState( final UUID checkedVersion, final Map<String, Projection> projections ) {
+        this.checkedVersion = checkedVersion;
+        this.projections = projections;
+    }
+
+
+    public UUID getCheckedVersion() {
+        return checkedVersion;
+    }
+
+
+    /**
+     * Get the projection for the key, null if it has never been indexed
+     */
+    public Projection getProjection( final String projectionKey ) {
+        return projections.get( projectionKey );
+    }
+
+
+    /**
+     * True when the candidate document still describes the entity version.  The candidate must be at least as new as
+     * the documents written for its projection, and the entity version must have been checked against them.
+     */
+    public boolean isCurrent( final String projectionKey, final UUID candidateVersion, final UUID entityVersion ) {
+        return isPending( projectionKey, candidateVersion )
+            && UUIDComparator.staticCompare( entityVersion, checkedVersion ) <= 0;
+    }
+
+
+    /**
+     * True when the candidate document is the latest written for its projection.  If the entity is newer than our
+     * checked version, its index operation has not run yet and the document must not be removed.
+     */
+    public boolean isPending( final String projectionKey, final UUID candidateVersion ) {
+        final Projection projection = projections.get( projectionKey );
+
+        return projection != null && UUIDComparator.staticCompare( candidateVersion, projection.getVersion() ) >= 0;
+    }
+
+
+    /**
+     * Create a new state with the checked version and the projections merged over our own
+     */
+    public EntityIndexState merge( final UUID checkedVersion, final Map<String, Projection> updated ) {
+        final Map<String, Projection> merged = new HashMap<>( projections );
+        merged.putAll( updated );
+
+        return new EntityIndexState( checkedVersion, merged );
+    }
+
+
+    public String toJson() {
+        final Map<String, Object> projectionMap = new HashMap<>( projections.size() );
+
+        for ( final Map.Entry<String, Projection> entry : projections.entrySet() ) {
+            final Map<String, Object> projection = new HashMap<>( 2 );
+            projection.put( DIGEST, entry.getValue().getDigest() );
+            projection.put( VERSION, entry.getValue().getVersion().toString() );
+            projectionMap.put( entry.getKey(), projection );
+        }
+
+        final Map<String, Object> json = new HashMap<>( 2 );
+        json.put( CHECKED, checkedVersion.toString() );
+        json.put( PROJECTIONS, projectionMap );
+
+        return JsonUtils.mapToJsonString( json );
+    }
+
+
+    @SuppressWarnings( "unchecked" )
+    public static EntityIndexState fromJson( final String json ) {
+        final Map<String, Object> map = ( Map<String, Object> ) JsonUtils.parse( json );
+        final Map<String, Map<String, Object>> projectionMap =
+            ( Map<String, Map<String, Object>> ) map.get( PROJECTIONS );
+
+        final Map<String, Projection> projections = new HashMap<>( projectionMap.size() );
+
+        for ( final Map.Entry<String, Map<String, Object>> entry : projectionMap.entrySet() ) {
+            projections.put( entry.getKey(), new Projection( ( String ) entry.getValue().get( DIGEST ),
+                UUID.fromString( ( String ) entry.getValue().get( VERSION ) ) ) );
+        }
+
+        return new EntityIndexState( UUID.fromString( ( String ) map.get( CHECKED ) ), projections );
+    }
+
+
+    /**
+     * The digest of the projected fields and the version of the documents written for them
+     */
+    public static final class Projection {
+
+        private final String digest;
+        private final UUID version;
+
+
+        public Projection( final String digest, final UUID version ) {
+            this.digest = digest;
+            this.version = version;
+        }
+
+
+        public String getDigest() {
+            return digest;
+        }
+
+
+        public UUID getVersion() {
+            return version;
+        }
+    }
+}
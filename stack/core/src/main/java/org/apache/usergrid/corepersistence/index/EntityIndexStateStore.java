@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.usergrid.corepersistence.index;
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.usergrid.corepersistence.util.CpNamingUtils;
+import org.apache.usergrid.persistence.Schema;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.index.SearchEdge;
+import org.apache.usergrid.persistence.index.impl.EntityField;
+import org.apache.usergrid.persistence.index.impl.EntityToMapConverter;
+import org.apache.usergrid.persistence.index.impl.IndexingUtils;
+import org.apache.usergrid.persistence.map.MapManager;
+import org.apache.usergrid.persistence.map.MapManagerFactory;
+import org.apache.usergrid.persistence.map.impl.MapScopeImpl;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.hash.Hashing;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import static org.apache.usergrid.persistence.Schema.TYPE_APPLICATION;
+
+
+/**
+ * Reads and writes the {@link EntityIndexState} of entities, and resolves which fields an edge indexes.  Shared by the
+ * index service, which writes the state, and the search filters, which use it to keep documents of skipped updates.
+ */
+@Singleton
+public class EntityIndexStateStore {
+
+    private static final String MAP_NAME = "entityIndexState";
+
+    private static final String ALL_FIELDS = "*";
+
+    private final MapManagerFactory mapManagerFactory;
+    private final CollectionSettingsFactory collectionSettingsFactory;
+    private final CoreIndexFig coreIndexFig;
+
+
+    @Inject
+    public EntityIndexStateStore( final MapManagerFactory mapManagerFactory,
+                                  final CollectionSettingsFactory collectionSettingsFactory,
+                                  final CoreIndexFig coreIndexFig ) {
+        this.mapManagerFactory = mapManagerFactory;
+        this.collectionSettingsFactory = collectionSettingsFactory;
+        this.coreIndexFig = coreIndexFig;
+    }
+
+
+    /**
+     * True when unchanged updates are skipped, and the state is kept up to date
+     */
+    public boolean isEnabled() {
+        return coreIndexFig.isSkipUnchangedEnabled();
+    }
+
+
+    /**
+     * Load the state of the entity, absent if it has never been indexed with state tracking
+     */
+    public Optional<EntityIndexState> get( final ApplicationScope applicationScope, final Id entityId ) {
+        final String json = getMapManager( applicationScope ).getString( entityId.getUuid().toString() );
+
+        if ( json == null ) {
+            return Optional.absent();
+        }
+
+        return Optional.of( EntityIndexState.fromJson( json ) );
+    }
+
+
+    /**
+     * Load the states of all entities in one read.  Entities without state are not present in the map
+     */
+    public Map<Id, EntityIndexState> get( final ApplicationScope applicationScope, final Collection<Id> entityIds ) {
+
+        final Map<String, Id> keys = new HashMap<>( entityIds.size() );
+
+        for ( final Id entityId : entityIds ) {
+            keys.put( entityId.getUuid().toString(), entityId );
+        }
+
+        final Map<String, String> values = getMapManager( applicationScope ).getStrings( keys.keySet() );
+
+        final Map<Id, EntityIndexState> states = new HashMap<>( values.size() );
+
+        for ( final Map.Entry<String, String> entry : values.entrySet() ) {
+            states.put( keys.get( entry.getKey() ), EntityIndexState.fromJson( entry.getValue() ) );
+        }
+
+        return states;
+    }
+
+
+    public void put( final ApplicationScope applicationScope, final Id entityId, final EntityIndexState state ) {
+        getMapManager( applicationScope ).putString( entityId.getUuid().toString(), state.toJson() );
+    }
+
+
+    /**
+     * Get the fields an edge from the node indexes.  The set of default properties that will always be indexed are
+     * UUID - TYPE - MODIFIED - CREATED. Depending on the schema this may change. For instance, users will always
+     * require NAME, but the above four will always be taken in.
+     *
+     * @return The fields to index.  If there isn't a schema associated with the collection then absent ( and index
+     * the entity in its entirety )
+     */
+    public Optional<Set<String>> getFieldsToIndex( final Id nodeId, final String edgeName ) {
+
+        Id owner = new SimpleId( nodeId.getUuid(), TYPE_APPLICATION );
+
+        Set<String> defaultProperties;
+
+        String collectionName = CpNamingUtils.getCollectionNameFromEdgeName( edgeName );
+
+        CollectionSettings collectionSettings =
+            collectionSettingsFactory.getInstance( new CollectionSettingsScopeImpl( owner, collectionName) );
+
+        Optional<Map<String, Object>> collectionIndexingSchema =
+            collectionSettings.getCollectionSettings( collectionName );
+
+        //If we do have a schema then parse it and add it to a list of properties we want to keep.Otherwise return.
+        if ( collectionIndexingSchema.isPresent()) {
+
+            Map jsonMapData = collectionIndexingSchema.get();
+            Schema schema = Schema.getDefaultSchema();
+            //copy, the schema shares its required properties between dynamic types
+            defaultProperties = new HashSet<>( schema.getRequiredProperties( collectionName ) );
+
+            Object fields = jsonMapData.get("fields");
+
+            if ( fields != null && fields instanceof String && "all".equalsIgnoreCase(fields.toString())) {
+                return Optional.absent();
+            }
+
+            if ( fields != null && fields instanceof List ) {
+                defaultProperties.addAll( (List) fields );
+            }
+
+        } else {
+            return Optional.absent();
+        }
+
+        return Optional.of(defaultProperties);
+    }
+
+
+    /**
+     * Get the projection key of the documents on the search edge
+     */
+    public String getProjectionKey( final SearchEdge searchEdge ) {
+        return getProjectionKey( getFieldsToIndex( searchEdge.getNodeId(), searchEdge.getEdgeName() ) );
+    }
+
+
+    /**
+     * Get the key naming a set of fields to index.  Edges indexing the same fields share a key
+     */
+    public static String getProjectionKey( final Optional<Set<String>> fieldsToIndex ) {
+        if ( !fieldsToIndex.isPresent() ) {
+            return ALL_FIELDS;
+        }
+
+        return Joiner.on( ',' ).join( new TreeSet<>( fieldsToIndex.get() ) );
+    }
+
+
+    /**
+     * Digest the fields of the entity that are indexed with the projection, leaving out the ignored fields
+     */
+    public static String getDigest( final Entity entity, final Optional<Set<String>> fieldsToIndex,
+                                    final Set<String> ignoredFields ) {
+
+        final List<String> fields = new ArrayList<>();
+
+        for ( final EntityField field : EntityToMapConverter.getEntityFields( entity, fieldsToIndex ) ) {
+            if ( !ignoredFields.contains( field.get( IndexingUtils.FIELD_NAME ) ) ) {
+                fields.add( field.toString() );
+            }
+        }
+
+        //the parser returns a hash set, sort so equal fields always digest the same
+        fields.sort( null );
+
+        return Hashing.sha1().hashString( Joiner.on( '\n' ).join( fields ), StandardCharsets.UTF_8 ).toString();
+    }
+
+
+    private MapManager getMapManager( final ApplicationScope applicationScope ) {
+        return mapManagerFactory.createMapManager( new MapScopeImpl( applicationScope.getApplication(), MAP_NAME ) );
+    }
+}
@@ -92,8 +92,9 @@ public interface IndexProcessorFig extends GuicyFig {
 
     /**
      * Set the implementation to use for queuing.
-     * Valid values: TEST, LOCAL, SQS, SNS
+     * Valid values: TEST, LOCAL, DISK, SQS, SNS
      * NOTE: SQS and SNS equate to the same implementation of Amazon queue services.
+     * DISK persists the queue to local disk, for single region deployments without Amazon.
      */
     @Default("LOCAL")
     @Key(ELASTICSEARCH_QUEUE_IMPL)
@@ -127,4 +128,22 @@ public interface IndexProcessorFig extends GuicyFig {
     @Default("86400000")
     @Key( "elasticsearch.message.ttl" )
     int getIndexMessageTtl();
+
+
+    /**
+     * The largest encoded index batch, in characters, that is carried inside the queue event itself.  Larger batches
+     * are staged in map persistence.  Set to 0 to always stage batches.
+     */
+    @Default("8192")
+    @Key( "elasticsearch.message.inline.size" )
+    int getIndexMessageInlineSize();
+
+
+    /**
+     * Write index batches as the legacy json, always staged in map persistence, so consumers from earlier releases
+     * can still read them.  Enable before a rolling upgrade and disable once every node has been upgraded.
+     */
+    @Default("false")
+    @Key( "elasticsearch.message.legacy.format" )
+    boolean isIndexMessageLegacyFormat();
 }
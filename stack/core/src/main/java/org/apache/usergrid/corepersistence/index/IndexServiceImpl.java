@@ -20,12 +20,13 @@
 package org.apache.usergrid.corepersistence.index;
 
 
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.Timer;
+import com.fasterxml.uuid.UUIDComparator;
 import com.google.common.base.Optional;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.apache.usergrid.corepersistence.util.CpNamingUtils;
-import org.apache.usergrid.persistence.Schema;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.core.metrics.ObservableTimer;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
@@ -41,16 +42,15 @@ import org.apache.usergrid.persistence.map.MapManagerFactory;
 import org.apache.usergrid.persistence.map.MapScope;
 import org.apache.usergrid.persistence.model.entity.Entity;
 import org.apache.usergrid.persistence.model.entity.Id;
-import org.apache.usergrid.persistence.model.entity.SimpleId;
 import org.apache.usergrid.utils.InflectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.apache.usergrid.corepersistence.util.CpNamingUtils.*;
-import static org.apache.usergrid.persistence.Schema.TYPE_APPLICATION;
 
 
 /**
@@ -65,30 +65,42 @@ public class IndexServiceImpl implements IndexService {
     private final GraphManagerFactory graphManagerFactory;
     private final EntityIndexFactory entityIndexFactory;
     private final MapManagerFactory mapManagerFactory;
-    private final CollectionSettingsFactory collectionSettingsFactory;
     private final EdgesObservable edgesObservable;
     private final IndexFig indexFig;
     private final IndexLocationStrategyFactory indexLocationStrategyFactory;
     private final Timer indexTimer;
     private final Timer addTimer;
+    private final Meter documentMeter;
+    private final Meter skippedMeter;
+    private final EntityIndexStateStore entityIndexStateStore;
+    private final Set<String> ignoredFields;
 
 
     @Inject
     public IndexServiceImpl( final GraphManagerFactory graphManagerFactory, final EntityIndexFactory entityIndexFactory,
                              final MapManagerFactory mapManagerFactory,
-                             final CollectionSettingsFactory collectionSettingsFactory,
                              final EdgesObservable edgesObservable, final IndexFig indexFig,
                              final IndexLocationStrategyFactory indexLocationStrategyFactory,
-                             final MetricsFactory metricsFactory ) {
+                             final MetricsFactory metricsFactory, final CoreIndexFig coreIndexFig,
+                             final EntityIndexStateStore entityIndexStateStore ) {
         this.graphManagerFactory = graphManagerFactory;
         this.entityIndexFactory = entityIndexFactory;
         this.mapManagerFactory = mapManagerFactory;
         this.edgesObservable = edgesObservable;
         this.indexFig = indexFig;
         this.indexLocationStrategyFactory = indexLocationStrategyFactory;
-        this.collectionSettingsFactory = collectionSettingsFactory;
         this.indexTimer = metricsFactory.getTimer( IndexServiceImpl.class, "index.update_all");
         this.addTimer = metricsFactory.getTimer( IndexServiceImpl.class, "index.add" );
+        this.documentMeter = metricsFactory.getMeter( IndexServiceImpl.class, "index.entity.documents" );
+        this.skippedMeter = metricsFactory.getMeter( IndexServiceImpl.class, "index.entity.documents.skipped" );
+        this.entityIndexStateStore = entityIndexStateStore;
+        this.ignoredFields = new HashSet<>();
+
+        for ( final String field : coreIndexFig.getSkipUnchangedIgnoredFields().split( "," ) ) {
+            if ( !field.trim().isEmpty() ) {
+                ignoredFields.add( field.trim().toLowerCase() );
+            }
+        }
     }
 
 
@@ -101,6 +113,19 @@ public class IndexServiceImpl implements IndexService {
 
         final Id entityId = entity.getId();
 
+        final boolean trackState = entityIndexStateStore.isEnabled();
+
+        final Optional<EntityIndexState> priorState =
+            trackState ? entityIndexStateStore.get( applicationScope, entityId ) : Optional.absent();
+
+        //only skip updates past what we've checked, a reindex or a replay of the same version always writes
+        final boolean skipUnchanged = priorState.isPresent()
+            && UUIDComparator.staticCompare( entity.getVersion(), priorState.get().getCheckedVersion() ) > 0;
+
+        //the digests of this version, and the projections we write documents for
+        final Map<String, String> digests = new ConcurrentHashMap<>();
+        final Map<String, EntityIndexState.Projection> written = new ConcurrentHashMap<>();
+
 
         //we always index in the target scope
         final Observable<Edge> edgesToTarget = edgesObservable.edgesToTarget( gm, entityId );
@@ -118,16 +143,52 @@ public class IndexServiceImpl implements IndexService {
             .flatMap( buffer -> Observable.from( buffer )
                 //collect results into a single batch
                 .collect( () -> ei.createBatch(), ( batch, indexEdge ) -> {
+
+                    final Optional<Set<String>> fieldsToIndex =
+                        entityIndexStateStore.getFieldsToIndex( indexEdge.getNodeId(), indexEdge.getEdgeName() );
+
+                    if ( trackState ) {
+                        final String projectionKey = EntityIndexStateStore.getProjectionKey( fieldsToIndex );
+
+                        final String digest = digests.computeIfAbsent( projectionKey,
+                            key -> EntityIndexStateStore.getDigest( entity, fieldsToIndex, ignoredFields ) );
+
+                        final EntityIndexState.Projection prior =
+                            skipUnchanged ? priorState.get().getProjection( projectionKey ) : null;
+
+                        //nothing we index changed, the existing document still describes the entity
+                        if ( prior != null && prior.getDigest().equals( digest ) ) {
+                            skippedMeter.mark();
+                            return;
+                        }
+
+                        written.put( projectionKey, new EntityIndexState.Projection( digest, entity.getVersion() ) );
+                    }
+
                     if (logger.isDebugEnabled()) {
                         logger.debug("adding edge {} to batch for entity {}", indexEdge, entity);
                     }
 
-                    final Optional<Set<String>> fieldsToIndex = getFilteredStringObjectMap( indexEdge );
+                    documentMeter.mark();
 
                     batch.index( indexEdge, entity ,fieldsToIndex);
                 } )
                     //return the future from the batch execution
-                .map( batch -> batch.build() ) );
+                .map( batch -> batch.build() ) )
+
+            //every edge of the batch was skipped
+            .filter( message -> !message.isEmpty() )
+
+            //record what we checked once every batch is built
+            .doOnCompleted( () -> {
+                if ( trackState ) {
+                    final EntityIndexState state = priorState.isPresent() ?
+                        priorState.get().merge( entity.getVersion(), written ) :
+                        new EntityIndexState( entity.getVersion(), written );
+
+                    entityIndexStateStore.put( applicationScope, entityId, state );
+                }
+            } );
 
         return ObservableTimer.time( batches, indexTimer );
     }
@@ -155,7 +216,12 @@ public class IndexServiceImpl implements IndexService {
                 logger.debug("adding edge {} to batch for entity {}", indexEdge, entity);
             }
 
-            Optional<Set<String>> fieldsToIndex = getFilteredStringObjectMap( indexEdge );
+            Optional<Set<String>> fieldsToIndex =
+                entityIndexStateStore.getFieldsToIndex( indexEdge.getNodeId(), indexEdge.getEdgeName() );
+
+            if ( entityIndexStateStore.isEnabled() ) {
+                addProjection( applicationScope, entity, fieldsToIndex );
+            }
 
             batch.index( indexEdge, entity ,fieldsToIndex);
 
@@ -167,55 +233,30 @@ public class IndexServiceImpl implements IndexService {
 
     }
 
+
     /**
-     * This method takes in an entity and flattens it out then begins the process to filter out
-     * properties that we do not want to index. Once flatted we parse through each property
-     * and verify that we want it to be indexed on. The set of default properties that will always be indexed are as follows.
-     * UUID - TYPE - MODIFIED - CREATED. Depending on the schema this may change. For instance, users will always require
-     * NAME, but the above four will always be taken in.
-
-     * @param indexEdge
-     * @return This returns a filtered map that contains the flatted properties of the entity. If there isn't a schema
-     * associated with the collection then return null ( and index the entity in its entirety )
+     * A new edge may index fields no other edge of the entity indexes.  Record the projection so the next unchanged
+     * update skips this edge too.  Known projections need nothing, the edge document is at least as new as theirs.
      */
-    private Optional<Set<String>> getFilteredStringObjectMap( final IndexEdge indexEdge ) {
-
-        Id owner = new SimpleId( indexEdge.getNodeId().getUuid(), TYPE_APPLICATION );
-
-        Set<String> defaultProperties;
-
-        String collectionName = CpNamingUtils.getCollectionNameFromEdgeName( indexEdge.getEdgeName() );
-
-        CollectionSettings collectionSettings =
-            collectionSettingsFactory.getInstance( new CollectionSettingsScopeImpl( owner, collectionName) );
-
-        Optional<Map<String, Object>> collectionIndexingSchema =
-            collectionSettings.getCollectionSettings( collectionName );
-
-        //If we do have a schema then parse it and add it to a list of properties we want to keep.Otherwise return.
-        if ( collectionIndexingSchema.isPresent()) {
-
-            Map jsonMapData = collectionIndexingSchema.get();
-            Schema schema = Schema.getDefaultSchema();
-            defaultProperties = schema.getRequiredProperties( collectionName );
+    private void addProjection( final ApplicationScope applicationScope, final Entity entity,
+                                final Optional<Set<String>> fieldsToIndex ) {
 
-            Object fields = jsonMapData.get("fields");
+        final Optional<EntityIndexState> state = entityIndexStateStore.get( applicationScope, entity.getId() );
 
-            if ( fields != null && fields instanceof String && "all".equalsIgnoreCase(fields.toString())) {
-                return Optional.absent();
-            }
-
-            if ( fields != null && fields instanceof List ) {
-                defaultProperties.addAll( (List) fields );
-            }
+        final String projectionKey = EntityIndexStateStore.getProjectionKey( fieldsToIndex );
 
-        } else {
-            return Optional.absent();
+        if ( !state.isPresent() || state.get().getProjection( projectionKey ) != null ) {
+            return;
         }
 
-        return Optional.of(defaultProperties);
+        final EntityIndexState.Projection projection = new EntityIndexState.Projection(
+            EntityIndexStateStore.getDigest( entity, fieldsToIndex, ignoredFields ), entity.getVersion() );
+
+        entityIndexStateStore.put( applicationScope, entity.getId(), state.get()
+            .merge( state.get().getCheckedVersion(), Collections.singletonMap( projectionKey, projection ) ) );
     }
 
+
     //Steps to delete an IndexEdge.
     //1.Take the search edge given and search for all the edges in elasticsearch matching that search edge
     //2. Batch Delete all of those edges returned in the previous search.
@@ -306,8 +347,18 @@ public class IndexServiceImpl implements IndexService {
 
         final EntityIndexBatch batch = ei.createBatch();
 
+        //an unchanged update leaves the collection document at an older version, don't remove it
+        final Optional<EntityIndexState> state = entityIndexStateStore.isEnabled() ?
+            entityIndexStateStore.get( applicationScope, entityId ) : Optional.absent();
+
+        final String projectionKey = entityIndexStateStore.getProjectionKey( searchEdgeFromSource );
+
         versions.forEach( version -> {
 
+            if ( state.isPresent() && state.get().isPending( projectionKey, version ) ) {
+                return;
+            }
+
             batch.deindex(searchEdgeFromSource, entityId, version);
 
         });
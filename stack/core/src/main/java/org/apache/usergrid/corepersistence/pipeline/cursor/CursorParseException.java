@@ -24,6 +24,11 @@ package org.apache.usergrid.corepersistence.pipeline.cursor;
  * Thrown when we can't parse a cursor
  */
 public class CursorParseException extends RuntimeException {
+    public CursorParseException( final String message ) {
+        super( message );
+    }
+
+
     public CursorParseException( final String message, final Throwable cause ) {
         super( message, cause );
     }
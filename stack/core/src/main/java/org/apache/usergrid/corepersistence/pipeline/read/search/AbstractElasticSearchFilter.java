@@ -43,7 +43,7 @@ import java.util.Collection;
 /**
  * Command for reading graph edges
  */
-public abstract class AbstractElasticSearchFilter extends AbstractPathFilter<Id, Candidate, Integer> {
+public abstract class AbstractElasticSearchFilter extends AbstractPathFilter<Id, Candidate, ElasticsearchCursor> {
 
     private static final Logger logger = LoggerFactory.getLogger( AbstractElasticSearchFilter.class );
 
@@ -92,11 +92,14 @@ public abstract class AbstractElasticSearchFilter extends AbstractPathFilter<Id,
                 //our offset to our start value.  This will be set the first time we emit
                 //after we receive new ids, we want to reset this to 0
                 //set our our constant state
-                final Optional<Integer> startFromCursor = getSeekValue();
+                final Optional<ElasticsearchCursor> startFromCursor = getSeekValue();
 
-                final int startOffset = startFromCursor.or( 0 );
+                int currentOffSet = startFromCursor.isPresent() ? startFromCursor.get().getOffset() : 0;
 
-                int currentOffSet = startOffset;
+                //the position of the hit before the next one we emit. When present, each page is searched after
+                //it so deep pages cost the same as the first, otherwise we fall back to the offset
+                Optional<SearchAfter> lastPosition =
+                    startFromCursor.isPresent() ? startFromCursor.get().getSearchAfter() : Optional.absent();
 
                 subscriber.onStart();
 
@@ -104,28 +107,35 @@ public abstract class AbstractElasticSearchFilter extends AbstractPathFilter<Id,
                 while ( !subscriber.isUnsubscribed() ) {
 
                     try {
-                        final CandidateResults candidateResults =
-                            applicationEntityIndex.search( searchEdge, searchTypes, query, limit, currentOffSet );
+                        final CandidateResults candidateResults = applicationEntityIndex
+                            .search( searchEdge, searchTypes, query, limit, currentOffSet, lastPosition );
 
 
                         Collection<SelectFieldMapping> fieldMappingCollection = candidateResults.getGetFieldMappings();
 
 
-                        for( CandidateResult candidateResult: candidateResults){
+                        for ( int i = 0; i < candidateResults.size(); i++ ) {
 
                             //our subscriber unsubscribed, break out
                             if(subscriber.isUnsubscribed()){
                                 return;
                             }
 
+                            final CandidateResult candidateResult = candidateResults.get( i );
+
                             final Candidate candidate = new Candidate( candidateResult, searchEdge, fieldMappingCollection );
 
+                            //resuming from this cursor reads this candidate again, like the offset does, and the
+                            //resume filter skips it
+                            final ElasticsearchCursor cursor = new ElasticsearchCursor( currentOffSet, lastPosition );
+
                             final FilterResult<Candidate>
-                                result = createFilterResult( candidate, currentOffSet, idFilterResult.getPath() );
+                                result = createFilterResult( candidate, cursor, idFilterResult.getPath() );
 
                             subscriber.onNext( result );
 
                             currentOffSet++;
+                            lastPosition = candidateResults.getPosition( i );
                         }
 
                         /**
@@ -155,7 +165,7 @@ public abstract class AbstractElasticSearchFilter extends AbstractPathFilter<Id,
 
 
     @Override
-    protected CursorSerializer<Integer> getCursorSerializer() {
+    protected CursorSerializer<ElasticsearchCursor> getCursorSerializer() {
         return ElasticsearchCursorSerializer.INSTANCE;
     }
 
@@ -22,6 +22,8 @@ package org.apache.usergrid.corepersistence.pipeline.read.search;
 
 import java.util.*;
 
+import org.apache.usergrid.corepersistence.index.EntityIndexState;
+import org.apache.usergrid.corepersistence.index.EntityIndexStateStore;
 import org.apache.usergrid.corepersistence.index.IndexLocationStrategyFactory;
 import org.apache.usergrid.persistence.index.*;
 import org.apache.usergrid.persistence.index.impl.IndexProducer;
@@ -62,18 +64,21 @@ public class CandidateEntityFilter extends AbstractFilter<FilterResult<Candidate
     private final EntityIndexFactory entityIndexFactory;
     private final IndexLocationStrategyFactory indexLocationStrategyFactory;
     private final IndexProducer indexProducer;
+    private final EntityIndexStateStore entityIndexStateStore;
 
 
     @Inject
     public CandidateEntityFilter( final EntityCollectionManagerFactory entityCollectionManagerFactory,
                                   final EntityIndexFactory entityIndexFactory,
                                   final IndexLocationStrategyFactory indexLocationStrategyFactory,
-                                  final IndexProducer indexProducer
+                                  final IndexProducer indexProducer,
+                                  final EntityIndexStateStore entityIndexStateStore
                                   ) {
         this.entityCollectionManagerFactory = entityCollectionManagerFactory;
         this.entityIndexFactory = entityIndexFactory;
         this.indexLocationStrategyFactory = indexLocationStrategyFactory;
         this.indexProducer = indexProducer;
+        this.entityIndexStateStore = entityIndexStateStore;
     }
 
 
@@ -111,13 +116,17 @@ public class CandidateEntityFilter extends AbstractFilter<FilterResult<Candidate
                 final Observable<FilterResult<Entity>> entitySetObservable =
                     candidates.flatMap(candidatesList -> {
                         Collection<SelectFieldMapping> mappings = candidatesList.get(0).getFields();
+                        //with a select clause only read the top level fields we project, never the whole entity
+                        final Set<String> loadFields = getLoadFields( mappings );
                         Observable<EntitySet> entitySets = Observable.from(candidatesList)
                             .map(candidateEntry -> candidateEntry.getCandidateResult().getId()).toList()
-                            .flatMap(idList -> entityCollectionManager.load(idList));
+                            .flatMap(idList -> loadFields == null ? entityCollectionManager.load(idList)
+                                : entityCollectionManager.load(idList, loadFields));
                         //now we have a collection, validate our canidate set is correct.
                         return entitySets.map(
                             entitySet -> new EntityVerifier(
-                                applicationIndex.createBatch(), entitySet, candidateResults,indexProducer)
+                                applicationIndex.createBatch(), entitySet, candidateResults,indexProducer,
+                                entityIndexStateStore, applicationScope)
                         )
                             .doOnNext(entityCollector -> entityCollector.merge())
                             .flatMap(entityCollector -> Observable.from(entityCollector.getResults()))
@@ -161,6 +170,30 @@ public class CandidateEntityFilter extends AbstractFilter<FilterResult<Candidate
     }
 
 
+    /**
+     * Get the top level fields needed to build the selected fields, or null if the entire entity is selected
+     *
+     * @param mappings The select field mappings of the query
+     */
+    private Set<String> getLoadFields( final Collection<SelectFieldMapping> mappings ) {
+        if ( mappings == null || mappings.isEmpty() ) {
+            return null;
+        }
+
+        final Set<String> fields = new HashSet<>( mappings.size() * 2 );
+
+        for ( final SelectFieldMapping mapping : mappings ) {
+            final String sourceFieldName = mapping.getSourceFieldName();
+
+            //field names can contain dots, so keep the full name as well as the nested root
+            fields.add( sourceFieldName );
+            fields.add( sourceFieldName.split( "\\." )[0] );
+        }
+
+        return fields;
+    }
+
+
     /**
      * Sets field in result map with support for nested fields via recursion.
      *
@@ -230,15 +263,22 @@ public class CandidateEntityFilter extends AbstractFilter<FilterResult<Candidate
         private final List<FilterResult<Candidate>> candidateResults;
         private final IndexProducer indexProducer;
         private final EntitySet entitySet;
+        private final EntityIndexStateStore entityIndexStateStore;
+        private final ApplicationScope applicationScope;
+        private Map<Id, EntityIndexState> indexStates = Collections.emptyMap();
 
 
         public EntityVerifier( final EntityIndexBatch batch, final EntitySet entitySet,
                                final List<FilterResult<Candidate>> candidateResults,
-                               final IndexProducer indexProducer) {
+                               final IndexProducer indexProducer,
+                               final EntityIndexStateStore entityIndexStateStore,
+                               final ApplicationScope applicationScope ) {
             this.batch = batch;
             this.entitySet = entitySet;
             this.candidateResults = candidateResults;
             this.indexProducer = indexProducer;
+            this.entityIndexStateStore = entityIndexStateStore;
+            this.applicationScope = applicationScope;
             this.results = new ArrayList<>( entitySet.size() );
         }
 
@@ -248,6 +288,8 @@ public class CandidateEntityFilter extends AbstractFilter<FilterResult<Candidate
          */
         public void merge() {
 
+            loadIndexStates();
+
             for ( final FilterResult<Candidate> candidateResult : candidateResults ) {
                 validate( candidateResult );
             }
@@ -257,6 +299,34 @@ public class CandidateEntityFilter extends AbstractFilter<FilterResult<Candidate
         }
 
 
+        /**
+         * Load the index state of entities updated since their candidate was written, in a single read.  An update
+         * that changed no indexed field leaves the older document in place, and the state tells us so.
+         */
+        private void loadIndexStates() {
+
+            if ( !entityIndexStateStore.isEnabled() ) {
+                return;
+            }
+
+            final Set<Id> updatedIds = new HashSet<>();
+
+            for ( final FilterResult<Candidate> candidateResult : candidateResults ) {
+                final CandidateResult candidate = candidateResult.getValue().getCandidateResult();
+                final MvccEntity entity = entitySet.getEntity( candidate.getId() );
+
+                if ( entity != null && entity.getEntity().isPresent() && entity.getStatus() != MvccEntity.Status.DELETED
+                    && UUIDComparator.staticCompare( entity.getVersion(), candidate.getVersion() ) > 0 ) {
+                    updatedIds.add( entity.getId() );
+                }
+            }
+
+            if ( !updatedIds.isEmpty() ) {
+                indexStates = entityIndexStateStore.get( applicationScope, updatedIds );
+            }
+        }
+
+
         public List<FilterResult<Entity>> getResults() {
             return results;
         }
@@ -301,11 +371,30 @@ public class CandidateEntityFilter extends AbstractFilter<FilterResult<Candidate
 
 
 
+            //only present when the entity was updated, and is neither missing nor deleted
+            final EntityIndexState indexState = indexStates.get( entityId );
+
+            final String projectionKey =
+                indexState != null ? entityIndexStateStore.getProjectionKey( searchEdge ) : null;
+
+            //the update changed none of the fields this document indexes, it still describes the entity
+            final boolean unchanged =
+                indexState != null && indexState.isCurrent( projectionKey, candidateVersion, entityVersion );
+
             //entity is newer than ES version, could be an update or the entity is marked as deleted
-            if ( UUIDComparator.staticCompare( entityVersion, candidateVersion ) > 0 ||
+            if ( ( UUIDComparator.staticCompare( entityVersion, candidateVersion ) > 0 && !unchanged ) ||
                     !entity.getEntity().isPresent()  ||
                     entity.getStatus() == MvccEntity.Status.DELETED ) {
 
+                //the update isn't indexed yet, and may be skipped as unchanged.  Drop the result but keep the document
+                if ( indexState != null && indexState.isPending( projectionKey, candidateVersion ) ) {
+                    if(logger.isDebugEnabled()){
+                        logger.debug( "Skipping entity on edge {} for entityId {} and version {} pending its index",
+                            searchEdge, entityId, entityVersion);
+                    }
+                    return;
+                }
+
                 // when updating entities, we don't delete previous versions from ES so this action is expected
                 if(logger.isDebugEnabled()){
                     logger.debug( "Deindexing stale entity on edge {} for entityId {} and version {}",
@@ -21,9 +21,15 @@ package org.apache.usergrid.corepersistence.pipeline.read.search;
 
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
+import org.apache.usergrid.corepersistence.index.EntityIndexState;
+import org.apache.usergrid.corepersistence.index.EntityIndexStateStore;
 import org.apache.usergrid.corepersistence.index.IndexLocationStrategyFactory;
 import org.apache.usergrid.persistence.index.*;
 import org.apache.usergrid.persistence.index.impl.IndexProducer;
@@ -55,17 +61,20 @@ public class CandidateIdFilter extends AbstractFilter<FilterResult<Candidate>, F
     private final EntityIndexFactory entityIndexFactory;
     private final IndexLocationStrategyFactory indexLocationStrategyFactory;
     private final IndexProducer indexProducer;
+    private final EntityIndexStateStore entityIndexStateStore;
 
 
     @Inject
     public CandidateIdFilter( final EntityCollectionManagerFactory entityCollectionManagerFactory,
                               final EntityIndexFactory entityIndexFactory,
                               final IndexLocationStrategyFactory indexLocationStrategyFactory,
-                              final IndexProducer indexProducer) {
+                              final IndexProducer indexProducer,
+                              final EntityIndexStateStore entityIndexStateStore) {
         this.entityCollectionManagerFactory = entityCollectionManagerFactory;
         this.entityIndexFactory = entityIndexFactory;
         this.indexLocationStrategyFactory = indexLocationStrategyFactory;
         this.indexProducer = indexProducer;
+        this.entityIndexStateStore = entityIndexStateStore;
     }
 
 
@@ -101,7 +110,7 @@ public class CandidateIdFilter extends AbstractFilter<FilterResult<Candidate>, F
 
                     return versionSetObservable.map(
                         entitySet -> new EntityCollector( applicationIndex.createBatch(), entitySet,
-                            candidateResults, indexProducer ) ).doOnNext( entityCollector -> entityCollector.merge() ).flatMap(
+                            candidateResults, indexProducer, entityIndexStateStore, applicationScope ) ).doOnNext( entityCollector -> entityCollector.merge() ).flatMap(
                         entityCollector -> Observable.from( entityCollector.collectResults() ) );
                 } );
 
@@ -121,14 +130,21 @@ public class CandidateIdFilter extends AbstractFilter<FilterResult<Candidate>, F
         private final List<FilterResult<Candidate>> candidateResults;
         private final IndexProducer indexProducer;
         private final VersionSet versionSet;
+        private final EntityIndexStateStore entityIndexStateStore;
+        private final ApplicationScope applicationScope;
+        private Map<Id, EntityIndexState> indexStates = Collections.emptyMap();
 
 
         public EntityCollector( final EntityIndexBatch batch, final VersionSet versionSet,
-                                final List<FilterResult<Candidate>> candidateResults, final IndexProducer indexProducer ) {
+                                final List<FilterResult<Candidate>> candidateResults, final IndexProducer indexProducer,
+                                final EntityIndexStateStore entityIndexStateStore,
+                                final ApplicationScope applicationScope ) {
             this.batch = batch;
             this.versionSet = versionSet;
             this.candidateResults = candidateResults;
             this.indexProducer = indexProducer;
+            this.entityIndexStateStore = entityIndexStateStore;
+            this.applicationScope = applicationScope;
             this.results = new ArrayList<>( versionSet.size() );
         }
 
@@ -138,6 +154,8 @@ public class CandidateIdFilter extends AbstractFilter<FilterResult<Candidate>, F
          */
         public void merge() {
 
+            loadIndexStates();
+
             for ( final FilterResult<Candidate> candidateResult : candidateResults ) {
                 validate( candidateResult );
             }
@@ -147,6 +165,32 @@ public class CandidateIdFilter extends AbstractFilter<FilterResult<Candidate>, F
         }
 
 
+        /**
+         * Load the index state of entities updated since their candidate was written, in a single read
+         */
+        private void loadIndexStates() {
+
+            if ( !entityIndexStateStore.isEnabled() ) {
+                return;
+            }
+
+            final Set<Id> updatedIds = new HashSet<>();
+
+            for ( final FilterResult<Candidate> candidateResult : candidateResults ) {
+                final CandidateResult candidate = candidateResult.getValue().getCandidateResult();
+                final MvccLogEntry logEntry = versionSet.getMaxVersion( candidate.getId() );
+
+                if ( UUIDComparator.staticCompare( logEntry.getVersion(), candidate.getVersion() ) > 0 ) {
+                    updatedIds.add( logEntry.getEntityId() );
+                }
+            }
+
+            if ( !updatedIds.isEmpty() ) {
+                indexStates = entityIndexStateStore.get( applicationScope, updatedIds );
+            }
+        }
+
+
         public List<FilterResult<Id>> collectResults() {
             return results;
         }
@@ -169,8 +213,19 @@ public class CandidateIdFilter extends AbstractFilter<FilterResult<Candidate>, F
 
             final Id entityId = logEntry.getEntityId();
 
-            //entity is newer than ES version
-            if ( UUIDComparator.staticCompare( entityVersion, candidateVersion ) > 0 ) {
+            final EntityIndexState indexState = indexStates.get( entityId );
+
+            final String projectionKey =
+                indexState != null ? entityIndexStateStore.getProjectionKey( searchEdge ) : null;
+
+            //entity is newer than ES version, unless the update changed none of the fields this document indexes
+            if ( UUIDComparator.staticCompare( entityVersion, candidateVersion ) > 0 &&
+                ( indexState == null || !indexState.isCurrent( projectionKey, candidateVersion, entityVersion ) ) ) {
+
+                //the update isn't indexed yet, and may be skipped as unchanged.  Drop the result but keep the document
+                if ( indexState != null && indexState.isPending( projectionKey, candidateVersion ) ) {
+                    return;
+                }
 
                 logger.warn( "Deindexing stale entity on edge {} for entityId {} and version {}",
                         searchEdge, entityId, entityVersion );
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.corepersistence.pipeline.read.search;
+
+
+import org.apache.usergrid.persistence.index.SearchAfter;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+
+/**
+ * The cursor of an elasticsearch read.  The offset is always kept, the sort position of the previous hit is kept
+ * when the query is in the default sort order, so the read can resume from there instead of skipping offset hits
+ */
+public class ElasticsearchCursor {
+
+    private final int offset;
+    private final Optional<SearchAfter> searchAfter;
+
+
+    public ElasticsearchCursor( final int offset, final Optional<SearchAfter> searchAfter ) {
+        Preconditions.checkNotNull( searchAfter, "searchAfter is required" );
+
+        this.offset = offset;
+        this.searchAfter = searchAfter;
+    }
+
+
+    /**
+     * The offset of the hit to resume at
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+
+    /**
+     * The position to search after to resume at the hit
+     */
+    public Optional<SearchAfter> getSearchAfter() {
+        return searchAfter;
+    }
+
+
+    @Override
+    public boolean equals( final Object o ) {
+        if ( this == o ) {
+            return true;
+        }
+        if ( !( o instanceof ElasticsearchCursor ) ) {
+            return false;
+        }
+
+        final ElasticsearchCursor that = ( ElasticsearchCursor ) o;
+
+        return offset == that.offset && searchAfter.equals( that.searchAfter );
+    }
+
+
+    @Override
+    public int hashCode() {
+        return 31 * offset + searchAfter.hashCode();
+    }
+}
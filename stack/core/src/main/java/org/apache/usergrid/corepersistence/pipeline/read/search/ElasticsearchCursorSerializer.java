@@ -21,19 +21,70 @@ package org.apache.usergrid.corepersistence.pipeline.read.search;
 
 
 import org.apache.usergrid.corepersistence.pipeline.cursor.AbstractCursorSerializer;
+import org.apache.usergrid.corepersistence.pipeline.cursor.CursorParseException;
+import org.apache.usergrid.persistence.index.SearchAfter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Optional;
 
 
 /**
- * ElasticSearch cursor serializer
+ * ElasticSearch cursor serializer.  Cursors without a sort position are written as the plain offset, which is also
+ * how cursors were written before positions were kept, so existing cursors still parse
  */
-public class ElasticsearchCursorSerializer extends AbstractCursorSerializer<Integer> {
+public class ElasticsearchCursorSerializer extends AbstractCursorSerializer<ElasticsearchCursor> {
 
 
     public static final ElasticsearchCursorSerializer INSTANCE = new ElasticsearchCursorSerializer();
 
+    private static final String OFFSET = "o";
+    private static final String TIMESTAMP = "t";
+    private static final String ENTITY_ID = "i";
+    private static final String VERSION = "v";
+
+
+    @Override
+    public ElasticsearchCursor fromJsonNode( final JsonNode node, final ObjectMapper objectMapper ) {
+
+        if ( node.isNumber() ) {
+            return new ElasticsearchCursor( node.asInt(), Optional.<SearchAfter>absent() );
+        }
+
+        if ( !node.has( OFFSET ) || !node.has( TIMESTAMP ) || !node.has( ENTITY_ID ) || !node.has( VERSION ) ) {
+            throw new CursorParseException( "Unable to deserialize value " + node );
+        }
+
+        final SearchAfter searchAfter = new SearchAfter( node.get( TIMESTAMP ).asLong(), node.get( ENTITY_ID ).asText(),
+            node.get( VERSION ).asText() );
+
+        return new ElasticsearchCursor( node.get( OFFSET ).asInt(), Optional.of( searchAfter ) );
+    }
+
+
+    @Override
+    public JsonNode toNode( final ObjectMapper objectMapper, final ElasticsearchCursor value ) {
+
+        if ( !value.getSearchAfter().isPresent() ) {
+            return objectMapper.valueToTree( value.getOffset() );
+        }
+
+        final SearchAfter searchAfter = value.getSearchAfter().get();
+
+        final ObjectNode node = objectMapper.createObjectNode();
+        node.put( OFFSET, value.getOffset() );
+        node.put( TIMESTAMP, searchAfter.getEdgeTimestamp() );
+        node.put( ENTITY_ID, searchAfter.getEntityId() );
+        node.put( VERSION, searchAfter.getEntityVersion() );
+
+        return node;
+    }
+
+
     @Override
-    protected Class<Integer> getType() {
-        return Integer.class;
+    protected Class<ElasticsearchCursor> getType() {
+        return ElasticsearchCursor.class;
     }
 
 
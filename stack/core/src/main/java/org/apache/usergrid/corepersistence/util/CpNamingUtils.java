@@ -186,6 +186,22 @@ public class CpNamingUtils {
     }
 
 
+    /**
+     * Create a collection edge stamped with the member's creation time, so writing it again for the same owner and
+     * member writes the same edge instead of a duplicate.  Members without a time uuid are stamped with the
+     * current time.
+     */
+    public static Edge createIdempotentCollectionEdge( final Id sourceId, final String collectionName,
+                                                       final Id entityId ) {
+        final String edgeType = CpNamingUtils.getEdgeTypeFromCollectionName( collectionName );
+
+        final long timestamp =
+            entityId.getUuid().version() == 1 ? entityId.getUuid().timestamp() : createGraphOperationTimestamp();
+
+        return new SimpleEdge( sourceId, edgeType, entityId, timestamp );
+    }
+
+
     /**
      * Create a connection searchEdge
      */
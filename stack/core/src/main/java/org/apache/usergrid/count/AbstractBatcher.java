@@ -17,11 +17,12 @@
 package org.apache.usergrid.count;
 
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Callable;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
@@ -29,6 +30,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,12 +38,19 @@ import org.slf4j.LoggerFactory;
 import org.apache.usergrid.count.common.Count;
 import com.yammer.metrics.Metrics;
 import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Histogram;
 import com.yammer.metrics.core.Timer;
 import com.yammer.metrics.core.TimerContext;
 
 
 /**
- * Base batcher implementation, handles concurrency and locking throughput throttling.
+ * Base batcher implementation, handles concurrency and throughput throttling.
+ *
+ * Counts are pre-aggregated in memory.  Each distinct counter (table, row key and column, so counter name and
+ * resolution bucket) gets a {@link LongAdder} cell, adds to the same counter are summed into it without locking and a
+ * flush submits a single count per cell.  A flush happens every batch interval, or sooner when the batch has reached
+ * the batch size in cells or in adds.  When more than the max pending submissions are still running the flush waits
+ * for the oldest to complete, which slows down the adds that trigger flushes.
  *
  * @author zznate
  */
@@ -50,16 +59,27 @@ public abstract class AbstractBatcher implements Batcher {
 
     protected static final Logger logger = LoggerFactory.getLogger( AbstractBatcher.class );
 
-    private volatile Batch batch;
+    private volatile Batch batch = new Batch();
+    private final AtomicBoolean started = new AtomicBoolean();
     private final AtomicLong opCount = new AtomicLong();
     private final Timer addTimer =
             Metrics.newTimer( AbstractBatcher.class, "add_invocation", TimeUnit.MICROSECONDS, TimeUnit.SECONDS );
+    private final Timer submitWaitTimer =
+            Metrics.newTimer( AbstractBatcher.class, "submit_wait", TimeUnit.MILLISECONDS, TimeUnit.SECONDS );
+    private final Histogram flushLag = Metrics.newHistogram( AbstractBatcher.class, "flush_lag_ms" );
+    private final Histogram flushCells = Metrics.newHistogram( AbstractBatcher.class, "flush_cells" );
     protected final Counter invocationCounter = Metrics.newCounter( AbstractBatcher.class, "batch_add_invocations" );
     // TODO add batchCount, remove shouldSubmit, impl submit, change simpleBatcher to just be an extension
     protected int batchSize = 500;
     protected int batchIntervalSeconds = 10;
+    protected int maxPendingSubmissions = 4;
     private final AtomicLong batchSubmissionCount = new AtomicLong();
 
+    /**
+     * Submissions that may still be running, only accessed while holding the lock on this
+     */
+    private final Deque<Future<?>> pendingSubmissions = new ArrayDeque<>();
+
     /**
      * Create our scheduler to fire our execution
      */
@@ -79,6 +99,14 @@ public abstract class AbstractBatcher implements Batcher {
     }
 
 
+    /**
+     * Set the number of submissions that can be running before a flush waits for them
+     */
+    public void setMaxPendingSubmissions( int maxPendingSubmissions ) {
+        this.maxPendingSubmissions = maxPendingSubmissions;
+    }
+
+
     public void setBatchSubmitter( BatchSubmitter batchSubmitter ) {
         this.batchSubmitter = batchSubmitter;
     }
@@ -99,59 +127,128 @@ public abstract class AbstractBatcher implements Batcher {
         invocationCounter.inc();
         final TimerContext context = addTimer.time();
         if ( batchSize == 1 ) {
-            getBatch().addSerial( count );
+            addSerial( count );
         }
         else {
-            getBatch().add( count );
+            start();
+
+            Batch active = batch;
+
+            //a flush closed the batch after we read it, the flush has already swapped in a new one
+            while ( !active.add( count ) ) {
+                active = batch;
+            }
+
+            if ( active.isFull() ) {
+                flush( active );
+            }
         }
         context.stop();
     }
 
 
-    private Batch getBatch() {
-        Batch active = batch;
-        if ( active == null ) {
-            synchronized ( this ) {
-                active = batch;
-                if ( active == null ) {
-                    batch = active = new Batch();
+    private void start() {
+        //schedule our task for execution on the first add
+        if ( !started.get() && started.compareAndSet( false, true ) ) {
+            scheduler.scheduleWithFixedDelay( new BatchFlusher(), this.batchIntervalSeconds,
+                this.batchIntervalSeconds, TimeUnit.SECONDS );
+        }
+    }
 
-                    //now schedule our task for execution since we're creating a batch
-                    scheduler.scheduleWithFixedDelay( new BatchFlusher(), this.batchIntervalSeconds,
-                        this.batchIntervalSeconds, TimeUnit.SECONDS );
 
-                }
+    private void flush(){
+        flush( batch );
+    }
+
+
+    /**
+     * Flush the batch if it's still the active one
+     */
+    private void flush( final Batch expected ) {
+        synchronized ( this ) {
+            final Batch flushing = batch;
+
+            if ( flushing != expected || flushing.isEmpty() ) {
+                return;
+            }
+
+            batch = new Batch();
+
+            final List<Count> counts = flushing.close();
+
+            flushLag.update( System.currentTimeMillis() - flushing.created );
+            flushCells.update( counts.size() );
+
+            awaitPendingSubmissions();
+
+            final Future<?> future = batchSubmitter.submit( counts );
+
+            if ( future != null ) {
+                pendingSubmissions.add( future );
             }
+
+            batchSubmissionCount.incrementAndGet();
+            opCount.incrementAndGet();
         }
+    }
 
-        //we want to flush, and we have no capacity left, perform a flush
-        if ( batchSize > 1 && active.getCapacity() == 0 ) {
-            synchronized ( this ) {
-                if ( active.getCapacity() == 0 ) {
-                    active.flush();
-                }
+
+    /**
+     * Wait until there is room for another submission
+     */
+    private void awaitPendingSubmissions() {
+        pendingSubmissions.removeIf( Future::isDone );
+
+        if ( pendingSubmissions.size() < maxPendingSubmissions ) {
+            return;
+        }
+
+        final TimerContext wait = submitWaitTimer.time();
+
+        while ( pendingSubmissions.size() >= maxPendingSubmissions ) {
+            try {
+                pendingSubmissions.poll().get();
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            catch ( Exception e ) {
+                logger.error( "Counter submission failed", e );
             }
         }
 
-        return active;
+        wait.stop();
     }
 
-    private void flush(){
-        synchronized(this) {
-            getBatch().flush();
+
+    private void addSerial( Count count ) {
+        Future f = batchSubmitter.submit( Arrays.asList( count ) );
+        try {
+            f.get();
+        }
+        catch ( Exception ex ) {
+            logger.error( "Unable to add count, dropping count {}", count, ex );
         }
+        batchSubmissionCount.incrementAndGet();
+        opCount.incrementAndGet();
     }
 
 
     /**
-     * Runnable that will flush the batch every 30 seconds
+     * Runnable that will flush the batch every batch interval
      */
     private final class BatchFlusher implements Runnable {
 
         @Override
         public void run() {
             //explicitly flush the batch
-            AbstractBatcher.this.flush();
+            try {
+                AbstractBatcher.this.flush();
+            }
+            catch ( Exception e ) {
+                logger.error( "Unable to flush counters", e );
+            }
         }
     }
 
@@ -162,55 +259,88 @@ public abstract class AbstractBatcher implements Batcher {
 
 
     class Batch {
-        private BlockingQueue<Count> counts;
-        private final AtomicInteger localCallCounter = new AtomicInteger();
+        private final ConcurrentHashMap<String, Cell> cells = new ConcurrentHashMap<>();
+        private final AtomicInteger adds = new AtomicInteger();
+        private final AtomicInteger writers = new AtomicInteger();
+        private final long created = System.currentTimeMillis();
+        private volatile boolean closed;
+
+
+        /**
+         * Add the count to its cell.  Returns false if the batch has been closed, the count belongs in the next batch
+         */
+        boolean add( Count count ) {
+            writers.incrementAndGet();
+            try {
+                if ( closed ) {
+                    return false;
+                }
 
+                final String counterName = count.getCounterName();
 
-        Batch() {
-            counts = new ArrayBlockingQueue<>( batchSize );
-        }
+                Cell cell = cells.get( counterName );
+
+                if ( cell == null ) {
+                    cell = cells.computeIfAbsent( counterName, name -> new Cell( count ) );
+                }
 
+                cell.value.add( count.getValue() );
+                adds.incrementAndGet();
 
-        int getCapacity() {
-            return counts.remainingCapacity();
+                return true;
+            }
+            finally {
+                writers.decrementAndGet();
+            }
         }
 
 
+        boolean isFull() {
+            return cells.size() >= batchSize || adds.get() >= batchSize;
+        }
 
 
-        void flush() {
-            ArrayList<Count> flushed = new ArrayList<Count>( batchSize );
-            counts.drainTo( flushed );
-            batchSubmitter.submit( flushed );
-            batchSubmissionCount.incrementAndGet();
-            opCount.incrementAndGet();
-            localCallCounter.incrementAndGet();
+        boolean isEmpty() {
+            return adds.get() == 0;
         }
 
 
-        void add( Count count ) {
-            try {
-                counts.offer( count, 500, TimeUnit.MILLISECONDS );
-            }
-            catch ( Exception ex ) {
-                logger.error( "Unable to add count, dropping count {}", count, ex );
+        /**
+         * Close the batch to adds and return one count per cell.  Waits for adds that are already in progress
+         */
+        List<Count> close() {
+            closed = true;
+
+            while ( writers.get() > 0 ) {
+                Thread.yield();
             }
-        }
 
+            final List<Count> counts = new ArrayList<>( cells.size() );
 
-        void addSerial( Count count ) {
-            Future f = batchSubmitter.submit( Arrays.asList( count ) );
-            try {
-                f.get();
-            }
-            catch ( Exception ex ) {
-                logger.error( "Unable to add count, dropping count {}", count, ex );
+            for ( Cell cell : cells.values() ) {
+                final long value = cell.value.sum();
+
+                if ( value != 0 ) {
+                    counts.add( new Count( cell.count.getTableName(), cell.count.getKeyName(),
+                        cell.count.getColumnName(), value ) );
+                }
             }
-            batchSubmissionCount.incrementAndGet();
-            opCount.incrementAndGet();
-            localCallCounter.incrementAndGet();
+
+            return counts;
         }
+    }
 
 
+    /**
+     * The sum of every count added to one counter
+     */
+    private static final class Cell {
+        private final Count count;
+        private final LongAdder value = new LongAdder();
+
+
+        private Cell( final Count count ) {
+            this.count = count;
+        }
     }
 }
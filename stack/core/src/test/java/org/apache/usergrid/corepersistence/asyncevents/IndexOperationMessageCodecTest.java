@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.corepersistence.asyncevents;
+
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.apache.usergrid.corepersistence.util.ObjectJsonSerializer;
+import org.apache.usergrid.persistence.index.impl.DeIndexOperation;
+import org.apache.usergrid.persistence.index.impl.IndexOperation;
+import org.apache.usergrid.persistence.index.impl.IndexOperationMessage;
+
+import com.google.common.io.BaseEncoding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class IndexOperationMessageCodecTest {
+
+
+    @Test
+    public void smallMessageRoundTrip() {
+
+        final IndexOperationMessage message = createMessage( 1 );
+
+        final String encoded = IndexOperationMessageCodec.INSTANCE.encode( message );
+
+        assertEquals( IndexOperationMessageCodec.FORMAT_SMILE, BaseEncoding.base64().decode( encoded )[0] );
+
+        assertEquals( message, IndexOperationMessageCodec.INSTANCE.decode( encoded ) );
+    }
+
+
+    @Test
+    public void largeMessageIsCompressed() {
+
+        final IndexOperationMessage message = createMessage( 100 );
+
+        final String encoded = IndexOperationMessageCodec.INSTANCE.encode( message );
+        final String json = ObjectJsonSerializer.INSTANCE.toString( message );
+
+        assertEquals( IndexOperationMessageCodec.FORMAT_SMILE_DEFLATE, BaseEncoding.base64().decode( encoded )[0] );
+        assertTrue( "encoded message should be smaller than json", encoded.length() < json.length() );
+
+        assertEquals( message, IndexOperationMessageCodec.INSTANCE.decode( encoded ) );
+    }
+
+
+    @Test
+    public void legacyJsonStillDecodes() {
+
+        final IndexOperationMessage message = createMessage( 3 );
+
+        final String json = ObjectJsonSerializer.INSTANCE.toString( message );
+
+        final IndexOperationMessage decoded = IndexOperationMessageCodec.INSTANCE.decode( json );
+
+        assertFalse( decoded.isEmpty() );
+        assertEquals( message, decoded );
+    }
+
+
+    @Test
+    public void legacyEncodingIsJson() {
+
+        final IndexOperationMessage message = createMessage( 3 );
+
+        final String encoded = IndexOperationMessageCodec.INSTANCE.encodeLegacy( message );
+
+        //earlier releases read the staged value straight into the message
+        assertEquals( message, ObjectJsonSerializer.INSTANCE.fromString( encoded, IndexOperationMessage.class ) );
+        assertEquals( message, IndexOperationMessageCodec.INSTANCE.decode( encoded ) );
+    }
+
+
+    private IndexOperationMessage createMessage( final int size ) {
+
+        final IndexOperationMessage message = new IndexOperationMessage();
+
+        for ( int i = 0; i < size; i++ ) {
+
+            final Map<String, Object> data = new HashMap<>();
+            data.put( "entityId", "thing-" + i );
+            data.put( "entityType", "thing" );
+            data.put( "entitySize", i );
+
+            message.addIndexRequest( new IndexOperation( "usergrid_write", "doc-" + i, data ) );
+            message.addDeIndexRequest( new DeIndexOperation( new String[] { "usergrid_1" }, "old-doc-" + i ) );
+        }
+
+        return message;
+    }
+}
@@ -46,6 +46,7 @@ import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.model.entity.SimpleId;
 import org.apache.usergrid.persistence.model.field.StringField;
 import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+import org.apache.usergrid.utils.JsonUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -86,6 +87,12 @@ public class IndexServiceTest {
     @Inject
     public  IndexFig indexFig;
 
+    @Inject
+    public CollectionSettingsFactory collectionSettingsFactory;
+
+    @Inject
+    public EntityIndexStateStore entityIndexStateStore;
+
     public GraphManager graphManager;
 
     public ApplicationScope applicationScope;
@@ -527,6 +534,86 @@ public class IndexServiceTest {
     }
 
 
+    /**
+     * An update to a field no edge indexes must keep the existing documents instead of writing new ones
+     */
+    @Test
+    public void testUnchangedUpdateWritesNoDocuments() {
+
+        ApplicationScope applicationScope =
+            new ApplicationScopeImpl( new SimpleId( UUID.randomUUID(), "application" ) );
+
+        //only index the string field of things
+        collectionSettingsFactory.getInstance( new CollectionSettingsScopeImpl( applicationScope.getApplication(), "things" ) )
+            .putCollectionSettings( "things", JsonUtils.mapToJsonString(
+                Collections.singletonMap( "fields", Collections.singletonList( "string" ) ) ) );
+
+        final Entity testEntity = new Entity( createId( "thing" ), UUIDGenerator.newTimeUUID() );
+        testEntity.setField( new StringField( "string", "foo" ) );
+        testEntity.setField( new StringField( "other", "a" ) );
+
+        final EntityCollectionManager collectionManager =
+            entityCollectionManagerFactory.createCollectionManager( applicationScope );
+
+        collectionManager.write( testEntity, null ).toBlocking().last();
+
+        final Edge collectionEdge =
+            CpNamingUtils.createCollectionEdge( applicationScope.getApplication(), "things", testEntity.getId() );
+        graphManagerFactory.createEdgeManager( applicationScope ).writeEdge( collectionEdge ).toBlocking().last();
+
+        final int batches = indexService.indexEntity( applicationScope, testEntity )
+            .flatMap( message -> indexProducer.put( message ) ).count().toBlocking().last();
+
+        assertEquals( 1, batches );
+
+        final UUID indexedVersion = testEntity.getVersion();
+
+
+        //update a field we don't index
+        final Entity updated = new Entity( testEntity.getId(), UUIDGenerator.newTimeUUID() );
+        updated.setField( new StringField( "string", "foo" ) );
+        updated.setField( new StringField( "other", "b" ) );
+
+        collectionManager.write( updated, null ).toBlocking().last();
+
+        final List<IndexOperationMessage> skipped =
+            indexService.indexEntity( applicationScope, updated ).toList().toBlocking().last();
+
+        assertEquals( "no documents written for an unchanged projection", 0, skipped.size() );
+
+
+        //the document of the first version is still there, and still describes the entity
+        final EntityIndex entityIndex =
+            entityIndexFactory.createEntityIndex( indexLocationStrategyFactory.getIndexLocationStrategy( applicationScope ) );
+
+        final SearchEdge collectionSearchEdge = CpNamingUtils.createSearchEdgeFromSource( collectionEdge );
+
+        final CandidateResults results =
+            getResults( entityIndex, collectionSearchEdge, SearchTypes.fromTypes( testEntity.getId().getType() ), 1 );
+
+        assertEquals( indexedVersion, results.get( 0 ).getVersion() );
+
+        final EntityIndexState state = entityIndexStateStore.get( applicationScope, testEntity.getId() ).get();
+
+        assertTrue( state.isCurrent( entityIndexStateStore.getProjectionKey( collectionSearchEdge ), indexedVersion,
+            updated.getVersion() ) );
+
+
+        //update a field we index, the document is written again
+        final Entity changed = new Entity( testEntity.getId(), UUIDGenerator.newTimeUUID() );
+        changed.setField( new StringField( "string", "bar" ) );
+        changed.setField( new StringField( "other", "b" ) );
+
+        collectionManager.write( changed, null ).toBlocking().last();
+
+        final List<IndexOperationMessage> written =
+            indexService.indexEntity( applicationScope, changed ).toList().toBlocking().last();
+
+        assertEquals( 1, written.size() );
+        assertEquals( 1, written.get( 0 ).getIndexRequests().size() );
+    }
+
+
     private CandidateResults getResults( final EntityIndex EntityIndex,
                                          final SearchEdge searchEdge, final SearchTypes searchTypes,
                                          final int expectedSize ) {
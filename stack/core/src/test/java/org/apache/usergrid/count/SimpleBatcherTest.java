@@ -17,6 +17,11 @@
 package org.apache.usergrid.count;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Future;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -49,4 +54,45 @@ public class SimpleBatcherTest {
         simpleBatcher.add( new Count( "Counter", "k1", "c4", 1 ) );
         assertEquals( 1, simpleBatcher.getBatchSubmissionCount() );
     }
+
+
+    @Test
+    public void testIdenticalCountsMerged() {
+        final List<Collection<Count>> submitted = new ArrayList<>();
+
+        SimpleBatcher simpleBatcher = new SimpleBatcher();
+        simpleBatcher.setBatchSubmitter( new BatchSubmitter() {
+            @Override
+            public Future<?> submit( final Collection<Count> counts ) {
+                submitted.add( counts );
+                return null;
+            }
+
+
+            @Override
+            public void shutdown() {
+            }
+        } );
+        simpleBatcher.setBatchSize( 5 );
+        simpleBatcher.add( new Count( "Counter", "k1", "c1", 1 ) );
+        simpleBatcher.add( new Count( "Counter", "k1", "c1", 2 ) );
+        simpleBatcher.add( new Count( "Counter", "k1", "c2", 1 ) );
+        simpleBatcher.add( new Count( "Counter", "k2", "c1", 1 ) );
+        simpleBatcher.add( new Count( "Counter", "k1", "c1", 3 ) );
+
+        assertEquals( 1, submitted.size() );
+
+        // one count per counter, with the sum of the adds
+        final Collection<Count> counts = submitted.get( 0 );
+        assertEquals( 3, counts.size() );
+
+        for ( Count count : counts ) {
+            if ( count.getKeyName().equals( "k1" ) && count.getColumnName().equals( "c1" ) ) {
+                assertEquals( 6, count.getValue() );
+            }
+            else {
+                assertEquals( 1, count.getValue() );
+            }
+        }
+    }
 }
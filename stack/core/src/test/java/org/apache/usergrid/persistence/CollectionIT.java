@@ -1490,6 +1490,36 @@ public class CollectionIT extends AbstractCoreIT {
     }
 
 
+    @Test
+    public void testRedefineTermsDoesNotRenameCachedEntity() throws Exception {
+        logger.debug( "testRedefineTermsDoesNotRenameCachedEntity" );
+
+        EntityManager em = app.getEntityManager();
+        assertNotNull( em );
+
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
+        properties.put( "username", "aliased" );
+        properties.put( "email", "aliased@anuff.com" );
+
+        final Entity created = em.create( "user", properties );
+
+        app.refreshIndex();
+
+        // load once so the entity is served from the cache by the query and the get below
+        em.get( created.getUuid() );
+
+        Query query = Query.fromQL( "select {name: username} where username = 'aliased'" );
+
+        Results r = em.searchCollection( em.getApplicationRef(), "users", query );
+        assertEquals( 1, r.size() );
+
+        final Entity loaded = em.get( created.getUuid() );
+
+        assertEquals( "aliased", loaded.getProperty( "username" ) );
+        assertEquals( "aliased@anuff.com", loaded.getProperty( "email" ) );
+    }
+
+
     @Test
     public void testSelectEmailViaConnection() throws Exception {
         logger.debug( "testSelectEmailViaConnection" );
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.cache;
+
+
+import org.safehaus.guicyfig.Default;
+import org.safehaus.guicyfig.FigSingleton;
+import org.safehaus.guicyfig.GuicyFig;
+import org.safehaus.guicyfig.Key;
+
+
+/**
+ * Config for the node local tier of the scoped cache.
+ */
+@FigSingleton
+public interface CacheFig extends GuicyFig {
+
+    String LOCAL_CACHE_ENABLED = "usergrid.scoped_cache.local.enabled";
+
+    String LOCAL_CACHE_SIZE = "usergrid.scoped_cache.local.size";
+
+    String LOCAL_CACHE_TTL = "usergrid.scoped_cache.local.ttl_ms";
+
+    String GENERATION_CHECK_INTERVAL = "usergrid.scoped_cache.generation.check_interval_ms";
+
+
+    /**
+     * When false, every get and put goes to cassandra
+     */
+    @Key( LOCAL_CACHE_ENABLED )
+    @Default( "true" )
+    boolean getLocalCacheEnabled();
+
+    /**
+     * Max number of values held in memory for each cache scope
+     */
+    @Key( LOCAL_CACHE_SIZE )
+    @Default( "1000" )
+    int getLocalCacheSize();
+
+    /**
+     * How long a value may be served from memory after it was read from or written to cassandra
+     */
+    @Key( LOCAL_CACHE_TTL )
+    @Default( "5000" )
+    int getLocalCacheTtl();
+
+    /**
+     * How often each node re-reads the generation of a scope from cassandra.  This is the longest another node can
+     * serve values from memory after a scope is invalidated
+     */
+    @Key( GENERATION_CHECK_INTERVAL )
+    @Default( "1000" )
+    int getGenerationCheckInterval();
+}
@@ -16,42 +16,171 @@
  */
 package org.apache.usergrid.persistence.cache.impl;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Meter;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.google.inject.Inject;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.usergrid.persistence.cache.CacheFig;
 import org.apache.usergrid.persistence.cache.CacheScope;
 import org.apache.usergrid.persistence.cache.ScopedCache;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 
 
 /**
  * Cache divided into scopes which can be individually invalidated.
+ *
+ * Values are held in a small in-memory cache in front of cassandra.  Every in-memory value is tagged with the
+ * generation of the scope it was read in.  Invalidating a scope moves it to a new generation in cassandra, and each
+ * node re-reads the generation at most once per {@link CacheFig#getGenerationCheckInterval()}, so values from an
+ * older generation are dropped without having to find them.
  */
 public class ScopedCacheImpl<K,V> implements ScopedCache<K,V> {
 
-    CacheScope scope;
+    private final CacheScope scope;
+
+    private final ScopedCacheSerialization<K,V> serializer;
+
+    private final CacheFig cacheFig;
+
+    private final Cache<K, LocalEntry<V>> localCache;
+
+    private final Meter localHitMeter;
+    private final Meter localMissMeter;
 
-    ScopedCacheSerialization<K,V> serializer;
+    private final AtomicLong generationCheckedAt = new AtomicLong( 0 );
 
-    public ScopedCacheImpl( CacheScope scope, ScopedCacheSerialization<K,V> serializer ) {
+    private volatile long generation;
+
+
+    public ScopedCacheImpl( CacheScope scope, ScopedCacheSerialization<K,V> serializer, CacheFig cacheFig,
+                            MetricsFactory metricsFactory ) {
         this.scope = scope;
         this.serializer = serializer;
+        this.cacheFig = cacheFig;
+
+        this.localCache = CacheBuilder.newBuilder()
+            .maximumSize( cacheFig.getLocalCacheSize() )
+            .expireAfterWrite( cacheFig.getLocalCacheTtl(), TimeUnit.MILLISECONDS )
+            .build();
+
+        this.localHitMeter = metricsFactory.getMeter( ScopedCacheImpl.class, "scoped.cache.local.hit" );
+        this.localMissMeter = metricsFactory.getMeter( ScopedCacheImpl.class, "scoped.cache.local.miss" );
     }
 
     @Override
     public V put(K key, V value, Integer ttl) {
-        return serializer.writeValue( scope, key, value, ttl );
+
+        final V written = serializer.writeValue( scope, key, value, ttl );
+
+        if ( cacheFig.getLocalCacheEnabled() ) {
+            // never serve a value from memory longer than cassandra would
+            final long expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis( ttl );
+
+            localCache.put( key, new LocalEntry<>( value, checkGeneration(), expiresAt ) );
+        }
+
+        return written;
     }
 
     @Override
     public V get(K key, TypeReference typeRef ) {
-        return serializer.readValue( scope, key, typeRef );
+
+        if ( !cacheFig.getLocalCacheEnabled() ) {
+            return serializer.readValue( scope, key, typeRef );
+        }
+
+        // capture the generation before reading, so a value read across an invalidation is never served
+        final long currentGeneration = checkGeneration();
+
+        final LocalEntry<V> entry = localCache.getIfPresent( key );
+
+        if ( entry != null && entry.generation == currentGeneration
+            && entry.expiresAt > System.currentTimeMillis() ) {
+            localHitMeter.mark();
+            return entry.value;
+        }
+
+        localMissMeter.mark();
+
+        final V value = serializer.readValue( scope, key, typeRef );
+
+        if ( value != null ) {
+            localCache.put( key, new LocalEntry<>( value, currentGeneration, Long.MAX_VALUE ) );
+        }
+
+        return value;
     }
 
     public void remove( K key ) {
         serializer.removeValue( scope, key );
+        localCache.invalidate( key );
+
+        // other nodes may hold the value in memory as well
+        moveGeneration();
     }
 
     @Override
     public void invalidate() {
         serializer.invalidate(scope);
+        localCache.invalidateAll();
+
+        moveGeneration();
+    }
+
+
+    /**
+     * Start a new generation for the scope and use it locally right away
+     */
+    private void moveGeneration() {
+        if ( !cacheFig.getLocalCacheEnabled() ) {
+            return;
+        }
+
+        generation = serializer.incrementGeneration( scope );
+        generationCheckedAt.set( System.currentTimeMillis() );
+    }
+
+
+    /**
+     * Re-read the generation from cassandra if our copy is older than the check interval.  Only one thread performs
+     * the read, the others continue with the generation they have
+     */
+    private long checkGeneration() {
+
+        final long checkedAt = generationCheckedAt.get();
+        final long now = System.currentTimeMillis();
+
+        if ( now - checkedAt >= cacheFig.getGenerationCheckInterval() && generationCheckedAt
+            .compareAndSet( checkedAt, now ) ) {
+
+            final long latest = serializer.readGeneration( scope );
+
+            if ( latest != generation ) {
+                generation = latest;
+                localCache.invalidateAll();
+            }
+        }
+
+        return generation;
+    }
+
+
+    /**
+     * A value, the generation of the scope it was read in, and when it expires in cassandra if we know it
+     */
+    private static final class LocalEntry<V> {
+        private final V value;
+        private final long generation;
+        private final long expiresAt;
+
+
+        private LocalEntry( final V value, final long generation, final long expiresAt ) {
+            this.value = value;
+            this.generation = generation;
+            this.expiresAt = expiresAt;
+        }
     }
 }
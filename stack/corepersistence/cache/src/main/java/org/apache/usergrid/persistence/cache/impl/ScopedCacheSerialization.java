@@ -18,6 +18,7 @@ package org.apache.usergrid.persistence.cache.impl;
 
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.apache.usergrid.persistence.cache.CacheScope;
 import org.apache.usergrid.persistence.core.migration.schema.Migration;
 
@@ -29,9 +30,28 @@ public interface ScopedCacheSerialization<K,V> extends Migration {
 
     V readValue( CacheScope scope, K key, TypeReference typeRef );
 
+    /**
+     * Read the value without blocking the caller, the future's value is null if the key is not cached
+     */
+    ListenableFuture<V> readValueAsync( CacheScope scope, K key, TypeReference typeRef );
+
     V writeValue( CacheScope scope, K key, V value, Integer ttl );
 
     void removeValue( CacheScope scope, K key );
 
     void invalidate( CacheScope scope );
+
+    /**
+     * Read the current generation of the scope.  The generation changes every time the scope is invalidated
+     *
+     * @return the generation, or 0 if the scope has never been invalidated
+     */
+    long readGeneration( CacheScope scope );
+
+    /**
+     * Move the scope to a new generation, so nodes holding values of the previous generation drop them
+     *
+     * @return the new generation
+     */
+    long incrementGeneration( CacheScope scope );
 }
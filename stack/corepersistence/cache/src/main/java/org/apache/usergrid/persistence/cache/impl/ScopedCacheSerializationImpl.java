@@ -17,21 +17,23 @@
 package org.apache.usergrid.persistence.cache.impl;
 
 import com.datastax.driver.core.*;
-import com.datastax.driver.core.querybuilder.Clause;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
-import com.datastax.driver.core.querybuilder.Using;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.hash.Funnel;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Inject;
 import org.apache.usergrid.persistence.cache.CacheScope;
 import org.apache.usergrid.persistence.core.CassandraConfig;
 import org.apache.usergrid.persistence.core.astyanax.*;
 import org.apache.usergrid.persistence.core.datastax.CQLUtils;
+import org.apache.usergrid.persistence.core.datastax.PreparedStatementCache;
 import org.apache.usergrid.persistence.core.datastax.TableDefinition;
 import org.apache.usergrid.persistence.core.shard.ExpandingShardLocator;
 import org.apache.usergrid.persistence.core.shard.StringHashUtils;
@@ -67,6 +69,28 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
 
 
 
+    private static final RegularStatement SELECT_VALUE = QueryBuilder.select().all().from(SCOPED_CACHE_TABLE)
+        .where(QueryBuilder.eq("key", QueryBuilder.bindMarker()))
+        .and(QueryBuilder.eq("column1", QueryBuilder.bindMarker()));
+
+    private static final RegularStatement INSERT_VALUE = QueryBuilder.insertInto(SCOPED_CACHE_TABLE)
+        .value("key", QueryBuilder.bindMarker())
+        .value("column1", QueryBuilder.bindMarker())
+        .value("value", QueryBuilder.bindMarker())
+        .using(QueryBuilder.ttl(QueryBuilder.bindMarker()));
+
+    private static final RegularStatement DELETE_VALUE = QueryBuilder.delete().from(SCOPED_CACHE_TABLE)
+        .where(QueryBuilder.eq("key", QueryBuilder.bindMarker()))
+        .and(QueryBuilder.eq("column1", QueryBuilder.bindMarker()));
+
+    private static final RegularStatement DELETE_ROW = QueryBuilder.delete().from(SCOPED_CACHE_TABLE)
+        .where(QueryBuilder.eq("key", QueryBuilder.bindMarker()));
+
+
+    /** Suffix of the row holding the generation of a scope, kept apart so invalidating the scope leaves it intact */
+    private static final String GENERATION_ROW_SUFFIX = "_generation";
+    private static final String GENERATION_COLUMN = "generation";
+
     /** Number of buckets to hash across */
     private static final int[] NUM_BUCKETS = {20};
 
@@ -81,6 +105,7 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
 
     private final Session session;
     private final CassandraConfig cassandraConfig;
+    private final PreparedStatementCache preparedStatements;
     private final ObjectMapper MAPPER = new ObjectMapper();
 
 
@@ -88,9 +113,11 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
 
     @Inject
     public ScopedCacheSerializationImpl( final Session session,
-                                         final CassandraConfig cassandraConfig ) {
+                                         final CassandraConfig cassandraConfig,
+                                         final PreparedStatementCache preparedStatements ) {
         this.session = session;
         this.cassandraConfig = cassandraConfig;
+        this.preparedStatements = preparedStatements;
 
         MAPPER.enableDefaultTyping();
         MAPPER.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
@@ -101,12 +128,21 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
     @Override
     public V readValue(CacheScope scope, K key, TypeReference typeRef ) {
 
-        return readValueCQL( scope, key, typeRef);
+        return parseValue( key, typeRef, readValueCQL( scope, key ).getUninterruptibly() );
 
     }
 
 
-    private V readValueCQL(CacheScope scope, K key, TypeReference typeRef){
+    @Override
+    public ListenableFuture<V> readValueAsync( CacheScope scope, K key, TypeReference typeRef ) {
+
+        return Futures.transform( readValueCQL( scope, key ),
+            (Function<ResultSet, V>) resultSet -> parseValue( key, typeRef, resultSet ) );
+
+    }
+
+
+    private ResultSetFuture readValueCQL(CacheScope scope, K key){
 
         Preconditions.checkNotNull(scope, "scope is required");
         Preconditions.checkNotNull(key, "key is required");
@@ -117,15 +153,17 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
         // determine column name based on K key to string
         final String columnName = key.toString();
 
-        final Clause inKey = QueryBuilder.eq("key", getPartitionKey(scope, rowKeyString, bucket) );
-        final Clause inColumn = QueryBuilder.eq("column1", DataType.text().serialize(columnName, ProtocolVersion.NEWEST_SUPPORTED) );
-
-        final Statement statement = QueryBuilder.select().all().from(SCOPED_CACHE_TABLE)
-            .where(inKey)
-            .and(inColumn)
+        final Statement statement = preparedStatements.get( SELECT_VALUE )
+            .bind( getPartitionKey(scope, rowKeyString, bucket),
+                DataType.text().serialize(columnName, ProtocolVersion.NEWEST_SUPPORTED) )
             .setConsistencyLevel(cassandraConfig.getDataStaxReadCl());
 
-        final ResultSet resultSet = session.execute(statement);
+        return session.executeAsync(statement);
+    }
+
+
+    private V parseValue( K key, TypeReference typeRef, ResultSet resultSet ){
+
         final com.datastax.driver.core.Row row = resultSet.one();
 
         if (row == null){
@@ -180,19 +218,14 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
             throw new RuntimeException("Unable to serialize cache value", jpe);
         }
 
-        final Using timeToLive = QueryBuilder.ttl(ttl);
-
-
         // convert to ByteBuffer for the blob DataType in Cassandra
         final ByteBuffer bb = ByteBuffer.allocate(cacheBytes.length);
         bb.put(cacheBytes);
         bb.flip();
 
-        final Statement cacheEntry = QueryBuilder.insertInto(SCOPED_CACHE_TABLE)
-            .using(timeToLive)
-            .value("key", getPartitionKey(scope, rowKeyString, bucket))
-            .value("column1", DataType.text().serialize(columnName, ProtocolVersion.NEWEST_SUPPORTED))
-            .value("value", bb);
+        final Statement cacheEntry = preparedStatements.get( INSERT_VALUE )
+            .bind( getPartitionKey(scope, rowKeyString, bucket),
+                DataType.text().serialize(columnName, ProtocolVersion.NEWEST_SUPPORTED), bb, ttl );
 
 
         session.execute(cacheEntry);
@@ -232,12 +265,9 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
         final String columnName = key.toString();
 
 
-        final Clause inKey = QueryBuilder.eq("key", getPartitionKey(scope, rowKeyString, bucket) );
-        final Clause inColumn = QueryBuilder.eq("column1", DataType.text().serialize(columnName, ProtocolVersion.NEWEST_SUPPORTED) );
-
-        final Statement statement = QueryBuilder.delete().from(SCOPED_CACHE_TABLE)
-            .where(inKey)
-            .and(inColumn);
+        final Statement statement = preparedStatements.get( DELETE_VALUE )
+            .bind( getPartitionKey(scope, rowKeyString, bucket),
+                DataType.text().serialize(columnName, ProtocolVersion.NEWEST_SUPPORTED) );
 
         session.execute(statement);
 
@@ -260,15 +290,58 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
         final String rowKeyString = scope.getApplication().getUuid().toString();
         final int bucket = BUCKET_LOCATOR.getCurrentBucket(rowKeyString);
 
-        final Clause inKey = QueryBuilder.eq("key", getPartitionKey(scope, rowKeyString, bucket) );
+        final Statement statement =
+            preparedStatements.get( DELETE_ROW ).bind( getPartitionKey(scope, rowKeyString, bucket) );
+
+        session.execute(statement);
+
+    }
+
+    @Override
+    public long readGeneration( CacheScope scope ) {
+
+        Preconditions.checkNotNull(scope, "scope is required");
+
+        final Statement statement = preparedStatements.get( SELECT_VALUE )
+            .bind( getGenerationKey(scope),
+                DataType.text().serialize(GENERATION_COLUMN, ProtocolVersion.NEWEST_SUPPORTED) )
+            .setConsistencyLevel(cassandraConfig.getDataStaxReadCl());
+
+        final com.datastax.driver.core.Row row = session.execute(statement).one();
+
+        if (row == null){
+            return 0;
+        }
+
+        return row.getBytes("value").getLong();
+    }
+
+
+    @Override
+    public long incrementGeneration( CacheScope scope ) {
+
+        Preconditions.checkNotNull(scope, "scope is required");
+
+        // only a change matters to readers, time keeps the generation moving forward across nodes
+        final long generation = Math.max( readGeneration(scope) + 1, System.currentTimeMillis() );
 
-        final Statement statement = QueryBuilder.delete().from(SCOPED_CACHE_TABLE)
-            .where(inKey);
+        final ByteBuffer bb = ByteBuffer.allocate(8);
+        bb.putLong(generation);
+        bb.flip();
+
+        // a ttl of 0 never expires
+        final Statement statement = preparedStatements.get( INSERT_VALUE )
+            .bind( getGenerationKey(scope),
+                DataType.text().serialize(GENERATION_COLUMN, ProtocolVersion.NEWEST_SUPPORTED), bb, 0 );
 
         session.execute(statement);
 
+        logger.debug("Moved scope {} to generation {}", scope.getApplication().getUuid(), generation);
+
+        return generation;
     }
 
+
     @Override
     public Collection<MultiTenantColumnFamilyDefinition> getColumnFamilies() {
 
@@ -287,6 +360,15 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
 
 
 
+    private ByteBuffer getGenerationKey(CacheScope scope){
+
+        final String rowKeyString = scope.getApplication().getUuid().toString() + GENERATION_ROW_SUFFIX;
+        final int bucket = BUCKET_LOCATOR.getCurrentBucket(rowKeyString);
+
+        return getPartitionKey(scope, rowKeyString, bucket);
+    }
+
+
     private ByteBuffer getPartitionKey(CacheScope scope, String key, int bucketNumber){
 
         return serializeKeys(scope.getApplication().getUuid(),
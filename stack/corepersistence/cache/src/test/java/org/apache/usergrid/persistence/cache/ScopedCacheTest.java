@@ -22,7 +22,10 @@ package org.apache.usergrid.persistence.cache;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.inject.Inject;
+import org.apache.usergrid.persistence.cache.impl.ScopedCacheImpl;
+import org.apache.usergrid.persistence.cache.impl.ScopedCacheSerialization;
 import org.apache.usergrid.persistence.core.guice.MigrationManagerRule;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.core.test.ITRunner;
 import org.apache.usergrid.persistence.core.test.UseModules;
 import org.apache.usergrid.persistence.model.entity.SimpleId;
@@ -47,6 +50,12 @@ public class ScopedCacheTest {
 
     @Inject protected CacheFactory<String, Map<String, Object>> cf;
 
+    @Inject protected ScopedCacheSerialization<String, Map<String, Object>> serializer;
+
+    @Inject protected CacheFig cacheFig;
+
+    @Inject protected MetricsFactory metricsFactory;
+
     TypeReference typeRef = new TypeReference<HashMap<String, Object>>() {};
 
 
@@ -175,4 +184,33 @@ public class ScopedCacheTest {
 
         assertNull( cache.get("item", typeRef));
     }
+
+    @Test
+    public void testInvalidateFromOtherNode() {
+
+        CacheScope scope = new CacheScope( new SimpleId( "application" ) );
+
+        // two caches over the same scope stand in for two nodes, each with its own local tier
+        ScopedCache<String, Map<String, Object>> node1 =
+            new ScopedCacheImpl<>( scope, serializer, cacheFig, metricsFactory );
+        ScopedCache<String, Map<String, Object>> node2 =
+            new ScopedCacheImpl<>( scope, serializer, cacheFig, metricsFactory );
+
+        Map<String, Object> item = new HashMap<String, Object>() {{
+            put("field1", "value1");
+        }};
+        node1.put("item", item, 60);
+
+        // load the value into the local tier of node2
+        Map<String, Object> retrievedItem = node2.get("item", typeRef);
+        assertNotNull( "should get back item", retrievedItem );
+        assertEquals("value1", retrievedItem.get("field1"));
+
+        node1.invalidate();
+
+        // wait for node2 to pick up the new generation
+        try { Thread.sleep(cacheFig.getGenerationCheckInterval() + 100); } catch (InterruptedException ignored) {}
+
+        assertNull( node2.get("item", typeRef));
+    }
 }
@@ -20,6 +20,7 @@ package org.apache.usergrid.persistence.collection;
 
 
 import java.util.Collection;
+import java.util.Set;
 import java.util.UUID;
 
 import org.apache.usergrid.persistence.core.util.Health;
@@ -65,6 +66,15 @@ public interface EntityCollectionManager {
      */
     Observable<Entity> load( Id entityId );
 
+    /**
+     * @param entityId The entity id to load.
+     * @param useCache False to skip the node local entity cache and read directly from cassandra.  Use this when
+     * the caller must see the latest committed version, for instance before modifying and re-writing the entity
+     *
+     * @return The observable with the entity
+     */
+    Observable<Entity> load( Id entityId, boolean useCache );
+
     /**
      * @param entityIds Returns a version set with the latest version for each of the entities
      * Return the latest versions of the specified entityIds
@@ -101,6 +111,23 @@ public interface EntityCollectionManager {
      */
     Observable<EntitySet> load( Collection<Id> entityIds );
 
+    /**
+     * @param entityIds The entityIds for loading a collection
+     * @param useCache False to skip the node local entity cache and read directly from cassandra
+     *
+     * @return An EntitySet with the latest data of every entity that could be located
+     */
+    Observable<EntitySet> load( Collection<Id> entityIds, boolean useCache );
+
+    /**
+     * @param entityIds The entityIds for loading a collection
+     * @param fields The top level fields to read, for queries that select a subset of fields
+     *
+     * @return An EntitySet with the latest data of every entity that could be located.  Entities may only contain
+     * the requested fields, they must not be written back
+     */
+    Observable<EntitySet> load( Collection<Id> entityIds, Set<String> fields );
+
     /**
      * Get all versions of the log entry, from min to max
      * @param entityId
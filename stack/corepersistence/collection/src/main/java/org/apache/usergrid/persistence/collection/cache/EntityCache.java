@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.cache;
+
+
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.model.entity.Id;
+
+
+/**
+ * A node local cache of the latest known version of an entity.  Entries only ever move forward in version, so a slow
+ * read from cassandra can't overwrite a newer version that was written while the read was in flight.
+ */
+public interface EntityCache {
+
+    /**
+     * Get the latest cached version of the entity
+     *
+     * @return The cached entity, or null if it's not present.  Deleted entities are returned with an absent entity
+     */
+    MvccEntity get( ApplicationScope applicationScope, Id entityId );
+
+    /**
+     * Put the entity in the cache.  If the cache already holds a newer version, this is a no-op
+     */
+    void put( ApplicationScope applicationScope, MvccEntity entity );
+
+    /**
+     * Remove the entity from the cache
+     */
+    void invalidate( ApplicationScope applicationScope, Id entityId );
+
+    /**
+     * Remove all entities from the cache
+     */
+    void invalidateAll();
+}
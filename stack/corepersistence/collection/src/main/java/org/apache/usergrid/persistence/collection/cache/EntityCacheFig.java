@@ -32,12 +32,32 @@ import org.safehaus.guicyfig.Key;
 @FigSingleton
 public interface EntityCacheFig extends GuicyFig {
 
+    String ENTITY_CACHE_ENABLED = "usergrid.entity_cache_enabled";
 
-    @Key( "usergrid.entity_cache_size" )
+    String ENTITY_CACHE_SIZE = "usergrid.entity_cache_size";
+
+    String ENTITY_CACHE_TIMEOUT = "usergrid.entity_cache_timeout_ms";
+
+
+    /**
+     * When false, every load goes to cassandra
+     */
+    @Key( ENTITY_CACHE_ENABLED )
+    @Default( "true" )
+    boolean getCacheEnabled();
+
+    /**
+     * The max number of entity versions to hold in memory on each node
+     */
+    @Key( ENTITY_CACHE_SIZE )
     @Default( "10000" )
     int getCacheSize();
 
-    @Key( "usergrid.entity_cache_timeout_ms" )
+    /**
+     * How long an entity may be served from the cache after it was loaded or written.  This bounds how stale a read
+     * can be when another node writes the entity
+     */
+    @Key( ENTITY_CACHE_TIMEOUT )
     @Default( "500" )
     int getCacheTimeout();
 
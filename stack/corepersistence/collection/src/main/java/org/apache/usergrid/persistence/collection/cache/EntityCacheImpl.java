@@ -0,0 +1,353 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.cache;
+
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.mvcc.entity.impl.MvccEntityImpl;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.field.ArrayField;
+import org.apache.usergrid.persistence.model.field.BooleanField;
+import org.apache.usergrid.persistence.model.field.ByteArrayField;
+import org.apache.usergrid.persistence.model.field.DistanceField;
+import org.apache.usergrid.persistence.model.field.DoubleField;
+import org.apache.usergrid.persistence.model.field.EntityObjectField;
+import org.apache.usergrid.persistence.model.field.Field;
+import org.apache.usergrid.persistence.model.field.FloatField;
+import org.apache.usergrid.persistence.model.field.IntegerField;
+import org.apache.usergrid.persistence.model.field.ListField;
+import org.apache.usergrid.persistence.model.field.LocationField;
+import org.apache.usergrid.persistence.model.field.LongField;
+import org.apache.usergrid.persistence.model.field.NullField;
+import org.apache.usergrid.persistence.model.field.SerializedObjectField;
+import org.apache.usergrid.persistence.model.field.SetField;
+import org.apache.usergrid.persistence.model.field.StringField;
+import org.apache.usergrid.persistence.model.field.UUIDField;
+import org.apache.usergrid.persistence.model.field.value.EntityObject;
+import org.apache.usergrid.persistence.model.field.value.Location;
+
+import com.codahale.metrics.Meter;
+import com.fasterxml.uuid.UUIDComparator;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+
+/**
+ * Guava backed entity cache.  Sized and expired by the {@link EntityCacheFig}.  Entities are copied on the way in and
+ * out, down to each field, so callers that modify a loaded entity can't corrupt the cached version.
+ */
+@Singleton
+public class EntityCacheImpl implements EntityCache {
+
+    private final EntityCacheFig entityCacheFig;
+
+    private final Meter hitMeter;
+    private final Meter missMeter;
+    private final Meter evictionMeter;
+
+    private Cache<CacheKey, MvccEntity> entities;
+
+
+    @Inject
+    public EntityCacheImpl( final EntityCacheFig entityCacheFig, final MetricsFactory metricsFactory ) {
+
+        Preconditions.checkNotNull( entityCacheFig, "entityCacheFig is required" );
+        Preconditions.checkNotNull( metricsFactory, "metricsFactory is required" );
+
+        this.entityCacheFig = entityCacheFig;
+
+        this.hitMeter = metricsFactory.getMeter( EntityCacheImpl.class, "entity.cache.hit" );
+        this.missMeter = metricsFactory.getMeter( EntityCacheImpl.class, "entity.cache.miss" );
+        this.evictionMeter = metricsFactory.getMeter( EntityCacheImpl.class, "entity.cache.eviction" );
+
+        /**
+         * Rebuild the cache if its bounds change
+         */
+        this.entityCacheFig.addPropertyChangeListener( evt -> {
+            final String propertyName = evt.getPropertyName();
+
+            if ( propertyName.equals( EntityCacheFig.ENTITY_CACHE_SIZE ) || propertyName
+                .equals( EntityCacheFig.ENTITY_CACHE_TIMEOUT ) ) {
+                updateCache();
+            }
+        } );
+
+        updateCache();
+    }
+
+
+    @Override
+    public MvccEntity get( final ApplicationScope applicationScope, final Id entityId ) {
+
+        final MvccEntity cached = entities.getIfPresent( new CacheKey( applicationScope, entityId ) );
+
+        if ( cached == null ) {
+            missMeter.mark();
+            return null;
+        }
+
+        hitMeter.mark();
+
+        return copy( cached );
+    }
+
+
+    @Override
+    public void put( final ApplicationScope applicationScope, final MvccEntity entity ) {
+
+        Preconditions.checkNotNull( entity, "entity is required" );
+
+        //only ever move forward in version, a slow load can't replace what a write just put in
+        entities.asMap().merge( new CacheKey( applicationScope, entity.getId() ), copy( entity ),
+            ( existing, candidate ) ->
+                UUIDComparator.staticCompare( candidate.getVersion(), existing.getVersion() ) >= 0 ? candidate :
+                existing );
+    }
+
+
+    @Override
+    public void invalidate( final ApplicationScope applicationScope, final Id entityId ) {
+        entities.invalidate( new CacheKey( applicationScope, entityId ) );
+    }
+
+
+    @Override
+    public void invalidateAll() {
+        entities.invalidateAll();
+    }
+
+
+    /**
+     * This is a race condition, the same as the shard cache.  Entries written while the cache is swapped may be lost,
+     * which only results in an extra read from cassandra
+     */
+    private void updateCache() {
+
+        final RemovalListener<CacheKey, MvccEntity> evictionListener = notification -> {
+            if ( notification.wasEvicted() ) {
+                evictionMeter.mark();
+            }
+        };
+
+        this.entities = CacheBuilder.newBuilder()
+            .maximumSize( entityCacheFig.getCacheSize() )
+            .expireAfterWrite( entityCacheFig.getCacheTimeout(), TimeUnit.MILLISECONDS )
+            .removalListener( evictionListener )
+            .build();
+    }
+
+
+    /**
+     * Deep copy the entity.  Fields are mutable, queries rename them for select mappings, so neither the cached entity
+     * nor the one returned may share a field or a nested value with the other
+     */
+    private static MvccEntity copy( final MvccEntity mvccEntity ) {
+
+        final Optional<Entity> source = mvccEntity.getEntity();
+
+        if ( !source.isPresent() ) {
+            return mvccEntity;
+        }
+
+        final Entity entity = new Entity( mvccEntity.getId(), source.get().getVersion() );
+        copyFields( source.get(), entity );
+
+        return new MvccEntityImpl( mvccEntity.getId(), mvccEntity.getVersion(), mvccEntity.getStatus(),
+            Optional.of( entity ), mvccEntity.getSize() );
+    }
+
+
+    private static <T extends EntityObject> T copyFields( final EntityObject source, final T target ) {
+
+        for ( final Field field : source.getFields() ) {
+            target.setField( copyField( field ) );
+        }
+
+        target.setSize( source.getSize() );
+
+        return target;
+    }
+
+
+    @SuppressWarnings( "unchecked" )
+    private static Field copyField( final Field field ) {
+
+        final String name = field.getName();
+        final Object value = field.getValue();
+
+        switch ( field.getTypeName() ) {
+            case ARRAY:
+            case LIST:
+                //array fields report themselves as lists, keep the marker type
+                return field instanceof ArrayField ? new ArrayField( name, copyList( ( List<Object> ) value ) ) :
+                       new ListField( name, copyList( ( List<Object> ) value ) );
+            case SET:
+                return new SetField( name, copySet( ( Set<Object> ) value ) );
+            case OBJECT:
+                return new EntityObjectField( name, ( EntityObject ) copyValue( value ) );
+            case BYTE_ARRAY:
+                return new ByteArrayField( name, ( byte[] ) copyValue( value ),
+                    ( ( ByteArrayField ) field ).getClassinfo() );
+            case SERIALIZED_OBJECT:
+                return new SerializedObjectField( name, ( String ) value,
+                    ( ( SerializedObjectField ) field ).getClassinfo() );
+            case LOCATION:
+                return new LocationField( name, ( Location ) value );
+            case BOOLEAN:
+                return new BooleanField( name, ( Boolean ) value, field.isUnique() );
+            case DOUBLE:
+                return new DoubleField( name, ( Double ) value, field.isUnique() );
+            case DISTANCE:
+                return new DistanceField( ( Double ) value );
+            case FLOAT:
+                return new FloatField( name, ( Float ) value, field.isUnique() );
+            case INTEGER:
+                return new IntegerField( name, ( Integer ) value, field.isUnique() );
+            case LONG:
+                return new LongField( name, ( Long ) value, field.isUnique() );
+            case STRING:
+                return new StringField( name, ( String ) value, field.isUnique() );
+            case UUID:
+                return new UUIDField( name, ( java.util.UUID ) value, field.isUnique() );
+            case NULL:
+                return new NullField( name, field.isUnique() );
+            default:
+                throw new IllegalArgumentException( "Unable to copy field of type " + field.getTypeName() );
+        }
+    }
+
+
+    /**
+     * Copy the mutable values that can appear inside list, set and object fields.  Everything else is immutable
+     */
+    @SuppressWarnings( "unchecked" )
+    private static Object copyValue( final Object value ) {
+
+        if ( value instanceof EntityObject ) {
+            return copyFields( ( EntityObject ) value, new EntityObject() );
+        }
+
+        if ( value instanceof List ) {
+            return copyList( ( List<Object> ) value );
+        }
+
+        if ( value instanceof Set ) {
+            return copySet( ( Set<Object> ) value );
+        }
+
+        if ( value instanceof Map ) {
+            final Map<Object, Object> copy = new LinkedHashMap<>();
+            ( ( Map<Object, Object> ) value ).forEach( ( key, item ) -> copy.put( key, copyValue( item ) ) );
+            return copy;
+        }
+
+        if ( value instanceof byte[] ) {
+            return ( ( byte[] ) value ).clone();
+        }
+
+        return value;
+    }
+
+
+    private static List<Object> copyList( final List<Object> list ) {
+
+        if ( list == null ) {
+            return null;
+        }
+
+        final List<Object> copy = new ArrayList<>( list.size() );
+
+        for ( final Object item : list ) {
+            copy.add( copyValue( item ) );
+        }
+
+        return copy;
+    }
+
+
+    private static Set<Object> copySet( final Set<Object> set ) {
+
+        if ( set == null ) {
+            return null;
+        }
+
+        final Set<Object> copy = new LinkedHashSet<>( set.size() );
+
+        for ( final Object item : set ) {
+            copy.add( copyValue( item ) );
+        }
+
+        return copy;
+    }
+
+
+    /**
+     * Entities are only unique within their application
+     */
+    private static final class CacheKey {
+        private final ApplicationScope applicationScope;
+        private final Id entityId;
+
+
+        private CacheKey( final ApplicationScope applicationScope, final Id entityId ) {
+            this.applicationScope = applicationScope;
+            this.entityId = entityId;
+        }
+
+
+        @Override
+        public boolean equals( final Object o ) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( o == null || getClass() != o.getClass() ) {
+                return false;
+            }
+
+            final CacheKey cacheKey = ( CacheKey ) o;
+
+            return applicationScope.equals( cacheKey.applicationScope ) && entityId.equals( cacheKey.entityId );
+        }
+
+
+        @Override
+        public int hashCode() {
+            int result = applicationScope.hashCode();
+            result = 31 * result + entityId.hashCode();
+            return result;
+        }
+    }
+}
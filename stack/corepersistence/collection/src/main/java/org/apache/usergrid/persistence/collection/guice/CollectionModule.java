@@ -26,7 +26,9 @@ import org.apache.usergrid.persistence.collection.uniquevalues.*;
 import org.safehaus.guicyfig.GuicyFigModule;
 
 import org.apache.usergrid.persistence.collection.EntityCollectionManagerFactory;
+import org.apache.usergrid.persistence.collection.cache.EntityCache;
 import org.apache.usergrid.persistence.collection.cache.EntityCacheFig;
+import org.apache.usergrid.persistence.collection.cache.EntityCacheImpl;
 import org.apache.usergrid.persistence.collection.impl.EntityCollectionManagerFactoryImpl;
 import org.apache.usergrid.persistence.collection.mvcc.changelog.ChangeLogGenerator;
 import org.apache.usergrid.persistence.collection.mvcc.changelog.ChangeLogGeneratorImpl;
@@ -71,6 +73,8 @@ public abstract class CollectionModule extends AbstractModule {
         //bind this to our factory
         install( new GuicyFigModule( EntityCacheFig.class ) );
 
+        bind( EntityCache.class ).to( EntityCacheImpl.class );
+
         bind( UniqueValuesService.class ).to( UniqueValuesServiceImpl.class );
 
         bind( UniqueValuesTable.class ).to( UniqueValuesTableImpl.class );
@@ -36,6 +36,8 @@ import com.netflix.astyanax.model.CqlResult;
 import com.netflix.astyanax.serializers.StringSerializer;
 import org.apache.usergrid.persistence.actorsystem.ActorSystemManager;
 import org.apache.usergrid.persistence.collection.*;
+import org.apache.usergrid.persistence.collection.cache.EntityCache;
+import org.apache.usergrid.persistence.collection.cache.EntityCacheFig;
 import org.apache.usergrid.persistence.collection.mvcc.stage.CollectionIoEvent;
 import org.apache.usergrid.persistence.collection.mvcc.stage.delete.MarkCommit;
 import org.apache.usergrid.persistence.collection.mvcc.stage.delete.MarkStart;
@@ -43,6 +45,7 @@ import org.apache.usergrid.persistence.collection.mvcc.stage.delete.UniqueCleanu
 import org.apache.usergrid.persistence.collection.mvcc.stage.delete.VersionCompact;
 import org.apache.usergrid.persistence.collection.mvcc.stage.write.*;
 import org.apache.usergrid.persistence.collection.serialization.*;
+import org.apache.usergrid.persistence.collection.serialization.impl.EntitySetImpl;
 import org.apache.usergrid.persistence.collection.serialization.impl.LogEntryIterator;
 import org.apache.usergrid.persistence.collection.serialization.impl.MinMaxLogEntryIterator;
 import org.apache.usergrid.persistence.collection.serialization.impl.MutableFieldSet;
@@ -112,6 +115,9 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
     private final UniqueValuesService uniqueValuesService;
     private final ActorSystemManager actorSystemManager;
 
+    private final EntityCache entityCache;
+    private final EntityCacheFig entityCacheFig;
+
 
     @Inject
     public EntityCollectionManagerImpl(
@@ -136,6 +142,8 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
         final ActorSystemManager    actorSystemManager,
         final UniqueValuesService   uniqueValuesService,
         final CassandraConfig       cassandraConfig,
+        final EntityCache           entityCache,
+        final EntityCacheFig        entityCacheFig,
         @Assisted final ApplicationScope applicationScope,
         final Session session ) {
 
@@ -175,6 +183,8 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
         this.getLatestTimer = metricsFactory.getTimer(EntityCollectionManagerImpl.class, "base.latest");
 
         this.cassandraConfig = cassandraConfig;
+        this.entityCache = entityCache;
+        this.entityCacheFig = entityCacheFig;
     }
 
 
@@ -197,6 +207,9 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
 
         final Observable<Entity> write = observable.map( writeCommit ).map(ioEvent -> {
 
+            // the written entity is now the latest version, replace anything older in the cache
+            entityCache.put( applicationScope, ioEvent.getEvent() );
+
             // fire this in the background so we don't block writes
             Observable.just( ioEvent ).compose( uniqueCleanup )
                 .subscribeOn( rxTaskScheduler.getAsyncIOScheduler() ).subscribe();
@@ -217,7 +230,9 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
         Preconditions.checkNotNull( entityId.getType(), "Entity type is required in this stage" );
 
         Observable<Id> o = Observable.just( new CollectionIoEvent<>( applicationScope, entityId, region ) )
-            .map( markStart ).doOnNext( markCommit ).compose( uniqueCleanup ).map(
+            .map( markStart ).doOnNext( markCommit )
+            .doOnNext( markedEvent -> entityCache.put( applicationScope, markedEvent.getEvent() ) )
+            .compose( uniqueCleanup ).map(
                 entityEvent -> entityEvent.getEvent().getId() );
 
         return ObservableTimer.time( o, deleteTimer );
@@ -226,12 +241,18 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
 
     @Override
     public Observable<Entity> load( final Id entityId ) {
+        return load( entityId, true );
+    }
+
+
+    @Override
+    public Observable<Entity> load( final Id entityId, final boolean useCache ) {
 
         Preconditions.checkNotNull( entityId, "Entity id required in the load stage" );
         Preconditions.checkNotNull( entityId.getUuid(), "Entity id uuid required in load stage" );
         Preconditions.checkNotNull( entityId.getType(), "Entity id type required in load stage" );
 
-        final Observable<Entity> entityObservable = load( Collections.singleton( entityId ) ).flatMap( entitySet -> {
+        final Observable<Entity> entityObservable = load( Collections.singleton( entityId ), useCache ).flatMap( entitySet -> {
             final MvccEntity entity = entitySet.getEntity( entityId );
 
             if ( entity == null || !entity.getEntity().isPresent() ) {
@@ -248,8 +269,36 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
 
     @Override
     public Observable<EntitySet> load( final Collection<Id> entityIds ) {
+        return load( entityIds, true );
+    }
+
+
+    @Override
+    public Observable<EntitySet> load( final Collection<Id> entityIds, final boolean useCache ) {
+
+        Preconditions.checkNotNull( entityIds, "entityIds cannot be null" );
+
+        return load( entityIds, useCache, null );
+    }
+
+
+    @Override
+    public Observable<EntitySet> load( final Collection<Id> entityIds, final Set<String> fields ) {
 
         Preconditions.checkNotNull( entityIds, "entityIds cannot be null" );
+        Preconditions.checkNotNull( fields, "fields cannot be null" );
+
+        return load( entityIds, true, fields );
+    }
+
+
+    /**
+     * Load the entities, if fields is not null only those top level fields are read for entities not in the cache
+     */
+    private Observable<EntitySet> load( final Collection<Id> entityIds, final boolean useCache,
+                                        final Set<String> fields ) {
+
+        final boolean cacheEnabled = useCache && entityCacheFig.getCacheEnabled();
 
         final Observable<EntitySet> entitySetObservable =
             Observable.create( new Observable.OnSubscribe<EntitySet>() {
@@ -258,7 +307,7 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
             public void call( final Subscriber<? super EntitySet> subscriber ) {
                 try {
                     final EntitySet results =
-                        entitySerializationStrategy.load( applicationScope, entityIds, UUIDGenerator.newTimeUUID() );
+                        cacheEnabled ? loadThroughCache( entityIds, fields ) : loadFromStorage( entityIds, fields );
 
                     subscriber.onNext( results );
                     subscriber.onCompleted();
@@ -274,6 +323,53 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
     }
 
 
+    /**
+     * Serve what we can from the entity cache, and load the rest from cassandra in a single read.  Partial entities
+     * are never put into the cache
+     */
+    private EntitySet loadThroughCache( final Collection<Id> entityIds, final Set<String> fields ) {
+
+        final EntitySetImpl results = new EntitySetImpl( entityIds.size() );
+        final List<Id> misses = new ArrayList<>( entityIds.size() );
+
+        for ( final Id entityId : entityIds ) {
+            final MvccEntity cached = entityCache.get( applicationScope, entityId );
+
+            if ( cached == null ) {
+                misses.add( entityId );
+            }
+            else {
+                results.addEntity( cached );
+            }
+        }
+
+        if ( misses.isEmpty() ) {
+            return results;
+        }
+
+        final EntitySet loaded = loadFromStorage( misses, fields );
+
+        for ( final MvccEntity entity : loaded.getEntities() ) {
+            if ( fields == null ) {
+                entityCache.put( applicationScope, entity );
+            }
+
+            results.addEntity( entity );
+        }
+
+        return results;
+    }
+
+
+    private EntitySet loadFromStorage( final Collection<Id> entityIds, final Set<String> fields ) {
+        if ( fields == null ) {
+            return entitySerializationStrategy.load( applicationScope, entityIds, UUIDGenerator.newTimeUUID() );
+        }
+
+        return entitySerializationStrategy.load( applicationScope, entityIds, UUIDGenerator.newTimeUUID(), fields );
+    }
+
+
     @Override
     public Observable<MvccLogEntry> getVersions( final Id entityId ) {
         ValidationUtils.verifyIdentity( entityId );
@@ -307,7 +403,8 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
 
 
         return Observable.from( entries ).map( logEntry -> new CollectionIoEvent<>( applicationScope, logEntry ) )
-            .compose( versionCompact ).map( event -> event.getEvent() );
+            .compose( versionCompact ).map( event -> event.getEvent() )
+            .doOnNext( logEntry -> entityCache.invalidate( applicationScope, logEntry.getEntityId() ) );
     }
 
 
@@ -445,9 +542,11 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
 
         return Observable.just( writeData ).map( writeState ).flatMap( mvccEntityCollectionIoEvent -> {
 
+            // with akka the reservation completes on an actor thread, move back to IO before the commit stages
             Observable<CollectionIoEvent<MvccEntity>> uniqueObservable =
                 Observable.just( mvccEntityCollectionIoEvent ).subscribeOn( rxTaskScheduler.getAsyncIOScheduler() )
-                    .doOnNext( writeVerifyUnique );
+                    .flatMap( writeVerifyUnique::verifyAsync )
+                    .observeOn( rxTaskScheduler.getAsyncIOScheduler() );
 
 
             // optimistic verification
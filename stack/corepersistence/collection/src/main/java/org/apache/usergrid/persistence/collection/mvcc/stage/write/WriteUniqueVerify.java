@@ -54,6 +54,7 @@ import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.model.field.Field;
 import org.apache.usergrid.persistence.model.util.EntityUtils;
 
+import rx.Observable;
 import rx.functions.Action1;
 
 import java.util.*;
@@ -122,7 +123,15 @@ public class WriteUniqueVerify implements Action1<CollectionIoEvent<MvccEntity>>
         }
     }
 
-    private void verifyUniqueFieldsAkka(CollectionIoEvent<MvccEntity> ioevent) {
+    /**
+     * Verify the unique fields as part of an Rx pipeline.  When unique values are handled by the actor system, all
+     * fields are reserved in one request and the calling thread is not held while waiting for the response.
+     */
+    public Observable<CollectionIoEvent<MvccEntity>> verifyAsync( final CollectionIoEvent<MvccEntity> ioevent ) {
+
+        if ( actorSystemFig == null || !actorSystemFig.getEnabled() ) {
+            return Observable.just( ioevent ).doOnNext( this );
+        }
 
         MvccValidationUtils.verifyMvccEntityWithEntity( ioevent.getEvent() );
 
@@ -132,6 +141,26 @@ public class WriteUniqueVerify implements Action1<CollectionIoEvent<MvccEntity>>
 
         final ApplicationScope applicationScope = ioevent.getEntityCollection();
 
+        return akkaUvService
+            .reserveUniqueValuesAsync( applicationScope, entity, mvccEntity.getVersion(),
+                getAuthoritativeRegion( ioevent ) )
+            .map( reserved -> ioevent )
+            .onErrorResumeNext( t -> {
+
+                if ( t instanceof UniqueValueException ) {
+                    final Field field = ( ( UniqueValueException ) t ).getField();
+
+                    Map<String, Field> violations = new HashMap<>();
+                    violations.put( field.getName(), field );
+                    return Observable.error( new WriteUniqueVerifyException( mvccEntity, applicationScope, violations ) );
+                }
+
+                return Observable.error( t );
+            } );
+    }
+
+    private String getAuthoritativeRegion( CollectionIoEvent<MvccEntity> ioevent ) {
+
         String authoritativeRegion = ioevent.getAuthoritativeRegion();
         if ( StringUtils.isEmpty(authoritativeRegion) ) {
             authoritativeRegion = uniqueValuesFig.getAuthoritativeRegion();
@@ -139,6 +168,21 @@ public class WriteUniqueVerify implements Action1<CollectionIoEvent<MvccEntity>>
         if ( StringUtils.isEmpty(authoritativeRegion) ) {
             authoritativeRegion = actorSystemFig.getRegionLocal();
         }
+        return authoritativeRegion;
+    }
+
+    private void verifyUniqueFieldsAkka(CollectionIoEvent<MvccEntity> ioevent) {
+
+        MvccValidationUtils.verifyMvccEntityWithEntity( ioevent.getEvent() );
+
+        final MvccEntity mvccEntity = ioevent.getEvent();
+
+        final Entity entity = mvccEntity.getEntity().get();
+
+        final ApplicationScope applicationScope = ioevent.getEntityCollection();
+
+        final String authoritativeRegion = getAuthoritativeRegion( ioevent );
+
         try {
             akkaUvService.reserveUniqueValues( applicationScope, entity, mvccEntity.getVersion(), authoritativeRegion );
 
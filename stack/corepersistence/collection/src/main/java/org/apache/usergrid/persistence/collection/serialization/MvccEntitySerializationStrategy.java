@@ -21,6 +21,7 @@ package org.apache.usergrid.persistence.collection.serialization;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Set;
 import java.util.UUID;
 
 import org.apache.usergrid.persistence.collection.EntitySet;
@@ -57,6 +58,16 @@ public interface MvccEntitySerializationStrategy extends Migration, VersionedDat
      */
     EntitySet load( ApplicationScope scope, Collection<Id> entityIds, UUID maxVersion );
 
+
+    /**
+     * Load the entities into the entitySet from the specified Ids, materializing only the given top level fields.
+     * Formats that can't skip fields return the whole entity.  Returned entities may be partial, they must never be
+     * written back or cached
+     *
+     * @param fields The top level field names to read
+     */
+    EntitySet load( ApplicationScope scope, Collection<Id> entityIds, UUID maxVersion, Set<String> fields );
+
     /**
      * Load a list, from highest to lowest of the entity with versions <= version up to maxSize elements
      *
@@ -15,6 +15,8 @@ public interface SerializationFig extends GuicyFig {
 
     String COLLECTION_MAX_ENTITY_SIZE = "collection.max.entity.size";
 
+    String COLLECTION_ENTITY_COMPRESSION_THRESHOLD = "collection.entity.compression.threshold";
+
     /**
      * Time to live timeout in seconds.
      *
@@ -54,6 +56,14 @@ public interface SerializationFig extends GuicyFig {
     @Default( "5000000" )
     int getMaxEntitySize();
 
+    /**
+     * The encoded size in bytes above which an entity's fields are deflated before they are written.  Set to 0 or
+     * less to never compress
+     */
+    @Key( COLLECTION_ENTITY_COMPRESSION_THRESHOLD )
+    @Default( "8192" )
+    int getEntityCompressionThreshold();
+
     @Key ( "usergrid.uniqueverify.poolsize" )
     @Default( "150" )
     int getUniqueVerifyPoolSize();
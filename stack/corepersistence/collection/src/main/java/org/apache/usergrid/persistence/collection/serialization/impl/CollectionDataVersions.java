@@ -40,7 +40,13 @@ public enum CollectionDataVersions{
     /**
      * The change where we move unique field versions to their own  CF, and then only store our latest object version
      */
-    LOG_REMOVAL(2);
+    LOG_REMOVAL(2),
+
+    /**
+     * The change where entities are stored in a binary encoding instead of JSON.  Only the entity data changed, log
+     * entries and unique values are still stored as they were in LOG_REMOVAL
+     */
+    BINARY_ENCODING(3);
 
     private final int version;
 
@@ -0,0 +1,584 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.serialization.impl;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.usergrid.persistence.model.entity.EntityMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+
+/**
+ * Schema-less binary encoding of an {@link EntityMap}.  Every value is prefixed with a one byte type tag, integers
+ * are zig-zag var-ints, and field names are written once per entity into a name table that maps and nested maps
+ * refer to by index.  Callers may deflate the body with {@link #compress(byte[])}, it's only kept if it's smaller.
+ *
+ * Layout: compression byte, [raw length if deflated], name count, names, root map.
+ *
+ * Values the tags don't cover (serialized objects from byte array fields) fall back to JSON with the class
+ * recorded, the same as the V3 format, so they round trip to the same type.
+ */
+final class EntityMapBinaryCodec {
+
+    private static final byte COMPRESSION_NONE = 0;
+    private static final byte COMPRESSION_DEFLATE = 1;
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte FLOAT = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte STRING = 7;
+    private static final byte UUID_VALUE = 8;
+    private static final byte BYTES = 9;
+    private static final byte LIST = 10;
+    private static final byte MAP = 11;
+    private static final byte OBJECT = 12;
+
+    /**
+     * Field names repeat across every entity of a type, share a single instance of each on read
+     */
+    private static final Interner<String> FIELD_NAMES = Interners.newWeakInterner();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+
+    static {
+        MAPPER.enableDefaultTypingAsProperty( ObjectMapper.DefaultTyping.JAVA_LANG_OBJECT, "@class" );
+    }
+
+
+    private EntityMapBinaryCodec() {}
+
+
+    /**
+     * Encode the map without compression
+     */
+    static byte[] encode( final EntityMap entityMap ) {
+
+        final Map<String, Integer> names = new LinkedHashMap<>();
+
+        final Output values = new Output( 256 );
+        writeMap( values, entityMap, names );
+
+        final Output body = new Output( values.size() + names.size() * 8 + 8 );
+        body.write( COMPRESSION_NONE );
+        body.writeVarInt( names.size() );
+
+        for ( final String name : names.keySet() ) {
+            body.writeString( name );
+        }
+
+        body.write( values.buffer(), 0, values.size() );
+
+        return body.toByteArray();
+    }
+
+
+    /**
+     * Deflate a body returned from {@link #encode(EntityMap)}.  Returns the body as is if deflating doesn't make it
+     * any smaller
+     */
+    static byte[] compress( final byte[] encoded ) {
+        Preconditions.checkArgument( encoded[0] == COMPRESSION_NONE, "body is already compressed" );
+
+        final int length = encoded.length - 1;
+
+        final Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+
+        try {
+            deflater.setInput( encoded, 1, length );
+            deflater.finish();
+
+            final Output compressed = new Output( length / 2 + 16 );
+            compressed.write( COMPRESSION_DEFLATE );
+            compressed.writeVarInt( length );
+
+            final byte[] chunk = new byte[4096];
+
+            while ( !deflater.finished() ) {
+                compressed.write( chunk, 0, deflater.deflate( chunk ) );
+
+                if ( compressed.size() >= encoded.length ) {
+                    return encoded;
+                }
+            }
+
+            return compressed.toByteArray();
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+
+    /**
+     * Decode a map written by {@link #encode(EntityMap)} or {@link #compress(byte[])} starting at the buffer's position
+     */
+    static EntityMap decode( final ByteBuffer buffer ) {
+        return decode( buffer, null );
+    }
+
+
+    /**
+     * Decode only the given top level fields, the values of all other fields are skipped without being materialized.
+     * A null set of fields decodes everything
+     */
+    static EntityMap decode( final ByteBuffer buffer, final Set<String> fields ) {
+
+        final byte compression = buffer.get();
+
+        final ByteBuffer body;
+
+        if ( compression == COMPRESSION_DEFLATE ) {
+            body = inflate( buffer );
+        }
+        else if ( compression == COMPRESSION_NONE ) {
+            body = buffer;
+        }
+        else {
+            throw new IllegalStateException( "Unknown compression " + compression );
+        }
+
+        final int nameCount = readVarInt( body );
+        final String[] names = new String[nameCount];
+
+        for ( int i = 0; i < nameCount; i++ ) {
+            names[i] = FIELD_NAMES.intern( readString( body ) );
+        }
+
+        final EntityMap entityMap = new EntityMap();
+
+        if ( fields == null ) {
+            readMap( body, names, entityMap );
+            return entityMap;
+        }
+
+        final int size = readVarInt( body );
+
+        for ( int i = 0; i < size; i++ ) {
+            final String name = names[readVarInt( body )];
+
+            if ( fields.contains( name ) ) {
+                entityMap.put( name, readValue( body, names ) );
+            }
+            else {
+                skipValue( body );
+            }
+        }
+
+        return entityMap;
+    }
+
+
+    private static void writeMap( final Output out, final Map<String, Object> map, final Map<String, Integer> names ) {
+        out.writeVarInt( map.size() );
+
+        for ( final Map.Entry<String, Object> entry : map.entrySet() ) {
+            Integer index = names.get( entry.getKey() );
+
+            if ( index == null ) {
+                index = names.size();
+                names.put( entry.getKey(), index );
+            }
+
+            out.writeVarInt( index );
+            writeValue( out, entry.getValue(), names );
+        }
+    }
+
+
+    @SuppressWarnings( "unchecked" )
+    private static void writeValue( final Output out, final Object value, final Map<String, Integer> names ) {
+
+        if ( value == null ) {
+            out.write( NULL );
+        }
+        else if ( value instanceof String ) {
+            out.write( STRING );
+            out.writeString( ( String ) value );
+        }
+        else if ( value instanceof Boolean ) {
+            out.write( ( Boolean ) value ? TRUE : FALSE );
+        }
+        else if ( value instanceof Integer ) {
+            out.write( INT );
+            out.writeVarLong( zigZag( ( Integer ) value ) );
+        }
+        else if ( value instanceof Long ) {
+            out.write( LONG );
+            out.writeVarLong( zigZag( ( Long ) value ) );
+        }
+        else if ( value instanceof Double ) {
+            out.write( DOUBLE );
+            out.writeLong( Double.doubleToRawLongBits( ( Double ) value ) );
+        }
+        else if ( value instanceof Float ) {
+            out.write( FLOAT );
+            out.writeInt( Float.floatToRawIntBits( ( Float ) value ) );
+        }
+        else if ( value instanceof UUID ) {
+            out.write( UUID_VALUE );
+            out.writeLong( ( ( UUID ) value ).getMostSignificantBits() );
+            out.writeLong( ( ( UUID ) value ).getLeastSignificantBits() );
+        }
+        else if ( value instanceof byte[] ) {
+            out.write( BYTES );
+            out.writeVarInt( ( ( byte[] ) value ).length );
+            out.write( ( byte[] ) value, 0, ( ( byte[] ) value ).length );
+        }
+        else if ( value instanceof List ) {
+            final List<Object> list = ( List<Object> ) value;
+
+            out.write( LIST );
+            out.writeVarInt( list.size() );
+
+            for ( final Object element : list ) {
+                writeValue( out, element, names );
+            }
+        }
+        else if ( value instanceof Map && hasStringKeys( ( Map<?, ?> ) value ) ) {
+            out.write( MAP );
+            writeMap( out, ( Map<String, Object> ) value, names );
+        }
+        else {
+            final byte[] json;
+
+            try {
+                json = MAPPER.writeValueAsBytes( new ObjectValue( value ) );
+            }
+            catch ( IOException e ) {
+                throw new RuntimeException( "Unable to serialize value of type " + value.getClass(), e );
+            }
+
+            out.write( OBJECT );
+            out.writeVarInt( json.length );
+            out.write( json, 0, json.length );
+        }
+    }
+
+
+    private static void readMap( final ByteBuffer in, final String[] names, final Map<String, Object> map ) {
+        final int size = readVarInt( in );
+
+        for ( int i = 0; i < size; i++ ) {
+            final String name = names[readVarInt( in )];
+            map.put( name, readValue( in, names ) );
+        }
+    }
+
+
+    private static Object readValue( final ByteBuffer in, final String[] names ) {
+        final byte tag = in.get();
+
+        switch ( tag ) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case INT:
+                return ( int ) unZigZag( readVarLong( in ) );
+            case LONG:
+                return unZigZag( readVarLong( in ) );
+            case DOUBLE:
+                return Double.longBitsToDouble( in.getLong() );
+            case FLOAT:
+                return Float.intBitsToFloat( in.getInt() );
+            case STRING:
+                return readString( in );
+            case UUID_VALUE:
+                return new UUID( in.getLong(), in.getLong() );
+            case BYTES:
+                final byte[] bytes = new byte[readVarInt( in )];
+                in.get( bytes );
+                return bytes;
+            case LIST:
+                final int size = readVarInt( in );
+                final List<Object> list = new ArrayList<>( size );
+
+                for ( int i = 0; i < size; i++ ) {
+                    list.add( readValue( in, names ) );
+                }
+
+                return list;
+            case MAP:
+                final Map<String, Object> map = new HashMap<>();
+                readMap( in, names, map );
+                return map;
+            case OBJECT:
+                final byte[] json = new byte[readVarInt( in )];
+                in.get( json );
+
+                try {
+                    return MAPPER.readValue( json, ObjectValue.class ).value;
+                }
+                catch ( IOException e ) {
+                    throw new IllegalStateException( "Unable to read object value", e );
+                }
+            default:
+                throw new IllegalStateException( "Unknown value type " + tag );
+        }
+    }
+
+
+    private static void skipValue( final ByteBuffer in ) {
+        final byte tag = in.get();
+
+        switch ( tag ) {
+            case NULL:
+            case TRUE:
+            case FALSE:
+                return;
+            case INT:
+            case LONG:
+                readVarLong( in );
+                return;
+            case DOUBLE:
+                skip( in, 8 );
+                return;
+            case FLOAT:
+                skip( in, 4 );
+                return;
+            case UUID_VALUE:
+                skip( in, 16 );
+                return;
+            case STRING:
+            case BYTES:
+            case OBJECT:
+                skip( in, readVarInt( in ) );
+                return;
+            case LIST:
+                final int size = readVarInt( in );
+
+                for ( int i = 0; i < size; i++ ) {
+                    skipValue( in );
+                }
+
+                return;
+            case MAP:
+                final int entries = readVarInt( in );
+
+                for ( int i = 0; i < entries; i++ ) {
+                    readVarInt( in );
+                    skipValue( in );
+                }
+
+                return;
+            default:
+                throw new IllegalStateException( "Unknown value type " + tag );
+        }
+    }
+
+
+    private static void skip( final ByteBuffer in, final int length ) {
+        in.position( in.position() + length );
+    }
+
+
+    private static boolean hasStringKeys( final Map<?, ?> map ) {
+        for ( final Object key : map.keySet() ) {
+            if ( !( key instanceof String ) ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    private static ByteBuffer inflate( final ByteBuffer in ) {
+        final byte[] raw = new byte[readVarInt( in )];
+
+        final byte[] compressed = new byte[in.remaining()];
+        in.get( compressed );
+
+        final Inflater inflater = new Inflater();
+
+        try {
+            inflater.setInput( compressed );
+
+            int read = 0;
+
+            while ( read < raw.length && !inflater.finished() ) {
+                final int length = inflater.inflate( raw, read, raw.length - read );
+
+                if ( length == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) ) {
+                    break;
+                }
+
+                read += length;
+            }
+
+            if ( read != raw.length ) {
+                throw new IllegalStateException( "Expected " + raw.length + " bytes after inflating, found " + read );
+            }
+        }
+        catch ( DataFormatException e ) {
+            throw new IllegalStateException( "Unable to inflate entity", e );
+        }
+        finally {
+            inflater.end();
+        }
+
+        return ByteBuffer.wrap( raw );
+    }
+
+
+    private static long zigZag( final long value ) {
+        return ( value << 1 ) ^ ( value >> 63 );
+    }
+
+
+    private static long unZigZag( final long value ) {
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+
+
+    private static int readVarInt( final ByteBuffer in ) {
+        return ( int ) readVarLong( in );
+    }
+
+
+    private static long readVarLong( final ByteBuffer in ) {
+        long result = 0;
+
+        for ( int shift = 0; shift < 64; shift += 7 ) {
+            final byte b = in.get();
+            result |= ( long ) ( b & 0x7F ) << shift;
+
+            if ( ( b & 0x80 ) == 0 ) {
+                return result;
+            }
+        }
+
+        throw new IllegalStateException( "Malformed var int" );
+    }
+
+
+    private static String readString( final ByteBuffer in ) {
+        final int length = readVarInt( in );
+
+        final String value;
+
+        if ( in.hasArray() ) {
+            value = new String( in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8 );
+            in.position( in.position() + length );
+        }
+        else {
+            final byte[] bytes = new byte[length];
+            in.get( bytes );
+            value = new String( bytes, StandardCharsets.UTF_8 );
+        }
+
+        return value;
+    }
+
+
+    /**
+     * Holder so jackson records the class of values we don't have a tag for
+     */
+    public static final class ObjectValue {
+
+        public Object value;
+
+
+        public ObjectValue() {
+        }
+
+
+        public ObjectValue( final Object value ) {
+            this.value = value;
+        }
+    }
+
+
+    /**
+     * Growable output we can read back without copying
+     */
+    private static final class Output extends ByteArrayOutputStream {
+
+        private Output( final int size ) {
+            super( size );
+        }
+
+
+        private byte[] buffer() {
+            return buf;
+        }
+
+
+        private void writeVarInt( final int value ) {
+            writeVarLong( value & 0xFFFFFFFFL );
+        }
+
+
+        private void writeVarLong( long value ) {
+            while ( ( value & ~0x7FL ) != 0 ) {
+                write( ( int ) ( ( value & 0x7F ) | 0x80 ) );
+                value >>>= 7;
+            }
+
+            write( ( int ) value );
+        }
+
+
+        private void writeInt( final int value ) {
+            write( value >>> 24 );
+            write( value >>> 16 );
+            write( value >>> 8 );
+            write( value );
+        }
+
+
+        private void writeLong( final long value ) {
+            writeInt( ( int ) ( value >>> 32 ) );
+            writeInt( ( int ) value );
+        }
+
+
+        private void writeString( final String value ) {
+            final byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+            writeVarInt( bytes.length );
+            write( bytes, 0, bytes.length );
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.apache.usergrid.persistence.core.datastax.TableDefinition;
@@ -113,6 +114,14 @@ public abstract class MvccEntitySerializationStrategyImpl implements MvccEntityS
     }
 
 
+    @Override
+    public EntitySet load( final ApplicationScope applicationScope, final Collection<Id> entityIds,
+                           final UUID maxVersion, final Set<String> fields ) {
+        //these versions store the serialized entity object, it can't be read in part
+        return load( applicationScope, entityIds, maxVersion );
+    }
+
+
     @Override
     public EntitySet load( final ApplicationScope applicationScope, final Collection<Id> entityIds,
                            final UUID maxVersion ) {
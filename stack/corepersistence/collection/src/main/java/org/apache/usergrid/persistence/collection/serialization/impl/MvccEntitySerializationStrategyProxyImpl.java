@@ -20,6 +20,7 @@ package org.apache.usergrid.persistence.collection.serialization.impl;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.Set;
 import java.util.UUID;
 
 import org.apache.usergrid.persistence.collection.EntitySet;
@@ -97,6 +98,20 @@ public class MvccEntitySerializationStrategyProxyImpl implements MvccEntitySeria
     }
 
 
+    @Override
+    public EntitySet load( final ApplicationScope scope, final Collection<Id> entityIds, final UUID maxVersion,
+                           final Set<String> fields ) {
+
+        final MigrationRelationship<MvccEntitySerializationStrategy> migration = getMigrationRelationShip();
+
+        if ( migration.needsMigration() ) {
+            return migration.from.load( scope, entityIds, maxVersion, fields );
+        }
+
+        return migration.to.load( scope, entityIds, maxVersion, fields );
+    }
+
+
 
     @Override
     public Iterator<MvccEntity> loadDescendingHistory( final ApplicationScope context, final Id entityId,
@@ -1,19 +1,23 @@
 package org.apache.usergrid.persistence.collection.serialization.impl;
 
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.netflix.astyanax.serializers.StringSerializer;
 import org.apache.usergrid.persistence.core.datastax.TableDefinition;
@@ -112,7 +116,7 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
         final UUID version = entity.getVersion();
 
         Optional<EntityMap> map =  EntityMap.fromEntity(entity.getEntity());
-        ByteBuffer byteBuffer = entitySerializer.toByteBuffer(
+        ByteBuffer byteBuffer = getEntitySerializer().toByteBuffer(
             new EntityWrapper(entityId,entity.getVersion(), entity.getStatus(), map.isPresent() ? map.get() : null, 0 )
         );
 
@@ -125,7 +129,24 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
     @Override
     public EntitySet load( final ApplicationScope applicationScope, final Collection<Id> entityIds,
                            final UUID maxVersion ) {
+        return doLoad( applicationScope, entityIds, maxVersion, getEntitySerializer() );
+    }
+
+
+    @Override
+    public EntitySet load( final ApplicationScope applicationScope, final Collection<Id> entityIds,
+                           final UUID maxVersion, final Set<String> fields ) {
+        Preconditions.checkNotNull( fields, "fields are required" );
+
+        return doLoad( applicationScope, entityIds, maxVersion, getEntitySerializer( fields ) );
+    }
+
 
+    /**
+     * Load the entities, parsing each column with the given serializer
+     */
+    private EntitySet doLoad( final ApplicationScope applicationScope, final Collection<Id> entityIds,
+                              final UUID maxVersion, final AbstractSerializer<EntityWrapper> serializer ) {
 
         Preconditions.checkNotNull( applicationScope, "applicationScope is required" );
         Preconditions.checkNotNull( entityIds, "entityIds is required" );
@@ -191,7 +212,7 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
 
 
                     try {
-                        return keyspace.prepareQuery( CF_ENTITY_DATA ).getKeySlice( scopedRowKeys )
+                        return keyspace.prepareQuery( getColumnFamily() ).getKeySlice( scopedRowKeys )
                             .withColumnSlice( COL_VALUE ).execute().getResult();
                     }
                     catch ( ConnectionException e ) {
@@ -216,7 +237,7 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
                     final Column<Boolean> column = columns.getColumnByIndex( 0 );
 
                     final MvccEntity parsedEntity =
-                        new MvccColumnParser( entityId, entitySerializer ).parseColumn( column );
+                        new MvccColumnParser( entityId, serializer ).parseColumn( column );
 
 
                     entitySet.addEntity( parsedEntity );
@@ -274,7 +295,7 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
 
         return doWrite(applicationScope, entityId, version, colMutation ->
                 colMutation.putColumn(COL_VALUE,
-                    entitySerializer.toByteBuffer(new EntityWrapper(entityId, version, MvccEntity.Status.DELETED, null, 0))
+                    getEntitySerializer().toByteBuffer(new EntityWrapper(entityId, version, MvccEntity.Status.DELETED, null, 0))
                 )
         );
     }
@@ -297,7 +318,7 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
         //create the CF entity data.  We want it reversed b/c we want the most recent version at the top of the
         //row for fast seeks
         MultiTenantColumnFamilyDefinition cf =
-                new MultiTenantColumnFamilyDefinition( CF_ENTITY_DATA, BytesType.class.getSimpleName(),
+                new MultiTenantColumnFamilyDefinition( getColumnFamily(), BytesType.class.getSimpleName(),
                         BooleanType.class.getSimpleName() ,
                         BytesType.class.getSimpleName(), MultiTenantColumnFamilyDefinition.CacheOption.KEYS );
 
@@ -325,7 +346,7 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
 
         final long timestamp = version.timestamp();
 
-        op.doOp( batch.withRow( CF_ENTITY_DATA, rowKey ).setTimestamp( timestamp  ) );
+        op.doOp( batch.withRow( getColumnFamily(), rowKey ).setTimestamp( timestamp  ) );
 
         return batch;
     }
@@ -337,6 +358,41 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
     }
 
 
+    /**
+     * Get the column family this version stores entities in
+     */
+    protected MultiTenantColumnFamily<ScopedRowKey<Id>, Boolean> getColumnFamily() {
+        return CF_ENTITY_DATA;
+    }
+
+
+    /**
+     * Get the serializer this version uses to convert an entity to and from its column value
+     */
+    protected AbstractSerializer<EntityWrapper> getEntitySerializer() {
+        return entitySerializer;
+    }
+
+
+    /**
+     * Get a serializer that only reads the given top level fields of the entity
+     */
+    protected AbstractSerializer<EntityWrapper> getEntitySerializer( final Set<String> fields ) {
+        return new AbstractSerializer<EntityWrapper>() {
+            @Override
+            public ByteBuffer toByteBuffer( final EntityWrapper wrapper ) {
+                return entitySerializer.toByteBuffer( wrapper );
+            }
+
+
+            @Override
+            public EntityWrapper fromByteBuffer( final ByteBuffer byteBuffer ) {
+                return entitySerializer.fromByteBuffer( byteBuffer, fields );
+            }
+        };
+    }
+
+
     /**
      * Converts raw columns the to MvccEntity representation
      */
@@ -448,6 +504,15 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
 
         @Override
         public EntityWrapper fromByteBuffer( final ByteBuffer byteBuffer ) {
+            return fromByteBuffer( byteBuffer, null );
+        }
+
+
+        /**
+         * Read the entity wrapper.  If fields is not null, only those fields of the entity map are deserialized,
+         * the rest are skipped in the token stream
+         */
+        public EntityWrapper fromByteBuffer( final ByteBuffer byteBuffer, final Set<String> fields ) {
 
             /**
              * We intentionally turn data corruption exceptions when we're unable to de-serialize
@@ -464,7 +529,7 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
                 Timer.Context time = bytesOutTimer.time();
                 byte[] arr = byteBuffer.array();
                 bytesOutHistorgram.update( arr == null ? 0 : arr.length);
-                entityWrapper = MAPPER.readValue(arr, EntityWrapper.class);
+                entityWrapper = fields == null ? MAPPER.readValue(arr, EntityWrapper.class) : readFields(arr, fields);
                 entityWrapper.size = arr.length;
                 time.stop();
             }
@@ -485,6 +550,67 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
             // it's partial by default
             return entityWrapper;
         }
+
+
+        /**
+         * Stream the wrapper, only binding the requested fields of the entity map
+         */
+        private EntityWrapper readFields( final byte[] bytes, final Set<String> fields ) throws IOException {
+
+            final EntityWrapper entityWrapper = new EntityWrapper();
+
+            try ( JsonParser parser = JSON_FACTORY.createParser( bytes ) ) {
+
+                if ( parser.nextToken() != JsonToken.START_OBJECT ) {
+                    throw new IOException( "Expected the start of the entity wrapper" );
+                }
+
+                while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+                    final String name = parser.getCurrentName();
+                    parser.nextToken();
+
+                    switch ( name ) {
+                        case "id":
+                            entityWrapper.id = MAPPER.readValue( parser, Id.class );
+                            break;
+                        case "version":
+                            entityWrapper.version = MAPPER.readValue( parser, UUID.class );
+                            break;
+                        case "entityMap":
+                            entityWrapper.entityMap = readEntityMap( parser, fields );
+                            break;
+                        default:
+                            parser.skipChildren();
+                    }
+                }
+            }
+
+            return entityWrapper;
+        }
+
+
+        private EntityMap readEntityMap( final JsonParser parser, final Set<String> fields ) throws IOException {
+
+            if ( parser.getCurrentToken() == JsonToken.VALUE_NULL ) {
+                return null;
+            }
+
+            final EntityMap entityMap = new EntityMap();
+
+            while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+                final String name = parser.getCurrentName();
+                parser.nextToken();
+
+                if ( fields.contains( name ) ) {
+                    entityMap.put( name, MAPPER.readValue( parser, Object.class ) );
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+
+            return entityMap;
+        }
     }
 
     /**
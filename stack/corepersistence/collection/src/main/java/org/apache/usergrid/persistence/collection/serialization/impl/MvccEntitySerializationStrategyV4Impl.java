@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.serialization.impl;
+
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.exception.DataCorruptionException;
+import org.apache.usergrid.persistence.collection.exception.EntityTooLargeException;
+import org.apache.usergrid.persistence.collection.serialization.SerializationFig;
+import org.apache.usergrid.persistence.core.CassandraFig;
+import org.apache.usergrid.persistence.core.astyanax.IdRowCompositeSerializer;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamily;
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKey;
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKeySerializer;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.EntityMap;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import com.google.inject.Inject;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.serializers.AbstractSerializer;
+import com.netflix.astyanax.serializers.BooleanSerializer;
+
+
+/**
+ * V4 Serialization Implementation.  Same storage layout as V3, a single column per entity with only the latest
+ * version, but the value is written with {@link EntityMapBinaryCodec} instead of JSON.
+ */
+public class MvccEntitySerializationStrategyV4Impl extends MvccEntitySerializationStrategyV3Impl {
+
+    private static final IdRowCompositeSerializer ID_SER = IdRowCompositeSerializer.get();
+
+    private static final ScopedRowKeySerializer<Id> ROW_KEY_SER = new ScopedRowKeySerializer<>( ID_SER );
+
+
+    private static final MultiTenantColumnFamily<ScopedRowKey<Id>, Boolean> CF_ENTITY_DATA =
+        new MultiTenantColumnFamily<>( "Entity_Version_Data_V4", ROW_KEY_SER, BooleanSerializer.get() );
+
+
+    private final EntitySerializer entitySerializer;
+
+
+    @Inject
+    public MvccEntitySerializationStrategyV4Impl( final Keyspace keyspace, final SerializationFig serializationFig,
+                                                  final CassandraFig cassandraFig,
+                                                  final MetricsFactory metricsFactory ) {
+        super( keyspace, serializationFig, cassandraFig, metricsFactory );
+        this.entitySerializer = new EntitySerializer( serializationFig, metricsFactory );
+    }
+
+
+    @Override
+    public int getImplementationVersion() {
+        return CollectionDataVersions.BINARY_ENCODING.getVersion();
+    }
+
+
+    @Override
+    protected MultiTenantColumnFamily<ScopedRowKey<Id>, Boolean> getColumnFamily() {
+        return CF_ENTITY_DATA;
+    }
+
+
+    @Override
+    protected AbstractSerializer<EntityWrapper> getEntitySerializer() {
+        return entitySerializer;
+    }
+
+
+    @Override
+    protected AbstractSerializer<EntityWrapper> getEntitySerializer( final Set<String> fields ) {
+        return new AbstractSerializer<EntityWrapper>() {
+            @Override
+            public ByteBuffer toByteBuffer( final EntityWrapper wrapper ) {
+                return entitySerializer.toByteBuffer( wrapper );
+            }
+
+
+            @Override
+            public EntityWrapper fromByteBuffer( final ByteBuffer byteBuffer ) {
+                return entitySerializer.fromByteBuffer( byteBuffer, fields );
+            }
+        };
+    }
+
+
+    /**
+     * Writes the entity wrapper as
+     *
+     * format version, status, id type, id uuid, version, encoded entity map (complete only)
+     */
+    public static final class EntitySerializer extends AbstractSerializer<EntityWrapper> {
+
+        private static final byte FORMAT_VERSION = 1;
+
+        private static final byte STATUS_DELETED = 0;
+        private static final byte STATUS_COMPLETE = 1;
+
+        private final SerializationFig serializationFig;
+        private final Histogram bytesInHistogram;
+        private final Histogram bytesOutHistogram;
+        private final Timer bytesOutTimer;
+
+
+        public EntitySerializer( final SerializationFig serializationFig, final MetricsFactory metricsFactory ) {
+            this.serializationFig = serializationFig;
+            this.bytesOutHistogram =
+                metricsFactory.getHistogram( MvccEntitySerializationStrategyV4Impl.class, "bytes.out" );
+            this.bytesOutTimer = metricsFactory.getTimer( MvccEntitySerializationStrategyV4Impl.class, "bytes.out" );
+            this.bytesInHistogram =
+                metricsFactory.getHistogram( MvccEntitySerializationStrategyV4Impl.class, "bytes.in" );
+        }
+
+
+        @Override
+        public ByteBuffer toByteBuffer( final EntityWrapper wrapper ) {
+            if ( wrapper == null ) {
+                return null;
+            }
+
+            final EntityMap entityMap = wrapper.getEntityMap();
+
+            //we have an entity but status is not complete don't allow it
+            if ( entityMap != null && wrapper.getStatus() != MvccEntity.Status.COMPLETE ) {
+                throw new UnsupportedOperationException(
+                    "Only states " + MvccEntity.Status.DELETED + " and " + MvccEntity.Status.COMPLETE
+                        + " are supported" );
+            }
+
+            final byte[] body;
+
+            if ( entityMap == null ) {
+                body = new byte[0];
+            }
+            else {
+                //check the size before compression, what we accept shouldn't depend on how well it compresses
+                final byte[] raw = EntityMapBinaryCodec.encode( entityMap );
+
+                final int maxEntrySize = serializationFig.getMaxEntitySize();
+
+                bytesInHistogram.update( raw.length );
+
+                if ( raw.length > maxEntrySize ) {
+                    throw new EntityTooLargeException( Entity.fromMap( entityMap ), maxEntrySize, raw.length,
+                        "Your entity cannot exceed " + maxEntrySize + " bytes. The entity you tried to save was "
+                            + raw.length + " bytes" );
+                }
+
+                final int threshold = serializationFig.getEntityCompressionThreshold();
+
+                body = threshold > 0 && raw.length > threshold ? EntityMapBinaryCodec.compress( raw ) : raw;
+            }
+
+            final byte[] type = wrapper.getId().getType().getBytes( StandardCharsets.UTF_8 );
+
+            final ByteBuffer buffer = ByteBuffer.allocate( 2 + 2 + type.length + 32 + body.length );
+
+            buffer.put( FORMAT_VERSION );
+            buffer.put( entityMap == null ? STATUS_DELETED : STATUS_COMPLETE );
+            buffer.putShort( ( short ) type.length );
+            buffer.put( type );
+            putUuid( buffer, wrapper.getId().getUuid() );
+            putUuid( buffer, wrapper.getVersion() );
+            buffer.put( body );
+
+            buffer.rewind();
+
+            return buffer;
+        }
+
+
+        @Override
+        public EntityWrapper fromByteBuffer( final ByteBuffer byteBuffer ) {
+            return fromByteBuffer( byteBuffer, null );
+        }
+
+
+        /**
+         * Read the entity wrapper.  If fields is not null, only those fields of the entity map are decoded
+         */
+        public EntityWrapper fromByteBuffer( final ByteBuffer byteBuffer, final Set<String> fields ) {
+
+            /**
+             * Same as V3, anything we can't read is considered corrupted and lost
+             */
+
+            final Timer.Context time = bytesOutTimer.time();
+
+            try {
+                final ByteBuffer buffer = byteBuffer.duplicate();
+                final int size = buffer.remaining();
+
+                bytesOutHistogram.update( size );
+
+                final byte format = buffer.get();
+
+                if ( format != FORMAT_VERSION ) {
+                    throw new IllegalStateException( "Unknown entity format " + format );
+                }
+
+                final byte status = buffer.get();
+
+                final byte[] type = new byte[buffer.getShort()];
+                buffer.get( type );
+
+                final Id id = new SimpleId( getUuid( buffer ), new String( type, StandardCharsets.UTF_8 ) );
+                final UUID version = getUuid( buffer );
+
+                if ( status == STATUS_DELETED ) {
+                    return new EntityWrapper( id, version, MvccEntity.Status.DELETED, null, 0 );
+                }
+
+                final EntityMap entityMap = EntityMapBinaryCodec.decode( buffer, fields );
+
+                return new EntityWrapper( id, version, MvccEntity.Status.COMPLETE, entityMap, size );
+            }
+            catch ( Exception e ) {
+                throw new DataCorruptionException( "Unable to read entity data", e );
+            }
+            finally {
+                time.stop();
+            }
+        }
+
+
+        private static void putUuid( final ByteBuffer buffer, final UUID uuid ) {
+            buffer.putLong( uuid.getMostSignificantBits() );
+            buffer.putLong( uuid.getLeastSignificantBits() );
+        }
+
+
+        private static UUID getUuid( final ByteBuffer buffer ) {
+            return new UUID( buffer.getLong(), buffer.getLong() );
+        }
+    }
+}
@@ -163,7 +163,10 @@ public class MvccLogEntrySerializationProxyImpl implements MvccLogEntrySerializa
      * Return true if we're on an old version
      */
     private MigrationRelationship<MvccLogEntrySerializationStrategy> getMigrationRelationShip() {
-        return this.versions
-            .getMigrationRelationship( migrationInfoCache.getVersion( CollectionMigrationPlugin.PLUGIN_NAME ) );
+        //the plugin version moves past LOG_REMOVAL for entity only changes, our format is the same from then on
+        final int version = Math.min( migrationInfoCache.getVersion( CollectionMigrationPlugin.PLUGIN_NAME ),
+            CollectionDataVersions.LOG_REMOVAL.getVersion() );
+
+        return this.versions.getMigrationRelationship( version );
     }
 }
@@ -24,11 +24,10 @@ import java.util.*;
 
 import com.datastax.driver.core.*;
 import com.datastax.driver.core.Row;
-import com.datastax.driver.core.querybuilder.Clause;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
-import com.datastax.driver.core.querybuilder.Using;
 import org.apache.usergrid.persistence.core.CassandraConfig;
 import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
+import org.apache.usergrid.persistence.core.datastax.PreparedStatementCache;
 import org.apache.usergrid.persistence.core.datastax.TableDefinition;
 import org.apache.usergrid.persistence.model.entity.SimpleId;
 import org.apache.usergrid.persistence.model.field.*;
@@ -79,6 +78,17 @@ public abstract class UniqueValueSerializationStrategyImpl<FieldKey, EntityKey>
 
     private final Session session;
     private final CassandraConfig cassandraConfig;
+    private final PreparedStatementCache preparedStatements;
+
+    /**
+     * Statements for our tables, prepared on first use.  A ttl of 0 is a write that never expires
+     */
+    private final RegularStatement insertUniqueValue;
+    private final RegularStatement insertUniqueValueLog;
+    private final RegularStatement deleteUniqueValue;
+    private final RegularStatement deleteUniqueValueLog;
+    private final RegularStatement selectUniqueValues;
+    private final RegularStatement selectUniqueValueLog;
 
 
     /**
@@ -90,12 +100,14 @@ public abstract class UniqueValueSerializationStrategyImpl<FieldKey, EntityKey>
     public UniqueValueSerializationStrategyImpl( final CassandraFig cassandraFig,
                                                  final SerializationFig serializationFig,
                                                  final Session session,
-                                                 final CassandraConfig cassandraConfig) {
+                                                 final CassandraConfig cassandraConfig,
+                                                 final PreparedStatementCache preparedStatements ) {
         this.cassandraFig = cassandraFig;
         this.serializationFig = serializationFig;
 
         this.session = session;
         this.cassandraConfig = cassandraConfig;
+        this.preparedStatements = preparedStatements;
 
         TABLE_UNIQUE_VALUES = getUniqueValuesTable().getTableName();
         TABLE_UNIQUE_VALUES_LOG = getEntityUniqueLogTable().getTableName();
@@ -103,8 +115,37 @@ public abstract class UniqueValueSerializationStrategyImpl<FieldKey, EntityKey>
         COLUMNS_UNIQUE_VALUES = getUniqueValuesTable().getColumns();
         COLUMNS_UNIQUE_VALUES_LOG = getEntityUniqueLogTable().getColumns();
 
+        insertUniqueValue = insertStatement( TABLE_UNIQUE_VALUES );
+        insertUniqueValueLog = insertStatement( TABLE_UNIQUE_VALUES_LOG );
+        deleteUniqueValue = deleteStatement( TABLE_UNIQUE_VALUES );
+        deleteUniqueValueLog = deleteStatement( TABLE_UNIQUE_VALUES_LOG );
+        selectUniqueValues = selectStatement( TABLE_UNIQUE_VALUES );
+        selectUniqueValueLog = selectStatement( TABLE_UNIQUE_VALUES_LOG );
+
+    }
+
+    private static RegularStatement insertStatement( final String table ) {
+        return QueryBuilder.insertInto( table )
+            .value( "key", QueryBuilder.bindMarker() )
+            .value( "column1", QueryBuilder.bindMarker() )
+            .value( "value", QueryBuilder.bindMarker() )
+            .using( QueryBuilder.ttl( QueryBuilder.bindMarker() ) );
+    }
+
+
+    private static RegularStatement deleteStatement( final String table ) {
+        return QueryBuilder.delete().from( table )
+            .where( QueryBuilder.eq( "key", QueryBuilder.bindMarker() ) )
+            .and( QueryBuilder.eq( "column1", QueryBuilder.bindMarker() ) );
+    }
+
+
+    private static RegularStatement selectStatement( final String table ) {
+        return QueryBuilder.select().all().from( table )
+            .where( QueryBuilder.eq( "key", QueryBuilder.bindMarker() ) );
     }
 
+
     @Override
     public BatchStatement writeCQL( final ApplicationScope collectionScope, final UniqueValue value,
                            final int timeToLive  ){
@@ -114,12 +155,8 @@ public abstract class UniqueValueSerializationStrategyImpl<FieldKey, EntityKey>
 
         BatchStatement batch = new BatchStatement();
 
-        Using ttl = null;
-        if(timeToLive > 0){
-
-            ttl = QueryBuilder.ttl(timeToLive);
-
-        }
+        // 0 writes without a TTL
+        final int ttl = Math.max( timeToLive, 0 );
 
         final Id entityId = value.getEntityId();
         final UUID entityVersion = value.getEntityVersion();
@@ -137,33 +174,14 @@ public abstract class UniqueValueSerializationStrategyImpl<FieldKey, EntityKey>
         ByteBuffer logPartitionKey = getLogPartitionKey(collectionScope.getApplication(), value.getEntityId());
 
 
-        if(ttl != null) {
+        final ByteBuffer columnValue = DataType.serializeValue(COL_VALUE, ProtocolVersion.NEWEST_SUPPORTED);
 
-            Statement uniqueValueStatement = QueryBuilder.insertInto(TABLE_UNIQUE_VALUES)
-                .value("key", partitionKey)
-                .value("column1", serializeUniqueValueColumn(ev))
-                .value("value", DataType.serializeValue(COL_VALUE, ProtocolVersion.NEWEST_SUPPORTED))
-                .using(ttl);
-
-            batch.add(uniqueValueStatement);
-
-
-        }else{
-
-            Statement uniqueValueStatement = QueryBuilder.insertInto(TABLE_UNIQUE_VALUES)
-                .value("key", partitionKey)
-                .value("column1", serializeUniqueValueColumn(ev))
-                .value("value", DataType.serializeValue(COL_VALUE, ProtocolVersion.NEWEST_SUPPORTED));
-
-            batch.add(uniqueValueStatement);
-
-        }
+        batch.add( preparedStatements.get( insertUniqueValue )
+            .bind( partitionKey, serializeUniqueValueColumn(ev), columnValue, ttl ) );
 
         // we always want to retain the log entry, so never write with the TTL
-        Statement uniqueValueLogStatement = QueryBuilder.insertInto(TABLE_UNIQUE_VALUES_LOG)
-            .value("key", logPartitionKey)
-            .value("column1", serializeUniqueValueLogColumn(uniqueFieldEntry))
-            .value("value", DataType.serializeValue(COL_VALUE, ProtocolVersion.NEWEST_SUPPORTED));
+        Statement uniqueValueLogStatement = preparedStatements.get( insertUniqueValueLog )
+            .bind( logPartitionKey, serializeUniqueValueLogColumn(uniqueFieldEntry), columnValue, 0 );
 
         batch.add(uniqueValueLogStatement);
 
@@ -198,9 +216,7 @@ public abstract class UniqueValueSerializationStrategyImpl<FieldKey, EntityKey>
 
         ByteBuffer columnValue = serializeUniqueValueColumn(ev);
 
-        final Clause uniqueEqKey = QueryBuilder.eq("key", partitionKey );
-        final Clause uniqueEqColumn = QueryBuilder.eq("column1", columnValue );
-        Statement uniqueDelete = QueryBuilder.delete().from(TABLE_UNIQUE_VALUES).where(uniqueEqKey).and(uniqueEqColumn);
+        Statement uniqueDelete = preparedStatements.get( deleteUniqueValue ).bind( partitionKey, columnValue );
         batch.add(uniqueDelete);
 
 
@@ -209,11 +225,8 @@ public abstract class UniqueValueSerializationStrategyImpl<FieldKey, EntityKey>
         ByteBuffer logColumnValue = serializeUniqueValueLogColumn(uniqueFieldEntry);
 
 
-        final Clause uniqueLogEqKey = QueryBuilder.eq("key", logPartitionKey );
-        final Clause uniqueLogEqColumn = QueryBuilder.eq("column1", logColumnValue );
-
-        Statement uniqueLogDelete = QueryBuilder.delete()
-            .from(TABLE_UNIQUE_VALUES_LOG).where(uniqueLogEqKey).and( uniqueLogEqColumn);
+        Statement uniqueLogDelete =
+            preparedStatements.get( deleteUniqueValueLog ).bind( logPartitionKey, logColumnValue );
 
         batch.add(uniqueLogDelete);
 
@@ -280,21 +293,26 @@ public abstract class UniqueValueSerializationStrategyImpl<FieldKey, EntityKey>
 
         final UniqueValueSetImpl uniqueValueSet = new UniqueValueSetImpl( fields.size() );
 
+        final PreparedStatement select = preparedStatements.get( selectUniqueValues );
+
+        // issue every field's read before we wait on any of them
+        final List<ResultSetFuture> futures = new ArrayList<>( fields.size() );
 
         for ( Field field : fields ) {
 
-            //log.info(Bytes.toHexString(getPartitionKey(applicationId, type, field.getTypeName().toString(), field.getName(), field.getValue())));
+            final Statement statement = select.bind( getPartitionKey(applicationId, type,
+                field.getTypeName().toString(), field.getName(), field.getValue()) )
+                .setConsistencyLevel(consistencyLevel);
 
-            //partitionKeys.add(getPartitionKey(applicationId, type, field.getTypeName().toString(), field.getName(), field.getValue()));
+            futures.add( session.executeAsync(statement) );
+        }
 
-            final Clause inKey = QueryBuilder.in("key", getPartitionKey(applicationId, type,
-                field.getTypeName().toString(), field.getName(), field.getValue()) );
 
-            final Statement statement = QueryBuilder.select().all().from(TABLE_UNIQUE_VALUES)
-                .where(inKey)
-                .setConsistencyLevel(consistencyLevel);
+        final Iterator<ResultSetFuture> resultSets = futures.iterator();
 
-            final ResultSet resultSet = session.execute(statement);
+        for ( Field field : fields ) {
+
+            final ResultSet resultSet = resultSets.next().getUninterruptibly();
 
 
             Iterator<com.datastax.driver.core.Row> results = resultSet.iterator();
@@ -482,10 +500,8 @@ public abstract class UniqueValueSerializationStrategyImpl<FieldKey, EntityKey>
         Preconditions.checkNotNull( entityId, "entity id is required" );
 
 
-        Clause inKey = QueryBuilder.in("key", getLogPartitionKey(collectionScope.getApplication(), entityId));
-
-        Statement statement = QueryBuilder.select().all().from(TABLE_UNIQUE_VALUES_LOG)
-            .where(inKey);
+        Statement statement = preparedStatements.get( selectUniqueValueLog )
+            .bind( getLogPartitionKey(collectionScope.getApplication(), entityId) );
 
         return new AllUniqueFieldsIterator(session, statement, entityId);
 
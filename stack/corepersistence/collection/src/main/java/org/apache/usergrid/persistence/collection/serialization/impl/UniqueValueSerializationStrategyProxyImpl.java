@@ -153,8 +153,11 @@ public class UniqueValueSerializationStrategyProxyImpl implements UniqueValueSer
      * Return true if we're on an old version
      */
     private MigrationRelationship<UniqueValueSerializationStrategy> getMigrationRelationShip() {
-        return this.versions
-            .getMigrationRelationship( migrationInfoCache.getVersion( CollectionMigrationPlugin.PLUGIN_NAME ) );
+        //the plugin version moves past LOG_REMOVAL for entity only changes, our format is the same from then on
+        final int version = Math.min( migrationInfoCache.getVersion( CollectionMigrationPlugin.PLUGIN_NAME ),
+            CollectionDataVersions.LOG_REMOVAL.getVersion() );
+
+        return this.versions.getMigrationRelationship( version );
     }
 
 
@@ -33,6 +33,7 @@ import org.apache.usergrid.persistence.core.CassandraConfig;
 import org.apache.usergrid.persistence.core.CassandraFig;
 import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
 import org.apache.usergrid.persistence.core.datastax.CQLUtils;
+import org.apache.usergrid.persistence.core.datastax.PreparedStatementCache;
 import org.apache.usergrid.persistence.core.datastax.TableDefinition;
 import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.model.field.Field;
@@ -93,8 +94,9 @@ public class UniqueValueSerializationStrategyV1Impl  extends UniqueValueSerializ
     public UniqueValueSerializationStrategyV1Impl( final CassandraFig cassandraFig,
                                                    final SerializationFig serializationFig,
                                                    final Session session,
-                                                   final CassandraConfig cassandraConfig) {
-        super( cassandraFig, serializationFig, session, cassandraConfig );
+                                                   final CassandraConfig cassandraConfig,
+                                                   final PreparedStatementCache preparedStatements ) {
+        super( cassandraFig, serializationFig, session, cassandraConfig, preparedStatements );
     }
 
 
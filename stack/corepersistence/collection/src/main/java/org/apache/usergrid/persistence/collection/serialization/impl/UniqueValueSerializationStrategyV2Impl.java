@@ -33,6 +33,7 @@ import org.apache.usergrid.persistence.core.CassandraConfig;
 import org.apache.usergrid.persistence.core.CassandraFig;
 import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
 import org.apache.usergrid.persistence.core.datastax.CQLUtils;
+import org.apache.usergrid.persistence.core.datastax.PreparedStatementCache;
 import org.apache.usergrid.persistence.core.datastax.TableDefinition;
 import org.apache.usergrid.persistence.model.entity.Id;
 
@@ -89,8 +90,9 @@ public class UniqueValueSerializationStrategyV2Impl  extends UniqueValueSerializ
     public UniqueValueSerializationStrategyV2Impl( final CassandraFig cassandraFig,
                                                    final SerializationFig serializationFig,
                                                    final Session session,
-                                                   final CassandraConfig cassandraConfig) {
-        super( cassandraFig, serializationFig, session, cassandraConfig );
+                                                   final CassandraConfig cassandraConfig,
+                                                   final PreparedStatementCache preparedStatements ) {
+        super( cassandraFig, serializationFig, session, cassandraConfig, preparedStatements );
     }
 
 
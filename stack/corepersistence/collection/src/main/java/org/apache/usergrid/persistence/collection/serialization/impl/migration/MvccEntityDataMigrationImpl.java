@@ -37,7 +37,8 @@ import org.apache.usergrid.persistence.collection.serialization.MvccEntitySerial
 import org.apache.usergrid.persistence.collection.serialization.MvccLogEntrySerializationStrategy;
 import org.apache.usergrid.persistence.collection.serialization.UniqueValue;
 import org.apache.usergrid.persistence.collection.serialization.UniqueValueSerializationStrategy;
-import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV3Impl;
+import org.apache.usergrid.persistence.collection.serialization.impl.CollectionDataVersions;
+import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV4Impl;
 import org.apache.usergrid.persistence.collection.serialization.impl.UniqueValueImpl;
 import org.apache.usergrid.persistence.core.migration.data.DataMigration;
 import org.apache.usergrid.persistence.core.migration.data.DataMigrationException;
@@ -75,7 +76,7 @@ public class MvccEntityDataMigrationImpl implements DataMigration{
     private final Keyspace keyspace;
     private final Session session;
     private final VersionedMigrationSet<MvccEntitySerializationStrategy> allVersions;
-    private final MvccEntitySerializationStrategyV3Impl mvccEntitySerializationStrategyV3;
+    private final MvccEntitySerializationStrategyV4Impl mvccEntitySerializationStrategyV4;
     private final UniqueValueSerializationStrategy uniqueValueSerializationStrategy;
     private final MvccLogEntrySerializationStrategy mvccLogEntrySerializationStrategy;
     private final MigrationDataProvider<EntityIdScope> migrationDataProvider;
@@ -85,14 +86,14 @@ public class MvccEntityDataMigrationImpl implements DataMigration{
     public MvccEntityDataMigrationImpl( final Keyspace keyspace,
                                         final Session session,
                                         final VersionedMigrationSet<MvccEntitySerializationStrategy> allVersions,
-                                        final MvccEntitySerializationStrategyV3Impl mvccEntitySerializationStrategyV3,
+                                        final MvccEntitySerializationStrategyV4Impl mvccEntitySerializationStrategyV4,
                                         final UniqueValueSerializationStrategy uniqueValueSerializationStrategy,
                                         final MvccLogEntrySerializationStrategy mvccLogEntrySerializationStrategy,
                                         final MigrationDataProvider<EntityIdScope> migrationDataProvider ) {
         this.keyspace = keyspace;
         this.session = session;
         this.allVersions = allVersions;
-        this.mvccEntitySerializationStrategyV3 = mvccEntitySerializationStrategyV3;
+        this.mvccEntitySerializationStrategyV4 = mvccEntitySerializationStrategyV4;
         this.uniqueValueSerializationStrategy = uniqueValueSerializationStrategy;
         this.mvccLogEntrySerializationStrategy = mvccLogEntrySerializationStrategy;
         this.migrationDataProvider = migrationDataProvider;
@@ -101,14 +102,14 @@ public class MvccEntityDataMigrationImpl implements DataMigration{
 
     @Override
     public boolean supports( final int currentVersion ) {
-        //we can only migrate up to v3 with this implementation.  Beyond that, we should use a different migration
-        return currentVersion < mvccEntitySerializationStrategyV3.getImplementationVersion();
+        //we can only migrate up to v4 with this implementation.  Beyond that, we should use a different migration
+        return currentVersion < mvccEntitySerializationStrategyV4.getImplementationVersion();
     }
 
 
     @Override
     public int getMaxVersion() {
-        return mvccEntitySerializationStrategyV3.getImplementationVersion();
+        return mvccEntitySerializationStrategyV4.getImplementationVersion();
     }
 
 
@@ -124,6 +125,10 @@ public class MvccEntityDataMigrationImpl implements DataMigration{
         final MigrationRelationship<MvccEntitySerializationStrategy> migration =
             allVersions.getMigrationRelationship( currentVersion );
 
+        //v3 and beyond only store the latest version, log entries and unique values are already in their current format
+        final boolean copyHistory =
+            migration.from.getImplementationVersion() < CollectionDataVersions.LOG_REMOVAL.getVersion();
+
 
         final Observable<List<EntityToSaveMessage>> migrated =
             migrationDataProvider.getData().subscribeOn( Schedulers.io() ).flatMap( entityToSaveList -> Observable.just( entityToSaveList ).flatMap( entityIdScope -> {
@@ -139,8 +144,9 @@ public class MvccEntityDataMigrationImpl implements DataMigration{
                 // this migration
                 //won't support anything beyond V2
 
-                final Iterator<MvccEntity> allVersions =
-                    migration.from.loadAscendingHistory( currentScope, entityIdScope.getId(), startTime, 100 );
+                final Iterator<MvccEntity> allVersions = copyHistory ?
+                    migration.from.loadAscendingHistory( currentScope, entityIdScope.getId(), startTime, 100 ) :
+                    migration.from.load( currentScope, entityIdScope.getId() ).asSet().iterator();
 
                 //emit all the entity versions
                 return Observable.create( new Observable.OnSubscribe<EntityToSaveMessage>() {
@@ -180,6 +186,10 @@ public class MvccEntityDataMigrationImpl implements DataMigration{
                                 // batch
                                 totalBatch.mergeShallow(entityRewrite);
 
+                                if ( !copyHistory ) {
+                                    continue;
+                                }
+
                                 //write
                                 // the
                                 // unique values
@@ -26,6 +26,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 
@@ -279,4 +282,33 @@ public class UniqueValueActor extends UntypedActor {
         }
     }
 
+    /**
+     * All Reservations or all Confirmations for the unique fields of one entity, sent as one message. The router
+     * fans the requests out by consistent hash and replies with a single BatchResponse.
+     */
+    public static class BatchRequest implements Serializable {
+        final List<Request> requests;
+
+        public BatchRequest( List<Request> requests ) {
+            this.requests = requests;
+        }
+        public List<Request> getRequests() {
+            return requests;
+        }
+    }
+
+    /**
+     * Responses to a BatchRequest, by consistent hash key of each request.
+     */
+    public static class BatchResponse implements Serializable {
+        final Map<String, Response> responses;
+
+        public BatchResponse( Map<String, Response> responses ) {
+            this.responses = responses;
+        }
+        public Map<String, Response> getResponses() {
+            return Collections.unmodifiableMap( responses );
+        }
+    }
+
 }
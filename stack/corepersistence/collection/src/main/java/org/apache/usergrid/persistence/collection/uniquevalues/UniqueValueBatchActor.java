@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.collection.uniquevalues;
+
+import akka.actor.ActorRef;
+import akka.actor.ReceiveTimeout;
+import akka.actor.UntypedActor;
+import akka.routing.ConsistentHashingRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.concurrent.duration.Duration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Short lived actor created by the UniqueValuesRouter for each BatchRequest. Sends every request of the batch to the
+ * UniqueValueActor that owns its consistent hash, collects the responses and replies to the original sender with one
+ * BatchResponse. Requests that are not answered before the timeout are reported with status ERROR.
+ */
+public class UniqueValueBatchActor extends UntypedActor {
+    private static final Logger logger = LoggerFactory.getLogger( UniqueValueBatchActor.class );
+
+    private final ActorRef router;
+    private final UniqueValueActor.BatchRequest batch;
+    private final ActorRef replyTo;
+    private final long timeoutMillis;
+
+    private final Map<String, UniqueValueActor.Response> responses = new HashMap<>();
+
+
+    public UniqueValueBatchActor(
+        ActorRef router, UniqueValueActor.BatchRequest batch, ActorRef replyTo, long timeoutMillis ) {
+
+        this.router = router;
+        this.batch = batch;
+        this.replyTo = replyTo;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void preStart() {
+
+        getContext().setReceiveTimeout( Duration.create( timeoutMillis, TimeUnit.MILLISECONDS ) );
+
+        for ( UniqueValueActor.Request request : batch.getRequests() ) {
+            router.tell( new ConsistentHashingRouter.ConsistentHashableEnvelope(
+                request, request.getConsistentHashKey() ), getSelf() );
+        }
+    }
+
+    @Override
+    public void onReceive( Object message ) {
+
+        if ( message instanceof UniqueValueActor.Response ) {
+            UniqueValueActor.Response response = (UniqueValueActor.Response) message;
+
+            responses.put( response.getConsistentHashKey(), response );
+
+            if ( responses.size() >= batch.getRequests().size() ) {
+                reply();
+            }
+
+        } else if ( message instanceof ReceiveTimeout ) {
+
+            logger.warn( "Timed-out waiting for {} of {} unique value responses",
+                batch.getRequests().size() - responses.size(), batch.getRequests().size() );
+
+            for ( UniqueValueActor.Request request : batch.getRequests() ) {
+                responses.putIfAbsent( request.getConsistentHashKey(), new UniqueValueActor.Response(
+                    UniqueValueActor.Response.Status.ERROR, request.getConsistentHashKey() ) );
+            }
+            reply();
+
+        } else {
+            unhandled( message );
+        }
+    }
+
+    private void reply() {
+        replyTo.tell( new UniqueValueActor.BatchResponse( new HashMap<>( responses ) ), getSelf() );
+        getContext().stop( getSelf() );
+    }
+}
@@ -38,9 +38,13 @@ public class UniqueValuesRouter extends UntypedActor {
 
     private final ActorRef router;
 
+    private final UniqueValuesFig uniqueValuesFig;
+
     @Inject
     public UniqueValuesRouter(Injector injector ) {
 
+        this.uniqueValuesFig = injector.getInstance( UniqueValuesFig.class );
+
         router = getContext().actorOf(
             FromConfig.getInstance()
                 .props(Props.create(UniqueValueActor.class)
@@ -65,6 +69,15 @@ public class UniqueValuesRouter extends UntypedActor {
                 new ConsistentHashingRouter.ConsistentHashableEnvelope( message, request.getConsistentHashKey() );
             router.tell( envelope, getSender());
 
+        } else if ( message instanceof UniqueValueActor.BatchRequest ) {
+            UniqueValueActor.BatchRequest batch = (UniqueValueActor.BatchRequest)message;
+
+            // requests in the batch may hash to different actors, let a collector gather their responses.
+            // the collector gives up a bit before the caller does, so partial results still reach the caller
+            final long timeout = uniqueValuesFig.getRequestTimeout() * 4L / 5;
+
+            getContext().actorOf( Props.create( UniqueValueBatchActor.class, router, batch, getSender(), timeout ) );
+
         } else {
             unhandled(message);
         }
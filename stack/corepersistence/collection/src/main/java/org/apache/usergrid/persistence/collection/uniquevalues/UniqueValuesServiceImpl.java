@@ -27,6 +27,8 @@ import akka.cluster.singleton.ClusterSingletonManager;
 import akka.cluster.singleton.ClusterSingletonManagerSettings;
 import akka.cluster.singleton.ClusterSingletonProxy;
 import akka.cluster.singleton.ClusterSingletonProxySettings;
+import akka.dispatch.ExecutionContexts;
+import akka.dispatch.OnComplete;
 import akka.pattern.Patterns;
 import akka.util.Timeout;
 import com.google.inject.Inject;
@@ -39,13 +41,15 @@ import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.model.entity.Entity;
 import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.model.field.Field;
+import org.apache.usergrid.persistence.model.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import scala.concurrent.Await;
+import rx.Observable;
 import scala.concurrent.Future;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 @Singleton
@@ -92,86 +96,101 @@ public class UniqueValuesServiceImpl implements UniqueValuesService {
     public void reserveUniqueValues(
         ApplicationScope scope, Entity entity, UUID version, String region ) throws UniqueValueException {
 
-        ready();
+        awaitUniqueValues( reserveUniqueValuesAsync( scope, entity, version, region ) );
+    }
 
-        try {
-            for (Field field : entity.getFields()) {
-                if (field.isUnique()) {
-                    reserveUniqueField( scope, entity, version, field, region );
-                }
-            }
 
-        } catch ( UniqueValueException e ) {
+    @Override
+    public void confirmUniqueValues(
+        ApplicationScope scope, Entity entity, UUID version, String region ) throws UniqueValueException {
 
-            for (Field field : entity.getFields()) {
-                if (field.isUnique()) {
-                    try {
-                        cancelUniqueField( scope, entity, version, field, region );
-                    } catch (Throwable ignored) {
-                        logger.error( "Error canceling unique field", ignored );
-                    }
-                }
-            }
-            throw e;
-        }
+        awaitUniqueValues( confirmUniqueValuesAsync( scope, entity, version, region ) );
     }
 
 
     @Override
-    public void confirmUniqueValues(
-        ApplicationScope scope, Entity entity, UUID version, String region ) throws UniqueValueException {
+    public Observable<Entity> reserveUniqueValuesAsync(
+        ApplicationScope scope, Entity entity, UUID version, String region ) {
 
-        ready();
+        return Observable.defer( () -> {
 
-        try {
-            for (Field field : entity.getFields()) {
-                if (field.isUnique()) {
-                    confirmUniqueField( scope, entity, version, field, region );
-                }
-            }
+            ready();
 
-        } catch ( UniqueValueException e ) {
+            List<UniqueValueActor.Request> requests = new ArrayList<>();
 
-            for (Field field : entity.getFields()) {
-                if (field.isUnique()) {
-                    try {
-                        cancelUniqueField( scope, entity, version, field, region );
-                    } catch (Throwable ex ) {
-                        logger.error( "Error canceling unique field", ex );
-                    }
+            for ( Field field : EntityUtils.getUniqueFields( entity ) ) {
+
+                UniqueValueActor.Request request = new UniqueValueActor.Reservation(
+                    scope, entity.getId(), version, field );
+
+                UniqueValueActor.Reservation res = reservationCache.get( request.getConsistentHashKey() );
+                if ( res != null && !res.getOwner().equals( request.getOwner() )) {
+                    return Observable.<Entity>error(
+                        new UniqueValueException( "Error property not unique (cache)", field ) );
                 }
+
+                requests.add( request );
             }
-            throw e;
-        }
 
+            return sendBatchRequest( entity, region, requests );
+
+        } ).doOnError( t -> cancelOnNotUnique( t, scope, entity, version, region ) );
     }
 
 
-    private void reserveUniqueField(
-        ApplicationScope scope, Entity entity, UUID version, Field field, String region ) throws UniqueValueException {
+    @Override
+    public Observable<Entity> confirmUniqueValuesAsync(
+        ApplicationScope scope, Entity entity, UUID version, String region ) {
 
-        UniqueValueActor.Request request = new UniqueValueActor.Reservation(
-            scope, entity.getId(), version, field );
+        return Observable.defer( () -> {
 
-        UniqueValueActor.Reservation res = reservationCache.get( request.getConsistentHashKey() );
-        // if ( res != null ) {
-        //    getCacheCounter().inc();
-        // }
-        if ( res != null && !res.getOwner().equals( request.getOwner() )) {
-            throw new UniqueValueException( "Error property not unique (cache)", field);
-        }
+            ready();
+
+            List<UniqueValueActor.Request> requests = new ArrayList<>();
+
+            for ( Field field : EntityUtils.getUniqueFields( entity ) ) {
+                requests.add( new UniqueValueActor.Confirmation( scope, entity.getId(), version, field ) );
+            }
 
-        sendUniqueValueRequest( entity, region, request );
+            return sendBatchRequest( entity, region, requests );
+
+        } ).doOnError( t -> cancelOnNotUnique( t, scope, entity, version, region ) );
     }
 
 
-    private void confirmUniqueField(
-        ApplicationScope scope, Entity entity, UUID version, Field field, String region) throws UniqueValueException {
+    /**
+     * Block until the unique value operation completes, unwrapping the UniqueValueException if there was one.
+     */
+    private void awaitUniqueValues( Observable<Entity> uniqueValues ) throws UniqueValueException {
+        try {
+            uniqueValues.toBlocking().lastOrDefault( null );
 
-        UniqueValueActor.Confirmation request = new UniqueValueActor.Confirmation(
-            scope, entity.getId(), version, field );
+        } catch ( RuntimeException e ) {
+            if ( e.getCause() instanceof UniqueValueException ) {
+                throw (UniqueValueException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+
+    /**
+     * Release everything the entity may have reserved once one of its values turns out not to be unique.
+     */
+    private void cancelOnNotUnique(
+        Throwable t, ApplicationScope scope, Entity entity, UUID version, String region ) {
+
+        if ( !( t instanceof UniqueValueException ) ) {
+            return;
+        }
 
-        sendUniqueValueRequest( entity, region, request );
+        for ( Field field : EntityUtils.getUniqueFields( entity ) ) {
+            try {
+                cancelUniqueField( scope, entity, version, field, region );
+            } catch (Throwable ex ) {
+                logger.error( "Error canceling unique field", ex );
+            }
+        }
     }
 
 
@@ -217,71 +236,131 @@ public class UniqueValuesServiceImpl implements UniqueValuesService {
     }
 
 
-    private void sendUniqueValueRequest(
-        Entity entity, String region, UniqueValueActor.Request request ) throws UniqueValueException {
+    /**
+     * Send all requests for the entity's unique fields in one message and retry the whole batch on errors. Requests
+     * are idempotent for the same owner, so values that were already reserved or confirmed are simply confirmed again.
+     *
+     * @return Observable that emits the entity once every value is unique, or errors with a UniqueValueException
+     */
+    private Observable<Entity> sendBatchRequest(
+        Entity entity, String region, List<UniqueValueActor.Request> requests ) {
 
-        int maxRetries = uniqueValuesFig.getRequestRetryCount();
-        int retries = 0;
+        if ( requests.isEmpty() ) {
+            return Observable.just( entity );
+        }
 
-        UniqueValueActor.Response response = null;
-        while ( retries++ < maxRetries ) {
-            try {
-                Timeout t = new Timeout( uniqueValuesFig.getRequestTimeout(), TimeUnit.MILLISECONDS );
+        final UniqueValueActor.BatchRequest batch = new UniqueValueActor.BatchRequest( requests );
+        final int maxRetries = uniqueValuesFig.getRequestRetryCount();
+        final AtomicInteger attempts = new AtomicInteger( 0 );
 
-                Future<Object> fut;
+        return Observable.defer( () -> {
 
-                if ( actorSystemManager.getCurrentRegion().equals( region ) ) {
+            final boolean lastAttempt = attempts.incrementAndGet() >= maxRetries;
 
-                    // sending to current region, use local clientActor
-                    ActorRef clientActor = actorSystemManager.getClientActor();
-                    fut = Patterns.ask( clientActor, request, t );
+            return askBatch( batch, region )
+                .flatMap( response -> checkBatchResponse( entity, batch, response, lastAttempt ) );
 
-                } else {
+        } ).retry( ( attempt, t ) -> {
 
-                    // sending to remote region, send via cluster client for that region
-                    ActorRef clusterClient = actorSystemManager.getClusterClient( region );
-                    fut = Patterns.ask( clusterClient, new ClusterClient.Send("/user/clientActor", request), t );
-                }
+            if ( t instanceof UniqueValueException || attempt >= maxRetries ) {
+                return false;
+            }
 
-                // wait (up to timeout) for response
-                response = (UniqueValueActor.Response) Await.result( fut, t.duration() );
-
-                if ( response != null && (
-                        response.getStatus().equals( UniqueValueActor.Response.Status.IS_UNIQUE )
-                                || response.getStatus().equals( UniqueValueActor.Response.Status.NOT_UNIQUE ))) {
-                    if ( retries > 1 ) {
-                        logger.debug("IS_UNIQUE after retrying {} for entity {} rowkey {}",
-                                retries, entity.getId().getUuid(), request.getConsistentHashKey());
-                    }
-                    break;
-
-                } else if ( response != null  ) {
-                    logger.warn("ERROR status retrying {} entity {} rowkey {}",
-                            retries, entity.getId().getUuid(), request.getConsistentHashKey());
-                } else {
-                    logger.warn("Timed-out retrying {} entity {} rowkey",
-                            retries, entity.getId().getUuid(), request.getConsistentHashKey());
-                }
+            logger.warn( "{} caused retry {} for entity {}",
+                t.getClass().getSimpleName(), attempt, entity.getId().getUuid() );
+            return true;
+
+        } ).onErrorResumeNext( t -> {
 
-            } catch ( Exception e ) {
-                logger.error("{} caused retry {} for entity {} rowkey {}",
-                    e.getClass().getSimpleName(), retries, entity.getId().getUuid(), request.getConsistentHashKey());
+            if ( t instanceof UniqueValueException ) {
+                return Observable.error( t );
             }
-        }
 
-        if ( response == null || response.getStatus().equals( UniqueValueActor.Response.Status.ERROR )) {
-            logger.debug("ERROR after retrying {} for entity {} rowkey {}",
-                    retries, entity.getId().getUuid(), request.getConsistentHashKey());
+            logger.debug( "ERROR after retrying {} for entity {}", maxRetries, entity.getId().getUuid() );
 
             // should result in an HTTP 503
-            throw new RuntimeException( "Error verifying unique value after " + retries + " retries");
+            return Observable.error(
+                new RuntimeException( "Error verifying unique value after " + maxRetries + " retries", t ) );
+        } );
+    }
+
+
+    /**
+     * Ask the router for the batch without waiting on the response.
+     */
+    private Observable<Object> askBatch( UniqueValueActor.BatchRequest batch, String region ) {
+
+        Timeout t = new Timeout( uniqueValuesFig.getRequestTimeout(), TimeUnit.MILLISECONDS );
+
+        final Future<Object> fut;
+
+        if ( actorSystemManager.getCurrentRegion().equals( region ) ) {
+
+            // sending to current region, use local clientActor
+            ActorRef clientActor = actorSystemManager.getClientActor();
+            fut = Patterns.ask( clientActor, batch, t );
+
+        } else {
+
+            // sending to remote region, send via cluster client for that region
+            ActorRef clusterClient = actorSystemManager.getClusterClient( region );
+            fut = Patterns.ask( clusterClient, new ClusterClient.Send("/user/clientActor", batch), t );
+        }
+
+        return Observable.create( subscriber -> fut.onComplete( new OnComplete<Object>() {
+            @Override
+            public void onComplete( Throwable failure, Object response ) {
+                if ( failure != null ) {
+                    subscriber.onError( failure );
+                } else {
+                    subscriber.onNext( response );
+                    subscriber.onCompleted();
+                }
+            }
+        }, ExecutionContexts.global() ) );
+    }
+
+
+    /**
+     * NOT_UNIQUE fails the batch right away. Errors, missing responses and timeouts are retried. BAD_REQUEST is
+     * retried too, but accepted on the last attempt.
+     */
+    private Observable<Entity> checkBatchResponse(
+        Entity entity, UniqueValueActor.BatchRequest batch, Object message, boolean lastAttempt ) {
+
+        if ( !( message instanceof UniqueValueActor.BatchResponse ) ) {
+            return Observable.error( new RuntimeException( "Unexpected unique value response " + message ) );
         }
 
-        if ( response.getStatus().equals( UniqueValueActor.Response.Status.NOT_UNIQUE )) {
+        Map<String, UniqueValueActor.Response> responses =
+            ((UniqueValueActor.BatchResponse) message).getResponses();
 
-            // should result in an HTTP 409 (conflict)
-            throw new UniqueValueException( "Error property not unique", request.getField() );
+        boolean retry = false;
+
+        for ( UniqueValueActor.Request request : batch.getRequests() ) {
+
+            UniqueValueActor.Response response = responses.get( request.getConsistentHashKey() );
+
+            if ( response == null || response.getStatus().equals( UniqueValueActor.Response.Status.ERROR ) ) {
+                logger.warn( "ERROR status for entity {} rowkey {}",
+                    entity.getId().getUuid(), request.getConsistentHashKey() );
+                return Observable.error( new RuntimeException( "Error verifying unique value" ) );
+
+            } else if ( response.getStatus().equals( UniqueValueActor.Response.Status.NOT_UNIQUE ) ) {
+
+                // should result in an HTTP 409 (conflict)
+                return Observable.error( new UniqueValueException( "Error property not unique", request.getField() ) );
+
+            } else if ( response.getStatus().equals( UniqueValueActor.Response.Status.BAD_REQUEST ) ) {
+                retry = !lastAttempt;
+            }
         }
+
+        if ( retry ) {
+            return Observable.error( new RuntimeException( "Bad unique value request" ) );
+        }
+
+        return Observable.just( entity );
     }
 
 
@@ -356,6 +435,7 @@ public class UniqueValuesServiceImpl implements UniqueValuesService {
         messageTypes.add( UniqueValueActor.Reservation.class);
         messageTypes.add( UniqueValueActor.Cancellation.class);
         messageTypes.add( UniqueValueActor.Confirmation.class);
+        messageTypes.add( UniqueValueActor.BatchRequest.class);
         return messageTypes;
     }
 }
@@ -18,6 +18,7 @@
  */
 package org.apache.usergrid.persistence.collection.uniquevalues;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
 import org.apache.usergrid.persistence.collection.serialization.UniqueValue;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
@@ -38,5 +39,14 @@ public interface UniqueValuesTable {
 
     void cancel( ApplicationScope scope, Id owner, UUID version, Field field ) throws ConnectionException;
 
+    /**
+     * Reserve without waiting on cassandra, the future fails if the write does
+     */
+    ListenableFuture<Void> reserveAsync( ApplicationScope scope, Id owner, UUID version, Field field );
+
+    ListenableFuture<Void> confirmAsync( ApplicationScope scope, Id owner, UUID version, Field field );
+
+    ListenableFuture<Void> cancelAsync( ApplicationScope scope, Id owner, UUID version, Field field );
+
     Iterator<UniqueValue> getUniqueValues(ApplicationScope scope, Id entityId );
 }
@@ -19,8 +19,13 @@
 package org.apache.usergrid.persistence.collection.uniquevalues;
 
 import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.querybuilder.Batch;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.netflix.astyanax.MutationBatch;
@@ -71,26 +76,61 @@ public class UniqueValuesTableImpl implements UniqueValuesTable {
     @Override
     public void reserve( ApplicationScope scope, Id owner, UUID version, Field field ) throws ConnectionException {
 
-        UniqueValue uv = new UniqueValueImpl( field, owner, version);
-        final BatchStatement statement = strat.writeCQL( scope, uv, uniqueValuesFig.getUniqueValueReservationTtl() );
-        session.execute(statement);
+        reserveCQL( scope, owner, version, field ).getUninterruptibly();
     }
 
     @Override
     public void confirm( ApplicationScope scope, Id owner, UUID version, Field field) throws ConnectionException {
 
-        UniqueValue uv = new UniqueValueImpl( field, owner, version);
-        final BatchStatement statement = strat.writeCQL( scope, uv, -1 );
-        session.execute(statement);
+        confirmCQL( scope, owner, version, field ).getUninterruptibly();
 
     }
 
     @Override
     public void cancel( ApplicationScope scope, Id owner, UUID version, Field field) throws ConnectionException {
 
+        cancelCQL( scope, owner, version, field ).getUninterruptibly();
+    }
+
+    @Override
+    public ListenableFuture<Void> reserveAsync( ApplicationScope scope, Id owner, UUID version, Field field ) {
+        return toVoid( reserveCQL( scope, owner, version, field ) );
+    }
+
+    @Override
+    public ListenableFuture<Void> confirmAsync( ApplicationScope scope, Id owner, UUID version, Field field ) {
+        return toVoid( confirmCQL( scope, owner, version, field ) );
+    }
+
+    @Override
+    public ListenableFuture<Void> cancelAsync( ApplicationScope scope, Id owner, UUID version, Field field ) {
+        return toVoid( cancelCQL( scope, owner, version, field ) );
+    }
+
+
+    private ResultSetFuture reserveCQL( ApplicationScope scope, Id owner, UUID version, Field field ) {
+
+        UniqueValue uv = new UniqueValueImpl( field, owner, version);
+        final BatchStatement statement = strat.writeCQL( scope, uv, uniqueValuesFig.getUniqueValueReservationTtl() );
+        return session.executeAsync(statement);
+    }
+
+    private ResultSetFuture confirmCQL( ApplicationScope scope, Id owner, UUID version, Field field ) {
+
+        UniqueValue uv = new UniqueValueImpl( field, owner, version);
+        final BatchStatement statement = strat.writeCQL( scope, uv, -1 );
+        return session.executeAsync(statement);
+    }
+
+    private ResultSetFuture cancelCQL( ApplicationScope scope, Id owner, UUID version, Field field ) {
+
         UniqueValue uv = new UniqueValueImpl( field, owner, version );
         final BatchStatement statement = strat.deleteCQL( scope, uv );
-        session.execute(statement);
+        return session.executeAsync(statement);
+    }
+
+    private static ListenableFuture<Void> toVoid( final ResultSetFuture future ) {
+        return Futures.transform( future, ( Function<ResultSet, Void> ) resultSet -> null );
     }
 
     @Override
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.cache;
+
+
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.mvcc.entity.impl.MvccEntityImpl;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.persistence.model.field.ListField;
+import org.apache.usergrid.persistence.model.field.StringField;
+import org.apache.usergrid.persistence.model.field.value.EntityObject;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.codahale.metrics.Meter;
+import com.google.common.base.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class EntityCacheImplTest {
+
+    private EntityCache entityCache;
+
+    private ApplicationScope scope;
+
+
+    @Before
+    public void setup() {
+        final EntityCacheFig entityCacheFig = mock( EntityCacheFig.class );
+        when( entityCacheFig.getCacheEnabled() ).thenReturn( true );
+        when( entityCacheFig.getCacheSize() ).thenReturn( 100 );
+        when( entityCacheFig.getCacheTimeout() ).thenReturn( 60000 );
+
+        final MetricsFactory metricsFactory = mock( MetricsFactory.class );
+        when( metricsFactory.getMeter( any( Class.class ), anyString() ) ).thenReturn( new Meter() );
+
+        entityCache = new EntityCacheImpl( entityCacheFig, metricsFactory );
+        scope = new ApplicationScopeImpl( new SimpleId( "application" ) );
+    }
+
+
+    @Test
+    public void olderVersionDoesNotReplaceNewer() {
+
+        final Id entityId = new SimpleId( "user" );
+
+        final UUID older = UUIDGenerator.newTimeUUID();
+        final UUID newer = UUIDGenerator.newTimeUUID();
+
+        entityCache.put( scope, createEntity( entityId, newer, "new" ) );
+        entityCache.put( scope, createEntity( entityId, older, "old" ) );
+
+        final MvccEntity cached = entityCache.get( scope, entityId );
+
+        assertNotNull( cached );
+        assertEquals( newer, cached.getVersion() );
+        assertEquals( "new", cached.getEntity().get().getField( "name" ).getValue() );
+    }
+
+
+    @Test
+    public void deleteReplacesEntity() {
+
+        final Id entityId = new SimpleId( "user" );
+
+        entityCache.put( scope, createEntity( entityId, UUIDGenerator.newTimeUUID(), "name" ) );
+        entityCache.put( scope,
+            new MvccEntityImpl( entityId, UUIDGenerator.newTimeUUID(), MvccEntity.Status.DELETED,
+                Optional.<Entity>absent() ) );
+
+        final MvccEntity cached = entityCache.get( scope, entityId );
+
+        assertNotNull( cached );
+        assertFalse( cached.getEntity().isPresent() );
+    }
+
+
+    @Test
+    public void modifyingReturnedEntityDoesNotChangeCache() {
+
+        final Id entityId = new SimpleId( "user" );
+
+        entityCache.put( scope, createEntity( entityId, UUIDGenerator.newTimeUUID(), "name" ) );
+
+        entityCache.get( scope, entityId ).getEntity().get().removeField( "name" );
+
+        assertNotNull( entityCache.get( scope, entityId ).getEntity().get().getField( "name" ) );
+    }
+
+
+    @Test
+    public void renamingReturnedFieldDoesNotChangeCache() {
+
+        final Id entityId = new SimpleId( "user" );
+
+        final MvccEntity entity = createEntity( entityId, UUIDGenerator.newTimeUUID(), "name" );
+        final ListField<EntityObject> list = new ListField<>( "list" );
+        final EntityObject nested = new EntityObject();
+        nested.setField( new StringField( "nested", "value" ) );
+        list.add( nested );
+        entity.getEntity().get().setField( list );
+
+        entityCache.put( scope, entity );
+
+        //the put copied the entity, changing the original must not leak in either
+        entity.getEntity().get().getField( "name" ).setName( "alias" );
+
+        final Entity returned = entityCache.get( scope, entityId ).getEntity().get();
+        returned.getField( "name" ).setName( "alias" );
+        ( ( ListField<EntityObject> ) returned.getField( "list" ) ).getValue().get( 0 ).getField( "nested" )
+                                                                  .setName( "alias" );
+
+        final Entity cached = entityCache.get( scope, entityId ).getEntity().get();
+
+        assertEquals( "name", cached.getField( "name" ).getName() );
+        assertEquals( "nested", ( ( ListField<EntityObject> ) cached.getField( "list" ) ).getValue().get( 0 )
+                                                                        .getField( "nested" ).getName() );
+    }
+
+
+    @Test
+    public void invalidateAndScopeIsolation() {
+
+        final Id entityId = new SimpleId( "user" );
+        final ApplicationScope otherScope = new ApplicationScopeImpl( new SimpleId( "application" ) );
+
+        entityCache.put( scope, createEntity( entityId, UUIDGenerator.newTimeUUID(), "name" ) );
+
+        assertNull( entityCache.get( otherScope, entityId ) );
+
+        entityCache.invalidate( scope, entityId );
+
+        assertNull( entityCache.get( scope, entityId ) );
+    }
+
+
+    private MvccEntity createEntity( final Id entityId, final UUID version, final String name ) {
+        final Entity entity = new Entity( entityId, version );
+        entity.setField( new StringField( "name", name ) );
+
+        return new MvccEntityImpl( entityId, version, MvccEntity.Status.COMPLETE, entity );
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.serialization.impl;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.model.entity.EntityMap;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class EntityMapBinaryCodecTest {
+
+
+    @Test
+    public void allTypesRoundTrip() {
+
+        final Map<String, Object> location = new HashMap<>();
+        location.put( "latitude", 37.7749d );
+        location.put( "longitude", -122.4194d );
+
+        final List<Object> nested = new ArrayList<>();
+        nested.add( Arrays.asList( 1, 2, 3 ) );
+        nested.add( Collections.singletonMap( "name", "nested" ) );
+        nested.add( null );
+
+        final EntityMap entityMap = new EntityMap();
+        entityMap.put( "string", "a string é中" );
+        entityMap.put( "emptyString", "" );
+        entityMap.put( "true", true );
+        entityMap.put( "false", false );
+        entityMap.put( "int", Integer.MIN_VALUE );
+        entityMap.put( "long", Long.MAX_VALUE );
+        entityMap.put( "negativeLong", -1L );
+        entityMap.put( "float", 1.5f );
+        entityMap.put( "double", Double.NaN );
+        entityMap.put( "uuid", UUIDGenerator.newTimeUUID() );
+        entityMap.put( "null", null );
+        entityMap.put( "location", location );
+        entityMap.put( "list", nested );
+        entityMap.put( "emptyList", Collections.emptyList() );
+
+        final EntityMap decoded = roundTrip( entityMap );
+
+        assertEquals( entityMap, decoded );
+
+        //types must be kept exactly, the entity converter picks the field type from them
+        assertEquals( Integer.class, decoded.get( "int" ).getClass() );
+        assertEquals( Long.class, decoded.get( "negativeLong" ).getClass() );
+        assertEquals( Float.class, decoded.get( "float" ).getClass() );
+        assertEquals( UUID.class, decoded.get( "uuid" ).getClass() );
+    }
+
+
+    @Test
+    public void bytesRoundTrip() {
+        final byte[] bytes = { 0, 1, 2, -1, 127 };
+
+        final EntityMap entityMap = new EntityMap();
+        entityMap.put( "bytes", bytes );
+
+        assertArrayEquals( bytes, ( byte[] ) roundTrip( entityMap ).get( "bytes" ) );
+    }
+
+
+    @Test
+    public void untaggedValuesKeepTheirType() {
+        final Date date = new Date();
+
+        final EntityMap entityMap = new EntityMap();
+        entityMap.put( "date", date );
+        entityMap.put( "short", ( short ) 5 );
+
+        final EntityMap decoded = roundTrip( entityMap );
+
+        assertEquals( date, decoded.get( "date" ) );
+        assertEquals( ( short ) 5, decoded.get( "short" ) );
+    }
+
+
+    @Test
+    public void fieldNamesAreWrittenOnce() {
+
+        final EntityMap entityMap = new EntityMap();
+
+        final List<Object> children = new ArrayList<>();
+
+        for ( int i = 0; i < 100; i++ ) {
+            children.add( Collections.singletonMap( "averyveryverylongfieldname", i ) );
+        }
+
+        entityMap.put( "children", children );
+
+        //each child is a map tag, size, name index, int tag and at most a 2 byte value
+        assertTrue( EntityMapBinaryCodec.encode( entityMap ).length < 100 * 6 + 50 );
+
+        final EntityMap decoded = roundTrip( entityMap );
+        final EntityMap other = roundTrip( entityMap );
+
+        final String name = ( ( Map<String, Object> ) ( ( List ) decoded.get( "children" ) ).get( 0 ) ).keySet()
+                                                                                                 .iterator().next();
+        final String otherName = ( ( Map<String, Object> ) ( ( List ) other.get( "children" ) ).get( 0 ) ).keySet()
+                                                                                                    .iterator().next();
+
+        assertSame( "Names are shared between decoded entities", name, otherName );
+    }
+
+
+    @Test
+    public void compressedRoundTrip() {
+
+        final StringBuilder builder = new StringBuilder();
+
+        for ( int i = 0; i < 1000; i++ ) {
+            builder.append( "compress me " );
+        }
+
+        final EntityMap entityMap = new EntityMap();
+        entityMap.put( "content", builder.toString() );
+        entityMap.put( "count", 1000 );
+
+        final byte[] encoded = EntityMapBinaryCodec.encode( entityMap );
+        final byte[] compressed = EntityMapBinaryCodec.compress( encoded );
+
+        assertTrue( compressed.length < encoded.length / 10 );
+        assertEquals( entityMap, EntityMapBinaryCodec.decode( ByteBuffer.wrap( compressed ) ) );
+    }
+
+
+    @Test
+    public void incompressibleIsNotCompressed() {
+
+        final EntityMap entityMap = new EntityMap();
+        entityMap.put( "uuid", UUIDGenerator.newTimeUUID() );
+
+        final byte[] encoded = EntityMapBinaryCodec.encode( entityMap );
+
+        assertSame( encoded, EntityMapBinaryCodec.compress( encoded ) );
+    }
+
+
+    @Test
+    public void decodeSelectedFields() {
+
+        final Map<String, Object> location = new HashMap<>();
+        location.put( "latitude", 37.7749d );
+        location.put( "longitude", -122.4194d );
+
+        final EntityMap entityMap = new EntityMap();
+        entityMap.put( "before", Arrays.asList( 1, "two", Collections.singletonMap( "three", 3L ) ) );
+        entityMap.put( "bytes", new byte[] { 1, 2, 3 } );
+        entityMap.put( "date", new Date() );
+        entityMap.put( "float", 1.5f );
+        entityMap.put( "uuid", UUIDGenerator.newTimeUUID() );
+        entityMap.put( "name", "selected" );
+        entityMap.put( "location", location );
+        entityMap.put( "after", null );
+
+        final byte[] encoded = EntityMapBinaryCodec.encode( entityMap );
+
+        final EntityMap decoded = EntityMapBinaryCodec
+            .decode( ByteBuffer.wrap( encoded ), new HashSet<>( Arrays.asList( "name", "location", "missing" ) ) );
+
+        final EntityMap expected = new EntityMap();
+        expected.put( "name", "selected" );
+        expected.put( "location", location );
+
+        assertEquals( expected, decoded );
+
+        //skipping must work on compressed bodies as well
+        assertEquals( expected, EntityMapBinaryCodec.decode( ByteBuffer.wrap( EntityMapBinaryCodec.compress( encoded ) ),
+            new HashSet<>( Arrays.asList( "name", "location" ) ) ) );
+    }
+
+
+    @Test( expected = IllegalStateException.class )
+    public void unknownTag() {
+        final EntityMap entityMap = new EntityMap();
+        entityMap.put( "field", "value" );
+
+        final byte[] encoded = EntityMapBinaryCodec.encode( entityMap );
+
+        //compression, name count, name length, name, map size, name index, then the tag
+        encoded[1 + 1 + 1 + "field".length() + 1 + 1] = 100;
+
+        EntityMapBinaryCodec.decode( ByteBuffer.wrap( encoded ) );
+    }
+
+
+    private EntityMap roundTrip( final EntityMap entityMap ) {
+        return EntityMapBinaryCodec.decode( ByteBuffer.wrap( EntityMapBinaryCodec.encode( entityMap ) ) );
+    }
+}
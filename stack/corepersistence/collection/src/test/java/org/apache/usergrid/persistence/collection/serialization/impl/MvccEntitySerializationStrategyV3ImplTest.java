@@ -1,24 +1,40 @@
 package org.apache.usergrid.persistence.collection.serialization.impl;
 
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.UUID;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import org.apache.usergrid.persistence.collection.MvccEntity;
 import org.apache.usergrid.persistence.collection.guice.TestCollectionModule;
+import org.apache.usergrid.persistence.collection.mvcc.entity.impl.MvccEntityImpl;
 import org.apache.usergrid.persistence.collection.serialization.MvccEntitySerializationStrategy;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
 import org.apache.usergrid.persistence.core.test.ITRunner;
 import org.apache.usergrid.persistence.core.test.UseModules;
+import org.apache.usergrid.persistence.model.entity.Entity;
 import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.persistence.model.field.EntityObjectField;
+import org.apache.usergrid.persistence.model.field.IntegerField;
+import org.apache.usergrid.persistence.model.field.StringField;
+import org.apache.usergrid.persistence.model.field.value.EntityObject;
+import org.apache.usergrid.persistence.model.util.EntityUtils;
 import org.apache.usergrid.persistence.model.util.UUIDGenerator;
 
+import com.google.common.base.Optional;
 import com.google.inject.Inject;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
 
 /**
  * Same tests as v2, we just override some methods to ensure they throw the correct exceptions
@@ -51,6 +67,49 @@ public class MvccEntitySerializationStrategyV3ImplTest extends MvccEntitySeriali
     }
 
 
+    @Test
+    public void writeLoadSelectedFields() throws ConnectionException {
+
+        final Id applicationId = new SimpleId( "application" );
+
+        ApplicationScope context = new ApplicationScopeImpl( applicationId );
+
+        final Id id = new SimpleId( UUIDGenerator.newTimeUUID(), "test" );
+        final UUID version = UUIDGenerator.newTimeUUID();
+
+        final EntityObject address = new EntityObject();
+        address.setField( new StringField( "street", "main" ) );
+
+        final Entity entity = new Entity( id );
+        EntityUtils.setVersion( entity, version );
+        entity.setField( new StringField( "name", "selected" ) );
+        entity.setField( new IntegerField( "count", 5 ) );
+        entity.setField( new EntityObjectField( "address", address ) );
+        entity.setField( new StringField( "description", "not selected" ) );
+
+        final MvccEntitySerializationStrategy strategy = getMvccEntitySerializationStrategy();
+
+        strategy.write( context,
+            new MvccEntityImpl( id, version, MvccEntity.Status.COMPLETE, Optional.of( entity ) ) ).execute();
+
+        final MvccEntity returned = strategy
+            .load( context, Collections.singleton( id ), UUIDGenerator.newTimeUUID(),
+                new HashSet<>( Arrays.asList( "name", "address" ) ) ).getEntity( id );
+
+        assertNotNull( returned );
+        assertEquals( version, returned.getVersion() );
+
+        final Entity partial = returned.getEntity().get();
+
+        assertEquals( id, partial.getId() );
+        assertEquals( 2, partial.getFields().size() );
+        assertEquals( "selected", partial.getField( "name" ).getValue() );
+        assertEquals( "main",
+            ( ( EntityObject ) partial.getField( "address" ).getValue() ).getField( "street" ).getValue() );
+        assertNull( partial.getField( "description" ) );
+    }
+
+
     @Test( expected = UnsupportedOperationException.class )
     public void loadDescendingHistory() throws ConnectionException {
 
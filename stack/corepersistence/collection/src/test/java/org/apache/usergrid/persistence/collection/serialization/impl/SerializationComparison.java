@@ -21,6 +21,8 @@ package org.apache.usergrid.persistence.collection.serialization.impl;
 
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.UUID;
 
 import org.apache.usergrid.StressTest;
@@ -29,19 +31,36 @@ import org.junit.experimental.categories.Category;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.serialization.SerializationFig;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.EntityMap;
 import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.persistence.model.field.ArrayField;
 import org.apache.usergrid.persistence.model.field.BooleanField;
 import org.apache.usergrid.persistence.model.field.DoubleField;
 import org.apache.usergrid.persistence.model.field.IntegerField;
+import org.apache.usergrid.persistence.model.field.LocationField;
 import org.apache.usergrid.persistence.model.field.LongField;
 import org.apache.usergrid.persistence.model.field.StringField;
 import org.apache.usergrid.persistence.model.field.UUIDField;
+import org.apache.usergrid.persistence.model.field.value.Location;
 import org.apache.usergrid.persistence.model.util.EntityUtils;
 import org.apache.usergrid.persistence.model.util.UUIDGenerator;
 
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.netflix.astyanax.serializers.AbstractSerializer;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * TODO We need to get both of these serialization methods working, and benchmark them for
@@ -91,6 +110,64 @@ public class SerializationComparison {
 
 
 
+    /**
+     * Compare the V3 JSON format with the V4 binary format for size and decode time
+     */
+    @Test
+    public void jsonVsBinarySerialization() {
+
+        final SerializationFig serializationFig = mock( SerializationFig.class );
+        when( serializationFig.getMaxEntitySize() ).thenReturn( 5000000 );
+        when( serializationFig.getEntityCompressionThreshold() ).thenReturn( 8192 );
+
+        final MetricsFactory metricsFactory = mock( MetricsFactory.class );
+        when( metricsFactory.getHistogram( any( Class.class ), anyString() ) )
+            .thenReturn( new Histogram( new ExponentiallyDecayingReservoir() ) );
+        when( metricsFactory.getTimer( any( Class.class ), anyString() ) ).thenReturn( new Timer() );
+
+        final AbstractSerializer<MvccEntitySerializationStrategyV3Impl.EntityWrapper> json =
+            new MvccEntitySerializationStrategyV3Impl( null, serializationFig, null, metricsFactory )
+                .getEntitySerializer();
+
+        final AbstractSerializer<MvccEntitySerializationStrategyV3Impl.EntityWrapper> binary =
+            new MvccEntitySerializationStrategyV4Impl( null, serializationFig, null, metricsFactory )
+                .getEntitySerializer();
+
+        final Entity entity = createEntity();
+        entity.setField( new StringField( "email", "someone@example.com" ) );
+        entity.setField( new LocationField( "location", new Location( 37.7749, -122.4194 ) ) );
+        entity.setField( new ArrayField<>( "tags", Arrays.asList( "one", "two", "three" ) ) );
+
+        final MvccEntitySerializationStrategyV3Impl.EntityWrapper wrapper =
+            new MvccEntitySerializationStrategyV3Impl.EntityWrapper( entity.getId(), entity.getVersion(),
+                MvccEntity.Status.COMPLETE, EntityMap.fromEntity( entity ), 0 );
+
+        final ByteBuffer jsonData = json.toByteBuffer( wrapper );
+        final ByteBuffer binaryData = binary.toByteBuffer( wrapper );
+
+        assertEquals( json.fromByteBuffer( jsonData.duplicate() ).getEntityMap(),
+            binary.fromByteBuffer( binaryData.duplicate() ).getEntityMap() );
+
+        long jsonTime = 0;
+        long binaryTime = 0;
+
+        for ( int i = 0; i < count; i++ ) {
+            long start = System.nanoTime();
+            json.fromByteBuffer( jsonData.duplicate() );
+            jsonTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            binary.fromByteBuffer( binaryData.duplicate() );
+            binaryTime += System.nanoTime() - start;
+        }
+
+        logger.info( "JSON is {} bytes and took {} nanos for reading {} entities", jsonData.remaining(), jsonTime,
+            count );
+        logger.info( "Binary is {} bytes and took {} nanos for reading {} entities", binaryData.remaining(),
+            binaryTime, count );
+    }
+
+
     private Entity createEntity() {
 
         final UUID version = UUIDGenerator.newTimeUUID();
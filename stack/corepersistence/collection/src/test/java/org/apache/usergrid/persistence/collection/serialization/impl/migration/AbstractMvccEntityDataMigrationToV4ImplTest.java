@@ -34,7 +34,7 @@ import org.apache.usergrid.persistence.collection.serialization.MvccEntitySerial
 import org.apache.usergrid.persistence.collection.serialization.MvccLogEntrySerializationStrategy;
 import org.apache.usergrid.persistence.collection.serialization.UniqueValueSerializationStrategy;
 import org.apache.usergrid.persistence.collection.serialization.impl.CollectionDataVersions;
-import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV3Impl;
+import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV4Impl;
 import org.apache.usergrid.persistence.core.guice.DataMigrationResetRule;
 import org.apache.usergrid.persistence.core.guice.MigrationManagerRule;
 import org.apache.usergrid.persistence.core.migration.data.DataMigrationManager;
@@ -68,7 +68,7 @@ import static org.junit.Assert.assertTrue;
 @NotThreadSafe
 @RunWith( ITRunner.class )
 @UseModules( { TestCollectionModule.class } )
-public abstract class AbstractMvccEntityDataMigrationV1ToV3ImplTest
+public abstract class AbstractMvccEntityDataMigrationToV4ImplTest
     implements DataMigrationResetRule.DataMigrationManagerProvider {
 
 
@@ -92,7 +92,7 @@ public abstract class AbstractMvccEntityDataMigrationV1ToV3ImplTest
     @Inject
     public VersionedMigrationSet<MvccEntitySerializationStrategy> allVersions;
     @Inject
-    public MvccEntitySerializationStrategyV3Impl mvccEntitySerializationStrategyV3;
+    public MvccEntitySerializationStrategyV4Impl mvccEntitySerializationStrategyV4;
     @Inject
     public UniqueValueSerializationStrategy uniqueValueSerializationStrategy;
     @Inject
@@ -151,7 +151,7 @@ public abstract class AbstractMvccEntityDataMigrationV1ToV3ImplTest
         assertEquals( "Same instance for to", v3Impl.getClass(), tuple.to.getClass() );
 
 
-        MvccEntityDataMigrationImpl mvccEntityDataMigrationImpl = new MvccEntityDataMigrationImpl(keyspace, session, allVersions, mvccEntitySerializationStrategyV3, uniqueValueSerializationStrategy,  mvccLogEntrySerializationStrategy, migrationProvider);
+        MvccEntityDataMigrationImpl mvccEntityDataMigrationImpl = new MvccEntityDataMigrationImpl(keyspace, session, allVersions, mvccEntitySerializationStrategyV4, uniqueValueSerializationStrategy,  mvccLogEntrySerializationStrategy, migrationProvider);
 
 
         //now migration
@@ -27,7 +27,7 @@ import org.apache.usergrid.persistence.collection.guice.TestCollectionModule;
 import org.apache.usergrid.persistence.collection.serialization.MvccEntitySerializationStrategy;
 import org.apache.usergrid.persistence.collection.serialization.impl.CollectionDataVersions;
 import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV2Impl;
-import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV3Impl;
+import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV4Impl;
 import org.apache.usergrid.persistence.core.guice.MigrationManagerRule;
 import org.apache.usergrid.persistence.core.migration.data.DataMigrationManager;
 import org.apache.usergrid.persistence.core.migration.data.VersionedMigrationSet;
@@ -42,7 +42,7 @@ import net.jcip.annotations.NotThreadSafe;
 @NotThreadSafe
 @RunWith( ITRunner.class )
 @UseModules( { TestCollectionModule.class } )
-public class MvccEntityDataMigrationV2ToV3ImplTest extends AbstractMvccEntityDataMigrationV1ToV3ImplTest{
+public class MvccEntityDataMigrationV2ToV4ImplTest extends AbstractMvccEntityDataMigrationToV4ImplTest{
 
 
     @Inject
@@ -57,7 +57,7 @@ public class MvccEntityDataMigrationV2ToV3ImplTest extends AbstractMvccEntityDat
     private MvccEntitySerializationStrategyV2Impl v2Impl;
 
     @Inject
-    private MvccEntitySerializationStrategyV3Impl v3Impl;
+    private MvccEntitySerializationStrategyV4Impl v4Impl;
 
     @Inject
     public MvccEntityDataMigrationImpl mvccEntityDataMigrationImpl;
@@ -82,7 +82,7 @@ public class MvccEntityDataMigrationV2ToV3ImplTest extends AbstractMvccEntityDat
 
     @Override
     protected MvccEntitySerializationStrategy getExpectedTargetImpl() {
-        return v3Impl;
+        return v4Impl;
     }
 
 
@@ -94,6 +94,6 @@ public class MvccEntityDataMigrationV2ToV3ImplTest extends AbstractMvccEntityDat
 
     @Override
     protected CollectionDataVersions expectedTargetVersion() {
-        return CollectionDataVersions.LOG_REMOVAL;
+        return CollectionDataVersions.BINARY_ENCODING;
     }
 }
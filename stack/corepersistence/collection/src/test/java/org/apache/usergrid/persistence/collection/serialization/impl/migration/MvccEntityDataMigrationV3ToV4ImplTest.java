@@ -26,8 +26,8 @@ import org.junit.runner.RunWith;
 import org.apache.usergrid.persistence.collection.guice.TestCollectionModule;
 import org.apache.usergrid.persistence.collection.serialization.MvccEntitySerializationStrategy;
 import org.apache.usergrid.persistence.collection.serialization.impl.CollectionDataVersions;
-import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV1Impl;
 import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV3Impl;
+import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV4Impl;
 import org.apache.usergrid.persistence.core.guice.MigrationManagerRule;
 import org.apache.usergrid.persistence.core.migration.data.DataMigrationManager;
 import org.apache.usergrid.persistence.core.migration.data.VersionedMigrationSet;
@@ -42,7 +42,7 @@ import net.jcip.annotations.NotThreadSafe;
 @NotThreadSafe
 @RunWith( ITRunner.class )
 @UseModules( { TestCollectionModule.class } )
-public class MvccEntityDataMigrationV1ToV3ImplTest extends AbstractMvccEntityDataMigrationV1ToV3ImplTest{
+public class MvccEntityDataMigrationV3ToV4ImplTest extends AbstractMvccEntityDataMigrationToV4ImplTest{
 
 
     @Inject
@@ -54,10 +54,10 @@ public class MvccEntityDataMigrationV1ToV3ImplTest extends AbstractMvccEntityDat
     public DataMigrationManager dataMigrationManager;
 
     @Inject
-    private MvccEntitySerializationStrategyV1Impl v1Impl;
+    private MvccEntitySerializationStrategyV3Impl v3Impl;
 
     @Inject
-    private MvccEntitySerializationStrategyV3Impl v3Impl;
+    private MvccEntitySerializationStrategyV4Impl v4Impl;
 
     @Inject
     public MvccEntityDataMigrationImpl mvccEntityDataMigrationImpl;
@@ -76,24 +76,24 @@ public class MvccEntityDataMigrationV1ToV3ImplTest extends AbstractMvccEntityDat
 
     @Override
     protected MvccEntitySerializationStrategy getExpectedSourceImpl() {
-        return v1Impl;
+        return v3Impl;
     }
 
 
     @Override
     protected MvccEntitySerializationStrategy getExpectedTargetImpl() {
-        return v3Impl;
+        return v4Impl;
     }
 
 
     @Override
     protected CollectionDataVersions getSourceVersion() {
-        return CollectionDataVersions.INITIAL;
+        return CollectionDataVersions.LOG_REMOVAL;
     }
 
 
     @Override
     protected CollectionDataVersions expectedTargetVersion() {
-        return CollectionDataVersions.LOG_REMOVAL;
+        return CollectionDataVersions.BINARY_ENCODING;
     }
 }
@@ -37,6 +37,7 @@ import org.apache.usergrid.persistence.core.test.UseModules;
 import org.apache.usergrid.persistence.model.entity.Entity;
 import org.apache.usergrid.persistence.model.entity.SimpleId;
 import org.apache.usergrid.persistence.model.field.StringField;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
@@ -124,6 +125,45 @@ public class UniqueValuesServiceTest extends AbstractUniqueValueTest {
     }
 
 
+    /**
+     * Reserve several unique fields in one batch, then make sure a conflict on any one of them fails the batch.
+     */
+    @Test
+    public void testBatchReservation() throws Exception {
+
+        initAkka();
+
+        ApplicationScope context = new ApplicationScopeImpl( new SimpleId( "organization" ) );
+
+        String username = "user_" + UUID.randomUUID().toString();
+
+        Entity first = new Entity( new SimpleId( "user" ) );
+        first.setField( new StringField( "username", username, true ) );
+        first.setField( new StringField( "email", username + "@example.org", true ) );
+
+        String region = actorSystemManager.getCurrentRegion();
+
+        Entity reserved = uniqueValuesService.reserveUniqueValuesAsync(
+            context, first, UUIDGenerator.newTimeUUID(), region ).toBlocking().lastOrDefault( null );
+        Assert.assertEquals( first, reserved );
+
+        // only the email collides
+        Entity second = new Entity( new SimpleId( "user" ) );
+        second.setField( new StringField( "username", "other_" + username, true ) );
+        second.setField( new StringField( "email", username + "@example.org", true ) );
+
+        try {
+            uniqueValuesService.reserveUniqueValuesAsync(
+                context, second, UUIDGenerator.newTimeUUID(), region ).toBlocking().lastOrDefault( null );
+            Assert.fail( "Second reservation should fail" );
+
+        } catch ( RuntimeException expected ) {
+            Assert.assertTrue( expected.getCause() instanceof UniqueValueException );
+            Assert.assertEquals( "email", ( (UniqueValueException) expected.getCause() ).getField().getName() );
+        }
+    }
+
+
     private Multimap<String, Entity> generateDuplicateUsers(
         int numUsers, AtomicInteger successCounter, AtomicInteger errorCounter ) {
 
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.datastax;
+
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+
+
+/**
+ * Shared cache of prepared statements for the application session.  Statements are prepared the first time they're
+ * used, after which only the bound values go over the wire and cassandra no longer has to parse the query.
+ */
+public interface PreparedStatementCache {
+
+    /**
+     * Get the prepared form of the statement.  Every value in the statement must be a bind marker, since the query
+     * string is the cache key
+     */
+    PreparedStatement get( RegularStatement statement );
+
+    /**
+     * Drop every prepared statement, for instance after the schema has changed
+     */
+    void invalidateAll();
+}
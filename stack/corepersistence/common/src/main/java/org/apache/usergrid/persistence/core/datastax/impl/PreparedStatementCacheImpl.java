@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.datastax.impl;
+
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.core.datastax.PreparedStatementCache;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Session;
+import com.google.common.base.Preconditions;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+
+@Singleton
+public class PreparedStatementCacheImpl implements PreparedStatementCache {
+
+    private static final Logger logger = LoggerFactory.getLogger( PreparedStatementCacheImpl.class );
+
+    private final Session session;
+
+    private final ConcurrentHashMap<String, PreparedStatement> statements = new ConcurrentHashMap<>();
+
+
+    @Inject
+    public PreparedStatementCacheImpl( final Session session ) {
+        this.session = session;
+    }
+
+
+    @Override
+    public PreparedStatement get( final RegularStatement statement ) {
+
+        Preconditions.checkNotNull( statement, "statement is required" );
+
+        // a failed prepare isn't cached, the next use will try again
+        return statements.computeIfAbsent( statement.getQueryString(), query -> {
+
+            if ( logger.isDebugEnabled() ) {
+                logger.debug( "Preparing statement {}", query );
+            }
+
+            return session.prepare( statement );
+        } );
+    }
+
+
+    @Override
+    public void invalidateAll() {
+        statements.clear();
+    }
+}
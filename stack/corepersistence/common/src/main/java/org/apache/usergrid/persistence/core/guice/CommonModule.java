@@ -27,7 +27,9 @@ import org.apache.usergrid.persistence.core.CassandraFig;
 import org.apache.usergrid.persistence.core.astyanax.*;
 import org.apache.usergrid.persistence.core.datastax.DataStaxCluster;
 import org.apache.usergrid.persistence.core.datastax.DataStaxSessionProvider;
+import org.apache.usergrid.persistence.core.datastax.PreparedStatementCache;
 import org.apache.usergrid.persistence.core.datastax.impl.DataStaxClusterImpl;
+import org.apache.usergrid.persistence.core.datastax.impl.PreparedStatementCacheImpl;
 import org.safehaus.guicyfig.GuicyFigModule;
 
 import org.apache.usergrid.persistence.core.consistency.TimeService;
@@ -74,6 +76,9 @@ public class CommonModule extends AbstractModule {
         // bind our Session to the DataStaxSessionProvider
         bind(Session.class).toProvider(DataStaxSessionProvider.class).asEagerSingleton();
 
+        // bind the shared cache of prepared statements for the application session
+        bind(PreparedStatementCache.class).to(PreparedStatementCacheImpl.class);
+
         // bind our keyspace to the AstyanaxKeyspaceProvider
         bind(Keyspace.class).toProvider(AstyanaxKeyspaceProvider.class).asEagerSingleton();
 
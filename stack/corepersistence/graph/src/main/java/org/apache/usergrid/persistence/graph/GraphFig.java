@@ -37,6 +37,11 @@ public interface GraphFig extends GuicyFig {
 
     String REPAIR_CONCURRENT_SIZE = "usergrid.graph.repair.concurrent.size";
 
+    /**
+     * The max number of edges written in a single mutation by the batch edge operations
+     */
+    String WRITE_BATCH_SIZE = "usergrid.graph.write.batch.size";
+
     /**
      * The size of the shards.  This is approximate, and should be set lower than what you would like your max to be
      */
@@ -77,6 +82,18 @@ public interface GraphFig extends GuicyFig {
     String SHARD_AUDIT_WORKERS = "usergrid.graph.shard.audit.worker.count";
 
 
+    /**
+     * The number of source shards of a group that are compacted in parallel
+     */
+    String SHARD_COMPACTION_WORKERS = "usergrid.graph.shard.compaction.worker.count";
+
+
+    /**
+     * The maximum number of edges per second moved by compaction on this node.  0 is unlimited
+     */
+    String SHARD_COMPACTION_RATE = "usergrid.graph.shard.compaction.rate";
+
+
     String SHARD_REPAIR_CHANCE = "usergrid.graph.shard.repair.chance";
 
 
@@ -98,6 +115,16 @@ public interface GraphFig extends GuicyFig {
 
     String SMART_SHARD_SEEK_ENABLED = "usergrid.graph.smartshard.seek.enabled";
 
+    /**
+     * The approximate shard count is only a hint.  Every Nth audit iterates the shard regardless of the count
+     */
+    String SHARD_AUDIT_FORCE_INTERVAL = "usergrid.graph.shard.audit.force.interval";
+
+    /**
+     * The fraction of the shard size at which an audit stops trusting the approximate count and iterates the shard
+     */
+    String SHARD_AUDIT_COUNT_THRESHOLD = "usergrid.graph.shard.audit.count.threshold";
+
 
 
 
@@ -111,6 +138,11 @@ public interface GraphFig extends GuicyFig {
     int getRepairConcurrentSize();
 
 
+    @Default("100")
+    @Key(WRITE_BATCH_SIZE)
+    int getWriteBatchSize();
+
+
     @Default( ".10" )
     @Key( SHARD_REPAIR_CHANCE )
     double getShardRepairChance();
@@ -152,6 +184,14 @@ public interface GraphFig extends GuicyFig {
     @Key( SHARD_AUDIT_QUEUE_SIZE )
     int getShardAuditWorkerQueueSize();
 
+    @Default( "4" )
+    @Key( SHARD_COMPACTION_WORKERS )
+    int getShardCompactionWorkerCount();
+
+    @Default( "0" )
+    @Key( SHARD_COMPACTION_RATE )
+    int getShardCompactionRate();
+
 
     @Default("10000")
     @Key(COUNTER_WRITE_FLUSH_COUNT)
@@ -170,6 +210,14 @@ public interface GraphFig extends GuicyFig {
     @Key(SMART_SHARD_SEEK_ENABLED)
     boolean getSmartShardSeekEnabled();
 
+    @Default( "10" )
+    @Key( SHARD_AUDIT_FORCE_INTERVAL )
+    int getShardAuditForceInterval();
+
+    @Default( ".80" )
+    @Key( SHARD_AUDIT_COUNT_THRESHOLD )
+    double getShardAuditCountThreshold();
+
 
 }
 
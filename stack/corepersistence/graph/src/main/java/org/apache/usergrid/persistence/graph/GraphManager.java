@@ -20,6 +20,8 @@
 package org.apache.usergrid.persistence.graph;
 
 
+import java.util.Collection;
+
 import org.apache.usergrid.persistence.core.CPManager;
 import org.apache.usergrid.persistence.model.entity.Id;
 
@@ -70,6 +72,32 @@ public interface GraphManager extends CPManager {
      */
     Observable<MarkedEdge> markEdge( Edge edge );
 
+
+    /**
+     * @param edges The edges to write
+     *
+     * Create or update all the edges, the same as {@link #writeEdge(Edge)}.  Edges are written in batches, so this
+     * should be used when loading many edges.  Each edge is emitted once the batch containing it has been written.
+     * Edges are not emitted in the order given
+     *
+     * Batches are written one at a time.  If a batch fails the observable errors and no later batch is written.
+     * Every edge emitted before the error was written; the edges of the failed batch may be partially written.  To
+     * resume, write again the edges that were not emitted.  Writing an edge twice with the same timestamp is safe
+     */
+    Observable<MarkedEdge> writeEdges( Collection<? extends Edge> edges );
+
+
+    /**
+     * @param edges The edges to mark as deleted
+     *
+     * Mark all the edges as deleted, the same as {@link #markEdge(Edge)}.  Edges are written in batches, and each
+     * edge is emitted once the batch containing it has been written.  Edges are not emitted in the order given
+     *
+     * Failures behave as in {@link #writeEdges(Collection)}: the observable errors at the first failed batch, and
+     * only the edges emitted before the error are known to be marked
+     */
+    Observable<MarkedEdge> markEdges( Collection<? extends Edge> edges );
+
     /**
      * @param edge Remove the edge in the graph
      *
@@ -56,16 +56,20 @@ import org.apache.usergrid.persistence.graph.serialization.impl.migration.GraphM
 import org.apache.usergrid.persistence.graph.serialization.impl.migration.GraphMigrationPlugin;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.AsyncTaskExecutor;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.EdgeColumnFamilies;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.EdgeShardCounterSerialization;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.EdgeShardSerialization;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.EdgeShardStrategy;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.NodeShardAllocation;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.NodeShardApproximation;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.NodeShardCache;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.ShardGroupCompaction;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.ShardGroupDeletion;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.ShardedEdgeSerialization;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.AsyncTaskExecutorImpl;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.EdgeShardCounterSerializationImpl;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.EdgeShardSerializationImpl;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.NodeShardAllocationImpl;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.NodeShardApproximationImpl;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.NodeShardCacheImpl;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.ShardGroupCompactionImpl;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.ShardGroupDeletionImpl;
@@ -111,6 +115,7 @@ public abstract class GraphModule extends AbstractModule {
 
         bind(NodeShardAllocation.class).to( NodeShardAllocationImpl.class );
         bind( NodeShardCache.class ).to( NodeShardCacheImpl.class );
+        bind( NodeShardApproximation.class ).to( NodeShardApproximationImpl.class );
 
         /**
          * Binding for task tracker
@@ -124,6 +129,8 @@ public abstract class GraphModule extends AbstractModule {
 
         bind( EdgeShardSerialization.class ).to( EdgeShardSerializationImpl.class );
 
+        bind( EdgeShardCounterSerialization.class ).to( EdgeShardCounterSerializationImpl.class );
+
 
         //Repair/cleanup classes.
         bind( EdgeMetaRepair.class ).to( EdgeMetaRepairImpl.class );
@@ -177,6 +184,8 @@ public abstract class GraphModule extends AbstractModule {
 
         migrationBinding.addBinding().to( Key.get( EdgeShardSerialization.class ) );
 
+        migrationBinding.addBinding().to( Key.get( EdgeShardCounterSerialization.class ) );
+
         //Get the old version and the new one
         migrationBinding.addBinding().to( Key.get( EdgeMetadataSerializationV1Impl.class) );
         migrationBinding.addBinding().to( Key.get( EdgeMetadataSerializationV2Impl.class ) );
@@ -20,6 +20,9 @@
 package org.apache.usergrid.persistence.graph.impl;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -81,6 +84,8 @@ public class GraphManagerImpl implements GraphManager {
     private final NodeDeleteListener nodeDeleteListener;
     private final Timer writeEdgeTimer;
     private final Timer markEdgeTimer;
+    private final Timer writeEdgesTimer;
+    private final Timer markEdgesTimer;
     private final Timer markNodeTimer;
     private final Timer loadEdgesFromSourceTimer;
     private final Timer loadEdgesToTargetTimer;
@@ -127,6 +132,8 @@ public class GraphManagerImpl implements GraphManager {
         this.writeEdgeTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.write" );
 
         this.markEdgeTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.mark" );
+        this.writeEdgesTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.write_batch" );
+        this.markEdgesTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.mark_batch" );
         this.deleteEdgeTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.delete" );
         this.loadEdgesFromSourceTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.load_from" );
         this.loadEdgesToTargetTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.load_to" );
@@ -206,6 +213,76 @@ public class GraphManagerImpl implements GraphManager {
     }
 
 
+    @Override
+    public Observable<MarkedEdge> writeEdges( final Collection<? extends Edge> edges ) {
+        return ObservableTimer.time( writeEdgeBatches( edges, false ), writeEdgesTimer );
+    }
+
+
+    @Override
+    public Observable<MarkedEdge> markEdges( final Collection<? extends Edge> edges ) {
+        return ObservableTimer.time( writeEdgeBatches( edges, true ), markEdgesTimer );
+    }
+
+
+    /**
+     * Write the edges in batches of at most {@link GraphFig#getWriteBatchSize()} edges, one execute per batch.  Edges
+     * are sorted by source node and type first, so edges that share rows are merged into the same mutations
+     *
+     * @param deleted True to mark the edges as deleted.  Marking doesn't write edge meta data, same as markEdge
+     */
+    private Observable<MarkedEdge> writeEdgeBatches( final Collection<? extends Edge> edges, final boolean deleted ) {
+        Preconditions.checkNotNull( edges, "edges must not be null" );
+
+        final List<MarkedEdge> markedEdges = new ArrayList<>( edges.size() );
+
+        for ( final Edge edge : edges ) {
+            GraphValidation.validateEdge( edge );
+            markedEdges.add( new SimpleMarkedEdge( edge, deleted ) );
+        }
+
+        markedEdges.sort( Comparator.comparing( MarkedEdge::getSourceNode ).thenComparing( MarkedEdge::getType )
+                                    .thenComparing( MarkedEdge::getTargetNode ) );
+
+        //concatMap writes one batch at a time, so a failed batch stops the ones after it.  See GraphManager.writeEdges
+        return Observable.from( markedEdges ).buffer( graphFig.getWriteBatchSize() ).concatMap( batch -> {
+
+            final UUID timestamp = UUIDGenerator.newTimeUUID();
+
+            MutationBatch mutation = null;
+
+            for ( final MarkedEdge edge : batch ) {
+
+                final MutationBatch edgeMutation = storageEdgeSerialization.writeEdge( scope, edge, timestamp );
+
+                if ( !deleted ) {
+                    edgeMutation.mergeShallow( edgeMetadataSerialization.writeEdge( scope, edge ) );
+                }
+
+                if ( mutation == null ) {
+                    mutation = edgeMutation;
+                }
+                else {
+                    mutation.mergeShallow( edgeMutation );
+                }
+            }
+
+            if (logger.isTraceEnabled()) {
+                logger.trace("Writing batch of {} edges, deleted: {}", batch.size(), deleted);
+            }
+
+            try {
+                mutation.execute();
+            }
+            catch ( ConnectionException e ) {
+                throw new RuntimeException( "Unable to execute mutation", e );
+            }
+
+            return Observable.from( batch );
+        } );
+    }
+
+
     @Override
     public Observable<Edge> deleteEdge( final Edge edge ) {
 
@@ -39,6 +39,7 @@ import org.apache.usergrid.persistence.graph.serialization.EdgeSerialization;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.DirectedEdgeMeta;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.EdgeColumnFamilies;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.EdgeShardStrategy;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.NodeShardApproximation;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.Shard;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.ShardEntryGroup;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.ShardGroupDeletion;
@@ -69,6 +70,7 @@ public class EdgeSerializationImpl implements EdgeSerialization {
     protected final ShardedEdgeSerialization shardedEdgeSerialization;
     protected final TimeService timeService;
     protected final ShardGroupDeletion shardGroupDeletion;
+    protected final NodeShardApproximation nodeShardApproximation;
 
 
     @Inject
@@ -76,7 +78,8 @@ public class EdgeSerializationImpl implements EdgeSerialization {
                                   final GraphFig graphFig, final EdgeShardStrategy edgeShardStrategy,
                                   final EdgeColumnFamilies edgeColumnFamilies,
                                   final ShardedEdgeSerialization shardedEdgeSerialization,
-                                  final TimeService timeService, final ShardGroupDeletion shardGroupDeletion ) {
+                                  final TimeService timeService, final ShardGroupDeletion shardGroupDeletion,
+                                  final NodeShardApproximation nodeShardApproximation ) {
 
 
 
@@ -87,6 +90,7 @@ public class EdgeSerializationImpl implements EdgeSerialization {
         checkNotNull( shardedEdgeSerialization, "shardedEdgeSerialization required" );
         checkNotNull( timeService, "timeService required" );
         checkNotNull( shardGroupDeletion, "shardGroupDeletion require");
+        checkNotNull( nodeShardApproximation, "nodeShardApproximation required" );
 
 
         this.keyspace = keyspace;
@@ -97,6 +101,7 @@ public class EdgeSerializationImpl implements EdgeSerialization {
         this.shardedEdgeSerialization = shardedEdgeSerialization;
         this.timeService = timeService;
         this.shardGroupDeletion = shardGroupDeletion;
+        this.nodeShardApproximation = nodeShardApproximation;
     }
 
 
@@ -186,10 +191,28 @@ public class EdgeSerializationImpl implements EdgeSerialization {
                         edgeVersionsMeta, timestamp ) );
 
 
+        incrementShards( scope, sourceWriteShards, sourceEdgeMeta );
+        incrementShards( scope, sourceTargetTypeWriteShards, sourceTargetTypeEdgeMeta );
+        incrementShards( scope, targetWriteShards, targetEdgeMeta );
+        incrementShards( scope, targetSourceTypeWriteShards, targetSourceTypeEdgeMeta );
+        incrementShards( scope, edgeVersionsShards, edgeVersionsMeta );
+
+
         return batch;
     }
 
 
+    /**
+     * Count the edge in each shard it was written to, so audits can read the shard size instead of iterating it
+     */
+    private void incrementShards( final ApplicationScope scope, final Collection<Shard> shards,
+                                  final DirectedEdgeMeta directedEdgeMeta ) {
+        for ( final Shard shard : shards ) {
+            nodeShardApproximation.increment( scope, shard, 1, directedEdgeMeta );
+        }
+    }
+
+
     @Override
     public MutationBatch deleteEdge( final ApplicationScope scope, final MarkedEdge markedEdge, final UUID timestamp ) {
         ValidationUtils.validateApplicationScope( scope );
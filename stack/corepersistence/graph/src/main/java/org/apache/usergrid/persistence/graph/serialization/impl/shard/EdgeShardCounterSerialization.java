@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.usergrid.persistence.graph.serialization.impl.shard;
+
+
+import org.apache.usergrid.persistence.core.migration.schema.Migration;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+
+import com.google.common.base.Optional;
+import com.netflix.astyanax.MutationBatch;
+
+
+/**
+ * Serialization of the number of edges written to each shard.  Counts are stored in cassandra counters, so they
+ * are approximate and can only be incremented or decremented
+ */
+public interface EdgeShardCounterSerialization extends Migration {
+
+    /**
+     * Increment the count of the shard.  A negative count decrements it
+     *
+     * @param scope The application scope
+     * @param shard The shard to increment
+     * @param count The number of edges to add
+     * @param directedEdgeMeta The edge meta data of the shard
+     */
+    public MutationBatch incrementCount( ApplicationScope scope, Shard shard, long count,
+                                         DirectedEdgeMeta directedEdgeMeta );
+
+
+    /**
+     * Mark the count of the shard as complete.  Shards written before counting began have edges that were never
+     * counted, so their count can't be trusted until they have been counted once
+     *
+     * @param scope The application scope
+     * @param shard The shard that was counted
+     * @param directedEdgeMeta The edge meta data of the shard
+     */
+    public MutationBatch markCounted( ApplicationScope scope, Shard shard, DirectedEdgeMeta directedEdgeMeta );
+
+
+    /**
+     * Get the count of the shard
+     *
+     * @param scope The application scope
+     * @param shard The shard to read
+     * @param directedEdgeMeta The edge meta data of the shard
+     *
+     * @return The count, or absent if the shard has never been incremented
+     */
+    public Optional<Long> getCount( ApplicationScope scope, Shard shard, DirectedEdgeMeta directedEdgeMeta );
+
+
+    /**
+     * Return true if the shard has been marked as counted
+     *
+     * @param scope The application scope
+     * @param shard The shard to read
+     * @param directedEdgeMeta The edge meta data of the shard
+     */
+    public boolean isCounted( ApplicationScope scope, Shard shard, DirectedEdgeMeta directedEdgeMeta );
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.usergrid.persistence.graph.serialization.impl.shard;
+
+
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+
+import com.google.common.base.Optional;
+
+
+/**
+ * Keeps an approximate count of the edges in each shard.  Increments are buffered in memory and written in bulk,
+ * so a shard audit can read the count instead of iterating the shard
+ */
+public interface NodeShardApproximation {
+
+
+    /**
+     * Increment the count of the shard.  A negative count decrements it
+     *
+     * @param scope The application scope
+     * @param shard The shard the edges were written to
+     * @param count The number of edges
+     * @param directedEdgeMeta The edge meta data of the shard
+     */
+    public void increment( ApplicationScope scope, Shard shard, long count, DirectedEdgeMeta directedEdgeMeta );
+
+
+    /**
+     * Get the approximate count of the shard, including increments on this node that have not been flushed
+     *
+     * @param scope The application scope
+     * @param shard The shard to count
+     * @param directedEdgeMeta The edge meta data of the shard
+     *
+     * @return The count, or absent if the shard has never been counted
+     */
+    public Optional<Long> getCount( ApplicationScope scope, Shard shard, DirectedEdgeMeta directedEdgeMeta );
+
+
+    /**
+     * Get the count of the shard whether or not it has been counted, including increments on this node that have not
+     * been flushed.  Take this before iterating a shard and pass it to {@link #setCount}
+     *
+     * @param scope The application scope
+     * @param shard The shard to count
+     * @param directedEdgeMeta The edge meta data of the shard
+     */
+    public long getSnapshot( ApplicationScope scope, Shard shard, DirectedEdgeMeta directedEdgeMeta );
+
+
+    /**
+     * Set the count of the shard to the number of edges actually in it, and mark the shard as counted.  Only the
+     * difference from the snapshot is written, so increments made by any node while the shard was iterated are kept
+     *
+     * @param scope The application scope
+     * @param shard The shard that was counted
+     * @param count The number of edges in the shard
+     * @param snapshot The count from {@link #getSnapshot} taken before the shard was iterated
+     * @param directedEdgeMeta The edge meta data of the shard
+     */
+    public void setCount( ApplicationScope scope, Shard shard, long count, long snapshot,
+                          DirectedEdgeMeta directedEdgeMeta );
+
+
+    /**
+     * Write all buffered increments
+     */
+    public void flush();
+}
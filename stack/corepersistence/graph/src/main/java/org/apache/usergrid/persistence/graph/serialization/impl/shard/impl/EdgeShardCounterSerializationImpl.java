@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.usergrid.persistence.graph.serialization.impl.shard.impl;
+
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.cassandra.db.marshal.BytesType;
+import org.apache.cassandra.db.marshal.CounterColumnType;
+import org.apache.cassandra.db.marshal.LongType;
+
+import org.apache.usergrid.persistence.core.CassandraConfig;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamily;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKey;
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKeySerializer;
+import org.apache.usergrid.persistence.core.datastax.TableDefinition;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.util.ValidationUtils;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.DirectedEdgeMeta;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.EdgeShardCounterSerialization;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.Shard;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.serialize.EdgeShardRowKeySerializer;
+import org.apache.usergrid.persistence.graph.serialization.util.GraphValidation;
+
+import com.google.common.base.Optional;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.MutationBatch;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.NotFoundException;
+import com.netflix.astyanax.model.Column;
+import com.netflix.astyanax.serializers.LongSerializer;
+
+
+/**
+ * Stores the edge count of each shard in the same row layout as the shard meta data, one counter column per shard
+ * and one marker column per shard once it has been counted
+ */
+@Singleton
+public class EdgeShardCounterSerializationImpl implements EdgeShardCounterSerialization {
+
+
+    /**
+     * Edge shard counts
+     */
+    private static final MultiTenantColumnFamily<ScopedRowKey<DirectedEdgeMeta>, Long> EDGE_SHARD_COUNTS =
+            new MultiTenantColumnFamily<>( "Edge_Shard_Counts",
+                    new ScopedRowKeySerializer<>( EdgeShardRowKeySerializer.INSTANCE ), LongSerializer.get() );
+
+
+    protected final Keyspace keyspace;
+    protected final CassandraConfig cassandraConfig;
+
+
+    @Inject
+    public EdgeShardCounterSerializationImpl( final Keyspace keyspace, final CassandraConfig cassandraConfig ) {
+        this.keyspace = keyspace;
+        this.cassandraConfig = cassandraConfig;
+    }
+
+
+    @Override
+    public MutationBatch incrementCount( final ApplicationScope scope, final Shard shard, final long count,
+                                         final DirectedEdgeMeta metaData ) {
+
+        ValidationUtils.validateApplicationScope( scope );
+        GraphValidation.valiateShard( shard );
+        GraphValidation.validateDirectedEdgeMeta( metaData );
+
+        final ScopedRowKey<DirectedEdgeMeta> rowKey = ScopedRowKey.fromKey( scope.getApplication(), metaData );
+
+        final MutationBatch batch = keyspace.prepareMutationBatch();
+
+        batch.withRow( EDGE_SHARD_COUNTS, rowKey ).incrementCounterColumn( shard.getShardIndex(), count );
+
+        return batch;
+    }
+
+
+    @Override
+    public MutationBatch markCounted( final ApplicationScope scope, final Shard shard,
+                                      final DirectedEdgeMeta metaData ) {
+
+        ValidationUtils.validateApplicationScope( scope );
+        GraphValidation.valiateShard( shard );
+        GraphValidation.validateDirectedEdgeMeta( metaData );
+
+        final ScopedRowKey<DirectedEdgeMeta> rowKey = ScopedRowKey.fromKey( scope.getApplication(), metaData );
+
+        final MutationBatch batch = keyspace.prepareMutationBatch();
+
+        batch.withRow( EDGE_SHARD_COUNTS, rowKey ).incrementCounterColumn( getCountedColumn( shard ), 1 );
+
+        return batch;
+    }
+
+
+    @Override
+    public Optional<Long> getCount( final ApplicationScope scope, final Shard shard,
+                                    final DirectedEdgeMeta metaData ) {
+
+        ValidationUtils.validateApplicationScope( scope );
+        GraphValidation.valiateShard( shard );
+        GraphValidation.validateDirectedEdgeMeta( metaData );
+
+        final ScopedRowKey<DirectedEdgeMeta> rowKey = ScopedRowKey.fromKey( scope.getApplication(), metaData );
+
+        final Column<Long> result;
+
+        try {
+            result = keyspace.prepareQuery( EDGE_SHARD_COUNTS ).setConsistencyLevel( cassandraConfig.getReadCL() )
+                             .getKey( rowKey ).getColumn( shard.getShardIndex() ).execute().getResult();
+        }
+        catch ( NotFoundException nfe ) {
+            //swallow, the shard has never been counted
+            return Optional.absent();
+        }
+        catch ( ConnectionException e ) {
+            throw new RuntimeException( "Unable to connect to cassandra", e );
+        }
+
+        return Optional.of( result.getLongValue() );
+    }
+
+
+    @Override
+    public boolean isCounted( final ApplicationScope scope, final Shard shard, final DirectedEdgeMeta metaData ) {
+
+        ValidationUtils.validateApplicationScope( scope );
+        GraphValidation.valiateShard( shard );
+        GraphValidation.validateDirectedEdgeMeta( metaData );
+
+        final ScopedRowKey<DirectedEdgeMeta> rowKey = ScopedRowKey.fromKey( scope.getApplication(), metaData );
+
+        try {
+            keyspace.prepareQuery( EDGE_SHARD_COUNTS ).setConsistencyLevel( cassandraConfig.getReadCL() )
+                    .getKey( rowKey ).getColumn( getCountedColumn( shard ) ).execute();
+        }
+        catch ( NotFoundException nfe ) {
+            return false;
+        }
+        catch ( ConnectionException e ) {
+            throw new RuntimeException( "Unable to connect to cassandra", e );
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Shard indexes are never negative, so the counted marker of a shard is stored in the same row at -(index + 1)
+     */
+    private static long getCountedColumn( final Shard shard ) {
+        return -( shard.getShardIndex() + 1 );
+    }
+
+
+    @Override
+    public Collection<MultiTenantColumnFamilyDefinition> getColumnFamilies() {
+
+        return Collections.singleton(
+                new MultiTenantColumnFamilyDefinition( EDGE_SHARD_COUNTS, BytesType.class.getSimpleName(),
+                        LongType.class.getSimpleName(), CounterColumnType.class.getSimpleName(),
+                        MultiTenantColumnFamilyDefinition.CacheOption.KEYS ) );
+    }
+
+
+    @Override
+    public Collection<TableDefinition> getTables() {
+
+        return Collections.emptyList();
+    }
+}
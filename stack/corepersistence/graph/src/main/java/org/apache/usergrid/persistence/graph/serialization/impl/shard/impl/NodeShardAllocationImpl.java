@@ -22,6 +22,7 @@ package org.apache.usergrid.persistence.graph.serialization.impl.shard.impl;
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.base.Optional;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.*;
@@ -59,6 +60,8 @@ public class NodeShardAllocationImpl implements NodeShardAllocation {
     private final GraphFig graphFig;
     private final ShardGroupCompaction shardGroupCompaction;
     private final NodeShardCache nodeShardCache;
+    private final NodeShardApproximation nodeShardApproximation;
+    private final AtomicLong auditCount = new AtomicLong();
 
 
     @Inject
@@ -66,7 +69,8 @@ public class NodeShardAllocationImpl implements NodeShardAllocation {
                                     final EdgeColumnFamilies edgeColumnFamilies,
                                     final ShardedEdgeSerialization shardedEdgeSerialization, final TimeService timeService,
                                     final GraphFig graphFig, final ShardGroupCompaction shardGroupCompaction,
-                                    final NodeShardCache nodeShardCache) {
+                                    final NodeShardCache nodeShardCache,
+                                    final NodeShardApproximation nodeShardApproximation ) {
         this.edgeShardSerialization = edgeShardSerialization;
         this.edgeColumnFamilies = edgeColumnFamilies;
         this.shardedEdgeSerialization = shardedEdgeSerialization;
@@ -74,6 +78,7 @@ public class NodeShardAllocationImpl implements NodeShardAllocation {
         this.graphFig = graphFig;
         this.shardGroupCompaction = shardGroupCompaction;
         this.nodeShardCache = nodeShardCache;
+        this.nodeShardApproximation = nodeShardApproximation;
     }
 
 
@@ -160,10 +165,29 @@ public class NodeShardAllocationImpl implements NodeShardAllocation {
          * Check out if we have a count for our shard allocation
          */
 
+        final long shardSize = graphFig.getShardSize();
 
+        final Optional<Long> approximateCount = nodeShardApproximation.getCount( scope, shard, directedEdgeMeta );
 
-        final long shardSize = graphFig.getShardSize();
+        /**
+         * The count is only a hint.  Buffered increments can be lost if a node dies before flushing them, so we
+         * iterate once the count nears our shard size, and every Nth audit regardless of the count.  If the shard has
+         * not been counted yet, we fall through and count it below
+         */
+        final long countThreshold = ( long ) ( shardSize * graphFig.getShardAuditCountThreshold() );
+        final int forceInterval = graphFig.getShardAuditForceInterval();
+        final boolean forced = forceInterval > 0 && auditCount.incrementAndGet() % forceInterval == 0;
 
+        if ( !forced && approximateCount.isPresent() && approximateCount.get() < countThreshold ) {
+            if (logger.isTraceEnabled()) logger.trace( "Shard {} in shard group {} has an approximate count of {}, not splitting", shard, shardEntryGroup, approximateCount.get() );
+            return false;
+        }
+
+
+        /**
+         * Take the count before we iterate, so increments made while we iterate are kept when we correct it
+         */
+        final long countSnapshot = nodeShardApproximation.getSnapshot( scope, shard, directedEdgeMeta );
 
 
         /**
@@ -195,6 +219,8 @@ public class NodeShardAllocationImpl implements NodeShardAllocation {
             if (logger.isTraceEnabled()) logger.trace(
                 "Tried to allocate a new shard for edge meta data {}, but no max value could be found in that row",
                 directedEdgeMeta );
+
+            nodeShardApproximation.setCount( scope, shard, 0, countSnapshot, directedEdgeMeta );
             return false;
         }
 
@@ -221,6 +247,13 @@ public class NodeShardAllocationImpl implements NodeShardAllocation {
         }
 
 
+        /**
+         * Correct the approximate count with what we just counted, so the next audit doesn't iterate a shard that
+         * only looked full because of updates and deletes
+         */
+        nodeShardApproximation.setCount( scope, shard, edgeCount, countSnapshot, directedEdgeMeta );
+
+
         /**
          * Sanity check in case we audit before we have a full shard
          */
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.usergrid.persistence.graph.serialization.impl.shard.impl;
+
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.core.consistency.TimeService;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.graph.GraphFig;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.DirectedEdgeMeta;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.EdgeShardCounterSerialization;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.NodeShardApproximation;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.Shard;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.MutationBatch;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+
+
+/**
+ * Buffers shard count increments in memory and writes them to the {@link EdgeShardCounterSerialization}.  The buffer
+ * is flushed once it holds {@link GraphFig#getCounterFlushCount()} increments or
+ * {@link GraphFig#getCounterFlushQueueSize()} shards, every {@link GraphFig#getCounterFlushInterval()} ms, and when
+ * the JVM shuts down.  Increments still buffered if the node dies are lost, so the count is only a hint.
+ */
+@Singleton
+public class NodeShardApproximationImpl implements NodeShardApproximation {
+
+    private static final Logger logger = LoggerFactory.getLogger( NodeShardApproximationImpl.class );
+
+
+    private final GraphFig graphFig;
+    private final EdgeShardCounterSerialization edgeShardCounterSerialization;
+    private final TimeService timeService;
+    private final Keyspace keyspace;
+
+    private final ConcurrentHashMap<ShardKey, Long> buffer = new ConcurrentHashMap<>();
+    private final AtomicLong pendingIncrements = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService flushExecutor;
+
+
+    @Inject
+    public NodeShardApproximationImpl( final GraphFig graphFig,
+                                       final EdgeShardCounterSerialization edgeShardCounterSerialization,
+                                       final TimeService timeService, final Keyspace keyspace ) {
+        this.graphFig = graphFig;
+        this.edgeShardCounterSerialization = edgeShardCounterSerialization;
+        this.timeService = timeService;
+        this.keyspace = keyspace;
+
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat( "GraphShardCounterFlush-%d" ).setDaemon( true ).build() );
+
+        final long interval = graphFig.getCounterFlushInterval();
+
+        this.flushExecutor.scheduleWithFixedDelay( this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS );
+
+        //our flush thread is a daemon, write what we've buffered if the JVM exits
+        Runtime.getRuntime().addShutdownHook( new Thread() {
+            @Override
+            public void run() {
+                close();
+            }
+        } );
+    }
+
+
+    @Override
+    public void increment( final ApplicationScope scope, final Shard shard, final long count,
+                           final DirectedEdgeMeta directedEdgeMeta ) {
+
+        if ( count == 0 ) {
+            return;
+        }
+
+        buffer.merge( new ShardKey( scope, shard, directedEdgeMeta ), count, Long::sum );
+
+        final long pending = pendingIncrements.addAndGet( Math.abs( count ) );
+
+        if ( ( pending >= graphFig.getCounterFlushCount() || buffer.size() >= graphFig.getCounterFlushQueueSize() )
+            && flushScheduled.compareAndSet( false, true ) ) {
+            flushExecutor.execute( this::flushQuietly );
+        }
+    }
+
+
+    @Override
+    public Optional<Long> getCount( final ApplicationScope scope, final Shard shard,
+                                    final DirectedEdgeMeta directedEdgeMeta ) {
+
+        //edges written before we began counting are missing from the count, don't use it until it's been corrected
+        if ( !edgeShardCounterSerialization.isCounted( scope, shard, directedEdgeMeta ) ) {
+            return Optional.absent();
+        }
+
+        return Optional.of( getCurrentCount( scope, shard, directedEdgeMeta ) );
+    }
+
+
+    @Override
+    public long getSnapshot( final ApplicationScope scope, final Shard shard,
+                             final DirectedEdgeMeta directedEdgeMeta ) {
+        return getCurrentCount( scope, shard, directedEdgeMeta );
+    }
+
+
+    @Override
+    public void setCount( final ApplicationScope scope, final Shard shard, final long count, final long snapshot,
+                          final DirectedEdgeMeta directedEdgeMeta ) {
+
+        /**
+         * Counters can only be incremented, so write the difference from what the count was before we iterated.
+         * Increments made since the snapshot, by this node or any other, are added on top of it
+         */
+        final long delta = count - snapshot;
+
+        final MutationBatch batch = edgeShardCounterSerialization.markCounted( scope, shard, directedEdgeMeta );
+
+        if ( delta != 0 ) {
+            batch.mergeShallow( edgeShardCounterSerialization.incrementCount( scope, shard, delta, directedEdgeMeta ) );
+        }
+
+        try {
+            batch.execute();
+        }
+        catch ( ConnectionException e ) {
+            throw new RuntimeException( "Unable to connect to cassandra", e );
+        }
+    }
+
+
+    @Override
+    public void flush() {
+
+        flushScheduled.set( false );
+
+        if ( buffer.isEmpty() ) {
+            return;
+        }
+
+        final long startTime = timeService.getCurrentTime();
+
+        final MutationBatch batch = keyspace.prepareMutationBatch();
+        final Map<ShardKey, Long> flushed = new HashMap<>();
+
+        //remove each entry atomically, an increment racing with us starts a new entry for the next flush
+        for ( final ShardKey key : buffer.keySet() ) {
+            final Long count = buffer.remove( key );
+
+            if ( count == null || count == 0 ) {
+                continue;
+            }
+
+            flushed.put( key, count );
+            pendingIncrements.addAndGet( -Math.abs( count ) );
+
+            batch.mergeShallow(
+                edgeShardCounterSerialization.incrementCount( key.scope, key.shard, count, key.directedEdgeMeta ) );
+        }
+
+        if ( flushed.isEmpty() ) {
+            return;
+        }
+
+        try {
+            batch.execute();
+        }
+        catch ( Exception e ) {
+
+            //put the counts back so they're written with the next flush
+            for ( final Map.Entry<ShardKey, Long> entry : flushed.entrySet() ) {
+                buffer.merge( entry.getKey(), entry.getValue(), Long::sum );
+                pendingIncrements.addAndGet( Math.abs( entry.getValue() ) );
+            }
+
+            throw new RuntimeException( "Unable to flush shard counts", e );
+        }
+
+        if ( logger.isTraceEnabled() ) {
+            logger.trace( "Flushed counts of {} shards in {} ms", flushed.size(),
+                timeService.getCurrentTime() - startTime );
+        }
+    }
+
+
+    /**
+     * Get the persisted count plus the increments on this node that have not been flushed
+     */
+    private long getCurrentCount( final ApplicationScope scope, final Shard shard,
+                                  final DirectedEdgeMeta directedEdgeMeta ) {
+
+        final long persisted = edgeShardCounterSerialization.getCount( scope, shard, directedEdgeMeta ).or( 0L );
+
+        final Long buffered = buffer.get( new ShardKey( scope, shard, directedEdgeMeta ) );
+
+        return buffered == null ? persisted : persisted + buffered;
+    }
+
+
+    /**
+     * Stop the flush thread and write anything still buffered
+     */
+    public void close() {
+        flushExecutor.shutdown();
+
+        try {
+            flushExecutor.awaitTermination( graphFig.getCounterFlushInterval(), TimeUnit.MILLISECONDS );
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+
+        flushQuietly();
+    }
+
+
+    private void flushQuietly() {
+        try {
+            flush();
+        }
+        catch ( Throwable t ) {
+            logger.error( "Unable to flush shard counts, will retry", t );
+        }
+    }
+
+
+    /**
+     * The shard a count belongs to
+     */
+    private static final class ShardKey {
+
+        private final ApplicationScope scope;
+        private final Shard shard;
+        private final DirectedEdgeMeta directedEdgeMeta;
+
+
+        private ShardKey( final ApplicationScope scope, final Shard shard, final DirectedEdgeMeta directedEdgeMeta ) {
+            this.scope = scope;
+            this.shard = shard;
+            this.directedEdgeMeta = directedEdgeMeta;
+        }
+
+
+        @Override
+        public boolean equals( final Object o ) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( o == null || getClass() != o.getClass() ) {
+                return false;
+            }
+
+            final ShardKey shardKey = ( ShardKey ) o;
+
+            return shard.getShardIndex() == shardKey.shard.getShardIndex()
+                && scope.getApplication().equals( shardKey.scope.getApplication() )
+                && directedEdgeMeta.equals( shardKey.directedEdgeMeta );
+        }
+
+
+        @Override
+        public int hashCode() {
+            int result = scope.getApplication().hashCode();
+            result = 31 * result + Long.hashCode( shard.getShardIndex() );
+            result = 31 * result + directedEdgeMeta.hashCode();
+            return result;
+        }
+    }
+}
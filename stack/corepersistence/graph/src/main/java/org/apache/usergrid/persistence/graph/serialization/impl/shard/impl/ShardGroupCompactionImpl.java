@@ -26,6 +26,9 @@ import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -37,6 +40,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.usergrid.persistence.core.consistency.TimeService;
+import org.apache.usergrid.persistence.core.executor.TaskExecutorFactory;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.graph.GraphFig;
 import org.apache.usergrid.persistence.graph.MarkedEdge;
@@ -44,6 +49,8 @@ import org.apache.usergrid.persistence.graph.SearchByEdgeType;
 import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.model.util.UUIDGenerator;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.google.common.base.Preconditions;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hasher;
@@ -53,6 +60,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.RateLimiter;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.netflix.astyanax.Keyspace;
@@ -89,6 +97,13 @@ public class ShardGroupCompactionImpl implements ShardGroupCompaction {
     private final ShardCompactionTaskTracker shardCompactionTaskTracker;
     private final ShardAuditTaskTracker shardAuditTaskTracker;
     private final NodeShardCache nodeShardCache;
+    private final NodeShardApproximation nodeShardApproximation;
+
+    private final ExecutorService compactionExecutor;
+    private final RateLimiter rateLimiter;
+    private final Meter edgesCopiedMeter;
+    private final Meter edgesDeletedMeter;
+    private final Histogram compactionLagHistogram;
 
 
     @Inject
@@ -98,7 +113,9 @@ public class ShardGroupCompactionImpl implements ShardGroupCompaction {
                                      final EdgeColumnFamilies edgeColumnFamilies, final Keyspace keyspace,
                                      final EdgeShardSerialization edgeShardSerialization,
                                      final AsyncTaskExecutor asyncTaskExecutor,
-                                     final NodeShardCache nodeShardCache ) {
+                                     final NodeShardCache nodeShardCache,
+                                     final NodeShardApproximation nodeShardApproximation,
+                                     final MetricsFactory metricsFactory ) {
 
         this.timeService = timeService;
         this.countAudits = new AtomicLong();
@@ -116,6 +133,19 @@ public class ShardGroupCompactionImpl implements ShardGroupCompaction {
 
         this.taskExecutor = asyncTaskExecutor.getExecutorService();
         this.nodeShardCache = nodeShardCache;
+        this.nodeShardApproximation = nodeShardApproximation;
+
+        //caller runs so a busy pool slows down the compaction instead of failing it
+        this.compactionExecutor = TaskExecutorFactory
+            .createTaskExecutor( "ShardCompaction", graphFig.getShardCompactionWorkerCount(), 0,
+                TaskExecutorFactory.RejectionAction.CALLERRUNS );
+
+        final int compactionRate = graphFig.getShardCompactionRate();
+        this.rateLimiter = compactionRate > 0 ? RateLimiter.create( compactionRate ) : null;
+
+        this.edgesCopiedMeter = metricsFactory.getMeter( ShardGroupCompactionImpl.class, "compaction.edges.copied" );
+        this.edgesDeletedMeter = metricsFactory.getMeter( ShardGroupCompactionImpl.class, "compaction.edges.deleted" );
+        this.compactionLagHistogram = metricsFactory.getHistogram( ShardGroupCompactionImpl.class, "compaction.lag" );
     }
 
 
@@ -153,11 +183,19 @@ public class ShardGroupCompactionImpl implements ShardGroupCompaction {
 
         final UUID timestamp = UUIDGenerator.newTimeUUID();
 
-        final long newShardPivot = targetShard.getShardIndex();
-
         final int maxWorkSize = graphFig.getScanPageSize();
 
 
+        /**
+         * Each source shard is moved in descending order, so the shard end we write as we go marks our progress and
+         * a later compaction resumes from it.  The source shards are moved in parallel.
+         */
+        final List<Future<Long>> moves = new ArrayList<>( sourceShards.size() );
+
+        for ( final Shard sourceShard : sourceShards ) {
+            moves.add( compactionExecutor.submit(
+                () -> moveEdges( scope, edgeMeta, sourceShard, targetShard, timestamp, maxWorkSize ) ) );
+        }
 
 
         /**
@@ -165,208 +203,255 @@ public class ShardGroupCompactionImpl implements ShardGroupCompaction {
          */
         long totalEdgeCount = 0;
 
+        for ( final Future<Long> move : moves ) {
+            try {
+                totalEdgeCount += move.get();
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( "Interrupted while moving edges to shard " + targetShard, e );
+            }
+            catch ( ExecutionException e ) {
+                throw new RuntimeException( "Unable to move edges to shard " + targetShard, e.getCause() );
+            }
+        }
 
-        for ( Shard sourceShard : sourceShards ) {
 
-            final MutationBatch newRowBatch = keyspace.prepareMutationBatch();
-            final MutationBatch deleteRowBatch = keyspace.prepareMutationBatch();
-            final MutationBatch updateShardMetaBatch = keyspace.prepareMutationBatch();
+        if (logger.isTraceEnabled()) {
+            logger.trace("Finished compacting {} shards and moved {} edges", sourceShards, totalEdgeCount);
+        }
 
-            long edgeCount = 0;
+        resultBuilder.withCopiedEdges( totalEdgeCount ).withSourceShards( sourceShards ).withTargetShard( targetShard );
 
-            Iterator<MarkedEdge> edges = edgeMeta
-                .loadEdges( shardedEdgeSerialization, edgeColumnFamilies, scope, Collections.singleton( sourceShard ),
-                    Long.MAX_VALUE, SearchByEdgeType.Order.DESCENDING );
+        /**
+         * We didn't move anything this pass, mark the shard as compacted.  If we move something,
+         * it means that we missed it on the first pass
+         * or someone is still not writing to the target shard only.
+         */
+        if ( totalEdgeCount == 0 ) {
 
-            MarkedEdge shardEnd = null;
 
-            while ( edges.hasNext() ) {
-                final MarkedEdge edge = edges.next();
+            // now that we've marked our target as compacted, we can successfully remove any shards that are not
+            // compacted themselves in the sources
 
-                final long edgeTimestamp = edge.getTimestamp();
+            final MutationBatch shardRemovalRollup = keyspace.prepareMutationBatch();
 
-                shardEnd = edge;
+            for ( Shard source : sourceShards ) {
 
-                /**
-                 * The edge is within a different shard, break
-                 */
-                if ( edgeTimestamp < newShardPivot ) {
-                    break;
+                //if we can't safely delete it, don't do so
+                if ( !group.canBeDeleted( source ) ) {
+                    continue;
                 }
 
-                newRowBatch.mergeShallow( edgeMeta
-                        .writeEdge( shardedEdgeSerialization, edgeColumnFamilies, scope, targetShard, edge,
-                            timestamp ) );
+                logger.info( "Source shards have been fully drained.  Removing shard {}", source );
 
-                deleteRowBatch.mergeShallow( edgeMeta
-                        .deleteEdge( shardedEdgeSerialization, edgeColumnFamilies, scope, sourceShard, edge,
-                            timestamp ) );
+                final MutationBatch shardRemoval = edgeShardSerialization.removeShardMeta( scope, source, edgeMeta );
+                shardRemovalRollup.mergeShallow( shardRemoval );
 
+                resultBuilder.withRemovedShard( source );
+            }
 
-                edgeCount++;
 
+            try {
+                shardRemovalRollup.execute();
 
+                // invalidate the shard cache so we can be sure that all read shards are up to date
+                nodeShardCache.invalidate(scope, edgeMeta);
+            }
+            catch ( ConnectionException e ) {
+                throw new RuntimeException( "Unable to connect to cassandra", e );
+            }
 
-                // if we're at our count, execute the mutation of writing the edges to the new row, then remove them
-                // from the old rows
-                if ( edgeCount % maxWorkSize == 0 ) {
+            //Overwrite our shard index with a newly created one that has been marked as compacted
+            Shard compactedShard = new Shard( targetShard.getShardIndex(), timeService.getCurrentTime(), true );
+            compactedShard.setShardEnd(Optional.absent());
 
+            if(logger.isTraceEnabled()) {
+                logger.trace("Shard has been fully compacted.  Marking shard {} as compacted in Cassandra", compactedShard);
+            }
 
+            final MutationBatch updateMark = edgeShardSerialization.writeShardMeta( scope, compactedShard, edgeMeta );
+            try {
+                updateMark.execute();
 
-                    try {
+                // invalidate the shard cache so we can be sure that all read shards are up to date
+                nodeShardCache.invalidate(scope, edgeMeta);
+            }
+            catch ( ConnectionException e ) {
+                throw new RuntimeException( "Unable to connect to cassandra", e );
+            }
 
-                        // write the edges into the new shard atomically so we know they all succeed
-                        newRowBatch.withAtomicBatch(true).execute();
+            compactionLagHistogram.update( compactedShard.getCreatedTime() - targetShard.getCreatedTime() );
 
+            resultBuilder.withCompactedShard( compactedShard );
+        }
 
-                        // Update the shard end after each batch so any reads during transition stay as close to current
-                        sourceShard.setShardEnd(
-                            Optional.of(new DirectedEdge(shardEnd.getTargetNode(), shardEnd.getTimestamp()))
-                        );
+        return resultBuilder.build();
+    }
 
-                        if(logger.isTraceEnabled()) {
-                            logger.trace("Updating shard {} during batch removal with shardEnd {}", sourceShard, shardEnd);
-                        }
-                        updateShardMetaBatch.mergeShallow(
-                            edgeShardSerialization.writeShardMeta(scope, sourceShard, edgeMeta));
 
+    /**
+     * Move the edges of the source shard at or after the target shard's pivot to the target shard
+     *
+     * @return The number of edges moved
+     */
+    private long moveEdges( final ApplicationScope scope, final DirectedEdgeMeta edgeMeta, final Shard sourceShard,
+                            final Shard targetShard, final UUID timestamp, final int maxWorkSize ) {
 
+        final long newShardPivot = targetShard.getShardIndex();
 
-                        // on purpose block this thread before deleting the old edges to be sure there are no gaps
-                        // duplicates are filtered on graph seeking so this is OK
-                        Thread.sleep(1000);
+        long totalEdgeCount = 0;
 
-                        if(logger.isTraceEnabled()) {
-                            logger.trace("Deleting batch of {} from old shard", maxWorkSize);
-                        }
-                        deleteRowBatch.withAtomicBatch(true).execute();
+        final MutationBatch newRowBatch = keyspace.prepareMutationBatch();
+        final MutationBatch deleteRowBatch = keyspace.prepareMutationBatch();
+        final MutationBatch updateShardMetaBatch = keyspace.prepareMutationBatch();
 
-                        updateShardMetaBatch.execute();
+        long edgeCount = 0;
 
+        Iterator<MarkedEdge> edges = edgeMeta
+            .loadEdges( shardedEdgeSerialization, edgeColumnFamilies, scope, Collections.singleton( sourceShard ),
+                Long.MAX_VALUE, SearchByEdgeType.Order.DESCENDING );
 
-                    }
-                    catch ( Throwable t ) {
-                        logger.error( "Unable to move edges from shard {} to shard {}", sourceShard, targetShard );
-                    }
+        MarkedEdge shardEnd = null;
 
-                    totalEdgeCount += edgeCount;
-                    edgeCount = 0;
-                }
+        while ( edges.hasNext() ) {
+            final MarkedEdge edge = edges.next();
 
+            final long edgeTimestamp = edge.getTimestamp();
 
+            shardEnd = edge;
 
+            /**
+             * The edge is within a different shard, break
+             */
+            if ( edgeTimestamp < newShardPivot ) {
+                break;
             }
 
-            totalEdgeCount += edgeCount;
+            if ( rateLimiter != null ) {
+                rateLimiter.acquire();
+            }
 
-            try {
+            newRowBatch.mergeShallow( edgeMeta
+                    .writeEdge( shardedEdgeSerialization, edgeColumnFamilies, scope, targetShard, edge,
+                        timestamp ) );
 
-                // write the edges into the new shard atomically so we know they all succeed
-                newRowBatch.withAtomicBatch(true).execute();
+            deleteRowBatch.mergeShallow( edgeMeta
+                    .deleteEdge( shardedEdgeSerialization, edgeColumnFamilies, scope, sourceShard, edge,
+                        timestamp ) );
 
-                // on purpose block this thread before deleting the old edges to be sure there are no gaps
-                // duplicates are filtered on graph seeking so this is OK
-                Thread.sleep(1000);
 
-                if(logger.isTraceEnabled()) {
-                    logger.trace("Deleting remaining {} edges from old shard", edgeCount);
-                }
-                deleteRowBatch.withAtomicBatch(true).execute();
+            edgeCount++;
+
+
+
+            // if we're at our count, execute the mutation of writing the edges to the new row, then remove them
+            // from the old rows
+            if ( edgeCount % maxWorkSize == 0 ) {
+
 
-                if (shardEnd != null){
 
+                try {
+
+                    // write the edges into the new shard atomically so we know they all succeed
+                    newRowBatch.withAtomicBatch(true).execute();
+
+
+                    // Update the shard end after each batch so any reads during transition stay as close to current
                     sourceShard.setShardEnd(
                         Optional.of(new DirectedEdge(shardEnd.getTargetNode(), shardEnd.getTimestamp()))
                     );
 
                     if(logger.isTraceEnabled()) {
-                        logger.trace("Updating for last time shard {} with shardEnd {}", sourceShard, shardEnd);
+                        logger.trace("Updating shard {} during batch removal with shardEnd {}", sourceShard, shardEnd);
                     }
-                    updateShardMetaBatch.mergeShallow( edgeShardSerialization.writeShardMeta(scope, sourceShard, edgeMeta));
-                    updateShardMetaBatch.execute();
-                }
+                    updateShardMetaBatch.mergeShallow(
+                        edgeShardSerialization.writeShardMeta(scope, sourceShard, edgeMeta));
 
 
-            }
-            catch ( Throwable t ) {
-                logger.error( "Unable to move edges to target shard {}", targetShard );
-            }
 
+                    // on purpose block this thread before deleting the old edges to be sure there are no gaps
+                    // duplicates are filtered on graph seeking so this is OK
+                    Thread.sleep(1000);
 
+                    if(logger.isTraceEnabled()) {
+                        logger.trace("Deleting batch of {} from old shard", maxWorkSize);
+                    }
+                    deleteRowBatch.withAtomicBatch(true).execute();
 
-        }
+                    updateShardMetaBatch.execute();
 
+                    edgesCopiedMeter.mark( edgeCount );
+                    edgesDeletedMeter.mark( edgeCount );
 
+                    moveCount( scope, edgeMeta, sourceShard, targetShard, edgeCount );
 
 
-        if (logger.isTraceEnabled()) {
-            logger.trace("Finished compacting {} shards and moved {} edges", sourceShards, totalEdgeCount);
-        }
+                }
+                catch ( Throwable t ) {
+                    logger.error( "Unable to move edges from shard {} to shard {}", sourceShard, targetShard );
+                }
 
-        resultBuilder.withCopiedEdges( totalEdgeCount ).withSourceShards( sourceShards ).withTargetShard( targetShard );
+                totalEdgeCount += edgeCount;
+                edgeCount = 0;
+            }
 
-        /**
-         * We didn't move anything this pass, mark the shard as compacted.  If we move something,
-         * it means that we missed it on the first pass
-         * or someone is still not writing to the target shard only.
-         */
-        if ( totalEdgeCount == 0 ) {
 
 
-            // now that we've marked our target as compacted, we can successfully remove any shards that are not
-            // compacted themselves in the sources
+        }
 
-            final MutationBatch shardRemovalRollup = keyspace.prepareMutationBatch();
+        totalEdgeCount += edgeCount;
 
-            for ( Shard source : sourceShards ) {
+        try {
 
-                //if we can't safely delete it, don't do so
-                if ( !group.canBeDeleted( source ) ) {
-                    continue;
-                }
+            // write the edges into the new shard atomically so we know they all succeed
+            newRowBatch.withAtomicBatch(true).execute();
 
-                logger.info( "Source shards have been fully drained.  Removing shard {}", source );
+            edgesCopiedMeter.mark( edgeCount );
 
-                final MutationBatch shardRemoval = edgeShardSerialization.removeShardMeta( scope, source, edgeMeta );
-                shardRemovalRollup.mergeShallow( shardRemoval );
+            // on purpose block this thread before deleting the old edges to be sure there are no gaps
+            // duplicates are filtered on graph seeking so this is OK
+            Thread.sleep(1000);
 
-                resultBuilder.withRemovedShard( source );
+            if(logger.isTraceEnabled()) {
+                logger.trace("Deleting remaining {} edges from old shard", edgeCount);
             }
+            deleteRowBatch.withAtomicBatch(true).execute();
 
+            edgesDeletedMeter.mark( edgeCount );
 
-            try {
-                shardRemovalRollup.execute();
+            moveCount( scope, edgeMeta, sourceShard, targetShard, edgeCount );
 
-                // invalidate the shard cache so we can be sure that all read shards are up to date
-                nodeShardCache.invalidate(scope, edgeMeta);
-            }
-            catch ( ConnectionException e ) {
-                throw new RuntimeException( "Unable to connect to cassandra", e );
-            }
+            if (shardEnd != null){
 
-            //Overwrite our shard index with a newly created one that has been marked as compacted
-            Shard compactedShard = new Shard( targetShard.getShardIndex(), timeService.getCurrentTime(), true );
-            compactedShard.setShardEnd(Optional.absent());
+                sourceShard.setShardEnd(
+                    Optional.of(new DirectedEdge(shardEnd.getTargetNode(), shardEnd.getTimestamp()))
+                );
 
-            if(logger.isTraceEnabled()) {
-                logger.trace("Shard has been fully compacted.  Marking shard {} as compacted in Cassandra", compactedShard);
+                if(logger.isTraceEnabled()) {
+                    logger.trace("Updating for last time shard {} with shardEnd {}", sourceShard, shardEnd);
+                }
+                updateShardMetaBatch.mergeShallow( edgeShardSerialization.writeShardMeta(scope, sourceShard, edgeMeta));
+                updateShardMetaBatch.execute();
             }
 
-            final MutationBatch updateMark = edgeShardSerialization.writeShardMeta( scope, compactedShard, edgeMeta );
-            try {
-                updateMark.execute();
 
-                // invalidate the shard cache so we can be sure that all read shards are up to date
-                nodeShardCache.invalidate(scope, edgeMeta);
-            }
-            catch ( ConnectionException e ) {
-                throw new RuntimeException( "Unable to connect to cassandra", e );
-            }
-
-            resultBuilder.withCompactedShard( compactedShard );
+        }
+        catch ( Throwable t ) {
+            logger.error( "Unable to move edges to target shard {}", targetShard );
         }
 
-        return resultBuilder.build();
+        return totalEdgeCount;
+    }
+
+
+    /**
+     * Move the approximate count of the moved edges from the source shard to the target shard
+     */
+    private void moveCount( final ApplicationScope scope, final DirectedEdgeMeta edgeMeta, final Shard sourceShard,
+                            final Shard targetShard, final long edgeCount ) {
+        nodeShardApproximation.increment( scope, sourceShard, -edgeCount, edgeMeta );
+        nodeShardApproximation.increment( scope, targetShard, edgeCount, edgeMeta );
     }
 
 
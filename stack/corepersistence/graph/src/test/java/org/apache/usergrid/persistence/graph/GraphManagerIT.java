@@ -19,6 +19,7 @@
 package org.apache.usergrid.persistence.graph;
 
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
@@ -215,6 +216,44 @@ public class GraphManagerIT {
     }
 
 
+    /**
+     * Tests that batch writes span multiple batches and every edge is written and emitted
+     */
+    @Test
+    public void testWriteEdgesBatch() throws TimeoutException, InterruptedException {
+
+        GraphManager gm = emf.createEdgeManager( scope );
+
+        final Id sourceId = createId( "source" );
+
+        final int size = 250;
+
+        final List<Edge> toWrite = new ArrayList<>( size );
+
+        for ( int i = 0; i < size; i++ ) {
+            toWrite.add( createEdge( sourceId, "test", createId( "target" ) ) );
+        }
+
+        final int written = gm.writeEdges( toWrite ).count().toBlocking().last();
+
+        assertEquals( "All edges emitted", size, written );
+
+        SearchByEdgeType search = createSearchByEdge( sourceId, "test", Long.MAX_VALUE, null );
+
+        final int loaded = gm.loadEdgesFromSource( search ).count().toBlocking().last();
+
+        assertEquals( "All edges written", size, loaded );
+
+
+        //now mark them all, none should be returned
+        gm.markEdges( toWrite ).toBlocking().last();
+
+        final int remaining = gm.loadEdgesFromSource( search ).count().toBlocking().last();
+
+        assertEquals( "All edges marked", 0, remaining );
+    }
+
+
     /**
      * Tests that if multiple versions of an edge exist, only the distinct edges with a version <= max are returned
      */
@@ -54,6 +54,8 @@ import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 
@@ -62,6 +64,8 @@ public class NodeShardAllocationTest {
 
     private GraphFig graphFig;
 
+    private NodeShardApproximation nodeShardApproximation;
+
 
     protected ApplicationScope scope;
 
@@ -85,6 +89,13 @@ public class NodeShardAllocationTest {
         final long timeout = 30000;
         when( graphFig.getShardCacheTimeout() ).thenReturn( timeout );
         when( graphFig.getShardMinDelta() ).thenReturn( ( long ) (timeout * 2.5) );
+        when( graphFig.getShardAuditCountThreshold() ).thenReturn( .8 );
+        when( graphFig.getShardAuditForceInterval() ).thenReturn( 10 );
+
+        nodeShardApproximation = mock( NodeShardApproximation.class );
+
+        when( nodeShardApproximation.getCount( any( ApplicationScope.class ), any( Shard.class ),
+            any( DirectedEdgeMeta.class ) ) ).thenReturn( Optional.<Long>absent() );
     }
 
 
@@ -106,7 +117,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                         timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                         timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
 
         final long timeservicetime = System.currentTimeMillis();
@@ -139,7 +151,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                      timeService, graphFig, shardGroupCompaction, nodeShardCache);
+                      timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
         final Id nodeId = IdGenerator.createId( "test" );
         final String type = "type";
@@ -182,7 +195,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                        timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                        timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
         final Id nodeId = IdGenerator.createId( "test" );
         final String type = "type";
@@ -211,6 +225,176 @@ public class NodeShardAllocationTest {
     }
 
 
+    @Test
+    public void lowApproximateCountSkipsIteration() {
+        final ShardGroupCompaction shardGroupCompaction = mock( ShardGroupCompaction.class );
+
+        final EdgeShardSerialization edgeShardSerialization = mock( EdgeShardSerialization.class );
+
+        final EdgeColumnFamilies edgeColumnFamilies = mock( EdgeColumnFamilies.class );
+
+        final ShardedEdgeSerialization shardedEdgeSerialization = mock( ShardedEdgeSerialization.class );
+
+        final TimeService timeService = mock( TimeService.class );
+
+        final NodeShardCache nodeShardCache = mock( NodeShardCache.class);
+
+
+        NodeShardAllocation approximation =
+                new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
+                        timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
+
+        final Id nodeId = IdGenerator.createId( "test" );
+        final String type = "type";
+        final String subType = "subType";
+
+
+        final long timeservicetime = System.currentTimeMillis();
+
+        when( timeService.getCurrentTime() ).thenReturn( timeservicetime );
+
+        final Shard futureShard = new Shard( 0l, 0l, true );
+
+        final ShardEntryGroup shardEntryGroup = new ShardEntryGroup( 1000l );
+        shardEntryGroup.addShard( futureShard );
+
+        final DirectedEdgeMeta targetEdgeMeta = DirectedEdgeMeta.fromSourceNodeTargetType( nodeId, type, subType );
+
+
+        //return a count below our threshold
+        when( nodeShardApproximation.getCount( scope, futureShard, targetEdgeMeta ) )
+                .thenReturn( Optional.of( graphFig.getShardSize() / 2 ) );
+
+        final boolean result = approximation.auditShard( scope, shardEntryGroup, targetEdgeMeta );
+
+        assertFalse( "Shard allocated", result );
+
+        //we trusted the count, nothing should have been read
+        verifyZeroInteractions( shardedEdgeSerialization );
+    }
+
+
+    @Test
+    public void nearFullApproximateCountIterates() {
+        final ShardGroupCompaction shardGroupCompaction = mock( ShardGroupCompaction.class );
+
+        final EdgeShardSerialization edgeShardSerialization = mock( EdgeShardSerialization.class );
+
+        final EdgeColumnFamilies edgeColumnFamilies = mock( EdgeColumnFamilies.class );
+
+        final ShardedEdgeSerialization shardedEdgeSerialization = mock( ShardedEdgeSerialization.class );
+
+        final TimeService timeService = mock( TimeService.class );
+
+        final NodeShardCache nodeShardCache = mock( NodeShardCache.class);
+
+
+        NodeShardAllocation approximation =
+                new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
+                        timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
+
+        final Id nodeId = IdGenerator.createId( "test" );
+        final String type = "type";
+        final String subType = "subType";
+
+
+        final long timeservicetime = System.currentTimeMillis();
+
+        when( timeService.getCurrentTime() ).thenReturn( timeservicetime );
+
+        final Shard futureShard = new Shard( 0l, 0l, true );
+
+        final ShardEntryGroup shardEntryGroup = new ShardEntryGroup( 1000l );
+        shardEntryGroup.addShard( futureShard );
+
+        final DirectedEdgeMeta targetEdgeMeta = DirectedEdgeMeta.fromSourceNodeTargetType( nodeId, type, subType );
+
+
+        //return a count < our max by 1, but past our threshold
+        when( nodeShardApproximation.getCount( scope, futureShard, targetEdgeMeta ) )
+                .thenReturn( Optional.of( graphFig.getShardSize() - 1 ) );
+
+        when( nodeShardApproximation.getSnapshot( scope, futureShard, targetEdgeMeta ) ).thenReturn( 100l );
+
+        final List<MarkedEdge> edges = Collections.<MarkedEdge>singletonList(
+                new SimpleMarkedEdge( nodeId, type, IdGenerator.createId( subType ), 10000, false ) );
+
+        when( shardedEdgeSerialization
+                .getEdgesFromSourceByTargetType( same( edgeColumnFamilies ), same( scope ), any( SearchByIdType.class ),
+                        any( Collection.class ) ) ).thenReturn( edges.iterator() );
+
+        final boolean result = approximation.auditShard( scope, shardEntryGroup, targetEdgeMeta );
+
+        assertFalse( "Shard allocated", result );
+
+        //we didn't trust the count, the shard should have been counted against the snapshot taken before iterating
+        verify( nodeShardApproximation ).setCount( scope, futureShard, 1, 100l, targetEdgeMeta );
+    }
+
+
+    @Test
+    public void forcedAuditIterates() {
+        final ShardGroupCompaction shardGroupCompaction = mock( ShardGroupCompaction.class );
+
+        final EdgeShardSerialization edgeShardSerialization = mock( EdgeShardSerialization.class );
+
+        final EdgeColumnFamilies edgeColumnFamilies = mock( EdgeColumnFamilies.class );
+
+        final ShardedEdgeSerialization shardedEdgeSerialization = mock( ShardedEdgeSerialization.class );
+
+        final TimeService timeService = mock( TimeService.class );
+
+        final NodeShardCache nodeShardCache = mock( NodeShardCache.class);
+
+
+        NodeShardAllocation approximation =
+                new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
+                        timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
+
+        final Id nodeId = IdGenerator.createId( "test" );
+        final String type = "type";
+        final String subType = "subType";
+
+
+        final long timeservicetime = System.currentTimeMillis();
+
+        when( timeService.getCurrentTime() ).thenReturn( timeservicetime );
+
+        final Shard futureShard = new Shard( 0l, 0l, true );
+
+        final ShardEntryGroup shardEntryGroup = new ShardEntryGroup( 1000l );
+        shardEntryGroup.addShard( futureShard );
+
+        final DirectedEdgeMeta targetEdgeMeta = DirectedEdgeMeta.fromSourceNodeTargetType( nodeId, type, subType );
+
+
+        //return a count we would trust
+        when( nodeShardApproximation.getCount( scope, futureShard, targetEdgeMeta ) )
+                .thenReturn( Optional.of( 1l ) );
+
+        when( shardedEdgeSerialization
+                .getEdgesFromSourceByTargetType( same( edgeColumnFamilies ), same( scope ), any( SearchByIdType.class ),
+                        any( Collection.class ) ) ).thenReturn( Collections.<MarkedEdge>emptyIterator() );
+
+        final int forceInterval = graphFig.getShardAuditForceInterval();
+
+        //every audit before the Nth trusts the count
+        for ( int i = 1; i < forceInterval; i++ ) {
+            assertFalse( "Shard allocated", approximation.auditShard( scope, shardEntryGroup, targetEdgeMeta ) );
+        }
+
+        verifyZeroInteractions( shardedEdgeSerialization );
+
+        //the Nth audit iterates the shard regardless
+        assertFalse( "Shard allocated", approximation.auditShard( scope, shardEntryGroup, targetEdgeMeta ) );
+
+        verify( nodeShardApproximation ).setCount( scope, futureShard, 0, 0l, targetEdgeMeta );
+    }
+
+
     @Test
     public void overAllocatedShard() {
         final ShardGroupCompaction shardGroupCompaction = mock( ShardGroupCompaction.class );
@@ -229,7 +413,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                        timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                        timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
         final Id nodeId = IdGenerator.createId( "test" );
         final String type = "type";
@@ -342,7 +527,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                         timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                         timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
         final Id nodeId = IdGenerator.createId( "test" );
         final String type = "type";
@@ -431,7 +617,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                       timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                       timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
         final Id nodeId = IdGenerator.createId( "test" );
         final String type = "type";
@@ -498,7 +685,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                         timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                         timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
         final Id nodeId = IdGenerator.createId( "test" );
         final String type = "type";
@@ -638,7 +826,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                       timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                       timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
         final Id nodeId = IdGenerator.createId( "test" );
         final String type = "type";
@@ -732,7 +921,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                      timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                      timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
 
         /**
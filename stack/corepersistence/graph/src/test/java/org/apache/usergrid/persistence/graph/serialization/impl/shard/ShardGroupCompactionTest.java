@@ -32,6 +32,7 @@ import org.junit.Test;
 
 import org.apache.usergrid.persistence.core.consistency.TimeService;
 import org.apache.usergrid.persistence.core.executor.TaskExecutorFactory;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
 import org.apache.usergrid.persistence.core.util.IdGenerator;
@@ -64,6 +65,8 @@ public class ShardGroupCompactionTest {
 
         when( graphFig.getShardAuditWorkerQueueSize() ).thenReturn( 1000 );
 
+        when( graphFig.getShardCompactionWorkerCount() ).thenReturn( 2 );
+
 
 
         listeningExecutorService = MoreExecutors.listeningDecorator( TaskExecutorFactory
@@ -118,7 +121,8 @@ public class ShardGroupCompactionTest {
 
         ShardGroupCompactionImpl compaction =
             new ShardGroupCompactionImpl( timeService, graphFig, nodeShardAllocation, shardedEdgeSerialization,
-                edgeColumnFamilies, keyspace, edgeShardSerialization, asyncTaskExecutor, nodeShardCache );
+                edgeColumnFamilies, keyspace, edgeShardSerialization, asyncTaskExecutor, nodeShardCache,
+                mock( NodeShardApproximation.class ), mock( MetricsFactory.class ) );
 
         DirectedEdgeMeta directedEdgeMeta = DirectedEdgeMeta.fromSourceNode( IdGenerator.createId( "source" ), "test" );
 
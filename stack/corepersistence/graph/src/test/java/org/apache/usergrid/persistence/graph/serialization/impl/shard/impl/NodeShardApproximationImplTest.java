@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.usergrid.persistence.graph.serialization.impl.shard.impl;
+
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.core.consistency.TimeService;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
+import org.apache.usergrid.persistence.graph.GraphFig;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.DirectedEdgeMeta;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.EdgeShardCounterSerialization;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.Shard;
+
+import com.google.common.base.Optional;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.MutationBatch;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.TimeoutException;
+
+import static org.apache.usergrid.persistence.core.util.IdGenerator.createId;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class NodeShardApproximationImplTest {
+
+    private static final long FLUSH_COUNT = 10;
+
+    private static final int FLUSH_QUEUE_SIZE = 3;
+
+    private GraphFig graphFig;
+    private EdgeShardCounterSerialization edgeShardCounterSerialization;
+    private Keyspace keyspace;
+    private MutationBatch batch;
+
+    private ApplicationScope scope;
+    private Shard shard;
+    private DirectedEdgeMeta directedEdgeMeta;
+
+    private NodeShardApproximationImpl approximation;
+
+
+    @Before
+    public void setup() {
+
+        graphFig = mock( GraphFig.class );
+
+        when( graphFig.getCounterFlushCount() ).thenReturn( FLUSH_COUNT );
+        when( graphFig.getCounterFlushQueueSize() ).thenReturn( FLUSH_QUEUE_SIZE );
+
+        //don't let the timed flush run during our tests
+        when( graphFig.getCounterFlushInterval() ).thenReturn( 3600000l );
+
+        edgeShardCounterSerialization = mock( EdgeShardCounterSerialization.class );
+
+        keyspace = mock( Keyspace.class );
+        batch = mock( MutationBatch.class );
+
+        when( keyspace.prepareMutationBatch() ).thenReturn( batch );
+
+        scope = new ApplicationScopeImpl( createId( "application" ) );
+        shard = new Shard( 1000l, 1000l, true );
+        directedEdgeMeta = DirectedEdgeMeta.fromSourceNode( createId( "source" ), "test" );
+
+        when( edgeShardCounterSerialization.getCount( scope, shard, directedEdgeMeta ) )
+            .thenReturn( Optional.<Long>absent() );
+
+        when( edgeShardCounterSerialization
+            .incrementCount( any( ApplicationScope.class ), any( Shard.class ), anyLong(),
+                any( DirectedEdgeMeta.class ) ) ).thenReturn( mock( MutationBatch.class ) );
+
+        approximation =
+            new NodeShardApproximationImpl( graphFig, edgeShardCounterSerialization, mock( TimeService.class ),
+                keyspace );
+    }
+
+
+    @After
+    public void shutDown() {
+        approximation.close();
+    }
+
+
+    @Test
+    public void incrementsMergedInBuffer() {
+
+        approximation.increment( scope, shard, 2, directedEdgeMeta );
+        approximation.increment( scope, shard, 3, directedEdgeMeta );
+        approximation.increment( scope, shard, -1, directedEdgeMeta );
+
+        assertEquals( "Buffered increments counted", 4l,
+            approximation.getSnapshot( scope, shard, directedEdgeMeta ) );
+
+        approximation.flush();
+
+        //one write of the merged count
+        verify( edgeShardCounterSerialization ).incrementCount( scope, shard, 4l, directedEdgeMeta );
+        verify( keyspace ).prepareMutationBatch();
+
+        assertEquals( "Buffer cleared", 0l, approximation.getSnapshot( scope, shard, directedEdgeMeta ) );
+    }
+
+
+    @Test
+    public void snapshotIncludesPersistedCount() {
+
+        when( edgeShardCounterSerialization.getCount( scope, shard, directedEdgeMeta ) )
+            .thenReturn( Optional.of( 100l ) );
+
+        approximation.increment( scope, shard, 5, directedEdgeMeta );
+
+        assertEquals( "Persisted and buffered counted", 105l,
+            approximation.getSnapshot( scope, shard, directedEdgeMeta ) );
+    }
+
+
+    @Test
+    public void setCountWritesDeltaFromSnapshot() throws ConnectionException {
+
+        final MutationBatch counted = mock( MutationBatch.class );
+
+        when( edgeShardCounterSerialization.markCounted( scope, shard, directedEdgeMeta ) ).thenReturn( counted );
+
+        approximation.setCount( scope, shard, 80, 100, directedEdgeMeta );
+
+        verify( edgeShardCounterSerialization ).incrementCount( scope, shard, -20l, directedEdgeMeta );
+        verify( counted ).execute();
+    }
+
+
+    @Test
+    public void failedFlushReAddsCounts() throws ConnectionException {
+
+        approximation.increment( scope, shard, 5, directedEdgeMeta );
+
+        doThrow( new TimeoutException( "test" ) ).when( batch ).execute();
+
+        try {
+            approximation.flush();
+            fail( "Flush should have failed" );
+        }
+        catch ( RuntimeException e ) {
+            //expected
+        }
+
+        assertEquals( "Counts put back in the buffer", 5l,
+            approximation.getSnapshot( scope, shard, directedEdgeMeta ) );
+
+        approximation.increment( scope, shard, 2, directedEdgeMeta );
+
+        reset( batch );
+
+        approximation.flush();
+
+        //the failed count is written with the next flush
+        verify( edgeShardCounterSerialization ).incrementCount( scope, shard, 7l, directedEdgeMeta );
+        verify( batch ).execute();
+    }
+
+
+    @Test
+    public void flushedAtIncrementCount() throws ConnectionException {
+
+        approximation.increment( scope, shard, FLUSH_COUNT - 1, directedEdgeMeta );
+
+        verify( keyspace, after( 200 ).never() ).prepareMutationBatch();
+
+        approximation.increment( scope, shard, 1, directedEdgeMeta );
+
+        verify( batch, timeout( 5000 ) ).execute();
+        verify( edgeShardCounterSerialization ).incrementCount( scope, shard, FLUSH_COUNT, directedEdgeMeta );
+    }
+
+
+    @Test
+    public void flushedAtQueueSize() throws ConnectionException {
+
+        for ( int i = 0; i < FLUSH_QUEUE_SIZE - 1; i++ ) {
+            approximation.increment( scope, new Shard( i, 1000l, true ), 1, directedEdgeMeta );
+        }
+
+        verify( keyspace, after( 200 ).never() ).prepareMutationBatch();
+
+        approximation.increment( scope, shard, 1, directedEdgeMeta );
+
+        verify( batch, timeout( 5000 ) ).execute();
+        verify( edgeShardCounterSerialization ).incrementCount( scope, shard, 1l, directedEdgeMeta );
+    }
+
+
+    @Test
+    public void closeFlushes() throws ConnectionException {
+
+        approximation.increment( scope, shard, 1, directedEdgeMeta );
+
+        approximation.close();
+
+        verify( batch ).execute();
+        verify( edgeShardCounterSerialization ).incrementCount( scope, shard, 1l, directedEdgeMeta );
+    }
+}
@@ -22,6 +22,8 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.UUID;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 
 
 /**
@@ -63,6 +65,19 @@ public interface MapManager {
      */
     void putString( final String key, final String value, final int ttl );
 
+    /**
+     * Return a future of the string, the future's value is null if not found
+     */
+    ListenableFuture<String> getStringAsync( final String key );
+
+    /**
+     * Write the string without waiting on cassandra.  A ttl of 0 never expires
+     * @param key
+     * @param value
+     * @param ttl
+     */
+    ListenableFuture<Void> putStringAsync( final String key, final String value, final int ttl );
+
 
     /**
      * Return the uuid, null if not found
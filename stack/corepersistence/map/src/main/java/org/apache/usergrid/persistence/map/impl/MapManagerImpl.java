@@ -30,6 +30,7 @@ import org.apache.usergrid.persistence.map.MapScope;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 ;
@@ -83,6 +84,18 @@ public class MapManagerImpl implements MapManager {
     }
 
 
+    @Override
+    public ListenableFuture<String> getStringAsync( final String key ) {
+        return mapSerialization.getStringAsync( scope, key );
+    }
+
+
+    @Override
+    public ListenableFuture<Void> putStringAsync( final String key, final String value, final int ttl ) {
+        return mapSerialization.putStringAsync( scope, key, value, ttl );
+    }
+
+
     @Override
     public UUID getUuid( final String key ) {
         return mapSerialization.getUuid(scope,key);
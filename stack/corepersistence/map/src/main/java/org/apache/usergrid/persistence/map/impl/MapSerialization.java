@@ -29,6 +29,8 @@ import org.apache.usergrid.persistence.core.migration.schema.Migration;
 import org.apache.usergrid.persistence.map.MapKeyResults;
 import org.apache.usergrid.persistence.map.MapScope;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 
 public interface MapSerialization extends Migration {
     /**
@@ -62,6 +64,17 @@ public interface MapSerialization extends Migration {
      */
     void putString( final MapScope scope, final String key, final String value, final int ttl );
 
+    /**
+     * Read the string without blocking the caller
+     */
+    ListenableFuture<String> getStringAsync( final MapScope scope, final String key );
+
+    /**
+     * Write the string without blocking the caller.  A ttl of 0 never expires
+     */
+    ListenableFuture<Void> putStringAsync( final MapScope scope, final String key, final String value,
+                                           final int ttl );
+
 
     /**
      * Return the uuid, null if not found
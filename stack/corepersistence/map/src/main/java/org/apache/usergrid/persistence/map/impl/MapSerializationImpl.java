@@ -24,21 +24,23 @@ import java.nio.ByteBuffer;
 import java.util.*;
 
 import com.datastax.driver.core.*;
-import com.datastax.driver.core.querybuilder.Clause;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
-import com.datastax.driver.core.querybuilder.Using;
 
 import org.apache.usergrid.persistence.core.CassandraConfig;
 import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
 import org.apache.usergrid.persistence.core.datastax.CQLUtils;
+import org.apache.usergrid.persistence.core.datastax.PreparedStatementCache;
 import org.apache.usergrid.persistence.core.datastax.TableDefinition;
 import org.apache.usergrid.persistence.core.shard.ExpandingShardLocator;
 import org.apache.usergrid.persistence.core.shard.StringHashUtils;
 import org.apache.usergrid.persistence.map.MapKeyResults;
 import org.apache.usergrid.persistence.map.MapScope;
 
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.hash.Funnel;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -78,6 +80,40 @@ public class MapSerializationImpl implements MapSerialization {
     private static final StringResultsBuilderCQL STRING_RESULTS_BUILDER_CQL = new StringResultsBuilderCQL();
 
 
+    /**
+     * Statements prepared through the {@link PreparedStatementCache}.  A ttl of 0 is a write that never expires
+     */
+    private static final RegularStatement INSERT_ENTRY = QueryBuilder.insertInto( MAP_ENTRIES_TABLE )
+        .value( "key", QueryBuilder.bindMarker() )
+        .value( "column1", QueryBuilder.bindMarker() )
+        .value( "value", QueryBuilder.bindMarker() )
+        .using( QueryBuilder.ttl( QueryBuilder.bindMarker() ) );
+
+    private static final RegularStatement INSERT_KEY = QueryBuilder.insertInto( MAP_KEYS_TABLE )
+        .value( "key", QueryBuilder.bindMarker() )
+        .value( "column1", QueryBuilder.bindMarker() )
+        .value( "value", QueryBuilder.bindMarker() )
+        .using( QueryBuilder.ttl( QueryBuilder.bindMarker() ) );
+
+    private static final RegularStatement SELECT_ENTRY = QueryBuilder.select().all().from( MAP_ENTRIES_TABLE )
+        .where( QueryBuilder.eq( "key", QueryBuilder.bindMarker() ) );
+
+    private static final RegularStatement SELECT_ENTRIES = QueryBuilder.select().all().from( MAP_ENTRIES_TABLE )
+        .where( QueryBuilder.in( "key", QueryBuilder.bindMarker() ) );
+
+    private static final RegularStatement SELECT_KEYS = QueryBuilder.select().all().from( MAP_KEYS_TABLE )
+        .where( QueryBuilder.in( "key", QueryBuilder.bindMarker() ) );
+
+    private static final RegularStatement DELETE_ENTRY = QueryBuilder.delete().from( MAP_ENTRIES_TABLE )
+        .where( QueryBuilder.eq( "key", QueryBuilder.bindMarker() ) );
+
+    private static final RegularStatement DELETE_KEY = QueryBuilder.delete().from( MAP_KEYS_TABLE )
+        .where( QueryBuilder.in( "key", QueryBuilder.bindMarker() ) )
+        .and( QueryBuilder.eq( "column1", QueryBuilder.bindMarker() ) );
+
+    private static final ByteBuffer TRUE = DataType.cboolean().serialize( true, ProtocolVersion.NEWEST_SUPPORTED );
+
+
     /**
      * Number of buckets to hash across.
      */
@@ -99,11 +135,15 @@ public class MapSerializationImpl implements MapSerialization {
 
     private final Session session;
 
+    private final PreparedStatementCache preparedStatements;
+
 
     @Inject
-    public MapSerializationImpl( final CassandraConfig cassandraConfig, final Session session ) {
+    public MapSerializationImpl( final CassandraConfig cassandraConfig, final Session session,
+                                 final PreparedStatementCache preparedStatements ) {
         this.session = session;
         this.cassandraConfig = cassandraConfig;
+        this.preparedStatements = preparedStatements;
     }
 
 
@@ -115,6 +155,19 @@ public class MapSerializationImpl implements MapSerialization {
     }
 
 
+    @Override
+    public ListenableFuture<String> getStringAsync( final MapScope scope, final String key ) {
+
+        return Futures.transform( getValueAsync( scope, key, cassandraConfig.getDataStaxReadCl() ),
+            ( Function<ResultSet, String> ) resultSet -> {
+                final Row row = resultSet.one();
+                return row != null ?
+                       ( String ) DataType.text().deserialize( row.getBytes( "value" ), ProtocolVersion.NEWEST_SUPPORTED ) :
+                       null;
+            } );
+    }
+
+
     @Override
     public String getStringHighConsistency( final MapScope scope, final String key ) {
 
@@ -132,7 +185,7 @@ public class MapSerializationImpl implements MapSerialization {
     @Override
     public void putString( final MapScope scope, final String key, final String value ) {
 
-        writeStringCQL( scope, key, value, -1 );
+        waitFor( writeStringCQL( scope, key, value, 0 ) );
     }
 
 
@@ -140,57 +193,50 @@ public class MapSerializationImpl implements MapSerialization {
     public void putString( final MapScope scope, final String key, final String value, final int ttl ) {
 
         Preconditions.checkArgument( ttl > 0, "ttl must be > than 0" );
-        writeStringCQL( scope, key, value, ttl );
+        waitFor( writeStringCQL( scope, key, value, ttl ) );
+    }
+
+
+    @Override
+    public ListenableFuture<Void> putStringAsync( final MapScope scope, final String key, final String value,
+                                                  final int ttl ) {
+
+        Preconditions.checkArgument( ttl >= 0, "ttl must be >= 0" );
+        return toVoid( writeStringCQL( scope, key, value, ttl ) );
     }
 
 
     /**
-     * Write our string index with the specified row op
+     * Write our string index with the specified row op.  The entry and the key are written in parallel
      */
-    private void writeStringCQL( final MapScope scope, final String key, final String value, int ttl ) {
+    private List<ResultSetFuture> writeStringCQL( final MapScope scope, final String key, final String value,
+                                                  int ttl ) {
 
         Preconditions.checkNotNull( scope, "mapscope is required" );
         Preconditions.checkNotNull( key, "key is required" );
         Preconditions.checkNotNull( value, "value is required" );
 
-        Statement mapEntry;
-        Statement mapKey;
-        if (ttl > 0){
-            Using timeToLive = QueryBuilder.ttl(ttl);
-
-            mapEntry = QueryBuilder.insertInto(MAP_ENTRIES_TABLE)
-                .using(timeToLive)
-                .value("key", getMapEntryPartitionKey(scope, key))
-                .value("column1", DataType.cboolean().serialize(true, ProtocolVersion.NEWEST_SUPPORTED))
-                .value("value", DataType.text().serialize(value, ProtocolVersion.NEWEST_SUPPORTED));
-
-
-            final int bucket = BUCKET_LOCATOR.getCurrentBucket( scope.getName() );
-            mapKey = QueryBuilder.insertInto(MAP_KEYS_TABLE)
-                .using(timeToLive)
-                .value("key", getMapKeyPartitionKey(scope, bucket))
-                .value("column1", DataType.text().serialize(key, ProtocolVersion.NEWEST_SUPPORTED))
-                .value("value", DataType.cboolean().serialize(true, ProtocolVersion.NEWEST_SUPPORTED));
-        }else{
+        return writeCQL( scope, key, DataType.text().serialize( value, ProtocolVersion.NEWEST_SUPPORTED ), ttl );
+    }
 
-            mapEntry = QueryBuilder.insertInto(MAP_ENTRIES_TABLE)
-                .value("key", getMapEntryPartitionKey(scope, key))
-                .value("column1", DataType.cboolean().serialize(true, ProtocolVersion.NEWEST_SUPPORTED))
-                .value("value", DataType.text().serialize(value, ProtocolVersion.NEWEST_SUPPORTED));
 
-            // get a bucket number for the map keys table
-            final int bucket = BUCKET_LOCATOR.getCurrentBucket( scope.getName() );
+    /**
+     * Write the entry and its key to the bucketed keys table, without waiting on either
+     */
+    private List<ResultSetFuture> writeCQL( final MapScope scope, final String key, final ByteBuffer value,
+                                            final int ttl ) {
 
-            mapKey = QueryBuilder.insertInto(MAP_KEYS_TABLE)
-                .value("key", getMapKeyPartitionKey(scope, bucket))
-                .value("column1", DataType.text().serialize(key, ProtocolVersion.NEWEST_SUPPORTED))
-                .value("value", DataType.cboolean().serialize(true, ProtocolVersion.NEWEST_SUPPORTED));
+        final Statement mapEntry = preparedStatements.get( INSERT_ENTRY )
+            .bind( getMapEntryPartitionKey( scope, key ), TRUE, value, ttl );
 
-        }
+        // get a bucket number for the map keys table
+        final int bucket = BUCKET_LOCATOR.getCurrentBucket( scope.getName() );
 
-        session.execute(mapEntry);
-        session.execute(mapKey);
+        final Statement mapKey = preparedStatements.get( INSERT_KEY )
+            .bind( getMapKeyPartitionKey( scope, bucket ), DataType.text().serialize( key, ProtocolVersion.NEWEST_SUPPORTED ),
+                TRUE, ttl );
 
+        return Arrays.asList( session.executeAsync( mapEntry ), session.executeAsync( mapKey ) );
     }
 
 
@@ -210,23 +256,7 @@ public class MapSerializationImpl implements MapSerialization {
         Preconditions.checkNotNull( key, "key is required" );
         Preconditions.checkNotNull( putUuid, "value is required" );
 
-
-        Statement mapEntry = QueryBuilder.insertInto(MAP_ENTRIES_TABLE)
-            .value("key", getMapEntryPartitionKey(scope, key))
-            .value("column1", DataType.cboolean().serialize(true, ProtocolVersion.NEWEST_SUPPORTED))
-            .value("value", DataType.uuid().serialize(putUuid, ProtocolVersion.NEWEST_SUPPORTED));
-
-        session.execute(mapEntry);
-
-
-        final int bucket = BUCKET_LOCATOR.getCurrentBucket( scope.getName() );
-        Statement mapKey;
-        mapKey = QueryBuilder.insertInto(MAP_KEYS_TABLE)
-            .value("key", getMapKeyPartitionKey(scope, bucket))
-            .value("column1", DataType.text().serialize(key, ProtocolVersion.NEWEST_SUPPORTED))
-            .value("value", DataType.serializeValue(null, ProtocolVersion.NEWEST_SUPPORTED));
-
-        session.execute(mapKey);
+        waitFor( writeCQL( scope, key, DataType.uuid().serialize( putUuid, ProtocolVersion.NEWEST_SUPPORTED ), 0 ) );
     }
 
 
@@ -248,35 +278,15 @@ public class MapSerializationImpl implements MapSerialization {
         Preconditions.checkNotNull( key, "key is required" );
         Preconditions.checkNotNull( value, "value is required" );
 
-        Statement mapEntry = QueryBuilder.insertInto(MAP_ENTRIES_TABLE)
-            .value("key", getMapEntryPartitionKey(scope, key))
-            .value("column1", DataType.cboolean().serialize(true, ProtocolVersion.NEWEST_SUPPORTED))
-            .value("value", DataType.bigint().serialize(value, ProtocolVersion.NEWEST_SUPPORTED));
-
-        session.execute(mapEntry);
-
-
-        final int bucket = BUCKET_LOCATOR.getCurrentBucket( scope.getName() );
-        Statement mapKey;
-        mapKey = QueryBuilder.insertInto(MAP_KEYS_TABLE)
-            .value("key", getMapKeyPartitionKey(scope, bucket))
-            .value("column1", DataType.text().serialize(key, ProtocolVersion.NEWEST_SUPPORTED))
-            .value("value", DataType.cboolean().serialize(true, ProtocolVersion.NEWEST_SUPPORTED));
-
-        session.execute(mapKey);
+        waitFor( writeCQL( scope, key, DataType.bigint().serialize( value, ProtocolVersion.NEWEST_SUPPORTED ), 0 ) );
     }
 
 
     @Override
     public void delete( final MapScope scope, final String key ) {
 
-        Statement deleteMapEntry;
-        Clause equalsEntryKey = QueryBuilder.eq("key", getMapEntryPartitionKey(scope, key));
-        deleteMapEntry = QueryBuilder.delete().from(MAP_ENTRIES_TABLE)
-            .where(equalsEntryKey);
-        session.execute(deleteMapEntry);
-
-
+        final Statement deleteMapEntry =
+            preparedStatements.get( DELETE_ENTRY ).bind( getMapEntryPartitionKey( scope, key ) );
 
         // not sure which bucket the value is in, execute a delete against them all
         final int[] buckets = BUCKET_LOCATOR.getAllBuckets( scope.getName() );
@@ -285,14 +295,10 @@ public class MapSerializationImpl implements MapSerialization {
             mapKeys.add( getMapKeyPartitionKey(scope, bucket));
         }
 
-        Statement deleteMapKey;
-        Clause inKey = QueryBuilder.in("key", mapKeys);
-        Clause column1Equals = QueryBuilder.eq("column1", DataType.text().serialize(key, ProtocolVersion.NEWEST_SUPPORTED));
-        deleteMapKey = QueryBuilder.delete().from(MAP_KEYS_TABLE)
-            .where(inKey).and(column1Equals);
-        session.execute(deleteMapKey);
-
+        final Statement deleteMapKey = preparedStatements.get( DELETE_KEY )
+            .bind( mapKeys, DataType.text().serialize( key, ProtocolVersion.NEWEST_SUPPORTED ) );
 
+        waitFor( Arrays.asList( session.executeAsync( deleteMapEntry ), session.executeAsync( deleteMapKey ) ) );
     }
 
 
@@ -333,18 +339,10 @@ public class MapSerializationImpl implements MapSerialization {
             partitionKeys.add(getMapKeyPartitionKey(scope, bucket));
         }
 
-        Clause in = QueryBuilder.in("key", partitionKeys);
-
-        Statement statement;
-        if( isBlank(cursor) ){
-            statement = QueryBuilder.select().all().from(MAP_KEYS_TABLE)
-                .where(in)
-                .setFetchSize(limit);
-        }else{
-            statement = QueryBuilder.select().all().from(MAP_KEYS_TABLE)
-                .where(in)
-                .setFetchSize(limit)
-                .setPagingState(PagingState.fromString(cursor));
+        final Statement statement = preparedStatements.get( SELECT_KEYS ).bind( partitionKeys ).setFetchSize( limit );
+
+        if( !isBlank(cursor) ){
+            statement.setPagingState( PagingState.fromString( cursor ) );
         }
 
 
@@ -367,18 +365,22 @@ public class MapSerializationImpl implements MapSerialization {
 
     private ByteBuffer getValueCQL( MapScope scope, String key, final ConsistencyLevel consistencyLevel ) {
 
-        Clause in = QueryBuilder.in("key", getMapEntryPartitionKey(scope, key) );
-        Statement statement = QueryBuilder.select().all().from(MAP_ENTRIES_TABLE)
-            .where(in)
-            .setConsistencyLevel(consistencyLevel);
-
-        ResultSet resultSet = session.execute(statement);
-        com.datastax.driver.core.Row row = resultSet.one();
+        Row row = getValueAsync( scope, key, consistencyLevel ).getUninterruptibly().one();
 
         return row != null ? row.getBytes("value") : null;
     }
 
 
+    private ResultSetFuture getValueAsync( MapScope scope, String key, final ConsistencyLevel consistencyLevel ) {
+
+        final Statement statement = preparedStatements.get( SELECT_ENTRY )
+            .bind( getMapEntryPartitionKey( scope, key ) )
+            .setConsistencyLevel( consistencyLevel );
+
+        return session.executeAsync( statement );
+    }
+
+
 
 
     private <T> T getValuesCQL( final MapScope scope, final Collection<String> keys, final ResultsBuilderCQL<T> builder ) {
@@ -387,10 +389,7 @@ public class MapSerializationImpl implements MapSerialization {
 
         keys.forEach(key -> serializedKeys.add(getMapEntryPartitionKey(scope,key)));
 
-        Clause in = QueryBuilder.in("key", serializedKeys );
-        Statement statement = QueryBuilder.select().all().from(MAP_ENTRIES_TABLE)
-            .where(in);
-
+        final Statement statement = preparedStatements.get( SELECT_ENTRIES ).bind( serializedKeys );
 
         ResultSet resultSet = session.execute(statement);
 
@@ -398,6 +397,19 @@ public class MapSerializationImpl implements MapSerialization {
     }
 
 
+    /**
+     * Wait for all the writes, rethrowing the driver's exception if any of them failed
+     */
+    private static void waitFor( final List<ResultSetFuture> futures ) {
+        futures.forEach( ResultSetFuture::getUninterruptibly );
+    }
+
+
+    private static ListenableFuture<Void> toVoid( final List<ResultSetFuture> futures ) {
+        return Futures.transform( Futures.allAsList( futures ), ( Function<List<ResultSet>, Void> ) results -> null );
+    }
+
+
 
     /**
      * Build the results from the row keys
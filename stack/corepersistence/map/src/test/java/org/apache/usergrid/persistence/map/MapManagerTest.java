@@ -82,6 +82,20 @@ public class MapManagerTest {
         assertEquals( value, returned );
     }
 
+    @Test
+    public void writeReadStringAsync() throws Exception {
+        MapManager mm = mmf.createMapManager( this.scope );
+
+        final String key = "key";
+        final String value = "value";
+
+        mm.putStringAsync( key, value, 0 ).get();
+
+        assertEquals( value, mm.getStringAsync( key ).get() );
+
+        assertNull( mm.getStringAsync( "missing" ).get() );
+    }
+
     @Test
     public void getAllKeys(){
 
@@ -21,6 +21,7 @@ package org.apache.usergrid.persistence.index;
 
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import com.google.common.base.Optional;
@@ -39,9 +40,19 @@ public class CandidateResults implements Iterable<CandidateResult> {
     private final List<CandidateResult> candidates;
     private final Collection<SelectFieldMapping> getFieldMappings;
 
+    //the sort position of each candidate, empty when the query can't be paged by position
+    private final List<SearchAfter> positions;
+
     public CandidateResults( List<CandidateResult> candidates, final Collection<SelectFieldMapping> getFieldMappings) {
+        this( candidates, getFieldMappings, Collections.<SearchAfter>emptyList() );
+    }
+
+
+    public CandidateResults( List<CandidateResult> candidates, final Collection<SelectFieldMapping> getFieldMappings,
+                             final List<SearchAfter> positions ) {
         this.candidates = candidates;
         this.getFieldMappings = getFieldMappings;
+        this.positions = positions;
         offset = Optional.absent();
     }
 
@@ -68,6 +79,18 @@ public class CandidateResults implements Iterable<CandidateResult> {
 
 
 
+    /**
+     * Get the sort position of the candidate at the index.  Absent if the query sorts by anything other than the
+     * default order, in which case only offsets can be used to page
+     */
+    public Optional<SearchAfter> getPosition( int index ) {
+        if ( positions.isEmpty() ) {
+            return Optional.absent();
+        }
+        return Optional.of( positions.get( index ) );
+    }
+
+
     public int size() {
         return candidates.size();
     }
@@ -102,6 +102,22 @@ public interface EntityIndex extends CPManager {
     CandidateResults search(final SearchEdge searchEdge, final SearchTypes searchTypes, final String query,
                             final int limit, final int offset);
 
+    /**
+     * Search on every document in the specified search edge, starting after a sort position instead of at an offset
+     * when the query uses the default sort order.  Queries with sort predicates or geo sorting ignore the position and
+     * page by offset.
+     *
+     * @param searchEdge  The edge to search on
+     * @param searchTypes The search types to search
+     * @param query       The query to execute
+     * @param limit       The limit of values to return
+     * @param offset      The offset to query on when the position can't be used
+     * @param searchAfter The position of the last document already read
+     * @return
+     */
+    CandidateResults search(final SearchEdge searchEdge, final SearchTypes searchTypes, final String query,
+                            final int limit, final int offset, final Optional<SearchAfter> searchAfter);
+
 
     /**
      * Same as search, just iterates all documents that match the index edge exactly.
@@ -56,6 +56,12 @@ public interface IndexFig extends GuicyFig {
 
     String INDEX_FLUSH_WORKER_COUNT = "index.flush.workers";
 
+    String INDEX_BUFFER_SIZE = "elasticsearch.buffer_size";
+
+    String INDEX_BUFFER_TIMEOUT = "elasticsearch.buffer_timeout";
+
+    String INDEX_BATCH_MAX_BYTES = "elasticsearch.batch_max_bytes";
+
     String ELASTICSEARCH_FAIL_REFRESH = "elasticsearch.fail_refresh";
 
     String ELASTICSEARCH_WRITE_TIMEOUT= "elasticsearch.write.timeout";
@@ -64,6 +70,8 @@ public interface IndexFig extends GuicyFig {
 
     String ELASTICSEARCH_VERSION_QUERY_LIMIT = "elasticsearch.version_query_limit";
 
+    String QUERY_CACHE_SIZE = "elasticsearch.query_cache_size";
+
 
     /**
      * Comma-separated list of Elasticsearch hosts.
@@ -157,8 +165,7 @@ public interface IndexFig extends GuicyFig {
 
 
     /**
-     * The number of worker threads used for flushing batches of index write requests
-     * in the buffer for Elasticsearch.
+     * The maximum number of bulk requests from the buffer that can be in flight to Elasticsearch at once.
      */
     @Default("10")
     @Key(INDEX_FLUSH_WORKER_COUNT)
@@ -171,6 +178,27 @@ public interface IndexFig extends GuicyFig {
     @Key( INDEX_BATCH_SIZE )
     int getIndexBatchSize();
 
+    /**
+     * The maximum number of index operations held in the shared buffer before callers block.
+     */
+    @Default( "10000" )
+    @Key( INDEX_BUFFER_SIZE )
+    int getIndexBufferSize();
+
+    /**
+     * The longest time to wait for a batch to fill before flushing it to Elasticsearch. (in milliseconds)
+     */
+    @Default( "250" )
+    @Key( INDEX_BUFFER_TIMEOUT )
+    long getIndexBufferTimeout();
+
+    /**
+     * The maximum estimated size of a single bulk request sent to Elasticsearch. (in bytes)
+     */
+    @Default( "5242880" )
+    @Key( INDEX_BATCH_MAX_BYTES )
+    long getIndexBatchMaxBytes();
+
     /**
      * The write consistency level for writing into the Elasticsearch index.  The
      * default value is 'one', and you can configure 'all' and 'quorum'.
@@ -208,4 +236,12 @@ public interface IndexFig extends GuicyFig {
     @Default("100")
     @Key( ELASTICSEARCH_VERSION_QUERY_LIMIT )
     int getVersionQueryLimit();
+
+    /**
+     * The maximum number of distinct query shapes to keep parsed.  Queries differing only by literal values share a
+     * shape.
+     */
+    @Default( "1000" )
+    @Key( QUERY_CACHE_SIZE )
+    int getQueryCacheSize();
 }
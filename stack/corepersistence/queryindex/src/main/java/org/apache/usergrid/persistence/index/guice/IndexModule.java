@@ -50,6 +50,7 @@ public abstract class IndexModule extends AbstractModule {
 
         bind( EntityIndexFactory.class ).to( EsEntityIndexFactoryImpl.class );
         bind(IndexCache.class).to(EsIndexCacheImpl.class);
+        bind(ParsedQueryCache.class).to(ParsedQueryCacheImpl.class);
 
         bind(IndexProducer.class).to(EsIndexProducerImpl.class).asEagerSingleton();
 
@@ -18,7 +18,6 @@ package org.apache.usergrid.persistence.index.impl;
 
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -71,7 +70,20 @@ public class EntityToMapConverter {
     public static Map<String, Object> convert(ApplicationScope applicationScope, final IndexEdge indexEdge,
                                               final Entity entity, Optional<Set<String>> fieldsToIndex) {
 
+        return convert( applicationScope, indexEdge, entity, getEntityFields( entity, fieldsToIndex ) );
+    }
 
+    /**
+     * Set the entity as a map with the context, using fields already parsed with {@link #getEntityFields(Entity,
+     * Optional)}.  The fields only depend on the entity, so documents for each edge of the entity can share them.
+     *
+     * @param applicationScope
+     * @param entity The entity
+     * @param indexEdge The edge this entity is indexed on
+     * @param entityFields The parsed and filtered fields of the entity, not modified
+     */
+    public static Map<String, Object> convert(ApplicationScope applicationScope, final IndexEdge indexEdge,
+                                              final Entity entity, final Set<EntityField> entityFields) {
 
         final Map<String, Object> outputEntity = new HashMap<>();
 
@@ -103,6 +115,20 @@ public class EntityToMapConverter {
         //add the context for filtering later
         outputEntity.put( EDGE_SEARCH_FIELDNAME, IndexingUtils.createContextName( applicationScope, indexEdge ) );
 
+        //add our fields to output entity
+        outputEntity.put( ENTITY_FIELDS, entityFields );
+
+        return outputEntity;
+    }
+
+    /**
+     * Parse the fields of the entity to index
+     *
+     * @param entity The entity
+     * @param fieldsToIndex A set of fields that will be indexed should they exist on the entity. Other fields will be filtered out.
+     */
+    public static Set<EntityField> getEntityFields( final Entity entity, final Optional<Set<String>> fieldsToIndex ) {
+
         //migrate the entity to map since we're ultimately going to use maps once we get rid of the Field objects
         final EntityMap entityMap = EntityMap.fromEntity( entity );
 
@@ -111,13 +137,9 @@ public class EntityToMapConverter {
 
         final Set<EntityField> fieldsToBeFiltered =   parser.parse( entityMap );
 
-        //add our fields to output entity
-        outputEntity.put( ENTITY_FIELDS, fieldsToBeFiltered );
-
         if(fieldsToIndex.isPresent()){
             Set<String> defaultProperties = fieldsToIndex.get();
-            HashSet mapFields = ( HashSet ) outputEntity.get( "fields" );
-            Iterator collectionIterator = mapFields.iterator();
+            Iterator collectionIterator = fieldsToBeFiltered.iterator();
 
             //Loop through all of the fields of the flatted entity and check to see if they should be filtered out.
             collectionIterator.forEachRemaining(outputEntityField -> {
@@ -132,9 +154,7 @@ public class EntityToMapConverter {
 
         }
 
-
-
-        return outputEntity;
+        return fieldsToBeFiltered;
     }
 
     /**
@@ -19,6 +19,8 @@
 package org.apache.usergrid.persistence.index.impl;
 
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -38,6 +40,7 @@ import org.apache.usergrid.persistence.index.utils.IndexValidationUtils;
 import org.apache.usergrid.persistence.model.entity.Entity;
 import org.apache.usergrid.persistence.model.entity.Id;
 
+import com.codahale.metrics.Meter;
 import com.google.common.base.Optional;
 
 
@@ -54,11 +57,25 @@ public class EsEntityIndexBatchImpl implements EntityIndexBatch {
     private final ApplicationScope applicationScope;
     private IndexOperationMessage container;
 
+    /**
+     * The parsed fields of the last entity indexed, by the fields to index.  An entity is indexed once per edge and
+     * its fields don't depend on the edge, so they are only parsed once per batch.
+     */
+    private Entity fieldsEntity;
+    private UUID fieldsVersion;
+    private final Map<Optional<Set<String>>, Set<EntityField>> entityFields = new HashMap<>();
+
+    /**
+     * Marked each time parsed fields are reused rather than parsed again
+     */
+    private final Meter fieldsReusedMeter;
+
 
     public EsEntityIndexBatchImpl( final IndexLocationStrategy locationStrategy,
-                                   final EntityIndex entityIndex
+                                   final EntityIndex entityIndex, final Meter fieldsReusedMeter
     ) {
         this.indexLocationStrategy = locationStrategy;
+        this.fieldsReusedMeter = fieldsReusedMeter;
 
         this.entityIndex = entityIndex;
         this.applicationScope = indexLocationStrategy.getApplicationScope();
@@ -88,10 +105,34 @@ public class EsEntityIndexBatchImpl implements EntityIndexBatch {
         }
 
         //add app id for indexing
-        container.addIndexRequest(new IndexOperation(writeAlias, applicationScope, indexEdge, entity,fieldsToIndex));
+        container.addIndexRequest( new IndexOperation( writeAlias,
+            IndexingUtils.createIndexDocId( applicationScope, entity, indexEdge ),
+            EntityToMapConverter.convert( applicationScope, indexEdge, entity, getEntityFields( entity, fieldsToIndex ) ) ) );
         return this;
     }
 
+
+    private Set<EntityField> getEntityFields( final Entity entity, final Optional<Set<String>> fieldsToIndex ) {
+
+        if ( fieldsEntity != entity || !fieldsVersion.equals( entity.getVersion() ) ) {
+            fieldsEntity = entity;
+            fieldsVersion = entity.getVersion();
+            entityFields.clear();
+        }
+
+        Set<EntityField> fields = entityFields.get( fieldsToIndex );
+
+        if ( fields == null ) {
+            fields = EntityToMapConverter.getEntityFields( entity, fieldsToIndex );
+            entityFields.put( fieldsToIndex, fields );
+        }
+        else {
+            fieldsReusedMeter.mark();
+        }
+
+        return fields;
+    }
+
     @Override
     public EntityIndexBatch deindex( final SearchEdge searchEdge, final Id id, final UUID version ) {
 
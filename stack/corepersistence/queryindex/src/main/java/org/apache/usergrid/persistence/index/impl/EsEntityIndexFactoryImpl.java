@@ -38,6 +38,7 @@ public class EsEntityIndexFactoryImpl implements EntityIndexFactory{
 
     private final IndexFig config;
     private final IndexCache indexCache;
+    private final ParsedQueryCache parsedQueryCache;
     private final EsProvider provider;
     private final MetricsFactory metricsFactory;
 
@@ -47,6 +48,7 @@ public class EsEntityIndexFactoryImpl implements EntityIndexFactory{
                 EntityIndex index =  new EsEntityIndexImpl(
                     provider,
                     indexCache,
+                    parsedQueryCache,
                     config,
                     metricsFactory,
                     locationStrategy
@@ -59,12 +61,14 @@ public class EsEntityIndexFactoryImpl implements EntityIndexFactory{
     @Inject
     public EsEntityIndexFactoryImpl( final IndexFig indexFig,
                                      final IndexCache indexCache,
+                                     final ParsedQueryCache parsedQueryCache,
                                      final EsProvider provider,
                                      final MetricsFactory metricsFactory
 
     ){
         this.config = indexFig;
         this.indexCache = indexCache;
+        this.parsedQueryCache = parsedQueryCache;
         this.provider = provider;
         this.metricsFactory = metricsFactory;
     }
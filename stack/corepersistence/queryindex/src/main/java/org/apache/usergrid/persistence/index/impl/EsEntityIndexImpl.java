@@ -21,6 +21,7 @@ package org.apache.usergrid.persistence.index.impl;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.Timer;
 import com.google.common.base.*;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import com.google.inject.Inject;
@@ -38,7 +39,6 @@ import org.apache.usergrid.persistence.index.ElasticSearchQueryBuilder.SearchReq
 import org.apache.usergrid.persistence.index.exceptions.IndexException;
 import org.apache.usergrid.persistence.index.migration.IndexDataVersions;
 import org.apache.usergrid.persistence.index.query.ParsedQuery;
-import org.apache.usergrid.persistence.index.query.ParsedQueryBuilder;
 import org.apache.usergrid.persistence.index.utils.IndexValidationUtils;
 import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.model.util.UUIDGenerator;
@@ -123,13 +123,16 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
     private final Timer refreshTimer;
 
     private IndexCache aliasCache;
+    private final ParsedQueryCache parsedQueryCache;
     private Timer mappingTimer;
     private Meter refreshIndexMeter;
+    private final Meter fieldsReusedMeter;
 
 
     @Inject
     public EsEntityIndexImpl( final EsProvider provider,
                               final IndexCache indexCache,
+                              final ParsedQueryCache parsedQueryCache,
                               final IndexFig indexFig,
                               final MetricsFactory metricsFactory,
                               final IndexLocationStrategy indexLocationStrategy
@@ -141,6 +144,7 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
         this.esProvider = provider;
         this.alias = indexLocationStrategy.getAlias();
         this.aliasCache = indexCache;
+        this.parsedQueryCache = parsedQueryCache;
         this.applicationScope = indexLocationStrategy.getApplicationScope();
         this.cursorTimeout = indexFig.getQueryCursorTimeout();
         this.queryTimeout = indexFig.getWriteTimeout();
@@ -152,6 +156,7 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
         this.updateAliasTimer = metricsFactory.getTimer(EsEntityIndexImpl.class, "index.update_alias");
         this.mappingTimer = metricsFactory.getTimer(EsEntityIndexImpl.class, "index.create_mapping");
         this.refreshIndexMeter = metricsFactory.getMeter(EsEntityIndexImpl.class, "index.refresh_index");
+        this.fieldsReusedMeter = metricsFactory.getMeter( EsEntityIndexImpl.class, "index.entity.fields.reused" );
         this.searchTimer = metricsFactory.getTimer(EsEntityIndexImpl.class, "search");
         this.aggregationTimer = metricsFactory.getTimer( EsEntityIndexImpl.class, "aggregations" );
         this.refreshTimer = metricsFactory.getTimer( EsEntityIndexImpl.class, "index.refresh" );
@@ -405,12 +410,19 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
     @Override
     public EntityIndexBatch createBatch() {
         EntityIndexBatch batch =
-            new EsEntityIndexBatchImpl(indexLocationStrategy, this );
+            new EsEntityIndexBatchImpl(indexLocationStrategy, this, fieldsReusedMeter );
         return batch;
     }
 
     public CandidateResults search( final SearchEdge searchEdge, final SearchTypes searchTypes, final String query,
                                     final int limit, final int offset ) {
+        return search( searchEdge, searchTypes, query, limit, offset, Optional.<SearchAfter>absent() );
+    }
+
+
+    @Override
+    public CandidateResults search( final SearchEdge searchEdge, final SearchTypes searchTypes, final String query,
+                                    final int limit, final int offset, final Optional<SearchAfter> searchAfter ) {
 
         IndexValidationUtils.validateSearchEdge(searchEdge);
         Preconditions.checkNotNull(searchTypes, "searchTypes cannot be null");
@@ -420,10 +432,11 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
 
         SearchResponse searchResponse;
 
-        final ParsedQuery parsedQuery = ParsedQueryBuilder.build(query);
+        final ParsedQuery parsedQuery = parsedQueryCache.build(query);
 
-        final SearchRequestBuilder srb = searchRequest.getBuilder( searchEdge, searchTypes, parsedQuery, limit, offset )
-            .setTimeout(TimeValue.timeValueMillis(queryTimeout));
+        final SearchRequestBuilder srb =
+            searchRequest.getBuilder( searchEdge, searchTypes, parsedQuery, limit, offset, searchAfter )
+                         .setTimeout( TimeValue.timeValueMillis( queryTimeout ) );
 
         if ( logger.isDebugEnabled() ) {
             logger.debug( "Searching index (read alias): {}\n  nodeId: {}, edgeType: {},  \n type: {}\n   query: {} ",
@@ -647,6 +660,9 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
 
         List<CandidateResult> candidates = new ArrayList<>( hits.length );
 
+        //default ordered hits carry their sort values, keep them so the caller can search after any of them
+        final boolean positioned = SearchRequestBuilderStrategy.isPositionPageable( query );
+        final List<SearchAfter> positions = positioned ? new ArrayList<>( hits.length ) : Collections.emptyList();
 
 
         for ( SearchHit hit : hits ) {
@@ -654,9 +670,14 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
 
             candidateResult =  parseIndexDocId( hit, query.isGeoQuery() );
             candidates.add( candidateResult );
+
+            if ( positioned ) {
+                positions.add( parseSearchAfter( hit ) );
+            }
         }
 
-        final CandidateResults candidateResults = new CandidateResults( candidates, query.getSelectFieldMappings());
+        final CandidateResults candidateResults =
+            new CandidateResults( candidates, query.getSelectFieldMappings(), positions );
 
         // >= seems odd.  However if we get an overflow, we need to account for it.
         if (  hits.length >= limit ) {
@@ -668,6 +689,17 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
         return candidateResults;
     }
 
+    /**
+     * Read the position of a hit from the values of the default sorts: edge timestamp, entity id, entity version
+     */
+    private SearchAfter parseSearchAfter( final SearchHit hit ) {
+        final Object[] sortValues = hit.sortValues();
+
+        return new SearchAfter( ( ( Number ) sortValues[0] ).longValue(), sortValues[1].toString(),
+            sortValues[2].toString() );
+    }
+
+
     private List<CandidateResult> aggregateScrollResults(List<CandidateResult> candidates,
                                                          final SearchResponse searchResponse, final UUID markedVersion){
 
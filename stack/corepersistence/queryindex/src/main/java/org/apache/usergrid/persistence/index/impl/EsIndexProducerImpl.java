@@ -18,14 +18,22 @@
 package org.apache.usergrid.persistence.index.impl;
 
 
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 
 
 import org.apache.usergrid.persistence.index.EntityIndexBatch;
+import org.apache.usergrid.persistence.index.impl.FlushBufferQueue.BufferedOperation;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.WriteConsistencyLevel;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
@@ -48,7 +56,10 @@ import rx.Observable;
 
 
 /**
- * Consumer for IndexOperationMessages
+ * Consumer for IndexOperationMessages.  Operations from every message put to the producer share a single bounded
+ * buffer.  A flush thread drains the buffer into bulk requests capped by operation count and size, and sends them
+ * without waiting on the response, up to the configured number of requests in flight.  Each message is emitted once
+ * all of its own operations have been written.
  */
 @Singleton
 public class EsIndexProducerImpl implements IndexProducer {
@@ -62,6 +73,15 @@ public class EsIndexProducerImpl implements IndexProducer {
     private final Counter indexSizeCounter;
     private final Histogram roundtripTimer;
     private final Timer indexTimer;
+    private final Meter collapsedMeter;
+
+    private final FlushBufferQueue buffer;
+    private final Semaphore inFlightRequests;
+
+    /**
+     * Elasticsearch has rejected work, hold off sending until this time
+     */
+    private final AtomicLong backoffUntil = new AtomicLong();
 
 
     private AtomicLong inFlight = new AtomicLong();
@@ -73,8 +93,9 @@ public class EsIndexProducerImpl implements IndexProducer {
         this.flushTimer = metricsFactory.getTimer(EsIndexProducerImpl.class, "index_buffer.flush");
         this.indexSizeCounter = metricsFactory.getCounter(EsIndexProducerImpl.class, "index_buffer.size");
         this.roundtripTimer = metricsFactory.getHistogram(EsIndexProducerImpl.class, "index_buffer.message_cycle");
+        this.collapsedMeter = metricsFactory.getMeter( EsIndexProducerImpl.class, "index_buffer.collapsed" );
 
-        //wire up the gauge of inflight messages
+        //wire up the gauge of inflight requests
         metricsFactory.addGauge(EsIndexProducerImpl.class, "index_buffer.inflight", () -> inFlight.longValue());
 
 
@@ -85,9 +106,16 @@ public class EsIndexProducerImpl implements IndexProducer {
         this.client = provider.getClient();
         this.indexFig = indexFig;
 
+        this.buffer = new FlushBufferQueue( indexFig.getIndexBufferSize() );
+        this.inFlightRequests = new Semaphore( indexFig.getIndexFlushWorkerCount() );
+
 
         //batch up sets of some size and send them in batch
+        final Thread flusher = new Thread( this::flushBuffer, "EsIndexProducer-flush" );
 
+        //set it to be a daemon thread so it doesn't block shutdown
+        flusher.setDaemon( true );
+        flusher.start();
     }
 
     @Override
@@ -97,71 +125,112 @@ public class EsIndexProducerImpl implements IndexProducer {
 
     public Observable<IndexOperationMessage>  put( IndexOperationMessage message ) {
         Preconditions.checkNotNull(message, "Message cannot be null");
-        indexSizeCounter.inc(message.getDeIndexRequests().size());
-        indexSizeCounter.inc(message.getIndexRequests().size());
-        return  processBatch(message);
+
+        //nothing to write, so it's already durable
+        if ( message.isEmpty() ) {
+            return Observable.just( message );
+        }
+
+        return Observable.<IndexOperationMessage>create( subscriber -> {
+            indexSizeCounter.inc( message.getDeIndexRequests().size() );
+            indexSizeCounter.inc( message.getIndexRequests().size() );
+
+            if ( logger.isTraceEnabled() ) {
+                logger.trace( "Buffering {} add and {} remove operations", message.getIndexRequests().size(),
+                    message.getDeIndexRequests().size() );
+            }
+
+            buffer.offer( message, subscriber );
+        } ).doOnNext( processedIndexOp -> {
+            roundtripTimer.update( System.currentTimeMillis() - processedIndexOp.getCreationTime() );
+        } );
     }
 
 
     /**
-     * Process the buffer of batches
-     * @param batch
-     * @return
+     * Drain the buffer until our thread is interrupted
      */
-    private Observable<IndexOperationMessage> processBatch( final IndexOperationMessage batch ) {
+    private void flushBuffer() {
+        while ( !Thread.currentThread().isInterrupted() ) {
 
-        //take our stream of batches, then stream then into individual ops for consumption on ES
-        final Set<IndexOperation> indexOperationSet = batch.getIndexRequests();
-        final Set<DeIndexOperation> deIndexOperationSet = batch.getDeIndexRequests();
+            final Collection<BufferedOperation> operations;
 
-        final int indexOperationSetSize = indexOperationSet.size();
-        final int deIndexOperationSetSize = deIndexOperationSet.size();
+            try {
+                operations = buffer.drain( indexFig.getIndexBatchSize(), indexFig.getIndexBufferTimeout() );
+            }
+            catch ( InterruptedException e ) {
+                logger.warn( "Index buffer flush interrupted, no longer sending operations to elasticsearch" );
+                return;
+            }
+
+            if ( operations.isEmpty() ) {
+                continue;
+            }
 
-        if (logger.isTraceEnabled()) {
-            logger.trace("Emitting {} add and {} remove operations", indexOperationSetSize, deIndexOperationSetSize);
+            try {
+                processBatch( operations );
+            }
+            catch ( InterruptedException e ) {
+                logger.warn( "Index buffer flush interrupted, no longer sending operations to elasticsearch" );
+                return;
+            }
+            catch ( Throwable t ) {
+                //processBatch fails the operations it couldn't send, keep draining
+                logger.error( "Unable to flush index buffer", t );
+            }
         }
+    }
 
-        indexSizeCounter.dec(indexOperationSetSize);
-        indexSizeCounter.dec(deIndexOperationSetSize);
 
-        final Observable<IndexOperation> index = Observable.from(batch.getIndexRequests());
-        final Observable<DeIndexOperation> deIndex = Observable.from(batch.getDeIndexRequests());
+    /**
+     * Process a set of operations drained from the buffer
+     */
+    private void processBatch( final Collection<BufferedOperation> operations ) throws InterruptedException {
 
-        //TODO: look at indexing ordering
-        final Observable<BatchOperation> batchOps = Observable.merge(index, deIndex);
+        final int queuedCount = operations.stream().mapToInt( BufferedOperation::getCount ).sum();
 
-        //buffer into the max size we can send ES and fire them all off until we're completed
-        final Observable<BulkRequestBuilder> requests = batchOps
-            .buffer(250, TimeUnit.MILLISECONDS, indexFig.getIndexBatchSize())
+        if ( logger.isTraceEnabled() ) {
+            logger.trace( "Emitting {} operations collapsed from {} queued operations", operations.size(),
+                queuedCount );
+        }
 
-            //flatten the buffer into a single batch execution
-            .flatMap(individualOps -> Observable.from(individualOps)
-                //collect them
-                .collect(() -> initRequest(), (bulkRequestBuilder, batchOperation) -> {
-                    if (logger.isTraceEnabled()) {
-                        logger.trace("adding operation {} to bulkRequestBuilder {}", batchOperation, bulkRequestBuilder);
-                    }
-                    batchOperation.doOperation(client, bulkRequestBuilder);
-                }))
-                //write them
-            .doOnNext(bulkRequestBuilder -> sendRequest(bulkRequestBuilder));
+        indexSizeCounter.dec( queuedCount );
+        collapsedMeter.mark( queuedCount - operations.size() );
 
+        final long maxBytes = indexFig.getIndexBatchMaxBytes();
 
-        //now that we've processed them all, ack the futures after our last batch comes through
-        final Observable<IndexOperationMessage> processedIndexOperations =
-            requests.flatMap(lastRequest -> {
-                if (lastRequest != null) {
-                    return Observable.just(batch);
-                } else {
-                    return Observable.empty();
+        final Timer.Context timer = flushTimer.time();
+
+        BulkBatch batch = new BulkBatch( initRequest() );
+
+        try {
+            for ( final BufferedOperation operation : operations ) {
+
+                batch.add( operation );
+
+                //cap the request size, large documents can make a full batch too big for ES to accept
+                if ( batch.bulkRequest.request().estimatedSizeInBytes() >= maxBytes ) {
+                    final BulkBatch toSend = batch;
+                    batch = new BulkBatch( initRequest() );
+                    sendRequest( toSend );
                 }
-            });
+            }
 
-        //subscribe to the operations that generate requests on a new thread so that we can execute them quickly
-        //mark this as done
-        return processedIndexOperations.doOnNext(processedIndexOp -> {
-            roundtripTimer.update(System.currentTimeMillis() - processedIndexOp.getCreationTime());
-        });
+            sendRequest( batch );
+        }
+        catch ( Throwable t ) {
+            //never leave a caller waiting on an operation we won't send
+            for ( final BufferedOperation operation : operations ) {
+                if ( !operation.isSent() ) {
+                    operation.fail( t );
+                }
+            }
+
+            throw t;
+        }
+        finally {
+            timer.stop();
+        }
     }
 
 
@@ -179,34 +248,80 @@ public class EsIndexProducerImpl implements IndexProducer {
 
 
     /**
-     * send bulk request
+     * send bulk request.  Blocks until a request slot is free, the response is handled asynchronously
      */
-    private void sendRequest( BulkRequestBuilder bulkRequest ) {
+    private void sendRequest( final BulkBatch batch ) throws InterruptedException {
+
+        batch.markSent();
+
         //nothing to do, we haven't added anything to the index
-        if ( bulkRequest.numberOfActions() == 0 ) {
+        if ( batch.bulkRequest.numberOfActions() == 0 ) {
+            batch.operations.forEach( BufferedOperation::complete );
             return;
         }
 
-        final BulkResponse responses;
+        final long backoff = backoffUntil.get() - System.currentTimeMillis();
+
+        if ( backoff > 0 ) {
+            Thread.sleep( backoff );
+        }
+
+        try {
+            inFlightRequests.acquire();
+        }
+        catch ( InterruptedException e ) {
+            batch.fail( e );
+            throw e;
+        }
 
+        inFlight.incrementAndGet();
 
         final Timer.Context timer = indexTimer.time();
+        final AtomicBoolean released = new AtomicBoolean( false );
+
+        final Runnable release = () -> {
+            if ( released.compareAndSet( false, true ) ) {
+                timer.stop();
+                inFlight.decrementAndGet();
+                inFlightRequests.release();
+            }
+        };
 
         try {
-            responses = bulkRequest.execute().actionGet( );
-        } catch ( Throwable t ) {
+            batch.bulkRequest.execute( new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse( final BulkResponse responses ) {
+                    release.run();
+                    handleResponse( batch, responses );
+                }
+
+
+                @Override
+                public void onFailure( final Throwable t ) {
+                    release.run();
+                    logger.error( "Unable to communicate with elasticsearch", t );
+                    failureMonitor.fail( "Unable to execute batch", t );
+                    batch.fail( t );
+                }
+            } );
+        }
+        catch ( Throwable t ) {
+            release.run();
             logger.error( "Unable to communicate with elasticsearch", t );
             failureMonitor.fail( "Unable to execute batch", t );
-            throw t;
-        }finally{
-            timer.stop();
+            batch.fail( t );
         }
+    }
 
-        failureMonitor.success();
 
-        boolean error = false;
+    /**
+     * Ack the operations that were written, and fail the ones that weren't
+     */
+    private void handleResponse( final BulkBatch batch, final BulkResponse responses ) {
+
+        failureMonitor.success();
 
-        final StringBuilder errorString = new StringBuilder(  );
+        final Map<BufferedOperation, StringBuilder> errors = new IdentityHashMap<>();
 
         boolean hasTooManyRequests= false;
         for ( BulkItemResponse response : responses ) {
@@ -219,24 +334,69 @@ public class EsIndexProducerImpl implements IndexProducer {
                 if(response.getFailure()!=null && response.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS){
                     hasTooManyRequests =true;
                 }
-                error = true;
 
-                errorString.append( response.getFailureMessage() ).append( "\n" );
+                errors.computeIfAbsent( batch.actionOwners.get( response.getItemId() ), op -> new StringBuilder() )
+                      .append( response.getFailureMessage() ).append( "\n" );
             }
         }
 
-        if ( error ) {
-            if(hasTooManyRequests){
-                try{
-                    logger.warn("Encountered Queue Capacity Exception from ElasticSearch slowing by {}",
-                        indexFig.getSleepTimeForQueueError() );
-                    Thread.sleep(indexFig.getSleepTimeForQueueError());
-                }catch (Exception e){
-                    //move on
-                }
+        if ( hasTooManyRequests ) {
+            logger.warn( "Encountered Queue Capacity Exception from ElasticSearch slowing by {}",
+                indexFig.getSleepTimeForQueueError() );
+            backoffUntil.set( System.currentTimeMillis() + indexFig.getSleepTimeForQueueError() );
+        }
+
+        for ( final BufferedOperation operation : batch.operations ) {
+            final StringBuilder error = errors.get( operation );
+
+            if ( error == null ) {
+                operation.complete();
             }
-            throw new RuntimeException(
-                "Error during processing of bulk index operations one of the responses failed. \n" + errorString);
+            else {
+                operation.fail( new RuntimeException(
+                    "Error during processing of bulk index operations one of the responses failed. \n" + error ) );
+            }
+        }
+    }
+
+
+    /**
+     * A bulk request and the buffered operations that went into it
+     */
+    private final class BulkBatch {
+
+        private final BulkRequestBuilder bulkRequest;
+        private final List<BufferedOperation> operations = new ArrayList<>();
+
+        /**
+         * The operation for each action in the bulk request, a deindex adds one action per index
+         */
+        private final List<BufferedOperation> actionOwners = new ArrayList<>();
+
+
+        private BulkBatch( final BulkRequestBuilder bulkRequest ) {
+            this.bulkRequest = bulkRequest;
+        }
+
+
+        private void add( final BufferedOperation operation ) {
+            operations.add( operation );
+
+            operation.getOperation().doOperation( client, bulkRequest );
+
+            while ( actionOwners.size() < bulkRequest.numberOfActions() ) {
+                actionOwners.add( operation );
+            }
+        }
+
+
+        private void markSent() {
+            operations.forEach( BufferedOperation::markSent );
+        }
+
+
+        private void fail( final Throwable t ) {
+            operations.forEach( operation -> operation.fail( t ) );
         }
     }
 }
@@ -17,7 +17,219 @@
  * under the License.
  */
 
+
 package org.apache.usergrid.persistence.index.impl;
 
 
-public class FlushBufferQueue {}
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Subscriber;
+
+
+/**
+ * Bounded buffer shared by all callers of the index producer.  Operations from every message are queued together so
+ * they can be flushed to elasticsearch in as few bulk requests as possible.  Each queued operation remembers the
+ * message it came from, so the message can be acked once all of its operations have been written.
+ */
+public class FlushBufferQueue {
+
+    private final BlockingQueue<BufferedOperation> queue;
+
+
+    public FlushBufferQueue( final int capacity ) {
+        this.queue = new ArrayBlockingQueue<>( capacity );
+    }
+
+
+    /**
+     * Queue all the operations in the message.  Blocks while the buffer is full, which pushes back on the callers
+     * instead of growing without bound.  The subscriber will receive the message once every operation is flushed.
+     */
+    public void offer( final IndexOperationMessage message,
+                       final Subscriber<? super IndexOperationMessage> subscriber ) {
+
+        final int size = message.getIndexRequests().size() + message.getDeIndexRequests().size();
+
+        final PendingMessage pendingMessage = new PendingMessage( message, subscriber, size );
+
+        try {
+            for ( final IndexOperation indexOperation : message.getIndexRequests() ) {
+                queue.put( new BufferedOperation( indexOperation, pendingMessage ) );
+            }
+
+            for ( final DeIndexOperation deIndexOperation : message.getDeIndexRequests() ) {
+                queue.put( new BufferedOperation( deIndexOperation, pendingMessage ) );
+            }
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            //anything already queued will still be flushed, but the caller can't rely on the message being indexed
+            pendingMessage.fail( e );
+        }
+    }
+
+
+    /**
+     * Take up to maxSize operations from the buffer.  Waits up to the timeout for the first operation, then keeps
+     * collecting until either the batch is full or the timeout has elapsed.  Operations on the same document are
+     * collapsed into the last one written, which then acks for all of the messages that requested it.
+     *
+     * @return The operations to flush in the order they were received, empty if nothing arrived in time
+     */
+    public Collection<BufferedOperation> drain( final int maxSize, final long timeoutMs )
+        throws InterruptedException {
+
+        final long deadline = System.currentTimeMillis() + timeoutMs;
+
+        final Map<String, BufferedOperation> batch = new LinkedHashMap<>();
+
+        int drained = 0;
+
+        while ( drained < maxSize ) {
+
+            final long wait = deadline - System.currentTimeMillis();
+
+            final BufferedOperation next = wait > 0 ? queue.poll( wait, TimeUnit.MILLISECONDS ) : queue.poll();
+
+            if ( next == null ) {
+                break;
+            }
+
+            drained++;
+
+            //remove and re-add so the surviving operation keeps the position of the last write
+            final BufferedOperation existing = batch.remove( next.key );
+
+            if ( existing != null ) {
+                next.owners.addAll( existing.owners );
+            }
+
+            batch.put( next.key, next );
+        }
+
+        return batch.values();
+    }
+
+
+    /**
+     * Get the number of operations waiting to be flushed
+     */
+    public int size() {
+        return queue.size();
+    }
+
+
+    /**
+     * An operation waiting in the buffer, along with every message that is waiting on it
+     */
+    public static final class BufferedOperation {
+
+        private final BatchOperation operation;
+        private final String key;
+        private final List<PendingMessage> owners = new ArrayList<>( 1 );
+
+        private volatile boolean sent = false;
+
+
+        private BufferedOperation( final IndexOperation operation, final PendingMessage owner ) {
+            this.operation = operation;
+            this.key = "index:" + operation.writeAlias + ":" + operation.documentId;
+            this.owners.add( owner );
+        }
+
+
+        private BufferedOperation( final DeIndexOperation operation, final PendingMessage owner ) {
+            this.operation = operation;
+            this.key = "deindex:" + Arrays.toString( operation.indexes ) + ":" + operation.documentId;
+            this.owners.add( owner );
+        }
+
+
+        public BatchOperation getOperation() {
+            return operation;
+        }
+
+
+        /**
+         * Get the number of queued operations this one stands in for, including itself
+         */
+        public int getCount() {
+            return owners.size();
+        }
+
+
+        /**
+         * Mark this operation as handed off to a request, the request is now responsible for acking it
+         */
+        public void markSent() {
+            sent = true;
+        }
+
+
+        public boolean isSent() {
+            return sent;
+        }
+
+
+        /**
+         * The operation has been written, ack any message that has nothing left outstanding
+         */
+        public void complete() {
+            owners.forEach( PendingMessage::operationComplete );
+        }
+
+
+        /**
+         * The operation could not be written, fail every message that was waiting on it
+         */
+        public void fail( final Throwable t ) {
+            owners.forEach( owner -> owner.fail( t ) );
+        }
+    }
+
+
+    /**
+     * A message with operations that have not yet been flushed
+     */
+    private static final class PendingMessage {
+
+        private final IndexOperationMessage message;
+        private final Subscriber<? super IndexOperationMessage> subscriber;
+        private final AtomicInteger outstanding;
+        private final AtomicBoolean done = new AtomicBoolean( false );
+
+
+        private PendingMessage( final IndexOperationMessage message,
+                                final Subscriber<? super IndexOperationMessage> subscriber, final int size ) {
+            this.message = message;
+            this.subscriber = subscriber;
+            this.outstanding = new AtomicInteger( size );
+        }
+
+
+        private void operationComplete() {
+            if ( outstanding.decrementAndGet() == 0 && done.compareAndSet( false, true ) ) {
+                subscriber.onNext( message );
+                subscriber.onCompleted();
+            }
+        }
+
+
+        private void fail( final Throwable t ) {
+            //only the first failure is reported, the message will be retried as a whole
+            if ( done.compareAndSet( false, true ) ) {
+                subscriber.onError( t );
+            }
+        }
+    }
+}
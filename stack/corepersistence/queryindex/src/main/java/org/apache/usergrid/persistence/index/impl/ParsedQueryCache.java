@@ -0,0 +1,41 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ *
+ */
+package org.apache.usergrid.persistence.index.impl;
+
+
+import org.apache.usergrid.persistence.index.exceptions.QueryParseException;
+import org.apache.usergrid.persistence.index.query.ParsedQuery;
+
+
+/**
+ * Cache of parsed queries.  Queries are cached by their shape, so queries that only differ by their literal values
+ * share one parsed tree
+ */
+public interface ParsedQueryCache {
+
+    /**
+     * Get the parsed representation of the ql, parsing it only if no query of the same shape has been seen.  Each
+     * caller receives its own copy
+     *
+     * @param ql The query
+     * @return The parsed query, or null if the ql is empty
+     */
+    ParsedQuery build( String ql ) throws QueryParseException;
+}
@@ -0,0 +1,130 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ *
+ */
+package org.apache.usergrid.persistence.index.impl;
+
+
+import org.antlr.runtime.CommonTokenStream;
+import org.apache.commons.lang.StringUtils;
+
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.index.IndexFig;
+import org.apache.usergrid.persistence.index.exceptions.QueryParseException;
+import org.apache.usergrid.persistence.index.query.ParsedQuery;
+import org.apache.usergrid.persistence.index.query.ParsedQueryBuilder;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+
+/**
+ * Guava backed cache of parsed query templates, keyed by the shape of the query.  The query is always lexed to find its
+ * shape and its literals, only the parse is skipped on a hit.  Templates are never handed out, every caller gets a copy
+ * with its own literals bound into it.
+ */
+@Singleton
+public class ParsedQueryCacheImpl implements ParsedQueryCache {
+
+    private final Cache<String, Template> templates;
+
+    private final Meter hitMeter;
+    private final Meter missMeter;
+    private final Timer parseTimer;
+    private final Counter parseTimeSavedCounter;
+
+
+    @Inject
+    public ParsedQueryCacheImpl( final IndexFig indexFig, final MetricsFactory metricsFactory ) {
+
+        this.templates = CacheBuilder.newBuilder().maximumSize( indexFig.getQueryCacheSize() ).recordStats().build();
+
+        this.hitMeter = metricsFactory.getMeter( ParsedQueryCacheImpl.class, "query.cache.hit" );
+        this.missMeter = metricsFactory.getMeter( ParsedQueryCacheImpl.class, "query.cache.miss" );
+        this.parseTimer = metricsFactory.getTimer( ParsedQueryCacheImpl.class, "query.parse" );
+        this.parseTimeSavedCounter =
+            metricsFactory.getCounter( ParsedQueryCacheImpl.class, "query.cache.parse_time_saved_micros" );
+
+        metricsFactory.addGauge( ParsedQueryCacheImpl.class, "query.cache.hit_rate",
+            ( Gauge<Double> ) () -> templates.stats().hitRate() );
+    }
+
+
+    @Override
+    public ParsedQuery build( final String ql ) throws QueryParseException {
+        if ( StringUtils.isEmpty( ql ) ) {
+            return null;
+        }
+
+        final CommonTokenStream tokens = ParsedQueryBuilder.tokenize( ql );
+        final String shape = ParsedQueryBuilder.getShape( tokens );
+
+        final Template template = templates.getIfPresent( shape );
+
+        if ( template != null ) {
+            hitMeter.mark();
+
+            final long start = System.nanoTime();
+            final ParsedQuery query = ParsedQueryBuilder.bind( template.query, tokens, ql );
+            final long bindNanos = System.nanoTime() - start;
+
+            parseTimeSavedCounter.inc( Math.max( 0, template.parseNanos - bindNanos ) / 1000 );
+
+            return query;
+        }
+
+        missMeter.mark();
+
+        final Timer.Context timer = parseTimer.time();
+        final ParsedQuery parsed;
+        final long parseNanos;
+
+        try {
+            parsed = ParsedQueryBuilder.parse( tokens, ql );
+        }
+        finally {
+            parseNanos = timer.stop();
+        }
+
+        templates.put( shape, new Template( parsed, parseNanos ) );
+
+        //the parsed query is now the template, hand out a copy
+        return ParsedQueryBuilder.bind( parsed, tokens, ql );
+    }
+
+
+    /**
+     * A parsed query and the time it took to parse
+     */
+    private static final class Template {
+        private final ParsedQuery query;
+        private final long parseNanos;
+
+
+        private Template( final ParsedQuery query, final long parseNanos ) {
+            this.query = query;
+            this.parseNanos = parseNanos;
+        }
+    }
+}
@@ -37,6 +37,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.index.EntityIndex;
+import org.apache.usergrid.persistence.index.SearchAfter;
 import org.apache.usergrid.persistence.index.SearchEdge;
 import org.apache.usergrid.persistence.index.SearchTypes;
 import org.apache.usergrid.persistence.index.exceptions.IndexException;
@@ -80,6 +81,17 @@ public class SearchRequestBuilderStrategy {
      */
     public SearchRequestBuilder getBuilder( final SearchEdge searchEdge, final SearchTypes searchTypes,
                                             final ParsedQuery query, final int limit, final int from ) {
+        return getBuilder( searchEdge, searchTypes, query, limit, from, Optional.<SearchAfter>absent() );
+    }
+
+
+    /**
+     * Get the search request builder.  When the query is in the default sort order and a position is given, the
+     * results start after that position and the offset is ignored
+     */
+    public SearchRequestBuilder getBuilder( final SearchEdge searchEdge, final SearchTypes searchTypes,
+                                            final ParsedQuery query, final int limit, final int from,
+                                            final Optional<SearchAfter> searchAfter ) {
 
         Preconditions
             .checkArgument( limit <= EntityIndex.MAX_LIMIT, "limit is greater than max " + EntityIndex.MAX_LIMIT );
@@ -97,10 +109,18 @@ public class SearchRequestBuilderStrategy {
             srb.setQuery( queryBuilder.get() );
         }
 
-        srb.setPostFilter( createFilterBuilder( searchEdge, visitor, searchTypes ) );
+        final boolean seekToPosition = searchAfter.isPresent() && isPositionPageable( query );
 
+        final BoolFilterBuilder filterBuilder = createFilterBuilder( searchEdge, visitor, searchTypes );
 
-        srb = srb.setFrom( from ).setSize( limit );
+        if ( seekToPosition ) {
+            filterBuilder.must( createSearchAfterFilter( searchAfter.get() ) );
+        }
+
+        srb.setPostFilter( filterBuilder );
+
+
+        srb = srb.setFrom( seekToPosition ? 0 : from ).setSize( limit );
 
 
         //if we have a geo field, sort by closest to farthest by default
@@ -139,10 +159,46 @@ public class SearchRequestBuilderStrategy {
         //sort by the entity id if our times are equal
         srb.addSort( SortBuilders.fieldSort( IndexingUtils.ENTITY_ID_FIELDNAME ).order( SortOrder.ASC ) );
 
+        //and by version, so every document has a unique position to search after
+        srb.addSort( SortBuilders.fieldSort( IndexingUtils.ENTITY_VERSION_FIELDNAME ).order( SortOrder.ASC ) );
+
         return;
     }
 
 
+    /**
+     * True if the query is sorted in the default order, so its hits can be paged by their sort position.  User
+     * sorts and geo sorts are on nested or computed values and are paged by offset
+     */
+    public static boolean isPositionPageable( final ParsedQuery query ) {
+        return query.getSortPredicates().size() == 0 && !query.isGeoQuery();
+    }
+
+
+    /**
+     * Create the filter for the documents after the position in the default sort order: an older edge, or the same
+     * edge time with a greater entity id, or the same entity with a greater version
+     */
+    private FilterBuilder createSearchAfterFilter( final SearchAfter searchAfter ) {
+
+        final long timestamp = searchAfter.getEdgeTimestamp();
+        final String entityId = searchAfter.getEntityId();
+
+        final FilterBuilder sameEntity = FilterBuilders.boolFilter()
+            .must( FilterBuilders.termFilter( IndexingUtils.ENTITY_ID_FIELDNAME, entityId ) )
+            .must( FilterBuilders.rangeFilter( IndexingUtils.ENTITY_VERSION_FIELDNAME )
+                                 .gt( searchAfter.getEntityVersion() ) );
+
+        final FilterBuilder sameTimestamp = FilterBuilders.boolFilter()
+            .must( FilterBuilders.termFilter( IndexingUtils.EDGE_TIMESTAMP_FIELDNAME, timestamp ) )
+            .must( FilterBuilders.orFilter(
+                FilterBuilders.rangeFilter( IndexingUtils.ENTITY_ID_FIELDNAME ).gt( entityId ), sameEntity ) );
+
+        return FilterBuilders.orFilter(
+            FilterBuilders.rangeFilter( IndexingUtils.EDGE_TIMESTAMP_FIELDNAME ).lt( timestamp ), sameTimestamp );
+    }
+
+
     /**
      * Invoked when there are sort predicates
      */
@@ -195,8 +251,8 @@ public class SearchRequestBuilderStrategy {
      * Create our filter builder.  We need to restrict our results on edge search, as well as on types, and any filters
      * that came from the grammar.
      */
-    private FilterBuilder createFilterBuilder( final SearchEdge searchEdge, final QueryVisitor visitor,
-                                               final SearchTypes searchTypes ) {
+    private BoolFilterBuilder createFilterBuilder( final SearchEdge searchEdge, final QueryVisitor visitor,
+                                                   final SearchTypes searchTypes ) {
         String context = createContextName( applicationScope, searchEdge );
 
 
@@ -195,6 +195,23 @@ public class ParsedQuery {
     }
 
 
+    /**
+     * Copy everything but the operand tree, which is replaced by the given root.  Sort predicates and select
+     * mappings are never modified once parsed, so they are shared with the copy
+     */
+    ParsedQuery copy( final Operand rootOperand ) {
+        final ParsedQuery copy = new ParsedQuery();
+
+        copy.sortPropertyNames.addAll( sortPropertyNames );
+        copy.sortPredicateList.addAll( sortPredicateList );
+        copy.fieldMappings.putAll( fieldMappings );
+        copy.rootOperand = rootOperand;
+        copy.originalQuery = originalQuery;
+
+        return copy;
+    }
+
+
     /**
      * Get the root operand
      * @return
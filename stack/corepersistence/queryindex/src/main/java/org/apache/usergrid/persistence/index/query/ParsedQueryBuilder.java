@@ -28,14 +28,21 @@ import org.antlr.runtime.ANTLRStringStream;
 import org.antlr.runtime.CommonTokenStream;
 import org.antlr.runtime.RecognitionException;
 import org.antlr.runtime.Token;
+import org.antlr.runtime.tree.Tree;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.commons.lang.StringUtils;
 
+import com.google.common.base.Preconditions;
+
 import org.apache.usergrid.persistence.index.exceptions.QueryParseException;
 import org.apache.usergrid.persistence.index.query.tree.CpQueryFilterLexer;
 import org.apache.usergrid.persistence.index.query.tree.CpQueryFilterParser;
+import org.apache.usergrid.persistence.index.query.tree.Literal;
+import org.apache.usergrid.persistence.index.query.tree.LiteralFactory;
+import org.apache.usergrid.persistence.index.query.tree.Operand;
+import org.apache.usergrid.persistence.index.query.tree.Property;
 
 
 /**
@@ -53,6 +60,15 @@ public class ParsedQueryBuilder {
         if ( StringUtils.isEmpty( ql ) ) {
             return null;
         }
+
+        return parse( tokenize( ql ), ql );
+    }
+
+
+    /**
+     * Rewrite the ql to a correct query grammar and lex it.  The tokens are not parsed
+     */
+    public static CommonTokenStream tokenize( final String ql ) throws QueryParseException {
         if (logger.isTraceEnabled()) {
             logger.trace("Processing raw query: {}", ql);
         }
@@ -85,6 +101,19 @@ public class ParsedQueryBuilder {
         ANTLRStringStream in = new ANTLRStringStream( outputQuery );
         CpQueryFilterLexer lexer = new CpQueryFilterLexer( in );
         CommonTokenStream tokens = new CommonTokenStream( lexer );
+
+        //lex everything up front so the shape of the query can be read before parsing
+        tokens.fill();
+
+        return tokens;
+    }
+
+
+    /**
+     * Parse the tokens of the ql
+     */
+    public static ParsedQuery parse( final CommonTokenStream tokens, final String ql ) throws QueryParseException {
+
         CpQueryFilterParser parser = new CpQueryFilterParser( tokens );
 
 
@@ -107,4 +136,89 @@ public class ParsedQueryBuilder {
             throw new QueryParseException( message, e );
         }
     }
+
+
+    /**
+     * Get the shape of the query.  This is the text of every token, with literal values replaced by their type and
+     * whitespace collapsed.  Queries that differ only by their literal values have the same shape, and parse to the
+     * same tree with the literals at the same token indexes
+     */
+    public static String getShape( final CommonTokenStream tokens ) {
+
+        final StringBuilder shape = new StringBuilder();
+
+        for ( final Token token : tokens.getTokens() ) {
+
+            if ( token.getType() == Token.EOF ) {
+                break;
+            }
+
+            if ( token.getChannel() == Token.HIDDEN_CHANNEL ) {
+                shape.append( ' ' );
+            }
+            else if ( isLiteral( token ) ) {
+                shape.append( '\u0000' ).append( token.getType() ).append( '\u0000' );
+            }
+            else {
+                shape.append( token.getText() );
+            }
+        }
+
+        return shape.toString();
+    }
+
+
+    /**
+     * Copy a query parsed from a query of the same shape, replacing its literals with the literals in the tokens.  The
+     * template is only read, so it may be shared by any number of threads binding it at once
+     */
+    public static ParsedQuery bind( final ParsedQuery template, final CommonTokenStream tokens, final String ql ) {
+
+        final Operand templateRoot = template.getRootOperand();
+
+        final ParsedQuery query = template.copy( templateRoot == null ? null : ( Operand ) copy( templateRoot, tokens ) );
+        query.setOriginalQuery( ql );
+
+        return query;
+    }
+
+
+    /**
+     * Deep copy the node, building literals from the token at the same index in the new token stream
+     */
+    private static Tree copy( final Tree node, final CommonTokenStream tokens ) {
+
+        if ( node instanceof Literal && !( node instanceof Property ) ) {
+            final Literal<?> literal = ( Literal<?> ) node;
+            final Token token = tokens.get( literal.getToken().getTokenIndex() );
+
+            Preconditions.checkState( isLiteral( token ), "Token %s is not a literal", token );
+
+            return LiteralFactory.getLiteral( literal, token );
+        }
+
+        final Tree copy = node.dupNode();
+
+        Preconditions.checkState( copy.getClass() == node.getClass(), "%s does not copy itself", node.getClass() );
+
+        for ( int i = 0; i < node.getChildCount(); i++ ) {
+            copy.addChild( copy( node.getChild( i ), tokens ) );
+        }
+
+        return copy;
+    }
+
+
+    private static boolean isLiteral( final Token token ) {
+        switch ( token.getType() ) {
+            case CpQueryFilterLexer.BOOLEAN:
+            case CpQueryFilterLexer.LONG:
+            case CpQueryFilterLexer.FLOAT:
+            case CpQueryFilterLexer.STRING:
+            case CpQueryFilterLexer.UUID:
+                return true;
+            default:
+                return false;
+        }
+    }
 }
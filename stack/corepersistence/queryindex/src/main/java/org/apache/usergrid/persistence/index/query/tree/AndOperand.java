@@ -36,6 +36,13 @@ public class AndOperand extends BooleanOperand {
     }
 
 
+    /** Copy this node without its children */
+    @Override
+    public AndOperand dupNode() {
+        return new AndOperand( token );
+    }
+
+
     /*
      * (non-Javadoc)
      * 
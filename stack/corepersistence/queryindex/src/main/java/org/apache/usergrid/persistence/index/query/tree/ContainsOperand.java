@@ -34,6 +34,13 @@ public class ContainsOperand extends EqualityOperand {
     }
 
 
+    /** Copy this node without its children */
+    @Override
+    public ContainsOperand dupNode() {
+        return new ContainsOperand( token );
+    }
+
+
     /*
      * (non-Javadoc)
      * 
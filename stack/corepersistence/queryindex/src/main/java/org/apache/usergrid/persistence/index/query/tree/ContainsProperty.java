@@ -38,6 +38,13 @@ public class ContainsProperty extends Property {
     }
 
 
+    /** Copy this node without its children */
+    @Override
+    public ContainsProperty dupNode() {
+        return new ContainsProperty( token );
+    }
+
+
     public ContainsProperty( String property ) {
         this( new ClassicToken( 0, property ) );
     }
@@ -35,6 +35,13 @@ public class Equal extends EqualityOperand {
     }
 
 
+    /** Copy this node without its children */
+    @Override
+    public Equal dupNode() {
+        return new Equal( token );
+    }
+
+
     public Equal() {
         super( new ClassicToken( 0, "=" ) );
     }
@@ -36,6 +36,13 @@ public class GreaterThan extends EqualityOperand {
     }
 
 
+    /** Copy this node without its children */
+    @Override
+    public GreaterThan dupNode() {
+        return new GreaterThan( token );
+    }
+
+
     public GreaterThan() {
         super( new CommonToken( 0, ">" ) );
     }
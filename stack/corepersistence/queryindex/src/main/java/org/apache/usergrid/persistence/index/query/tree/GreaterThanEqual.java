@@ -36,6 +36,13 @@ public class GreaterThanEqual extends EqualityOperand {
     }
 
 
+    /** Copy this node without its children */
+    @Override
+    public GreaterThanEqual dupNode() {
+        return new GreaterThanEqual( token );
+    }
+
+
     /**
      * @param property
      * @param literal
@@ -36,6 +36,13 @@ public class LessThan extends EqualityOperand {
     }
 
 
+    /** Copy this node without its children */
+    @Override
+    public LessThan dupNode() {
+        return new LessThan( token );
+    }
+
+
     public LessThan() {
         super( new CommonToken( 0, "<" ) );
     }
@@ -36,6 +36,13 @@ public class LessThanEqual extends EqualityOperand {
     }
 
 
+    /** Copy this node without its children */
+    @Override
+    public LessThanEqual dupNode() {
+        return new LessThanEqual( token );
+    }
+
+
     /**
      */
     public LessThanEqual() {
@@ -21,6 +21,8 @@ package org.apache.usergrid.persistence.index.query.tree;
 
 import java.util.UUID;
 
+import org.antlr.runtime.Token;
+
 
 /**
  * Simple factory for generating literal instance based on the runtime value
@@ -58,4 +60,27 @@ public class LiteralFactory {
                 String.format( "Unsupported type of %s was passed when trying to construct a literal",
                         value.getClass() ) );
     }
+
+
+    /** Generate a literal of the same subclass as the given literal, with the value of the token */
+    public static final Literal<?> getLiteral( Literal<?> type, Token token ) {
+        if ( type instanceof StringLiteral ) {
+            return new StringLiteral( token );
+        }
+        if ( type instanceof LongLiteral ) {
+            return new LongLiteral( token );
+        }
+        if ( type instanceof FloatLiteral ) {
+            return new FloatLiteral( token );
+        }
+        if ( type instanceof UUIDLiteral ) {
+            return new UUIDLiteral( token );
+        }
+        if ( type instanceof BooleanLiteral ) {
+            return new BooleanLiteral( token );
+        }
+
+        throw new UnsupportedOperationException(
+                String.format( "Unsupported type of %s was passed when trying to copy a literal", type.getClass() ) );
+    }
 }
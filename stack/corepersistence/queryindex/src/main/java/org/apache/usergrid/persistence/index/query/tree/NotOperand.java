@@ -30,6 +30,13 @@ public class NotOperand extends Operand {
     }
 
 
+    /** Copy this node without its children */
+    @Override
+    public NotOperand dupNode() {
+        return new NotOperand( token );
+    }
+
+
     /** get the only child operation */
     public Operand getOperation() {
         return ( Operand ) this.children.get( 0 );
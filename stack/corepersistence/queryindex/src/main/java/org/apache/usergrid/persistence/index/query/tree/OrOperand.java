@@ -37,6 +37,13 @@ public class OrOperand extends BooleanOperand {
     }
 
 
+    /** Copy this node without its children */
+    @Override
+    public OrOperand dupNode() {
+        return new OrOperand( token );
+    }
+
+
     public OrOperand() {
         super( new CommonToken( 0, "or" ) );
     }
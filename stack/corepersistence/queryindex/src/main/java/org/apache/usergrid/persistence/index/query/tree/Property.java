@@ -39,6 +39,13 @@ public class Property extends Literal<String> {
     }
 
 
+    /** Copy this node without its children */
+    @Override
+    public Property dupNode() {
+        return new Property( token );
+    }
+
+
     public Property( String property ) {
         this( new ClassicToken( 1, property ) );
     }
@@ -32,6 +32,13 @@ public class WithinOperand extends Operand {
     }
 
 
+    /** Copy this node without its children */
+    @Override
+    public WithinOperand dupNode() {
+        return new WithinOperand( token );
+    }
+
+
     /*
      * (non-Javadoc)
      * 
@@ -39,6 +39,13 @@ public class WithinProperty extends Property {
     }
 
 
+    /** Copy this node without its children */
+    @Override
+    public WithinProperty dupNode() {
+        return new WithinProperty( token );
+    }
+
+
     public WithinProperty( String property ) {
         this( new ClassicToken( 0, property ) );
     }
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -697,6 +698,83 @@ public class EntityIndexTest extends BaseIT {
     }
 
 
+    @Test
+    public void testSearchAfterPaging() throws Exception {
+
+        String myType = UUID.randomUUID().toString();
+        Id ownerId = new SimpleId( UUID.randomUUID(),"owner" );
+
+        //every document shares the edge timestamp, so paging relies on the entity id tiebreaker
+        IndexEdge indexEdge = new IndexEdgeImpl( ownerId, "users", SearchEdge.NodeType.SOURCE, 10 );
+
+        final EntityIndexBatch batch = entityIndex.createBatch();
+
+        final int size = 100;
+
+        for ( int i = 0; i < size; i++ ) {
+
+            final int ordinal = i;
+
+            Map entityMap = new HashMap() {{
+                put( "ordinal", ordinal );
+                put( "mytype", myType);
+            }};
+
+            Entity user = EntityIndexMapUtils.fromMap( entityMap );
+            EntityUtils.setId( user, new SimpleId( "user" ) );
+            EntityUtils.setVersion( user, UUIDGenerator.newTimeUUID() );
+
+            batch.index( indexEdge, user );
+        }
+
+        indexProducer.put(batch.build()).subscribe();
+
+        entityIndex.refreshAsync().toBlocking().first();
+
+        final int limit = 7;
+        final String query = "select * where mytype='"+myType+"'";
+
+        final List<Id> byOffset = new ArrayList<>( size );
+        final List<Id> byPosition = new ArrayList<>( size );
+
+        CandidateResults results;
+        int offset = 0;
+
+        do {
+            results = entityIndex.search( indexEdge, SearchTypes.allTypes(), query, limit, offset );
+            for ( CandidateResult result : results ) {
+                byOffset.add( result.getId() );
+            }
+            offset += limit;
+        }
+        while ( results.size() == limit );
+
+        Optional<SearchAfter> position = Optional.absent();
+
+        do {
+            //once we have a position the offset is ignored, this one would be past the last hit
+            final int ignoredOffset = position.isPresent() ? size * 10 : 0;
+
+            results = entityIndex.search( indexEdge, SearchTypes.allTypes(), query, limit, ignoredOffset, position );
+
+            for ( int i = 0; i < results.size(); i++ ) {
+                byPosition.add( results.get( i ).getId() );
+                position = results.getPosition( i );
+                assertTrue( position.isPresent() );
+            }
+        }
+        while ( results.size() == limit );
+
+        assertEquals( size, byOffset.size() );
+        assertEquals( byOffset, byPosition );
+        assertEquals( size, new HashSet<>( byPosition ).size() );
+
+        //user sorts page by offset only
+        results = entityIndex.search( indexEdge, SearchTypes.allTypes(), query + " order by ordinal asc", limit, 0 );
+        assertFalse( results.getPosition( 0 ).isPresent() );
+    }
+
+
     @Test
     public void queryByUUID() throws Throwable {
 
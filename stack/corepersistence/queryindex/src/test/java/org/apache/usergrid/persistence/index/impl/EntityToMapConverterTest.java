@@ -39,6 +39,8 @@ import org.apache.usergrid.persistence.model.field.value.Location;
 import org.apache.usergrid.persistence.model.util.EntityUtils;
 import org.apache.usergrid.persistence.model.util.UUIDGenerator;
 
+import com.google.common.base.Optional;
+
 import rx.functions.Action2;
 
 import static org.apache.usergrid.persistence.core.util.IdGenerator.createId;
@@ -775,4 +777,27 @@ public class EntityToMapConverterTest {
     }
 
 
+    @Test
+    public void sharedFieldsMatchConvert() {
+
+        final Entity entity = new Entity( "test" );
+        entity.setField( new StringField( "name", "value" ) );
+        entity.setField( new StringField( "notindexed", "value" ) );
+
+        EntityUtils.setVersion( entity, UUIDGenerator.newTimeUUID() );
+
+        final ApplicationScope scope = new ApplicationScopeImpl( createId( "application" ) );
+
+        final IndexEdge indexEdge =
+            new IndexEdgeImpl( createId( "source" ), "testEdgeType", SearchEdge.NodeType.SOURCE, 1000 );
+
+        final Optional<Set<String>> fieldsToIndex = Optional.of( Collections.singleton( "name" ) );
+
+        final Set<EntityField> fields = EntityToMapConverter.getEntityFields( entity, fieldsToIndex );
+
+        assertEquals( 1, fields.size() );
+
+        assertEquals( EntityToMapConverter.convert( scope, indexEdge, entity, fieldsToIndex ),
+            EntityToMapConverter.convert( scope, indexEdge, entity, fields ) );
+    }
 }
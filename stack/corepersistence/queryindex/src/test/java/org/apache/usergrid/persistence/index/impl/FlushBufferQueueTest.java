@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.usergrid.persistence.index.impl;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class FlushBufferQueueTest {
+
+
+    @Test
+    public void collapseAcrossMessages() throws InterruptedException {
+
+        final FlushBufferQueue buffer = new FlushBufferQueue( 100 );
+
+        final IndexOperation first = new IndexOperation( "alias", "doc1", Collections.singletonMap( "v", 1 ) );
+        final IndexOperation second = new IndexOperation( "alias", "doc1", Collections.singletonMap( "v", 2 ) );
+        final IndexOperation other = new IndexOperation( "alias", "doc2", Collections.singletonMap( "v", 3 ) );
+
+        final TestSubscriber<IndexOperationMessage> firstSubscriber = new TestSubscriber<>();
+        final TestSubscriber<IndexOperationMessage> secondSubscriber = new TestSubscriber<>();
+
+        buffer.offer( message( first, other ), firstSubscriber );
+        buffer.offer( message( second ), secondSubscriber );
+
+        final List<FlushBufferQueue.BufferedOperation> drained =
+            new ArrayList<>( buffer.drain( 100, 10 ) );
+
+        //the last write to doc1 wins, and stands in for both messages
+        assertEquals( 2, drained.size() );
+        assertSame( other, drained.get( 0 ).getOperation() );
+        assertSame( second, drained.get( 1 ).getOperation() );
+        assertEquals( 2, drained.get( 1 ).getCount() );
+
+        drained.get( 1 ).complete();
+
+        //the second message has nothing left, the first is still waiting on doc2
+        secondSubscriber.assertValueCount( 1 );
+        secondSubscriber.assertCompleted();
+        firstSubscriber.assertNoValues();
+
+        drained.get( 0 ).complete();
+
+        firstSubscriber.assertValueCount( 1 );
+        firstSubscriber.assertCompleted();
+    }
+
+
+    @Test
+    public void failureErrorsOnce() throws InterruptedException {
+
+        final FlushBufferQueue buffer = new FlushBufferQueue( 100 );
+
+        final TestSubscriber<IndexOperationMessage> subscriber = new TestSubscriber<>();
+
+        buffer.offer( message( new IndexOperation( "alias", "doc1", Collections.emptyMap() ),
+            new IndexOperation( "alias", "doc2", Collections.emptyMap() ) ), subscriber );
+
+        final Collection<FlushBufferQueue.BufferedOperation> drained = buffer.drain( 100, 10 );
+
+        drained.forEach( operation -> operation.fail( new RuntimeException( "test" ) ) );
+
+        subscriber.assertError( RuntimeException.class );
+        subscriber.assertNoValues();
+        assertEquals( 1, subscriber.getOnErrorEvents().size() );
+    }
+
+
+    @Test
+    public void drainRespectsBatchSize() throws InterruptedException {
+
+        final FlushBufferQueue buffer = new FlushBufferQueue( 100 );
+
+        for ( int i = 0; i < 5; i++ ) {
+            buffer.offer( message( new IndexOperation( "alias", "doc" + i, Collections.emptyMap() ) ),
+                new TestSubscriber<>() );
+        }
+
+        assertEquals( 3, buffer.drain( 3, 10 ).size() );
+        assertEquals( 2, buffer.size() );
+        assertEquals( 2, buffer.drain( 3, 10 ).size() );
+        assertTrue( buffer.drain( 3, 10 ).isEmpty() );
+    }
+
+
+    private static IndexOperationMessage message( final IndexOperation... operations ) {
+        final IndexOperationMessage message = new IndexOperationMessage();
+
+        for ( final IndexOperation operation : operations ) {
+            message.addIndexRequest( operation );
+        }
+
+        return message;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.index.impl;
+
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.index.IndexFig;
+import org.apache.usergrid.persistence.index.query.ParsedQuery;
+import org.apache.usergrid.persistence.index.query.tree.AndOperand;
+import org.apache.usergrid.persistence.index.query.tree.Equal;
+import org.apache.usergrid.persistence.index.query.tree.GreaterThan;
+import org.apache.usergrid.persistence.index.query.tree.LongLiteral;
+import org.apache.usergrid.persistence.index.query.tree.StringLiteral;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class ParsedQueryCacheImplTest {
+
+    private ParsedQueryCache parsedQueryCache;
+
+    private Meter hitMeter;
+
+
+    @Before
+    public void setup() {
+        final IndexFig indexFig = mock( IndexFig.class );
+        when( indexFig.getQueryCacheSize() ).thenReturn( 100 );
+
+        hitMeter = new Meter();
+
+        final MetricsFactory metricsFactory = mock( MetricsFactory.class );
+        when( metricsFactory.getMeter( any( Class.class ), anyString() ) ).thenReturn( new Meter() );
+        when( metricsFactory.getMeter( ParsedQueryCacheImpl.class, "query.cache.hit" ) ).thenReturn( hitMeter );
+        when( metricsFactory.getTimer( any( Class.class ), anyString() ) ).thenReturn( new Timer() );
+        when( metricsFactory.getCounter( any( Class.class ), anyString() ) ).thenReturn( new Counter() );
+
+        parsedQueryCache = new ParsedQueryCacheImpl( indexFig, metricsFactory );
+    }
+
+
+    @Test
+    public void literalsShareShape() {
+
+        final ParsedQuery first = parsedQueryCache.build( "select * where name = 'x' and age > 5" );
+        final ParsedQuery second = parsedQueryCache.build( "select * where name = 'y' and age > 10" );
+
+        assertEquals( 1, hitMeter.getCount() );
+
+        assertLiterals( first, "x", 5 );
+        assertLiterals( second, "y", 10 );
+
+        assertEquals( "select * where name = 'y' and age > 10", second.getOriginalQuery() );
+    }
+
+
+    @Test
+    public void callersReceiveCopies() {
+
+        final String ql = "where name = 'x' and age > 5 order by name desc";
+
+        final ParsedQuery first = parsedQueryCache.build( ql );
+        final ParsedQuery second = parsedQueryCache.build( ql );
+
+        assertNotSame( first, second );
+        assertNotSame( first.getRootOperand(), second.getRootOperand() );
+        assertEquals( 1, second.getSortPredicates().size() );
+
+        //changing one caller's tree can't be seen by the next
+        ( ( Equal ) ( ( AndOperand ) first.getRootOperand() ).getLeft() ).setLiteral( "z" );
+
+        assertLiterals( parsedQueryCache.build( ql ), "x", 5 );
+    }
+
+
+    @Test
+    public void differentTypesDoNotShareShape() {
+
+        parsedQueryCache.build( "select * where age = 5" );
+        final ParsedQuery query = parsedQueryCache.build( "select * where age = 'five'" );
+
+        assertEquals( 0, hitMeter.getCount() );
+        assertEquals( "five", ( ( Equal ) query.getRootOperand() ).getLiteral().getValue() );
+    }
+
+
+    @Test
+    public void emptyQuery() {
+        assertNull( parsedQueryCache.build( "" ) );
+    }
+
+
+    private void assertLiterals( final ParsedQuery query, final String name, final long age ) {
+        final AndOperand root = ( AndOperand ) query.getRootOperand();
+
+        assertEquals( name, ( ( StringLiteral ) ( ( Equal ) root.getLeft() ).getLiteral() ).getValue() );
+        assertEquals( age, ( ( LongLiteral ) ( ( GreaterThan ) root.getRight() ).getLiteral() ).getValue().longValue() );
+    }
+}
@@ -103,4 +103,27 @@ public interface QueueFig extends GuicyFig {
     @Default("false") // 30 seconds
     boolean getQuorumFallback();
 
+    /**
+     * The directory the local disk queue keeps its segment files in.  Each queue uses a sub directory of its own.
+     * When empty, a directory under java.io.tmpdir is used.
+     */
+    @Key( "usergrid.queue.local.dir" )
+    @Default( "" )
+    String getLocalQueueDirectory();
+
+    /**
+     * The size of each segment file written by the local disk queue (in bytes)
+     */
+    @Key( "usergrid.queue.local.segment.size" )
+    @Default( "67108864" ) // 64 MB
+    int getLocalQueueSegmentSize();
+
+    /**
+     * Force each send and commit to disk before returning.  When false, writes survive a process restart but can be
+     * lost if the host fails
+     */
+    @Key( "usergrid.queue.local.sync" )
+    @Default( "false" )
+    boolean isLocalQueueSync();
+
 }
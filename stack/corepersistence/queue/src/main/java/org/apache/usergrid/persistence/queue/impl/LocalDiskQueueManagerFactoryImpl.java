@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.queue.impl;
+
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.usergrid.persistence.queue.QueueFig;
+import org.apache.usergrid.persistence.queue.QueueManager;
+import org.apache.usergrid.persistence.queue.QueueManagerFactory;
+import org.apache.usergrid.persistence.queue.QueueScope;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+
+/**
+ * Creates local disk queue managers.  A queue's directory can only be opened once, so every scope with the same name
+ * shares a single manager.
+ */
+@Singleton
+public class LocalDiskQueueManagerFactoryImpl implements QueueManagerFactory {
+
+    private final QueueFig queueFig;
+    private final ConcurrentHashMap<String, QueueManager> queueManagers = new ConcurrentHashMap<>();
+
+
+    @Inject
+    public LocalDiskQueueManagerFactoryImpl( final QueueFig queueFig ) {
+        this.queueFig = queueFig;
+    }
+
+
+    @Override
+    public QueueManager getQueueManager( final QueueScope scope ) {
+        return queueManagers
+            .computeIfAbsent( scope.getName(), name -> new LocalDiskQueueManagerImpl( scope, queueFig ) );
+    }
+}
@@ -0,0 +1,542 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.usergrid.persistence.queue.impl;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.queue.QueueFig;
+import org.apache.usergrid.persistence.queue.QueueManager;
+import org.apache.usergrid.persistence.queue.QueueMessage;
+import org.apache.usergrid.persistence.queue.QueueScope;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Strings;
+
+
+/**
+ * Queue manager that persists messages to a {@link SegmentLog} on local disk, for deployments that run in a single
+ * region without a queue service.  Pending messages survive a restart.
+ *
+ * Received messages stay in flight until they're committed, or become visible again once the visibility timeout
+ * passes.  A message that has been received the delivery limit number of times without being committed is moved to
+ * the dead letter log instead of being delivered again.  Segments are deleted once every message in them, and every
+ * message in the segments before them, has been committed.
+ */
+public class LocalDiskQueueManagerImpl implements QueueManager {
+
+    private static final Logger logger = LoggerFactory.getLogger( LocalDiskQueueManagerImpl.class );
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * A message body
+     */
+    private static final byte RECORD_MESSAGE = 1;
+
+    /**
+     * The ids of messages that were received
+     */
+    private static final byte RECORD_RECEIVE = 2;
+
+    /**
+     * The ids of messages that were committed or dead lettered
+     */
+    private static final byte RECORD_COMMIT = 3;
+
+    /**
+     * Upper bound on how long a waiting read goes without checking for expired messages
+     */
+    private static final long MAX_WAIT_MS = 100;
+
+
+    private final QueueScope scope;
+    private final QueueFig fig;
+    private final int deliveryLimit;
+
+    private final SegmentLog log;
+    private final SegmentLog deadLetterLog;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    /**
+     * Every message that hasn't been committed
+     */
+    private final Map<Long, PendingMessage> pending = new HashMap<>();
+
+    /**
+     * Messages waiting to be received, in the order they were sent
+     */
+    private final Deque<PendingMessage> ready = new ArrayDeque<>();
+
+    /**
+     * Received messages in the order they were received, which is also the order they expire in
+     */
+    private final LinkedHashMap<Long, PendingMessage> inFlight = new LinkedHashMap<>();
+
+    /**
+     * The count of pending messages stored in each segment
+     */
+    private final Map<Long, Integer> segmentCounts = new HashMap<>();
+
+    private long nextId;
+
+
+    public LocalDiskQueueManagerImpl( final QueueScope scope, final QueueFig fig ) {
+        this.scope = scope;
+        this.fig = fig;
+        this.deliveryLimit = Integer.parseInt( fig.getQueueDeliveryLimit() );
+
+        final File directory = getDirectory( fig, scope.getName() );
+
+        this.log = new SegmentLog( directory, fig.getLocalQueueSegmentSize() );
+        this.deadLetterLog = new SegmentLog( new File( directory, "dead" ), fig.getLocalQueueSegmentSize() );
+
+        try {
+            log.open( this::replay );
+            deadLetterLog.open( ( type, id, position, payload ) -> { } );
+        }
+        catch ( IOException e ) {
+            throw new RuntimeException( "Unable to open queue " + scope.getName() + " in " + directory, e );
+        }
+
+        //anything that was in flight when we stopped is visible again, in the order it was sent
+        pending.values().stream().sorted( ( first, second ) -> Long.compare( first.id, second.id ) )
+               .forEach( ready::add );
+
+        if ( logger.isInfoEnabled() ) {
+            logger.info( "Opened queue {} in {} with {} pending messages", scope.getName(), directory,
+                pending.size() );
+        }
+    }
+
+
+    @Override
+    public List<QueueMessage> getMessages( final int limit, final Class klass ) {
+
+        final List<PendingMessage> received = new ArrayList<>();
+
+        final long waitUntil = System.currentTimeMillis() + fig.getQueuePollTimeout();
+
+        lock.lock();
+
+        try {
+            while ( true ) {
+                final long now = System.currentTimeMillis();
+
+                expireInFlight( now );
+
+                while ( received.size() < limit && !ready.isEmpty() ) {
+                    final PendingMessage message = ready.poll();
+
+                    if ( message.receiveCount >= deliveryLimit ) {
+                        deadLetter( message );
+                        continue;
+                    }
+
+                    message.receiveCount++;
+                    message.visibleAt = now + fig.getVisibilityTimeout();
+                    inFlight.put( message.id, message );
+                    received.add( message );
+                }
+
+                final long remaining = waitUntil - now;
+
+                if ( !received.isEmpty() || remaining <= 0 ) {
+                    break;
+                }
+
+                available.await( Math.min( remaining, MAX_WAIT_MS ), TimeUnit.MILLISECONDS );
+            }
+
+            if ( !received.isEmpty() ) {
+                log.append( RECORD_RECEIVE, 0, toPayload( received ) );
+                syncIfRequired();
+            }
+        }
+        catch ( InterruptedException ie ) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( ie );
+        }
+        finally {
+            lock.unlock();
+        }
+
+        if ( logger.isTraceEnabled() ) {
+            logger.trace( "Received {} messages from {}", received.size(), scope.getName() );
+        }
+
+        //deserialize outside the lock, the segments of in flight messages can't be released
+        final List<QueueMessage> queueMessages = new ArrayList<>( received.size() );
+
+        for ( final PendingMessage message : received ) {
+
+            final String body = new String( log.read( message.position ), StandardCharsets.UTF_8 );
+
+            final Object payload;
+
+            try {
+                payload = mapper.readValue( body, klass );
+            }
+            catch ( IOException e ) {
+                throw new RuntimeException( "Unable to deserialize message " + body + " for class " + klass, e );
+            }
+
+            final String messageId = Long.toString( message.id );
+
+            final QueueMessage queueMessage =
+                new QueueMessage( messageId, messageId + "_" + message.receiveCount, payload, null );
+            queueMessage.setStringBody( body );
+            queueMessage.setReceiveCount( message.receiveCount );
+
+            queueMessages.add( queueMessage );
+        }
+
+        return queueMessages;
+    }
+
+
+    @Override
+    public long getQueueDepth() {
+        lock.lock();
+
+        try {
+            return pending.size();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    @Override
+    public void commitMessage( final QueueMessage queueMessage ) {
+        commitMessages( Collections.singletonList( queueMessage ) );
+    }
+
+
+    @Override
+    public void commitMessages( final List<QueueMessage> queueMessages ) {
+
+        if ( logger.isTraceEnabled() ) {
+            logger.trace( "Commit messages {} to queue {}", queueMessages.size(), scope.getName() );
+        }
+
+        lock.lock();
+
+        try {
+            final List<PendingMessage> committed = new ArrayList<>( queueMessages.size() );
+
+            for ( final QueueMessage queueMessage : queueMessages ) {
+                final PendingMessage message = pending.get( Long.parseLong( queueMessage.getMessageId() ) );
+
+                //already committed or dead lettered
+                if ( message == null ) {
+                    continue;
+                }
+
+                //it expired before the commit, so it will be waiting to be received again
+                if ( inFlight.remove( message.id ) == null ) {
+                    ready.remove( message );
+                }
+
+                committed.add( message );
+            }
+
+            if ( committed.isEmpty() ) {
+                return;
+            }
+
+            log.append( RECORD_COMMIT, 0, toPayload( committed ) );
+            syncIfRequired();
+
+            committed.forEach( this::remove );
+
+            releaseSegments();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    @Override
+    public void sendMessages( final List bodies ) throws IOException {
+
+        final List<byte[]> payloads = new ArrayList<>( bodies.size() );
+
+        for ( final Object body : bodies ) {
+            payloads.add( mapper.writeValueAsBytes( body ) );
+        }
+
+        lock.lock();
+
+        try {
+            for ( final byte[] payload : payloads ) {
+                final long id = nextId++;
+
+                final PendingMessage message = new PendingMessage( id, log.append( RECORD_MESSAGE, id, payload ) );
+
+                add( message );
+                ready.add( message );
+            }
+
+            syncIfRequired();
+
+            available.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    @Override
+    public <T extends Serializable> void sendMessage( final T body ) throws IOException {
+        sendMessages( Collections.singletonList( body ) );
+    }
+
+
+    /**
+     * There's only a single region, so the topic is our queue
+     */
+    @Override
+    public <T extends Serializable> void sendMessageToTopic( final T body ) throws IOException {
+        sendMessage( body );
+    }
+
+
+    @Override
+    public void deleteQueue() {
+        logger.warn( "Deleting queue: {}", scope.getName() );
+
+        lock.lock();
+
+        try {
+            log.clear();
+            deadLetterLog.clear();
+
+            pending.clear();
+            ready.clear();
+            inFlight.clear();
+            segmentCounts.clear();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Stop using the queue, and release the directory for another instance.  Pending messages remain on disk
+     */
+    public void close() throws IOException {
+        lock.lock();
+
+        try {
+            log.close();
+            deadLetterLog.close();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Rebuild our state from a record in the log
+     */
+    private void replay( final byte type, final long id, final SegmentLog.Position position, final byte[] payload ) {
+
+        switch ( type ) {
+            case RECORD_MESSAGE:
+                add( new PendingMessage( id, position ) );
+                nextId = Math.max( nextId, id + 1 );
+                break;
+
+            case RECORD_RECEIVE:
+                for ( final long messageId : fromPayload( payload ) ) {
+                    final PendingMessage message = pending.get( messageId );
+
+                    if ( message != null ) {
+                        message.receiveCount++;
+                    }
+                }
+                break;
+
+            case RECORD_COMMIT:
+                for ( final long messageId : fromPayload( payload ) ) {
+                    final PendingMessage message = pending.get( messageId );
+
+                    if ( message != null ) {
+                        remove( message );
+                    }
+                }
+                break;
+
+            default:
+                logger.warn( "Skipping unknown record type {} in queue {}", type, scope.getName() );
+        }
+    }
+
+
+    /**
+     * Return any in flight messages whose visibility timeout has passed to the ready queue
+     */
+    private void expireInFlight( final long now ) {
+
+        final Iterator<PendingMessage> messages = inFlight.values().iterator();
+
+        while ( messages.hasNext() ) {
+            final PendingMessage message = messages.next();
+
+            if ( message.visibleAt > now ) {
+                break;
+            }
+
+            messages.remove();
+            ready.add( message );
+        }
+    }
+
+
+    /**
+     * Move the message to the dead letter log and remove it from the queue
+     */
+    private void deadLetter( final PendingMessage message ) {
+
+        logger.warn( "Message {} in queue {} was received {} times without being committed, moving to dead letter",
+            message.id, scope.getName(), message.receiveCount );
+
+        deadLetterLog.append( RECORD_MESSAGE, message.id, log.read( message.position ) );
+        log.append( RECORD_COMMIT, 0, toPayload( Collections.singletonList( message ) ) );
+
+        remove( message );
+        releaseSegments();
+    }
+
+
+    private void add( final PendingMessage message ) {
+        pending.put( message.id, message );
+        segmentCounts.merge( message.position.getSegmentId(), 1, Integer::sum );
+    }
+
+
+    private void remove( final PendingMessage message ) {
+        pending.remove( message.id );
+        segmentCounts
+            .computeIfPresent( message.position.getSegmentId(), ( id, count ) -> count > 1 ? count - 1 : null );
+    }
+
+
+    /**
+     * Delete segments from the oldest end until we find one with pending messages.  A segment can hold commits for the
+     * segments before it, so they're never deleted out of order
+     */
+    private void releaseSegments() {
+
+        final List<Long> segmentIds = log.getSegmentIds();
+
+        //never the last, it's being written to
+        for ( int i = 0; i < segmentIds.size() - 1; i++ ) {
+            final long segmentId = segmentIds.get( i );
+
+            if ( segmentCounts.containsKey( segmentId ) ) {
+                return;
+            }
+
+            log.release( segmentId );
+        }
+    }
+
+
+    private void syncIfRequired() {
+        if ( fig.isLocalQueueSync() ) {
+            log.force();
+        }
+    }
+
+
+    private static byte[] toPayload( final List<PendingMessage> messages ) {
+        final ByteBuffer buffer = ByteBuffer.allocate( messages.size() * 8 );
+
+        messages.forEach( message -> buffer.putLong( message.id ) );
+
+        return buffer.array();
+    }
+
+
+    private static long[] fromPayload( final byte[] payload ) {
+        final ByteBuffer buffer = ByteBuffer.wrap( payload );
+        final long[] ids = new long[payload.length / 8];
+
+        for ( int i = 0; i < ids.length; i++ ) {
+            ids[i] = buffer.getLong();
+        }
+
+        return ids;
+    }
+
+
+    private static File getDirectory( final QueueFig fig, final String queueName ) {
+        final String configured = fig.getLocalQueueDirectory();
+
+        final File base = Strings.isNullOrEmpty( configured ) ?
+                          new File( System.getProperty( "java.io.tmpdir" ), "usergrid-queue" ) : new File( configured );
+
+        return new File( base, queueName );
+    }
+
+
+    /**
+     * A message that hasn't been committed
+     */
+    private static final class PendingMessage {
+
+        private final long id;
+        private final SegmentLog.Position position;
+        private int receiveCount;
+        private long visibleAt;
+
+
+        private PendingMessage( final long id, final SegmentLog.Position position ) {
+            this.id = id;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.usergrid.persistence.queue.impl;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * An append only log of records, stored in memory mapped segment files in a single directory.  Records are written to
+ * the newest segment until it is full, then a new segment is created.  Segments are only removed from the oldest end,
+ * once the owner has released them.
+ *
+ * Each record is [length][crc][type][id][payload].  On open every segment is replayed in order, stopping at the first
+ * record that is empty or fails its checksum, which is how a write torn by a crash is detected.
+ */
+public class SegmentLog {
+
+    private static final Logger logger = LoggerFactory.getLogger( SegmentLog.class );
+
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final String LOCK_FILE = "queue.lock";
+
+    /**
+     * length + crc
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * type + id
+     */
+    private static final int RECORD_PREFIX_SIZE = 9;
+
+
+    private final File directory;
+    private final int segmentSize;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment active;
+
+    private RandomAccessFile lockFile;
+    private FileLock lock;
+
+
+    public SegmentLog( final File directory, final int segmentSize ) {
+        Preconditions.checkNotNull( directory, "directory is required" );
+        Preconditions.checkArgument( segmentSize > HEADER_SIZE + RECORD_PREFIX_SIZE, "segmentSize is too small" );
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+
+    /**
+     * Replay every intact record in the order it was written, then open the log for appends.  Only one log may be open
+     * on a directory at a time.
+     */
+    public synchronized void open( final RecordHandler handler ) throws IOException {
+
+        if ( !directory.exists() && !directory.mkdirs() ) {
+            throw new IOException( "Unable to create queue directory " + directory );
+        }
+
+        lockFile = new RandomAccessFile( new File( directory, LOCK_FILE ), "rw" );
+        lock = lockFile.getChannel().tryLock();
+
+        if ( lock == null ) {
+            lockFile.close();
+            throw new IOException( "Queue directory " + directory + " is in use by another process" );
+        }
+
+        final File[] files = directory.listFiles( ( dir, name ) -> name.endsWith( SEGMENT_SUFFIX ) );
+
+        Arrays.sort( files, ( first, second ) -> Long.compare( segmentId( first ), segmentId( second ) ) );
+
+        for ( final File file : files ) {
+            final Segment segment = openSegment( file, segmentId( file ), ( int ) file.length() );
+            replay( segment, handler );
+            segments.put( segment.id, segment );
+        }
+
+        if ( segments.isEmpty() ) {
+            roll( 0 );
+        }
+        else {
+            active = segments.lastEntry().getValue();
+        }
+    }
+
+
+    /**
+     * Append a record to the log
+     *
+     * @return The position of the payload, which can be used to read it back while its segment exists
+     */
+    public synchronized Position append( final byte type, final long id, final byte[] payload ) {
+
+        final int length = RECORD_PREFIX_SIZE + payload.length;
+
+        if ( active.buffer.capacity() - active.writePosition < HEADER_SIZE + length ) {
+            roll( HEADER_SIZE + length );
+        }
+
+        final ByteBuffer record = ByteBuffer.allocate( length );
+        record.put( type ).putLong( id ).put( payload );
+
+        final CRC32 crc = new CRC32();
+        crc.update( record.array() );
+
+        final MappedByteBuffer buffer = active.buffer;
+
+        buffer.position( active.writePosition );
+        buffer.putInt( length );
+        buffer.putInt( ( int ) crc.getValue() );
+        buffer.put( record.array() );
+
+        final Position position =
+            new Position( active.id, active.writePosition + HEADER_SIZE + RECORD_PREFIX_SIZE, payload.length );
+
+        active.writePosition += HEADER_SIZE + length;
+
+        return position;
+    }
+
+
+    /**
+     * Read the payload at the position
+     */
+    public byte[] read( final Position position ) {
+
+        final Segment segment;
+
+        synchronized ( this ) {
+            segment = segments.get( position.segmentId );
+        }
+
+        Preconditions.checkState( segment != null, "Segment %s has already been released", position.segmentId );
+
+        final ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position( position.offset );
+
+        final byte[] payload = new byte[position.length];
+        buffer.get( payload );
+
+        return payload;
+    }
+
+
+    /**
+     * Flush everything written to the active segment to disk.  Without this, writes survive a process crash but not
+     * the loss of the host
+     */
+    public synchronized void force() {
+        active.buffer.force();
+    }
+
+
+    /**
+     * Get the ids of every segment, oldest first.  The last is the one currently being written
+     */
+    public synchronized List<Long> getSegmentIds() {
+        return new ArrayList<>( segments.keySet() );
+    }
+
+
+    /**
+     * Delete the segment, which must be the oldest and not the one currently being written
+     */
+    public synchronized void release( final long segmentId ) {
+
+        Preconditions.checkArgument( segmentId == segments.firstKey(), "Only the oldest segment can be released" );
+        Preconditions.checkArgument( segmentId != active.id, "The active segment cannot be released" );
+
+        final Segment segment = segments.remove( segmentId );
+
+        //the mapping is freed once the buffer is collected
+        if ( !segment.file.delete() ) {
+            logger.warn( "Unable to delete released queue segment {}", segment.file );
+        }
+    }
+
+
+    /**
+     * Delete every segment and start again with an empty log
+     */
+    public synchronized void clear() {
+
+        for ( final Segment segment : segments.values() ) {
+            if ( !segment.file.delete() ) {
+                logger.warn( "Unable to delete queue segment {}", segment.file );
+            }
+        }
+
+        final long nextId = active.id + 1;
+
+        segments.clear();
+
+        roll( nextId, segmentSize );
+    }
+
+
+    /**
+     * Release our lock on the directory.  Records already written remain on disk
+     */
+    public synchronized void close() throws IOException {
+        force();
+        segments.clear();
+        lock.release();
+        lockFile.close();
+    }
+
+
+    /**
+     * Start a new segment big enough to hold a record of the given size
+     */
+    private void roll( final int recordSize ) {
+        final long nextId = active == null ? 0 : active.id + 1;
+
+        roll( nextId, Math.max( segmentSize, recordSize ) );
+    }
+
+
+    private void roll( final long segmentId, final int size ) {
+
+        final File file = new File( directory, String.format( "%020d%s", segmentId, SEGMENT_SUFFIX ) );
+
+        try {
+            active = openSegment( file, segmentId, size );
+        }
+        catch ( IOException e ) {
+            throw new RuntimeException( "Unable to create queue segment " + file, e );
+        }
+
+        segments.put( segmentId, active );
+    }
+
+
+    private static Segment openSegment( final File file, final long segmentId, final int size ) throws IOException {
+        try ( RandomAccessFile randomAccessFile = new RandomAccessFile( file, "rw" ) ) {
+            randomAccessFile.setLength( size );
+
+            //the mapping remains valid once the file is closed
+            final MappedByteBuffer buffer =
+                randomAccessFile.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, size );
+
+            return new Segment( file, segmentId, buffer );
+        }
+    }
+
+
+    /**
+     * Replay all the records in the segment and position it for writing after the last good one
+     */
+    private static void replay( final Segment segment, final RecordHandler handler ) {
+
+        final ByteBuffer buffer = segment.buffer.duplicate();
+        final int limit = buffer.capacity();
+
+        int position = 0;
+        boolean corrupt = false;
+
+        while ( position + HEADER_SIZE <= limit ) {
+
+            buffer.position( position );
+
+            final int length = buffer.getInt();
+            final int checksum = buffer.getInt();
+
+            //we've reached the end of what was written
+            if ( length == 0 ) {
+                break;
+            }
+
+            if ( length < RECORD_PREFIX_SIZE || position + HEADER_SIZE + length > limit ) {
+                corrupt = true;
+                break;
+            }
+
+            final byte[] record = new byte[length];
+            buffer.get( record );
+
+            final CRC32 crc = new CRC32();
+            crc.update( record );
+
+            if ( ( int ) crc.getValue() != checksum ) {
+                corrupt = true;
+                break;
+            }
+
+            final ByteBuffer recordBuffer = ByteBuffer.wrap( record );
+            final byte type = recordBuffer.get();
+            final long id = recordBuffer.getLong();
+            final byte[] payload = Arrays.copyOfRange( record, RECORD_PREFIX_SIZE, length );
+
+            handler.onRecord( type, id,
+                new Position( segment.id, position + HEADER_SIZE + RECORD_PREFIX_SIZE, payload.length ), payload );
+
+            position += HEADER_SIZE + length;
+        }
+
+        if ( corrupt ) {
+            logger.warn( "Queue segment {} has a torn record at {}, discarding the remainder", segment.file,
+                position );
+
+            //clear the rest so stale bytes past a new write can never be read as a record
+            final ByteBuffer remainder = segment.buffer.duplicate();
+            remainder.position( position );
+
+            final byte[] zeros = new byte[4096];
+
+            while ( remainder.hasRemaining() ) {
+                remainder.put( zeros, 0, Math.min( zeros.length, remainder.remaining() ) );
+            }
+        }
+
+        segment.writePosition = position;
+    }
+
+
+    private static long segmentId( final File file ) {
+        final String name = file.getName();
+        return Long.parseLong( name.substring( 0, name.length() - SEGMENT_SUFFIX.length() ) );
+    }
+
+
+    /**
+     * Receives records as the log is replayed
+     */
+    public interface RecordHandler {
+
+        void onRecord( final byte type, final long id, final Position position, final byte[] payload );
+    }
+
+
+    /**
+     * The location of a record's payload in the log
+     */
+    public static final class Position {
+
+        private final long segmentId;
+        private final int offset;
+        private final int length;
+
+
+        private Position( final long segmentId, final int offset, final int length ) {
+            this.segmentId = segmentId;
+            this.offset = offset;
+            this.length = length;
+        }
+
+
+        public long getSegmentId() {
+            return segmentId;
+        }
+    }
+
+
+    /**
+     * A single mapped file in the log
+     */
+    private static final class Segment {
+
+        private final File file;
+        private final long id;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+
+        private Segment( final File file, final long id, final MappedByteBuffer buffer ) {
+            this.file = file;
+            this.id = id;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.queue.impl;
+
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import org.apache.usergrid.persistence.core.test.ITRunner;
+import org.apache.usergrid.persistence.core.test.UseModules;
+import org.apache.usergrid.persistence.queue.QueueFig;
+import org.apache.usergrid.persistence.queue.QueueMessage;
+import org.apache.usergrid.persistence.queue.QueueScope;
+import org.apache.usergrid.persistence.queue.guice.TestQueueModule;
+
+import com.google.inject.Inject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+@RunWith( ITRunner.class )
+@UseModules( { TestQueueModule.class } )
+public class LocalDiskQueueManagerImplTest {
+
+    @Inject
+    protected QueueFig queueFig;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private QueueScope scope;
+
+
+    @Before
+    public void setup() {
+        queueFig.bypass( "getLocalQueueDirectory", folder.getRoot().getAbsolutePath() );
+        queueFig.bypass( "getQueuePollTimeout", "100" );
+
+        scope = new QueueScopeImpl( "diskQueue", QueueScope.RegionImplementation.LOCAL );
+    }
+
+
+    @After
+    public void cleanup() {
+        queueFig.bypass( "getLocalQueueDirectory", null );
+        queueFig.bypass( "getQueuePollTimeout", null );
+        queueFig.bypass( "getVisibilityTimeout", null );
+        queueFig.bypass( "getQueueDeliveryLimit", null );
+        queueFig.bypass( "getLocalQueueSegmentSize", null );
+    }
+
+
+    @Test
+    public void pendingMessagesSurviveRestart() throws Exception {
+
+        LocalDiskQueueManagerImpl qm = new LocalDiskQueueManagerImpl( scope, queueFig );
+
+        qm.sendMessages( Arrays.asList( "first", "second", "third" ) );
+
+        final List<QueueMessage> received = qm.getMessages( 1, String.class );
+
+        assertEquals( 1, received.size() );
+        assertEquals( "first", received.get( 0 ).getBody() );
+
+        qm.commitMessages( received );
+
+        //received but not committed, so it should come back after the restart
+        assertEquals( "second", qm.getMessages( 1, String.class ).get( 0 ).getBody() );
+
+        qm.close();
+
+        qm = new LocalDiskQueueManagerImpl( scope, queueFig );
+
+        assertEquals( 2, qm.getQueueDepth() );
+
+        final List<QueueMessage> restarted = qm.getMessages( 10, String.class );
+
+        assertEquals( 2, restarted.size() );
+        assertEquals( "second", restarted.get( 0 ).getBody() );
+        assertEquals( 2, restarted.get( 0 ).getReceiveCount() );
+        assertEquals( "third", restarted.get( 1 ).getBody() );
+
+        qm.commitMessages( restarted );
+
+        assertEquals( 0, qm.getQueueDepth() );
+
+        qm.close();
+    }
+
+
+    @Test
+    public void visibilityTimeoutAndDeadLetter() throws Exception {
+
+        queueFig.bypass( "getVisibilityTimeout", "10" );
+        queueFig.bypass( "getQueueDeliveryLimit", "2" );
+
+        final LocalDiskQueueManagerImpl qm = new LocalDiskQueueManagerImpl( scope, queueFig );
+
+        qm.sendMessage( "body" );
+
+        assertEquals( 1, qm.getMessages( 1, String.class ).get( 0 ).getReceiveCount() );
+
+        Thread.sleep( 20 );
+
+        //never committed, so it's visible again
+        assertEquals( 2, qm.getMessages( 1, String.class ).get( 0 ).getReceiveCount() );
+
+        Thread.sleep( 20 );
+
+        //it's hit the delivery limit, and should be dead lettered instead of received
+        assertTrue( qm.getMessages( 1, String.class ).isEmpty() );
+        assertEquals( 0, qm.getQueueDepth() );
+
+        qm.close();
+    }
+
+
+    @Test
+    public void committedSegmentsAreReleased() throws Exception {
+
+        queueFig.bypass( "getLocalQueueSegmentSize", "256" );
+
+        final LocalDiskQueueManagerImpl qm = new LocalDiskQueueManagerImpl( scope, queueFig );
+
+        for ( int i = 0; i < 50; i++ ) {
+            qm.sendMessage( "message " + i );
+        }
+
+        final File directory = new File( folder.getRoot(), scope.getName() );
+
+        assertTrue( segmentCount( directory ) > 1 );
+
+        final List<QueueMessage> received = qm.getMessages( 50, String.class );
+
+        assertEquals( 50, received.size() );
+
+        qm.commitMessages( received );
+
+        //only the segment being written remains
+        assertEquals( 1, segmentCount( directory ) );
+
+        qm.close();
+    }
+
+
+    private static int segmentCount( final File directory ) {
+        return directory.listFiles( ( dir, name ) -> name.endsWith( ".segment" ) ).length;
+    }
+}
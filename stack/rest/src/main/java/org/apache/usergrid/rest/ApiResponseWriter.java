@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.rest;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.Providers;
+
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.apache.commons.lang.StringUtils.isNotBlank;
+import static org.apache.usergrid.rest.utils.JSONPUtils.isJavascript;
+
+
+/**
+ * Writes {@link ApiResponse} bodies straight to the entity stream through a single {@link JsonGenerator}, so the
+ * entities of a page are encoded one at a time into the generator's buffer and flushed to the client as it fills,
+ * rather than being rendered into an intermediate document first.  Output is compact unless the request asks for
+ * <code>pretty=true</code>, and is wrapped in the <code>callback</code> function when a javascript type was negotiated.
+ * Compression is negotiated separately by Jersey's <code>EncodingFilter</code>.
+ */
+@Provider
+@Component
+@Scope("singleton")
+@Produces({ MediaType.APPLICATION_JSON, "application/javascript", "application/x-javascript" })
+public class ApiResponseWriter implements MessageBodyWriter<ApiResponse> {
+
+    public static final String PRETTY_PARAM = "pretty";
+
+    public static final String CALLBACK_PARAM = "callback";
+
+    private static final ObjectMapper defaultMapper = new ObjectMapper();
+
+    @Context
+    private UriInfo uriInfo;
+
+    @Context
+    private Providers providers;
+
+
+    @Override
+    public boolean isWriteable( Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType ) {
+        return ApiResponse.class.isAssignableFrom( type ) && isJson( mediaType );
+    }
+
+
+    @Override
+    public long getSize( ApiResponse apiResponse, Class<?> type, Type genericType, Annotation[] annotations,
+                         MediaType mediaType ) {
+        // length is unknown until the response has been streamed
+        return -1;
+    }
+
+
+    @Override
+    public void writeTo( ApiResponse apiResponse, Class<?> type, Type genericType, Annotation[] annotations,
+                         MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+                         OutputStream entityStream ) throws IOException, WebApplicationException {
+
+        ObjectMapper mapper = getMapper( type, mediaType );
+
+        JsonGenerator generator = mapper.getFactory().createGenerator( entityStream );
+
+        // the container owns the stream, and we may still have to close the callback
+        generator.disable( JsonGenerator.Feature.AUTO_CLOSE_TARGET );
+
+        if ( isPretty() ) {
+            generator.useDefaultPrettyPrinter();
+        }
+
+        String callback = isJavascript( mediaType ) ? getCallback() : null;
+
+        if ( callback != null ) {
+            generator.writeRaw( callback + "(" );
+        }
+
+        mapper.writeValue( generator, apiResponse );
+
+        if ( callback != null ) {
+            generator.writeRaw( ")" );
+        }
+
+        generator.flush();
+    }
+
+
+    private ObjectMapper getMapper( Class<?> type, MediaType mediaType ) {
+        if ( providers != null ) {
+            ContextResolver<ObjectMapper> resolver = providers.getContextResolver( ObjectMapper.class, mediaType );
+            if ( resolver != null ) {
+                ObjectMapper mapper = resolver.getContext( type );
+                if ( mapper != null ) {
+                    return mapper;
+                }
+            }
+        }
+        return defaultMapper;
+    }
+
+
+    private boolean isPretty() {
+        if ( uriInfo == null ) {
+            return false;
+        }
+        String pretty = uriInfo.getQueryParameters().getFirst( PRETTY_PARAM );
+        return pretty != null && ( pretty.isEmpty() || Boolean.parseBoolean( pretty ) );
+    }
+
+
+    private String getCallback() {
+        if ( uriInfo == null ) {
+            return null;
+        }
+        String callback = uriInfo.getQueryParameters().getFirst( CALLBACK_PARAM );
+        return isNotBlank( callback ) ? callback : null;
+    }
+
+
+    private static boolean isJson( MediaType mediaType ) {
+        if ( mediaType == null ) {
+            return true;
+        }
+        String subtype = mediaType.getSubtype();
+        return "json".equalsIgnoreCase( subtype ) || subtype.endsWith( "+json" )
+            || "javascript".equalsIgnoreCase( subtype ) || "x-javascript".equalsIgnoreCase( subtype );
+    }
+}
@@ -43,7 +43,8 @@ public class JacksonCustomMapperProvider implements ContextResolver<ObjectMapper
 
     public JacksonCustomMapperProvider() {
         logger.info( "JacksonCustomMapperProvider installed" );
-        mapper.configure( SerializationFeature.INDENT_OUTPUT, true); // pretty print 
+        // compact by default, ApiResponseWriter pretty prints when asked to with pretty=true
+        mapper.configure( SerializationFeature.INDENT_OUTPUT, false );
     }
 
 
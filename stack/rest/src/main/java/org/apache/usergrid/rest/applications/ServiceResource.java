@@ -55,7 +55,10 @@ import org.springframework.stereotype.Component;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -1115,7 +1118,8 @@ public class ServiceResource extends AbstractContextResource {
 	@Produces(MediaType.WILDCARD)
 	public Response executeStreamGet( @Context UriInfo ui, @PathParam("entityId") PathSegment entityId,
 			@HeaderParam("range") String rangeHeader,
-			@HeaderParam("if-modified-since") String modifiedSince ) throws Exception {
+			@HeaderParam("if-modified-since") String modifiedSince,
+			@Context Request request ) throws Exception {
 
 		if(logger.isTraceEnabled()){
 			logger.trace( "ServiceResource.executeStreamGet" );
@@ -1134,7 +1138,7 @@ public class ServiceResource extends AbstractContextResource {
 		response.setApplication( services.getApplication() );
 		response.setParams( ui.getQueryParameters() );
 		ServiceResults serviceResults = executeServiceRequest( ui, response, ServiceAction.GET, null );
-		Entity entity = serviceResults.getEntity();
+		final Entity entity = serviceResults.getEntity();
 
 		if(logger.isTraceEnabled()){
 			logger.trace( "In ServiceResource.executeStreamGet with id: {}, range: {}, modifiedSince: {}",
@@ -1152,9 +1156,18 @@ public class ServiceResource extends AbstractContextResource {
 			}
 		}
 
+		// the etag is a digest of the stored content, so a matching If-None-Match can skip the read entirely
+		String eTag = ( String ) fileMetadata.get( AssetUtils.E_TAG );
+		if ( eTag != null ) {
+			Response.ResponseBuilder preconditionFailed = request.evaluatePreconditions( new EntityTag( eTag ) );
+			if ( preconditionFailed != null ) {
+				return preconditionFailed.build();
+			}
+		}
+
 		boolean range = StringUtils.isNotBlank( rangeHeader );
 		long start = 0, end = 0, contentLength = 0;
-		InputStream inputStream;
+		Object body;
 
 		if ( range ) { // honor range request, calculate start & end
 
@@ -1162,7 +1175,7 @@ public class ServiceResource extends AbstractContextResource {
 			contentLength = ( Long ) fileMetadata.get( AssetUtils.CONTENT_LENGTH );
 			end = contentLength - 1;
 			if ( rangeValue.startsWith( "-" ) ) {
-				start = contentLength - 1 - Long.parseLong( rangeValue.substring( "-".length() ) );
+				start = Math.max( 0, contentLength - Long.parseLong( rangeValue.substring( "-".length() ) ) );
 			}
 			else {
 				String[] startEnd = rangeValue.split( "-" );
@@ -1178,7 +1191,7 @@ public class ServiceResource extends AbstractContextResource {
 				}
 			}
 			try {
-				inputStream = binaryStore.read( getApplicationId(), entity, start, end - start );
+				body = readAsset( entity, start, end - start + 1 );
 			}catch(AwsPropertiesNotFoundException apnfe){
 				logger.error( "Amazon Property needed for this operation not found",apnfe );
 				return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
@@ -1189,7 +1202,9 @@ public class ServiceResource extends AbstractContextResource {
 		}
 		else { // no range
 			try {
-				inputStream = binaryStore.read( getApplicationId(), entity );
+				body = binaryStore instanceof LocalFileBinaryStore
+						? readAsset( entity, 0, Long.MAX_VALUE )
+						: binaryStore.read( getApplicationId(), entity );
 			}catch(AwsPropertiesNotFoundException apnfe){
 				logger.error( "Amazon Property needed for this operation not found",apnfe );
 				return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
@@ -1210,26 +1225,57 @@ public class ServiceResource extends AbstractContextResource {
 		}
 
 		// return 404 if not found
-		if ( inputStream == null ) {
+		if ( body == null ) {
 			return Response.status( Response.Status.NOT_FOUND ).build();
 		}
 
 		Long lastModified = ( Long ) fileMetadata.get( AssetUtils.LAST_MODIFIED );
 		Response.ResponseBuilder responseBuilder =
-				Response.ok( inputStream ).type( ( String ) fileMetadata.get( AssetUtils.CONTENT_TYPE ) )
-				.lastModified( new Date( lastModified ) );
+				Response.ok( body ).type( ( String ) fileMetadata.get( AssetUtils.CONTENT_TYPE ) )
+				.lastModified( new Date( lastModified ) )
+				.header( "Accept-Ranges", "bytes" );
 
-		if ( fileMetadata.get( AssetUtils.E_TAG ) != null ) {
-			responseBuilder.tag( ( String ) fileMetadata.get( AssetUtils.E_TAG ) );
+		if ( eTag != null ) {
+			responseBuilder.tag( eTag );
 		}
 
 		if ( range ) {
-			responseBuilder.header( "Content-Range", "bytes " + start + "-" + end + "/" + contentLength );
+			responseBuilder.status( 206 )
+					.header( "Content-Range", "bytes " + start + "-" + end + "/" + contentLength )
+					.header( HttpHeaders.CONTENT_LENGTH, end - start + 1 );
 		}
 
 		return responseBuilder.build();
 	}
 
+
+	/**
+	 * Read a byte range of the entity's asset. Local files are streamed with positional channel transfers straight
+	 * to the response instead of through an input stream, other stores are read as before.
+	 *
+	 * @return the response body, or null if the asset does not exist
+	 */
+	private Object readAsset( final Entity entity, final long offset, final long length ) throws Exception {
+
+		if ( !( binaryStore instanceof LocalFileBinaryStore ) ) {
+			return binaryStore.read( getApplicationId(), entity, offset, length );
+		}
+
+		final LocalFileBinaryStore localStore = ( LocalFileBinaryStore ) binaryStore;
+		final UUID applicationId = getApplicationId();
+
+		if ( !localStore.exists( applicationId, entity ) ) {
+			return null;
+		}
+
+		return new StreamingOutput() {
+			@Override
+			public void write( OutputStream output ) throws IOException {
+				localStore.transferTo( applicationId, entity, offset, length, Channels.newChannel( output ) );
+			}
+		};
+	}
+
 	/*
 	 * --Nupin--start--
 	 */
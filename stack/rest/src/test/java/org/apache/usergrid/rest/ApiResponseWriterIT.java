@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.rest;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.apache.usergrid.rest.test.resource.AbstractRestIT;
+import org.apache.usergrid.rest.test.resource.model.Entity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Checks how {@link ApiResponseWriter} renders collection responses on the wire
+ */
+public class ApiResponseWriterIT extends AbstractRestIT {
+
+    private DefaultHttpClient client;
+
+    private HttpHost host;
+
+
+    @Before
+    public void setup() {
+        this.app().collection( "things" ).post( new Entity().chainPut( "name", "thing1" ) );
+        this.app().collection( "things" ).post( new Entity().chainPut( "name", "thing2" ) );
+        refreshIndex();
+
+        client = new DefaultHttpClient();
+        host = new HttpHost( super.getBaseURI().getHost(), super.getBaseURI().getPort() );
+    }
+
+
+    @Test
+    public void compactByDefault() throws IOException {
+
+        HttpResponse rsp = client.execute( host, get( "" ) );
+
+        assertEquals( 200, rsp.getStatusLine().getStatusCode() );
+
+        String body = EntityUtils.toString( rsp.getEntity() );
+
+        assertFalse( "Compact output has no line breaks", body.contains( "\n" ) );
+        assertEntities( body );
+    }
+
+
+    @Test
+    public void prettyWhenAsked() throws IOException {
+
+        HttpResponse rsp = client.execute( host, get( "&pretty=true" ) );
+
+        assertEquals( 200, rsp.getStatusLine().getStatusCode() );
+
+        String body = EntityUtils.toString( rsp.getEntity() );
+
+        assertTrue( "Pretty output is indented", body.contains( "\n  " ) );
+        assertEntities( body );
+    }
+
+
+    @Test
+    public void jsonpCallback() throws IOException {
+
+        HttpResponse rsp = client.execute( host, get( "&callback=handleThings" ) );
+
+        assertEquals( 200, rsp.getStatusLine().getStatusCode() );
+
+        Header contentType = rsp.getFirstHeader( HttpHeaders.CONTENT_TYPE );
+
+        assertNotNull( contentType );
+        assertTrue( contentType.getValue().startsWith( "application/javascript" ) );
+
+        String body = EntityUtils.toString( rsp.getEntity() ).trim();
+
+        assertTrue( "Body is wrapped in the callback", body.startsWith( "handleThings(" ) );
+        assertTrue( "Callback is closed", body.endsWith( ")" ) );
+
+        assertEntities( body.substring( "handleThings(".length(), body.length() - 1 ) );
+    }
+
+
+    @Test
+    public void gzipWhenAccepted() throws IOException {
+
+        HttpGet get = get( "" );
+        get.setHeader( HttpHeaders.ACCEPT_ENCODING, "gzip" );
+
+        HttpResponse rsp = client.execute( host, get );
+
+        assertEquals( 200, rsp.getStatusLine().getStatusCode() );
+
+        Header contentEncoding = rsp.getFirstHeader( HttpHeaders.CONTENT_ENCODING );
+
+        assertNotNull( "Response was not compressed", contentEncoding );
+        assertEquals( "gzip", contentEncoding.getValue() );
+
+        //our client doesn't decompress for us, make sure the body is valid gzip
+        try ( InputStream in = new GZIPInputStream( rsp.getEntity().getContent() ) ) {
+            assertEntities( IOUtils.toString( in, "UTF-8" ) );
+        }
+    }
+
+
+    private HttpGet get( String params ) {
+        HttpGet get = new HttpGet( String.format( "/%s/%s/things?access_token=%s%s",
+            this.clientSetup.getOrganization().getName(), this.clientSetup.getAppName(),
+            this.getAdminToken().getAccessToken(), params ) );
+        get.setHeader( HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON );
+        return get;
+    }
+
+
+    private void assertEntities( String body ) throws IOException {
+        JsonNode response = mapper.readTree( body );
+        assertEquals( 2, response.get( "entities" ).size() );
+    }
+}
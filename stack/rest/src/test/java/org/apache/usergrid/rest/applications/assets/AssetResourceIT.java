@@ -17,6 +17,7 @@
 package org.apache.usergrid.rest.applications.assets;
 
 
+import com.google.common.hash.Hashing;
 import net.jcip.annotations.NotThreadSafe;
 import org.apache.commons.io.IOUtils;
 import org.apache.usergrid.rest.test.resource.AbstractRestIT;
@@ -33,9 +34,12 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -110,6 +114,42 @@ public class AssetResourceIT extends AbstractRestIT {
     }
 
 
+    @Test
+    public void rangeAndETagOnDynamicEntity() throws Exception {
+
+        this.refreshIndex();
+
+        Map<String, String> payload = hashMap( "name", "rangeasset" );
+        ApiResponse postResponse = pathResource( getOrgAppPath( "foos" )).post( payload );
+        UUID assetId = postResponse.getEntities().get(0).getUuid();
+        assertNotNull(assetId);
+
+        byte[] data = IOUtils.toByteArray( getClass().getResourceAsStream( "/cassandra_eye.jpg" ) );
+        pathResource( getOrgAppPath("foos/" + assetId) ).put( data, MediaType.APPLICATION_OCTET_STREAM_TYPE );
+
+        // only the requested bytes come back
+
+        Response rangeResponse = pathResource( getOrgAppPath("foos/" + assetId) ).getTarget( true ).request()
+            .accept( MediaType.APPLICATION_OCTET_STREAM_TYPE ).header( "Range", "bytes=100-199" ).get();
+        assertEquals( 206, rangeResponse.getStatus() );
+        assertEquals( "bytes 100-199/7979", rangeResponse.getHeaderString( "Content-Range" ) );
+        byte[] rangeData = IOUtils.toByteArray( rangeResponse.readEntity( InputStream.class ) );
+        assertArrayEquals( Arrays.copyOfRange( data, 100, 200 ), rangeData );
+
+        // the etag is the content digest, and a matching If-None-Match is not modified
+
+        Response fullResponse = pathResource( getOrgAppPath("foos/" + assetId) ).getTarget( true ).request()
+            .accept( MediaType.APPLICATION_OCTET_STREAM_TYPE ).get();
+        EntityTag eTag = fullResponse.getEntityTag();
+        fullResponse.close();
+        assertEquals( Hashing.md5().hashBytes( data ).toString(), eTag.getValue() );
+
+        Response notModified = pathResource( getOrgAppPath("foos/" + assetId) ).getTarget( true ).request()
+            .accept( MediaType.APPLICATION_OCTET_STREAM_TYPE ).header( "If-None-Match", eTag.toString() ).get();
+        assertEquals( 304, notModified.getStatus() );
+    }
+
+
     @Test
     public void verifyMetadataChanged() throws Exception {
 
@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.security.shiro;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.WildcardPermission;
+
+
+/**
+ * Permissions of a principal compiled for fast checks.  Permissions are grouped by domain and instance (for example
+ * applications and the application id), then by verb, and application paths are put in a trie keyed by the literal
+ * path segments in front of their first wildcard.  A check only walks the requested path and then evaluates the
+ * few permissions found along it with {@link CustomPermission#implies(Permission)}, so the result is exactly that
+ * of checking every permission, we just skip the ones that can't match.
+ */
+final class PermissionIndex {
+
+    private static final String APPLICATIONS = "applications";
+
+    private static final String ANY = WildcardPermission.WILDCARD_TOKEN;
+
+    private static final int DOMAIN_PART = 0;
+    private static final int VERB_PART = 1;
+    private static final int INSTANCE_PART = 2;
+    private static final int PATH_PART = 3;
+
+    /**
+     * Permissions we can't place, always checked
+     */
+    private final List<Permission> unindexed = new ArrayList<>();
+
+    /**
+     * Permissions by domain and instance
+     */
+    private final Map<String, Bucket> buckets = new HashMap<>();
+
+
+    PermissionIndex( final Collection<Permission> permissions ) {
+        for ( final Permission permission : permissions ) {
+            add( permission );
+        }
+    }
+
+
+    /**
+     * Return true if any of the indexed permissions implies the requested one
+     */
+    boolean implies( final Permission requested ) {
+
+        for ( final Permission permission : unindexed ) {
+            if ( permission.implies( requested ) ) {
+                return true;
+            }
+        }
+
+        if ( !( requested instanceof CustomPermission ) ) {
+            // only custom permissions are ever implied by custom permissions, the unindexed ones decided
+            return false;
+        }
+
+        final List<Set<String>> parts = ( ( CustomPermission ) requested ).getParts();
+
+        final String domain = literalValue( parts, DOMAIN_PART );
+        final String instance = literalValue( parts, INSTANCE_PART );
+
+        if ( domain == null || instance == null ) {
+            // we can't tell which bucket this belongs to, check everything
+            for ( final Bucket bucket : buckets.values() ) {
+                if ( bucket.impliesAny( requested ) ) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        final Bucket bucket = buckets.get( bucketKey( domain, instance ) );
+
+        return bucket != null && bucket.implies( requested, parts, domain );
+    }
+
+
+    private void add( final Permission permission ) {
+        if ( !( permission instanceof CustomPermission ) ) {
+            unindexed.add( permission );
+            return;
+        }
+
+        final List<Set<String>> parts = ( ( CustomPermission ) permission ).getParts();
+
+        if ( parts.size() <= INSTANCE_PART || !isLiteral( parts.get( DOMAIN_PART ) ) || !isLiteral(
+            parts.get( INSTANCE_PART ) ) ) {
+            unindexed.add( permission );
+            return;
+        }
+
+        for ( final String domain : parts.get( DOMAIN_PART ) ) {
+            for ( final String instance : parts.get( INSTANCE_PART ) ) {
+                Bucket bucket = buckets.get( bucketKey( domain, instance ) );
+
+                if ( bucket == null ) {
+                    bucket = new Bucket();
+                    buckets.put( bucketKey( domain, instance ), bucket );
+                }
+
+                bucket.add( permission, parts, domain );
+            }
+        }
+    }
+
+
+    private static String bucketKey( final String domain, final String instance ) {
+        return domain.toLowerCase() + ":" + instance.toLowerCase();
+    }
+
+
+    /**
+     * Get the value of a part if it holds a single literal value, otherwise null
+     */
+    private static String literalValue( final List<Set<String>> parts, final int index ) {
+        if ( parts.size() <= index ) {
+            return null;
+        }
+
+        final Set<String> part = parts.get( index );
+
+        if ( part.size() != 1 || !isLiteral( part ) ) {
+            return null;
+        }
+
+        return part.iterator().next();
+    }
+
+
+    /**
+     * True if every value of the part can only be matched by an equal value
+     */
+    private static boolean isLiteral( final Set<String> part ) {
+        for ( final String value : part ) {
+            if ( !isLiteral( value ) ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    private static boolean isLiteral( final String value ) {
+        // paths are normalized before they are compared, and anything that could be a pattern or a substitution
+        // matches more than itself
+        return !value.isEmpty() && value.indexOf( '/' ) == -1 && isLiteralSegment( value );
+    }
+
+
+    private static boolean isLiteralSegment( final String segment ) {
+        return segment.indexOf( '*' ) == -1 && segment.indexOf( '?' ) == -1 && segment.indexOf( '{' ) == -1
+            && segment.indexOf( '}' ) == -1 && segment.indexOf( '$' ) == -1 && !segment.equals( "me" );
+    }
+
+
+    /**
+     * Split a path into its non empty segments, normalized so segments that could be equal compare equal
+     */
+    private static List<String> segments( final String path ) {
+        final List<String> segments = new ArrayList<>();
+
+        for ( final String segment : CustomPermission.makePath( path ).split( "/" ) ) {
+            final String trimmed = segment.trim();
+
+            if ( !trimmed.isEmpty() ) {
+                segments.add( trimmed.toLowerCase() );
+            }
+        }
+
+        return segments;
+    }
+
+
+    /**
+     * Permissions of a single domain and instance
+     */
+    private static final class Bucket {
+
+        private final List<Permission> all = new ArrayList<>();
+
+        /**
+         * Path tries by verb, permissions granted for any verb are under {@link #ANY}
+         */
+        private final Map<String, PathNode> verbs = new HashMap<>();
+
+
+        private void add( final Permission permission, final List<Set<String>> parts, final String domain ) {
+            all.add( permission );
+
+            final Set<String> verbPart = parts.size() > VERB_PART ? parts.get( VERB_PART ) : null;
+
+            if ( verbPart == null || !isLiteral( verbPart ) ) {
+                add( ANY, permission, parts, domain );
+                return;
+            }
+
+            for ( final String verb : verbPart ) {
+                add( verb.toLowerCase(), permission, parts, domain );
+            }
+        }
+
+
+        private void add( final String verb, final Permission permission, final List<Set<String>> parts,
+                          final String domain ) {
+            PathNode root = verbs.get( verb );
+
+            if ( root == null ) {
+                root = new PathNode();
+                verbs.put( verb, root );
+            }
+
+            // only application paths are compared as paths, anything else is always a candidate
+            if ( parts.size() <= PATH_PART || !APPLICATIONS.equalsIgnoreCase( domain ) || parts.get( PATH_PART )
+                                                                                               .contains( ANY ) ) {
+                root.permissions.add( permission );
+                return;
+            }
+
+            for ( final String path : parts.get( PATH_PART ) ) {
+                PathNode node = root;
+
+                for ( final String segment : segments( path ) ) {
+                    if ( !isLiteralSegment( segment ) ) {
+                        break;
+                    }
+
+                    node = node.child( segment );
+                }
+
+                node.permissions.add( permission );
+            }
+        }
+
+
+        private boolean implies( final Permission requested, final List<Set<String>> parts, final String domain ) {
+
+            final String verb = literalValue( parts, VERB_PART );
+
+            // we can only walk a single application path of a single verb
+            if ( verb == null || parts.size() <= PATH_PART || parts.get( PATH_PART ).size() != 1
+                || !APPLICATIONS.equalsIgnoreCase( domain ) ) {
+                return impliesAny( requested );
+            }
+
+            final List<String> segments = segments( parts.get( PATH_PART ).iterator().next() );
+
+            final Set<Permission> checked = Collections.newSetFromMap( new IdentityHashMap<Permission, Boolean>() );
+
+            return impliesAlong( verbs.get( verb.toLowerCase() ), segments, requested, checked )
+                || impliesAlong( verbs.get( ANY ), segments, requested, checked );
+        }
+
+
+        private boolean impliesAny( final Permission requested ) {
+            for ( final Permission permission : all ) {
+                if ( permission.implies( requested ) ) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+
+        /**
+         * Check the permissions of every node on the path from the root to the deepest node matching the segments
+         */
+        private static boolean impliesAlong( PathNode node, final List<String> segments, final Permission requested,
+                                             final Set<Permission> checked ) {
+
+            int depth = 0;
+
+            while ( node != null ) {
+                for ( final Permission permission : node.permissions ) {
+                    if ( checked.add( permission ) && permission.implies( requested ) ) {
+                        return true;
+                    }
+                }
+
+                if ( depth == segments.size() || node.children == null ) {
+                    return false;
+                }
+
+                node = node.children.get( segments.get( depth++ ) );
+            }
+
+            return false;
+        }
+    }
+
+
+    private static final class PathNode {
+
+        private final List<Permission> permissions = new ArrayList<>( 1 );
+
+        private Map<String, PathNode> children;
+
+
+        private PathNode child( final String segment ) {
+            if ( children == null ) {
+                children = new HashMap<>();
+            }
+
+            PathNode child = children.get( segment );
+
+            if ( child == null ) {
+                child = new PathNode();
+                children.put( segment, child );
+            }
+
+            return child;
+        }
+    }
+}
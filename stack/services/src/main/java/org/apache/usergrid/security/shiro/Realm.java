@@ -22,6 +22,7 @@ import org.apache.shiro.authc.*;
 import org.apache.shiro.authc.credential.AllowAllCredentialsMatcher;
 import org.apache.shiro.authc.credential.CredentialsMatcher;
 import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.Permission;
 import org.apache.shiro.authz.permission.PermissionResolver;
 import org.apache.shiro.cache.CacheManager;
 import org.apache.shiro.realm.AuthorizingRealm;
@@ -154,6 +155,20 @@ public class Realm extends AuthorizingRealm {
     }
 
 
+    /**
+     * Check against the permissions compiled for the principal instead of resolving and matching every permission
+     */
+    @Override
+    protected boolean isPermitted( Permission permission, AuthorizationInfo info ) {
+        if ( info instanceof UsergridAuthorizationInfo ) {
+            return ( ( UsergridAuthorizationInfo ) info ).getPermissionIndex( getPermissionResolver() )
+                                                          .implies( permission );
+        }
+
+        return super.isPermitted( permission, info );
+    }
+
+
     @Override
     protected AuthenticationInfo doGetAuthenticationInfo( AuthenticationToken token ) throws AuthenticationException {
         PrincipalCredentialsToken pcToken = ( PrincipalCredentialsToken ) token;
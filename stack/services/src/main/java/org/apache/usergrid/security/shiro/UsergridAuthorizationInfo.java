@@ -17,11 +17,17 @@
 
 package org.apache.usergrid.security.shiro;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.apache.shiro.authz.Permission;
 import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.authz.permission.PermissionResolver;
 import org.apache.usergrid.management.ApplicationInfo;
 import org.apache.usergrid.management.OrganizationInfo;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -37,6 +43,10 @@ public class UsergridAuthorizationInfo extends SimpleAuthorizationInfo {
     OrganizationInfo organization = null;
     ApplicationInfo application = null;
 
+    // compiled from the permissions on first use, never serialized with the cached info
+    @JsonIgnore
+    private transient volatile PermissionIndex permissionIndex;
+
 
     /**
      * Default no-argument constructor.
@@ -88,6 +98,75 @@ public class UsergridAuthorizationInfo extends SimpleAuthorizationInfo {
         this.organizationSet.putAll( organizationSet );
     }
 
+
+    /**
+     * Get the permissions compiled for checking, resolving the string permissions with the resolver the first time
+     */
+    PermissionIndex getPermissionIndex( PermissionResolver resolver ) {
+        PermissionIndex index = permissionIndex;
+
+        if ( index == null ) {
+            List<Permission> permissions = new ArrayList<>();
+
+            if ( getObjectPermissions() != null ) {
+                permissions.addAll( getObjectPermissions() );
+            }
+
+            if ( getStringPermissions() != null ) {
+                for ( String permission : getStringPermissions() ) {
+                    permissions.add( resolver.resolvePermission( permission ) );
+                }
+            }
+
+            index = new PermissionIndex( permissions );
+            permissionIndex = index;
+        }
+
+        return index;
+    }
+
+
+    @Override
+    public void setStringPermissions( Set<String> stringPermissions ) {
+        super.setStringPermissions( stringPermissions );
+        permissionIndex = null;
+    }
+
+
+    @Override
+    public void addStringPermission( String permission ) {
+        super.addStringPermission( permission );
+        permissionIndex = null;
+    }
+
+
+    @Override
+    public void addStringPermissions( Collection<String> permissions ) {
+        super.addStringPermissions( permissions );
+        permissionIndex = null;
+    }
+
+
+    @Override
+    public void setObjectPermissions( Set<Permission> objectPermissions ) {
+        super.setObjectPermissions( objectPermissions );
+        permissionIndex = null;
+    }
+
+
+    @Override
+    public void addObjectPermission( Permission permission ) {
+        super.addObjectPermission( permission );
+        permissionIndex = null;
+    }
+
+
+    @Override
+    public void addObjectPermissions( Collection<Permission> permissions ) {
+        super.addObjectPermissions( permissions );
+        permissionIndex = null;
+    }
+
     @Override
     public String toString() {
         String orgName = null;
@@ -18,6 +18,7 @@ package org.apache.usergrid.security.shiro.principals;
 
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -29,6 +30,7 @@ import org.apache.usergrid.management.OrganizationInfo;
 import org.apache.usergrid.management.UserInfo;
 import org.apache.usergrid.persistence.*;
 import org.apache.usergrid.persistence.entities.Group;
+import org.apache.usergrid.persistence.entities.Role;
 import org.apache.usergrid.persistence.entities.User;
 import org.apache.usergrid.security.shiro.Realm;
 import org.apache.usergrid.security.shiro.UsergridAuthorizationInfo;
@@ -145,14 +147,22 @@ public class ApplicationUserPrincipal extends UserPrincipal {
             if ( r != null ) {
 
                 Set<String> rolenames = new HashSet<String>();
+                Set<UUID> roleIds = new LinkedHashSet<UUID>();
 
                 for ( UUID groupId : r.getIds() ) {
 
                     Results roleResults =
                         em.getCollection( new SimpleEntityRef( Group.ENTITY_TYPE, groupId ), "roles", null,
-                            1000, Query.Level.CORE_PROPERTIES, false );
+                            1000, Query.Level.IDS, false );
 
-                    for ( Entity entity : roleResults.getEntities() ) {
+                    roleIds.addAll( roleResults.getIds() );
+                }
+
+                // groups share roles, load each role once and all of them together
+                if ( !roleIds.isEmpty() ) {
+                    Results roles = em.get( roleIds, Role.ENTITY_TYPE, Role.class, Query.Level.CORE_PROPERTIES );
+
+                    for ( Entity entity : roles.getEntities() ) {
                         rolenames.add( entity.getName() );
                     }
                 }
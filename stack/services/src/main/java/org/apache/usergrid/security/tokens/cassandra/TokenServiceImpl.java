@@ -17,6 +17,8 @@
 package org.apache.usergrid.security.tokens.cassandra;
 
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Injector;
 import me.prettyprint.hector.api.Keyspace;
 import me.prettyprint.hector.api.beans.HColumn;
@@ -52,6 +54,12 @@ import org.springframework.util.Assert;
 import javax.ws.rs.client.Client;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.lang.System.currentTimeMillis;
 import static me.prettyprint.hector.api.factory.HFactory.createColumn;
@@ -79,6 +87,10 @@ public class TokenServiceImpl implements TokenService {
     public static final String PROPERTIES_AUTH_TOKEN_EXPIRES_FROM_LAST_USE =
             "usergrid.auth.token_expires_from_last_use";
     public static final String PROPERTIES_AUTH_TOKEN_REFRESH_REUSES_ID = "usergrid.auth.token_refresh_reuses_id";
+    public static final String PROPERTIES_AUTH_TOKEN_CACHE_TTL = "usergrid.auth.token.cache.time-to-live";
+    public static final String PROPERTIES_AUTH_TOKEN_CACHE_SIZE = "usergrid.auth.token.cache.size";
+    public static final String PROPERTIES_AUTH_TOKEN_ACCESS_FLUSH_INTERVAL =
+            "usergrid.auth.token.access.flush.interval";
 
     private static final String TOKEN_UUID = "uuid";
     private static final String TOKEN_TYPE = "type";
@@ -158,6 +170,26 @@ public class TokenServiceImpl implements TokenService {
 
     protected MetricsFactory metricsFactory;
 
+    // seconds a validated token is served from memory, 0 disables the cache
+    long tokenCacheTtl = 30;
+    long tokenCacheSize = 10000;
+
+    // millis access time updates are coalesced before they are written, 0 writes them on every access
+    long accessFlushInterval = 5000;
+
+    private Cache<UUID, TokenInfo> tokenCache = buildTokenCache();
+
+    /** Latest unwritten access per token, written in a single batch by the access flusher */
+    private final ConcurrentMap<UUID, PendingAccess> pendingAccess = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final ScheduledExecutorService accessFlusher = Executors.newSingleThreadScheduledExecutor( r -> {
+        Thread thread = new Thread( r, "token-access-flusher" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
 
     public TokenServiceImpl() {
     }
@@ -203,10 +235,36 @@ public class TokenServiceImpl implements TokenService {
             setExpirationFromProperties( "offline" );
 
             tokenSecretSalt = properties.getProperty( PROPERTIES_AUTH_TOKEN_SECRET_SALT, TOKEN_SECRET_SALT );
+
+            tokenCacheTtl = Long.parseLong(
+                    properties.getProperty( PROPERTIES_AUTH_TOKEN_CACHE_TTL, "" + tokenCacheTtl ) );
+            tokenCacheSize = Long.parseLong(
+                    properties.getProperty( PROPERTIES_AUTH_TOKEN_CACHE_SIZE, "" + tokenCacheSize ) );
+            accessFlushInterval = Long.parseLong(
+                    properties.getProperty( PROPERTIES_AUTH_TOKEN_ACCESS_FLUSH_INTERVAL, "" + accessFlushInterval ) );
+
+            tokenCache = buildTokenCache();
         }
     }
 
 
+    private Cache<UUID, TokenInfo> buildTokenCache() {
+        if ( tokenCacheTtl <= 0 ) {
+            return null;
+        }
+
+        return CacheBuilder.newBuilder().maximumSize( tokenCacheSize )
+                           .expireAfterWrite( tokenCacheTtl, TimeUnit.SECONDS ).build();
+    }
+
+
+    /** Write any coalesced access times and stop the flusher, called when the context shuts down */
+    public void destroy() {
+        flushAccessTimes();
+        accessFlusher.shutdown();
+    }
+
+
     @Override
     public String createToken( TokenCategory tokenCategory, String type, AuthPrincipalInfo principal,
                                Map<String, Object> state, long duration ) throws Exception {
@@ -348,6 +406,8 @@ public class TokenServiceImpl implements TokenService {
 
         }
 
+        final long now = currentTimeMillis();
+
         final TokenInfo tokenInfo;
 
         /**
@@ -355,7 +415,7 @@ public class TokenServiceImpl implements TokenService {
          * Usergrid being a provider, validate the external token.
          */
         try {
-            tokenInfo = getTokenInfo( uuid );
+            tokenInfo = getCachedTokenInfo( uuid, now );
         } catch (InvalidTokenException e){
             // Try the request from Usergrid, conditions are specific so we don't incur perf hits for unncessary
             // token validations that are known to not
@@ -366,34 +426,182 @@ public class TokenServiceImpl implements TokenService {
             }
         }
 
-        if (updateAccessTime) {
-            //update the token
-            long now = currentTimeMillis();
-
-            long maxTokenTtl = getMaxTtl(TokenCategory.getFromBase64String(token), tokenInfo.getPrincipal());
+        if ( !updateAccessTime ) {
+            return copyOf( tokenInfo );
+        }
 
-            Mutator<UUID> batch = createMutator(cassandra.getUsergridApplicationKeyspace(), ue);
+        //callers get the previous access time, the shared instance records this one
+        final TokenInfo result;
+        final PendingAccess access;
 
-            HColumn<String, Long> col =
-                    createColumn(TOKEN_ACCESSED, now, calcTokenTime(tokenInfo.getExpiration(maxTokenTtl)),
-                            se, le);
-            batch.addInsertion(uuid, TOKENS_CF, col);
+        synchronized ( tokenInfo ) {
+            result = copyOf( tokenInfo );
 
             long inactive = now - tokenInfo.getAccessed();
-            if (inactive > tokenInfo.getInactive()) {
-                col = createColumn(TOKEN_INACTIVE, inactive, calcTokenTime(tokenInfo.getExpiration(maxTokenTtl)),
-                        se, le);
-                batch.addInsertion(uuid, TOKENS_CF, col);
-                tokenInfo.setInactive(inactive);
+            boolean inactiveChanged = inactive > tokenInfo.getInactive();
+
+            if ( inactiveChanged ) {
+                tokenInfo.setInactive( inactive );
+                result.setInactive( inactive );
             }
 
+            tokenInfo.setAccessed( now );
+
+            access = new PendingAccess( TokenCategory.getFromBase64String( token ), copyOf( tokenInfo ),
+                    inactiveChanged );
+        }
+
+        if ( accessFlushInterval <= 0 ) {
+            Mutator<UUID> batch = createMutator( cassandra.getUsergridApplicationKeyspace(), ue );
+            addAccessTime( batch, access );
             batch.execute();
         }
+        else {
+            pendingAccess.merge( uuid, access, PendingAccess::merge );
+
+            if ( flushScheduled.compareAndSet( false, true ) ) {
+                accessFlusher.schedule( this::flushAccessTimes, accessFlushInterval, TimeUnit.MILLISECONDS );
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Get the token info from the cache, or read it from cassandra.  The returned instance is shared, copy it
+     * before it leaves this class
+     */
+    private TokenInfo getCachedTokenInfo( UUID uuid, long now ) throws Exception {
+        final Cache<UUID, TokenInfo> cache = tokenCache;
+
+        if ( cache == null ) {
+            return getTokenInfo( uuid );
+        }
+
+        TokenInfo tokenInfo = cache.getIfPresent( uuid );
+
+        // the token row has been removed by its ttl, don't keep serving it
+        if ( tokenInfo != null && tokenInfo.getDuration() > 0 && now - tokenInfo.getCreated() > tokenInfo
+                .getDuration() ) {
+            cache.invalidate( uuid );
+            tokenInfo = null;
+        }
+
+        if ( tokenInfo == null ) {
+            tokenInfo = getTokenInfo( uuid );
+            cache.put( uuid, tokenInfo );
+        }
 
         return tokenInfo;
     }
 
 
+    /** Write all coalesced access times, a batch at a time */
+    public void flushAccessTimes() {
+
+        flushScheduled.set( false );
+
+        if ( pendingAccess.isEmpty() ) {
+            return;
+        }
+
+        Mutator<UUID> batch = createMutator( cassandra.getUsergridApplicationKeyspace(), ue );
+        int size = 0;
+
+        for ( UUID uuid : pendingAccess.keySet() ) {
+            PendingAccess access = pendingAccess.remove( uuid );
+
+            if ( access == null ) {
+                continue;
+            }
+
+            try {
+                addAccessTime( batch, access );
+            }
+            catch ( Exception e ) {
+                logger.error( "Unable to update the access time of token {}", uuid, e );
+                continue;
+            }
+
+            if ( ++size == ACCESS_FLUSH_BATCH_SIZE ) {
+                executeAccessBatch( batch, size );
+                batch = createMutator( cassandra.getUsergridApplicationKeyspace(), ue );
+                size = 0;
+            }
+        }
+
+        if ( size > 0 ) {
+            executeAccessBatch( batch, size );
+        }
+    }
+
+
+    private void executeAccessBatch( Mutator<UUID> batch, int size ) {
+        try {
+            batch.execute();
+        }
+        catch ( Exception e ) {
+            // access times are best effort, the next access will write them again
+            logger.error( "Unable to write access times for {} tokens", size, e );
+        }
+    }
+
+
+    private void addAccessTime( Mutator<UUID> batch, PendingAccess access ) throws Exception {
+        TokenInfo tokenInfo = access.tokenInfo;
+
+        // only look up the app ttl when the token doesn't have its own duration
+        long expiration = tokenInfo.getDuration() != 0 ? tokenInfo.getDuration() :
+                          getMaxTtl( access.tokenCategory, tokenInfo.getPrincipal() );
+
+        int ttl = calcTokenTime( expiration );
+
+        HColumn<String, Long> col = createColumn( TOKEN_ACCESSED, tokenInfo.getAccessed(), ttl, se, le );
+        batch.addInsertion( tokenInfo.getUuid(), TOKENS_CF, col );
+
+        if ( access.inactiveChanged ) {
+            col = createColumn( TOKEN_INACTIVE, tokenInfo.getInactive(), ttl, se, le );
+            batch.addInsertion( tokenInfo.getUuid(), TOKENS_CF, col );
+        }
+    }
+
+
+    private static TokenInfo copyOf( TokenInfo tokenInfo ) {
+        Map<String, Object> state = tokenInfo.getState() == null ? null : new HashMap<>( tokenInfo.getState() );
+
+        return new TokenInfo( tokenInfo.getUuid(), tokenInfo.getType(), tokenInfo.getCreated(),
+                tokenInfo.getAccessed(), tokenInfo.getInactive(), tokenInfo.getDuration(), tokenInfo.getPrincipal(),
+                state, tokenInfo.getWorkflowOrgId() );
+    }
+
+
+    /** Access not yet written for a token, only the latest is kept */
+    private static final class PendingAccess {
+
+        private final TokenCategory tokenCategory;
+        private final TokenInfo tokenInfo;
+        private final boolean inactiveChanged;
+
+
+        private PendingAccess( TokenCategory tokenCategory, TokenInfo tokenInfo, boolean inactiveChanged ) {
+            this.tokenCategory = tokenCategory;
+            this.tokenInfo = tokenInfo;
+            this.inactiveChanged = inactiveChanged;
+        }
+
+
+        private static PendingAccess merge( PendingAccess older, PendingAccess newer ) {
+            if ( older.tokenInfo.getAccessed() > newer.tokenInfo.getAccessed() ) {
+                return merge( newer, older );
+            }
+
+            return new PendingAccess( newer.tokenCategory, newer.tokenInfo,
+                    older.inactiveChanged || newer.inactiveChanged );
+        }
+    }
+
+
     /** Get the max ttl per app. This is null safe,and will return the default in the case of missing data */
     private long getMaxTtl( TokenCategory tokenCategory, AuthPrincipalInfo principal ) throws Exception {
 
@@ -442,6 +650,7 @@ public class TokenServiceImpl implements TokenService {
 
         for ( UUID tokenId : tokenIds ) {
             batch.addDeletion( bytebuffer( tokenId ), TOKENS_CF );
+            invalidate( tokenId );
         }
 
         batch.addDeletion( principalKey( principal ), PRINCIPAL_TOKEN_CF );
@@ -483,10 +692,30 @@ public class TokenServiceImpl implements TokenService {
         // remove the token from the tokens cf
         batch.addDeletion( bytebuffer( tokenId ), TOKENS_CF );
 
+        invalidate( tokenId );
+
         batch.execute();
     }
 
 
+    /** Read the token as it is stored in cassandra, bypassing the cache and any access time not yet written */
+    public TokenInfo getStoredTokenInfo( String token ) throws Exception {
+        return getTokenInfo( getUUIDForToken( token ) );
+    }
+
+
+    /** Drop the cached token and any access time that hasn't been written yet */
+    private void invalidate( UUID tokenId ) {
+        final Cache<UUID, TokenInfo> cache = tokenCache;
+
+        if ( cache != null ) {
+            cache.invalidate( tokenId );
+        }
+
+        pendingAccess.remove( tokenId );
+    }
+
+
     private TokenInfo getTokenInfo( UUID uuid ) throws Exception {
         if ( uuid == null ) {
             throw new InvalidTokenException( "No token specified" );
@@ -533,6 +762,8 @@ public class TokenServiceImpl implements TokenService {
 
         ByteBuffer tokenUUID = bytebuffer( tokenInfo.getUuid() );
 
+        invalidate( tokenInfo.getUuid() );
+
         Keyspace ko = cassandra.getUsergridApplicationKeyspace();
 
         Mutator<ByteBuffer> m = createMutator( ko, be );
@@ -758,6 +989,8 @@ public class TokenServiceImpl implements TokenService {
 
     private static final int MAX_TTL = 20 * 365 * 24 * 60 * 60;
 
+    private static final int ACCESS_FLUSH_BATCH_SIZE = 500;
+
 
     //-------------------------------------------------------------------------------------------------------
     //
@@ -19,6 +19,7 @@ package org.apache.usergrid.services;
 
 import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -80,6 +81,12 @@ public class ServiceManager {
 
     private Properties properties;
 
+    /**
+     * Initialized service instances.  Services keep no request state, everything a request needs is in its
+     * ServiceContext, so one instance per service info is shared by every request to this application
+     */
+    private final Map<ServiceInfo, Service> services = new ConcurrentHashMap<>();
+
     // search for commercial packages first for SaaS version
     public static String[] package_prefixes = {
             OSS_PACKAGE_PREFIX
@@ -170,7 +177,17 @@ public class ServiceManager {
 
 
     public Application getApplication() {
-        return application;
+        if ( em == null ) {
+            return application;
+        }
+
+        //service managers are reused, the entity manager holds the current application
+        try {
+            return em.getApplication();
+        }
+        catch ( Exception e ) {
+            throw new RuntimeException( "Unable to load application " + applicationId, e );
+        }
     }
 
 
@@ -331,6 +348,27 @@ public class ServiceManager {
 
     private Service getServiceInstance( ServiceInfo info ) {
 
+        Service service = services.get( info );
+
+        if ( service != null ) {
+            return service;
+        }
+
+        service = newServiceInstance( info );
+
+        if ( service == null ) {
+            return null;
+        }
+
+        //not computeIfAbsent, initializing a service can look up other services.  If we raced, use the winner
+        final Service existing = services.putIfAbsent( info, service );
+
+        return existing != null ? existing : service;
+    }
+
+
+    private Service newServiceInstance( ServiceInfo info ) {
+
         Class<Service> cls = findServiceClass( info );
         if ( cls != null ) {
             Service s = null;
@@ -20,7 +20,10 @@ package org.apache.usergrid.services;
 import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Injector;
 import org.apache.usergrid.locking.Lock;
 import org.slf4j.Logger;
@@ -39,6 +42,9 @@ import org.apache.usergrid.persistence.EntityManagerFactory;
 public class ServiceManagerFactory implements ApplicationContextAware {
     private static final Logger logger = LoggerFactory.getLogger( ServiceManagerFactory.class );
 
+    public static final String SERVICE_MANAGER_CACHE_SIZE = "usergrid.service.manager.cache.size";
+    public static final String SERVICE_MANAGER_CACHE_TIMEOUT = "usergrid.service.manager.cache.timeout";
+
     private ApplicationContext applicationContext;
 
     private EntityManagerFactory emf;
@@ -50,6 +56,8 @@ public class ServiceManagerFactory implements ApplicationContextAware {
     private List<ServiceExecutionEventListener> eventListeners;
     private List<ServiceCollectionEventListener> collectionListeners;
 
+    private final Cache<UUID, ServiceManager> serviceManagers;
+
 
     public ServiceManagerFactory( EntityManagerFactory emf, Properties properties, SchedulerService schedulerService,
                                   QueueManagerFactory qmf, final Injector injector ) {
@@ -58,6 +66,26 @@ public class ServiceManagerFactory implements ApplicationContextAware {
         this.schedulerService = schedulerService;
         lockManager = injector.getInstance(LockManager.class);
         this.qmf = qmf;
+
+        this.serviceManagers = CacheBuilder.newBuilder()
+            .maximumSize( getLongProperty( SERVICE_MANAGER_CACHE_SIZE, 100 ) )
+            .expireAfterWrite( getLongProperty( SERVICE_MANAGER_CACHE_TIMEOUT, 60000 ), TimeUnit.MILLISECONDS )
+            .build();
+    }
+
+
+    private long getLongProperty( final String name, final long defaultValue ) {
+        if ( properties == null ) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong( properties.getProperty( name, String.valueOf( defaultValue ) ) );
+        }
+        catch ( NumberFormatException e ) {
+            logger.error( "Error parsing {}. Will use {}", name, defaultValue, e );
+            return defaultValue;
+        }
     }
 
 
@@ -75,12 +103,25 @@ public class ServiceManagerFactory implements ApplicationContextAware {
         if ( emf != null ) {
             em = emf.getEntityManager( applicationId );
         }
+
+        ServiceManager sm = applicationId == null ? null : serviceManagers.getIfPresent( applicationId );
+
+        //reuse the service manager and its initialized services, unless the entity manager has been replaced
+        if ( sm != null && sm.getEntityManager() == em ) {
+            return sm;
+        }
+
         QueueManager qm = null;
         if ( qmf != null ) {
             qm = qmf.getQueueManager( applicationId );
         }
-        ServiceManager sm = new ServiceManager();
+        sm = new ServiceManager();
         sm.init( this, em, properties, qm );
+
+        if ( applicationId != null ) {
+            serviceManagers.put( applicationId, sm );
+        }
+
         return sm;
     }
 
@@ -53,6 +53,7 @@ import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
 import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
 import com.amazonaws.services.s3.model.ListMultipartUploadsRequest;
@@ -63,7 +64,6 @@ import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.UploadPartRequest;
-import com.google.common.primitives.Ints;
 import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.PushbackInputStream;
@@ -92,10 +92,23 @@ public class  AwsSdkS3BinaryStore implements BinaryStore {
     public AwsSdkS3BinaryStore( ) {
     }
 
+
+    /**
+     * Use an existing client, for testing
+     */
+    AwsSdkS3BinaryStore( AmazonS3 s3Client, String bucketName ) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+    }
+
     //TODO: GREY rework how the s3 client works because currently it handles initlization and returning of the client
     //ideally it should only do one. and the client should be initlized at the beginning of the run.
     private AmazonS3 getS3Client() throws Exception{
 
+        if ( s3Client != null ) {
+            return s3Client;
+        }
+
         this.bucketName = properties.getProperty( "usergrid.binary.bucketname" );
         if(bucketName == null){
             logger.error( "usergrid.binary.bucketname not properly set so amazon bucket is null" );
@@ -289,18 +302,19 @@ public class  AwsSdkS3BinaryStore implements BinaryStore {
     @Override
     public InputStream read( UUID appId, Entity entity, long offset, long length ) throws Exception {
 
-        S3Object object = getS3Client().getObject( bucketName, AssetUtils.buildAssetKey( appId, entity ) );
-
-        byte data[] = null;
+        final String key = AssetUtils.buildAssetKey( appId, entity );
 
         if ( offset == 0 && length == FIVE_MB ) {
-            return object.getObjectContent();
-        }
-        else {
-            object.getObjectContent().read(data, Ints.checkedCast(offset), Ints.checkedCast(length));
+            return getS3Client().getObject( bucketName, key ).getObjectContent();
         }
 
-        return new ByteArrayInputStream(data);
+        // S3 ranges are inclusive of the last byte
+        final GetObjectRequest request =
+            new GetObjectRequest( bucketName, key ).withRange( offset, offset + length - 1 );
+
+        final S3Object object = getS3Client().getObject( request );
+
+        return object == null ? null : object.getObjectContent();
     }
 
 
@@ -18,7 +18,7 @@ package org.apache.usergrid.services.assets.data;
 
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang.RandomStringUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.usergrid.persistence.Entity;
 import org.apache.usergrid.persistence.EntityManager;
 import org.apache.usergrid.persistence.EntityManagerFactory;
@@ -27,10 +27,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.io.BufferedInputStream;
+import com.google.common.io.BaseEncoding;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
@@ -76,7 +84,9 @@ public class LocalFileBinaryStore implements BinaryStore {
 
         File file = path( appId, entity );
 
-        FileUtils.copyInputStreamToFile( inputStream, file );
+        // digest the content as it is copied so the etag identifies the stored bytes, like the S3 stores' etags
+        MessageDigest digest = md5();
+        FileUtils.copyInputStreamToFile( new DigestInputStream( inputStream, digest ), file );
 
         long size = FileUtils.sizeOf( file );
 
@@ -109,7 +119,7 @@ public class LocalFileBinaryStore implements BinaryStore {
 
         fileMetadata.put( AssetUtils.CONTENT_LENGTH, size );
         fileMetadata.put( AssetUtils.LAST_MODIFIED, System.currentTimeMillis() );
-        fileMetadata.put( AssetUtils.E_TAG, RandomStringUtils.randomAlphanumeric( 10 ) );
+        fileMetadata.put( AssetUtils.E_TAG, BaseEncoding.base16().lowerCase().encode( digest.digest() ) );
 
         // if we were successful, write the mime type
         if ( file.exists() ) {
@@ -126,13 +136,67 @@ public class LocalFileBinaryStore implements BinaryStore {
 
     @Override
     public InputStream read( UUID appId, Entity entity ) throws IOException {
-        return read( appId, entity, 0, FileUtils.ONE_MB * 5 );
+        File file = path( appId, entity );
+        return read( file, 0, file.length() );
     }
 
 
     @Override
     public InputStream read( UUID appId, Entity entity, long offset, long length ) throws IOException {
-        return new BufferedInputStream( FileUtils.openInputStream( path( appId, entity ) ) );
+        return read( path( appId, entity ), offset, length );
+    }
+
+
+    /** Whether the asset's file is present in the repository */
+    public boolean exists( UUID appId, Entity entity ) {
+        File file = path( appId, entity );
+        return file.exists() && !file.isDirectory();
+    }
+
+
+    /**
+     * Copy <code>length</code> bytes of the asset starting at <code>offset</code> to the target channel. The copy is
+     * done with {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which reads positionally without
+     * buffering the file on the heap and goes straight from the page cache when the target is a socket or file.
+     *
+     * @return the number of bytes written, which is less than length if the file ends first
+     */
+    public long transferTo( UUID appId, Entity entity, long offset, long length, WritableByteChannel target )
+            throws IOException {
+
+        try ( FileChannel channel = FileChannel.open( path( appId, entity ).toPath(), StandardOpenOption.READ ) ) {
+            long end = offset + Math.min( channel.size() - offset, length );
+            long position = offset;
+            while ( position < end ) {
+                long transferred = channel.transferTo( position, end - position, target );
+                if ( transferred <= 0 ) {
+                    break;
+                }
+                position += transferred;
+            }
+            return position - offset;
+        }
+    }
+
+
+    /** Open a stream over the given byte range of the file, reading positionally from its channel */
+    private InputStream read( File file, long offset, long length ) throws IOException {
+        if ( !file.exists() ) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ );
+        channel.position( offset );
+        return new BoundedInputStream( Channels.newInputStream( channel ), length );
+    }
+
+
+    private static MessageDigest md5() throws IOException {
+        try {
+            return MessageDigest.getInstance( "MD5" );
+        }
+        catch ( NoSuchAlgorithmException e ) {
+            throw new IOException( "MD5 digest is not available", e );
+        }
     }
 
 
@@ -78,6 +78,15 @@ public class S3BinaryStore implements BinaryStore {
     }
 
 
+    /**
+     * Use an existing blob store context, for testing against another jclouds provider
+     */
+    S3BinaryStore( BlobStoreContext context, String bucketName ) {
+        this.context = context;
+        this.bucketName = bucketName;
+    }
+
+
     private BlobStoreContext getContext() {
         if ( context == null ) {
             context = ContextBuilder.newBuilder( "aws-s3" ).credentials( accessId, secretKey ).modules( MODULES )
@@ -176,7 +185,8 @@ public class S3BinaryStore implements BinaryStore {
             blob = blobStore.getBlob( bucketName, AssetUtils.buildAssetKey( appId, entity ) );
         }
         else {
-            GetOptions options = GetOptions.Builder.range( offset, length );
+            // jclouds ranges are inclusive of the last byte
+            GetOptions options = GetOptions.Builder.range( offset, offset + length - 1 );
             blob = blobStore.getBlob( bucketName, AssetUtils.buildAssetKey( appId, entity ), options );
         }
         if ( blob == null || blob.getPayload() == null ) {
@@ -17,9 +17,11 @@
 package org.apache.usergrid.services.notifications;
 
 import com.google.common.cache.*;
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.apache.usergrid.persistence.EntityManager;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.map.MapManagerFactory;
 import org.apache.usergrid.persistence.queue.QueueManager;
 import org.apache.usergrid.services.notifications.impl.ApplicationQueueManagerImpl;
 import org.slf4j.Logger;
@@ -42,7 +44,12 @@ public class ApplicationQueueManagerCache{
     private static final String CACHE_TTL_PROP = "usergrid.push.queuemanager.cache.time-to-live";
     private static final String CACHE_MAX_SIZE_PROP = "usergrid.push.queuemanager.cache.size";
 
-    public ApplicationQueueManagerCache(){
+    private final MapManagerFactory mapManagerFactory;
+
+    @Inject
+    public ApplicationQueueManagerCache( final MapManagerFactory mapManagerFactory ){
+
+        this.mapManagerFactory = mapManagerFactory;
 
         // set a smaller ttl
         long ttl = 10;
@@ -126,6 +133,7 @@ public class ApplicationQueueManagerCache{
                 entityManager,
                 queueManager,
                 metricsService,
+                mapManagerFactory,
                 properties
             );
 
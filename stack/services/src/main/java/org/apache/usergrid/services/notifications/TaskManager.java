@@ -29,20 +29,46 @@ import org.slf4j.LoggerFactory;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Tracks the outcome of sending a notification to devices.  Receipts and counters are held in memory and written
+ * in batches when enough are pending, when the flush interval has passed, and when the batch is finished.
+ */
 public class TaskManager {
 
     private static final Logger logger = LoggerFactory.getLogger(TaskManager.class);
 
+    private final static String RECEIPT_BATCH_SIZE_PROP = "usergrid.push.receipts.batch.size";
+    private final static String RECEIPT_FLUSH_INTERVAL_PROP = "usergrid.push.receipts.flush.interval";
+    private final static String RECEIPT_SUMMARY_ONLY_PROP = "usergrid.push.receipts.summary.only";
+
     private Notification notification;
     private AtomicLong successes = new AtomicLong();
     private AtomicLong failures = new AtomicLong();
     private EntityManager em;
 
+    private final int receiptBatchSize;
+    private final long flushInterval;
+    private final boolean summaryOnly;
+
+    private final ConcurrentLinkedQueue<PendingReceipt> pendingReceipts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingReceiptCount = new AtomicInteger();
+    private final ConcurrentHashMap<String, Long> pendingCounters = new ConcurrentHashMap<>();
+    private volatile long lastFlush = System.currentTimeMillis();
+
+    // providers can report outcomes after the batch has finished, those are written through
+    private volatile boolean batchFinished = false;
+
     public TaskManager(EntityManager em, Notification notification) {
         this.em = em;
         this.notification = notification;
+        this.receiptBatchSize = Integer.valueOf(System.getProperty(RECEIPT_BATCH_SIZE_PROP, "100"));
+        this.flushInterval = Long.valueOf(System.getProperty(RECEIPT_FLUSH_INTERVAL_PROP, "1000"));
+        this.summaryOnly = Boolean.valueOf(System.getProperty(RECEIPT_SUMMARY_ONLY_PROP, "false"));
     }
 
     public long getSuccesses(){return successes.get();}
@@ -50,20 +76,23 @@ public class TaskManager {
     public long getFailures(){ return failures.get();}
 
     public void completed(Notifier notifier, UUID deviceUUID) throws Exception {
-        completed(notifier,null,deviceUUID,null);
+        markCompleted(notifier, null, deviceUUID, null);
     }
     public void completed(Notifier notifier, Receipt receipt, UUID deviceUUID, String newProviderId) throws Exception {
 
-        successes.incrementAndGet();
+        incrementNotificationCounter( "completed" );
 
+        markCompleted(notifier, receipt, deviceUUID, newProviderId);
 
-        try {
-            //.{year}.{month}.{day}.{HH24} possibly minute.
-            //random date and time for format
+        flushIfNeeded();
+    }
+
+    private void markCompleted(Notifier notifier, Receipt receipt, UUID deviceUUID, String newProviderId) {
 
+        successes.incrementAndGet();
 
-            //incrementNotificationCounter( "completed" );
 
+        try {
             EntityRef deviceRef = new SimpleEntityRef(Device.ENTITY_TYPE, deviceUUID);
 
             if (receipt != null) {
@@ -71,7 +100,7 @@ public class TaskManager {
                 receipt.setSent(System.currentTimeMillis());
                 this.saveReceipt(notification, deviceRef, receipt,false);
                 if (logger.isTraceEnabled()) {
-                    logger.trace("Notification {} receipt saved for device {}", notification.getUuid(), deviceUUID);
+                    logger.trace("Notification {} receipt queued for device {}", notification.getUuid(), deviceUUID);
                 }
 
             }
@@ -100,7 +129,7 @@ public class TaskManager {
 
         try {
 
-            //incrementNotificationCounter( "failed" );
+            incrementNotificationCounter( "failed" );
 
             if (logger.isDebugEnabled()) {
                 logger.debug("Notification {} for device {} got error {}", notification.getUuid(), deviceUUID, code);
@@ -113,7 +142,12 @@ public class TaskManager {
             }
 
             completed(notifier, deviceUUID);
-            finishedBatch();
+
+            if (batchFinished) {
+                finishedBatch();
+            } else {
+                flushIfNeeded();
+            }
 
         } catch (Exception e){
 
@@ -123,11 +157,16 @@ public class TaskManager {
     }
 
     /**
-    * Called from TaskManager - Creates a persistent receipt
+    * Called from TaskManager - Queues a receipt to be persisted with the next flush
     *
     */
     private void saveReceipt(EntityRef notification, EntityRef device, Receipt receipt, boolean hasError) throws Exception {
 
+        // only the notification statistics and counters are kept in summary mode
+        if (summaryOnly) {
+            return;
+        }
+
         boolean debug = false;
         if(this.notification != null){
             debug = this.notification.getDebug();
@@ -135,19 +174,33 @@ public class TaskManager {
 
         if ( debug || hasError) {
 
-            List<EntityRef> entities = Arrays.asList(notification, device);
+            pendingReceipts.add(new PendingReceipt(notification, device, receipt));
+            pendingReceiptCount.incrementAndGet();
 
-            if (receipt.getUuid() == null) {
-                Receipt savedReceipt = em.create(receipt);
-                em.addToCollections(entities, Notification.RECEIPTS_COLLECTION, savedReceipt);
-            } else {
-                em.addToCollections(entities, Notification.RECEIPTS_COLLECTION, receipt);
-            }
+        }
 
-            if ( logger.isDebugEnabled() ) {
-                logger.debug( "Notification {} receipt saved for device {}", notification.getUuid(), device.getUuid() );
-            }
+    }
+
+    /**
+     * Creates a persistent receipt
+     */
+    private void writeReceipt(PendingReceipt pending) throws Exception {
 
+        final EntityRef notification = pending.notification;
+        final EntityRef device = pending.device;
+        final Receipt receipt = pending.receipt;
+
+        List<EntityRef> entities = Arrays.asList(notification, device);
+
+        if (receipt.getUuid() == null) {
+            Receipt savedReceipt = em.create(receipt);
+            em.addToCollections(entities, Notification.RECEIPTS_COLLECTION, savedReceipt);
+        } else {
+            em.addToCollections(entities, Notification.RECEIPTS_COLLECTION, receipt);
+        }
+
+        if ( logger.isDebugEnabled() ) {
+            logger.debug( "Notification {} receipt saved for device {}", notification.getUuid(), device.getUuid() );
         }
 
     }
@@ -167,8 +220,11 @@ public class TaskManager {
         }
     }
 
+    /**
+     * Counter increments are summed in memory and written with the next flush
+     */
     public void incrementNotificationCounter(String status){
-        em.incrementAggregateCounters( null,null,null,"counters.notifications."+notification.getUuid()+"."+status,1 );
+        addCounterDelta( "counters.notifications."+notification.getUuid()+"."+status );
 
         LocalDateTime localDateTime = LocalDateTime.now();
         StringBuilder currentDate = new StringBuilder(  );
@@ -177,13 +233,62 @@ public class TaskManager {
         currentDate.append( localDateTime.getMonth()+"." );
         currentDate.append( localDateTime.getDayOfMonth()+"." );
         currentDate.append( localDateTime.getMinute() );
-        em.incrementAggregateCounters( null,null,null,currentDate.toString(),1 );
+        addCounterDelta( currentDate.toString() );
 
     }
 
+    private void addCounterDelta(String counterName){
+        pendingCounters.merge( counterName, 1L, Long::sum );
+    }
+
+    private void flushIfNeeded() {
+        if (batchFinished || pendingReceiptCount.get() >= receiptBatchSize
+            || System.currentTimeMillis() - lastFlush >= flushInterval) {
+            try {
+                flush();
+            } catch (Exception e) {
+                logger.error("Unable to flush receipts for notification {}", notification.getUuid(), e);
+            }
+        }
+    }
+
+    /**
+     * Write the pending receipts and counters
+     */
+    public void flush() throws Exception {
+
+        lastFlush = System.currentTimeMillis();
+
+        PendingReceipt pending;
+        while ((pending = pendingReceipts.poll()) != null) {
+            pendingReceiptCount.decrementAndGet();
+            try {
+                writeReceipt(pending);
+            } catch (Exception e) {
+                logger.error("Unable to save receipt for notification {} and device {}",
+                    notification.getUuid(), pending.device.getUuid(), e);
+            }
+        }
+
+        if (!pendingCounters.isEmpty()) {
+            Map<String, Long> counters = new HashMap<>();
+            for (String counterName : pendingCounters.keySet()) {
+                Long delta = pendingCounters.remove(counterName);
+                if (delta != null) {
+                    counters.put(counterName, delta);
+                }
+            }
+            em.incrementAggregateCounters( null, null, null, counters );
+        }
+    }
+
 
     public void finishedBatch() throws Exception {
 
+        batchFinished = true;
+
+        flush();
+
         long successes = this.successes.get();
         long failures = this.failures.get();
 
@@ -201,4 +306,17 @@ public class TaskManager {
         em.update(notification);
 
     }
+
+
+    private static final class PendingReceipt {
+        private final EntityRef notification;
+        private final EntityRef device;
+        private final Receipt receipt;
+
+        private PendingReceipt(EntityRef notification, EntityRef device, Receipt receipt) {
+            this.notification = notification;
+            this.device = device;
+            this.receipt = receipt;
+        }
+    }
 }
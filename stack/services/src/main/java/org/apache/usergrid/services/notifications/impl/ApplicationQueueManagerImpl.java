@@ -19,6 +19,7 @@ package org.apache.usergrid.services.notifications.impl;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -34,11 +35,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.usergrid.batch.JobExecution;
+import org.apache.usergrid.corepersistence.util.CpNamingUtils;
 import org.apache.usergrid.persistence.Entity;
 import org.apache.usergrid.persistence.EntityManager;
 import org.apache.usergrid.persistence.EntityRef;
 import org.apache.usergrid.persistence.PathQuery;
 import org.apache.usergrid.persistence.Query;
+import org.apache.usergrid.persistence.Results;
 import org.apache.usergrid.persistence.SimpleEntityRef;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.entities.Device;
@@ -46,7 +49,9 @@ import org.apache.usergrid.persistence.entities.Notification;
 import org.apache.usergrid.persistence.entities.Notifier;
 import org.apache.usergrid.persistence.entities.Receipt;
 import org.apache.usergrid.persistence.entities.User;
-import org.apache.usergrid.persistence.index.utils.UUIDUtils;
+import org.apache.usergrid.persistence.map.MapManager;
+import org.apache.usergrid.persistence.map.MapManagerFactory;
+import org.apache.usergrid.persistence.map.impl.MapScopeImpl;
 import org.apache.usergrid.persistence.queue.QueueManager;
 import org.apache.usergrid.persistence.queue.QueueMessage;
 import org.apache.usergrid.services.notifications.ApplicationQueueManager;
@@ -59,9 +64,9 @@ import org.apache.usergrid.services.notifications.TaskManager;
 import org.apache.usergrid.services.notifications.TaskTracker;
 
 import com.codahale.metrics.Meter;
+import com.google.common.util.concurrent.RateLimiter;
 
 import rx.Observable;
-import rx.Subscriber;
 import rx.functions.Func1;
 import rx.schedulers.Schedulers;
 
@@ -79,10 +84,23 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
     private final Meter queueMeter;
     private final Meter sendMeter;
     private int concurrencyFactor;
+    private final int deviceBatchSize;
+    private final int dedupeExactLimit;
+    private final double dedupeFalsePositiveProbability;
+    private final int dedupeTtl;
+    private final MapManagerFactory mapManagerFactory;
+    private final double queueRate;
+    private final Meter duplicateMeter;
 
     private final static String PUSH_PROCESSING_MAXTHREADS_PROP = "usergrid.push.async.processing.threads";
     private final static String PUSH_PROCESSING_QUEUESIZE_PROP = "usergrid.push.async.processing.queue.size";
     private final static String PUSH_PROCESSING_CONCURRENCY_PROP = "usergrid.push.async.processing.concurrency";
+    private final static String PUSH_PROCESSING_DEVICE_BATCH_PROP = "usergrid.push.async.processing.device.batch.size";
+    private final static String PUSH_PROCESSING_DEDUPE_EXACT_PROP = "usergrid.push.async.processing.dedupe.exact.size";
+    private final static String PUSH_PROCESSING_DEDUPE_FPP_PROP = "usergrid.push.async.processing.dedupe.fpp";
+    private final static String PUSH_PROCESSING_DEDUPE_TTL_PROP = "usergrid.push.async.processing.dedupe.ttl";
+    private final static String SEEN_DEVICES_MAP_PREFIX = "notification-devices-";
+    private final static String PUSH_PROCESSING_QUEUE_RATE_PROP = "usergrid.push.async.processing.queue.rate";
 
     HashMap<Object, ProviderAdapter> notifierHashMap; // only retrieve notifiers once
 
@@ -95,8 +113,9 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
 
     public ApplicationQueueManagerImpl( JobScheduler jobScheduler, EntityManager entityManager,
                                         QueueManager queueManager, MetricsFactory metricsFactory,
-                                        Properties properties) {
+                                        MapManagerFactory mapManagerFactory, Properties properties) {
         this.em = entityManager;
+        this.mapManagerFactory = mapManagerFactory;
         this.qm = queueManager;
         this.jobScheduler = jobScheduler;
         this.metricsFactory = metricsFactory;
@@ -104,6 +123,13 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
         this.queueMeter = metricsFactory.getMeter(ApplicationQueueManagerImpl.class, "notification.queue");
         this.sendMeter = metricsFactory.getMeter(NotificationsService.class, "queue.send");
         this.concurrencyFactor = Integer.valueOf(System.getProperty(PUSH_PROCESSING_CONCURRENCY_PROP, "50"));
+        this.deviceBatchSize = Integer.valueOf(System.getProperty(PUSH_PROCESSING_DEVICE_BATCH_PROP, "100"));
+        this.dedupeExactLimit = Integer.valueOf(System.getProperty(PUSH_PROCESSING_DEDUPE_EXACT_PROP, "100000"));
+        this.dedupeFalsePositiveProbability =
+            Double.valueOf(System.getProperty(PUSH_PROCESSING_DEDUPE_FPP_PROP, "0.0001"));
+        this.dedupeTtl = Integer.valueOf(System.getProperty(PUSH_PROCESSING_DEDUPE_TTL_PROP, "86400"));
+        this.queueRate = Double.valueOf(System.getProperty(PUSH_PROCESSING_QUEUE_RATE_PROP, "0"));
+        this.duplicateMeter = metricsFactory.getMeter(ApplicationQueueManagerImpl.class, "notification.duplicate");
 
 
         /**
@@ -258,48 +284,65 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
 
             final Map<String, Object> filters = notification.getFilters();
 
-            Observable processMessagesObservable = Observable.create(new IteratorObservable<EntityRef>(iterator))
+            // seen devices are kept exactly up to a limit, then in bloom filters so a broadcast stays bounded in memory
+            final MapManager seenDevices = mapManagerFactory.createMapManager(
+                new MapScopeImpl( CpNamingUtils.generateApplicationId( em.getApplicationId() ),
+                    SEEN_DEVICES_MAP_PREFIX + notification.getUuid() ) );
+            final DeviceDeduplicator deduplicator =
+                new DeviceDeduplicator( dedupeExactLimit, dedupeFalsePositiveProbability, seenDevices, dedupeTtl );
 
-                .flatMap( entityRef -> {
+            final RateLimiter queueRateLimiter = queueRate > 0 ? RateLimiter.create( queueRate ) : null;
 
-                    return Observable.just(entityRef).flatMap(ref->{
+            // Observable.from honors backpressure, so only concurrencyFactor batches are read ahead of the queueing
+            Observable processMessagesObservable = Observable.<EntityRef>from( ( Iterable<Device> ) () -> iterator )
 
-                        List<Entity> entities = new ArrayList<>();
+                .buffer( deviceBatchSize )
+                .flatMap( refs -> {
 
-                            if( ref.getType().equals(User.ENTITY_TYPE)){
+                    // devices are loaded together in one read, users are resolved through their devices collection
+                    final List<UUID> deviceIds = new ArrayList<>( refs.size() );
+                    final List<EntityRef> userRefs = new ArrayList<>();
 
-                                Query devicesQuery = new Query();
-                                devicesQuery.setCollection("devices");
-                                devicesQuery.setResultsLevel(Query.Level.CORE_PROPERTIES);
-                                devicesQuery.setLimit(50); // for now, assume a user has no more than 50 devices
+                    for ( EntityRef ref : refs ) {
+                        if ( ref.getType().equals( User.ENTITY_TYPE ) ) {
+                            userRefs.add( ref );
+                        }
+                        else if ( ref.getType().equals( Device.ENTITY_TYPE ) ) {
+                            deviceIds.add( ref.getUuid() );
+                        }
+                    }
 
-                                try {
+                    final Observable<List<UUID>> userDeviceIds = Observable.from( userRefs ).map( ref -> {
 
-                                   entities = em.searchCollection(new SimpleEntityRef("user", ref.getUuid()), devicesQuery.getCollection(), devicesQuery).getEntities();
+                        try {
 
-                                }catch (Exception e){
+                            return getUserDeviceIds( ref );
 
-                                    logger.error("Unable to load devices for user: {}", ref.getUuid());
-                                    return Observable.empty();
-                                }
+                        }catch (Exception e){
 
+                            logger.error("Unable to load devices for user: {}", ref.getUuid());
+                            return Collections.<UUID>emptyList();
+                        }
+                    } );
 
-                            }else if ( ref.getType().equals(Device.ENTITY_TYPE)){
+                    // user devices are only read as ids from the graph, then loaded with the others in batches
+                    return Observable.just( deviceIds ).concatWith( userDeviceIds )
+                        .flatMapIterable( ids -> ids )
+                        .buffer( deviceBatchSize )
+                        .concatMap( ids -> {
 
-                                try{
-                                    entities.add(em.get(ref));
+                            try {
 
-                                }catch(Exception e){
+                                return Observable.from( em.get( ids, Device.ENTITY_TYPE, Device.class,
+                                    Query.Level.ALL_PROPERTIES ).getEntities() );
 
-                                    logger.error("Unable to load device: {}", ref.getUuid());
-                                    return Observable.empty();
+                            }catch(Exception e){
 
-                                }
+                                logger.error("Unable to load devices: {}", ids);
+                                return Observable.<Entity>empty();
 
                             }
-                        return Observable.from(entities);
-
-                        })
+                        } )
                         .filter( device -> {
 
                             if(logger.isTraceEnabled()) {
@@ -339,13 +382,14 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
                         .subscribeOn(Schedulers.io());
 
                 }, concurrencyFactor)
-                .distinct( queueMessage -> {
+                .filter( queueMessage -> {
 
-                    if(queueMessage.isPresent()) {
-                        return queueMessage.get().getDeviceId();
+                    if ( !queueMessage.isPresent() || deduplicator.add( queueMessage.get().getDeviceId() ) ) {
+                        return true;
                     }
 
-                    return UUIDUtils.newTimeUUID(); // this should be distinct, default handling for the Optional.empty() case
+                    duplicateMeter.mark();
+                    return false;
 
                 } )
                 .doOnNext( message -> {
@@ -356,6 +400,9 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
                             if(logger.isTraceEnabled()) {
                                 logger.trace("Queueing notification message for device: {}", message.get().getDeviceId());
                             }
+                            if ( queueRateLimiter != null ) {
+                                queueRateLimiter.acquire();
+                            }
                             qm.sendMessage( message.get() );
                             queueMeter.mark();
                         }
@@ -431,6 +478,35 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
 
     }
 
+    /**
+     * Page through the ids of a user's devices.  This is a graph traversal, the devices themselves aren't loaded
+     */
+    private List<UUID> getUserDeviceIds( final EntityRef userRef ) throws Exception {
+
+        final List<UUID> deviceIds = new ArrayList<>();
+
+        final Query devicesQuery = new Query();
+        devicesQuery.setCollection( "devices" );
+        devicesQuery.setResultsLevel( Query.Level.IDS );
+        devicesQuery.setLimit( Query.MAX_LIMIT );
+
+        Results results;
+
+        do {
+            results = em.searchCollection( new SimpleEntityRef( User.ENTITY_TYPE, userRef.getUuid() ),
+                devicesQuery.getCollection(), devicesQuery );
+
+            if ( results.getIds() != null ) {
+                deviceIds.addAll( results.getIds() );
+            }
+
+            devicesQuery.setCursor( results.getCursor() );
+        }
+        while ( results.hasCursor() );
+
+        return deviceIds;
+    }
+
     /**
      * only need to get notifiers once. will reset on next batch
      *
@@ -587,19 +663,21 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
                 //TODO: check if a notification is done and mark it
                 HashMap<UUID, ApplicationQueueMessage> notifications = new HashMap<>();
                 for (ApplicationQueueMessage message : queueMessages) {
-                    if (notifications.get(message.getNotificationId()) == null) {
-                        try {
-                            TaskManager taskManager = taskMap.get(message.getNotificationId());
-                            notifications.put(message.getNotificationId(), message);
-                            taskManager.finishedBatch();
-                        } catch (Exception e) {
-                            logger.error("Failed to finish batch", e);
-                        }
-                    }
+                    notifications.putIfAbsent(message.getNotificationId(), message);
                 }
                 return notifications;
             }).doOnError(throwable -> logger.error("Failed while sending", throwable));
-        }, 10);
+        }, 10)
+        .doOnTerminate(() -> {
+            // receipts, counters and statistics are written once per notification for the whole batch
+            for (TaskManager taskManager : taskMap.values()) {
+                try {
+                    taskManager.finishedBatch();
+                } catch (Exception e) {
+                    logger.error("Failed to finish batch", e);
+                }
+            }
+        });
 
         return queueMessageObservable;
     }
@@ -656,39 +734,6 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
 
     }
 
-    private static final class IteratorObservable<T> implements rx.Observable.OnSubscribe<T> {
-        private final Iterator<T> input;
-
-        private IteratorObservable(final Iterator input) {
-            this.input = input;
-        }
-
-        @Override
-        public void call(final Subscriber<? super T> subscriber) {
-
-            /**
-             * You would replace this code with your file reading.  Instead of emitting from an iterator,
-             * you would create a bean object that represents the entity, and then emit it
-             */
-
-            try {
-                while (!subscriber.isUnsubscribed() && input.hasNext()) {
-
-                    //send our input to the next
-                    subscriber.onNext((T) input.next());
-
-                }
-
-                //tell the subscriber we don't have any more data
-                subscriber.onCompleted();
-
-            } catch (Throwable t) {
-                logger.error("failed on subscriber", t);
-                subscriber.onError(t);
-            }
-        }
-    }
-
     @Override
     public void asyncCheckForInactiveDevices() throws Exception {
         Collection<ProviderAdapter> providerAdapters = getAdapterMap().values();
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.services.notifications.impl;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.map.MapManager;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.util.concurrent.ListenableFuture;
+
+
+/**
+ * Remembers the devices a notification has been queued for, in bounded memory, without ever dropping a device that
+ * wasn't seen before.
+ *
+ * Devices are tracked exactly in memory until there are more than the exact limit of them, which covers nearly every
+ * notification.  Past that the tracked devices move to a scalable bloom filter, a chain of filters that each hold
+ * twice as many devices as the one before with half the false positive probability, and every device is also written
+ * to an exact store in cassandra.  A device the filters have never seen is new without a read.  A device they might
+ * have seen is confirmed against the store, so a false positive costs one read instead of a missed device.
+ *
+ * Not thread safe, call it from a single subscriber.
+ */
+public class DeviceDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger( DeviceDeduplicator.class );
+
+    private static final Funnel<UUID> UUID_FUNNEL =
+        ( uuid, into ) -> into.putLong( uuid.getMostSignificantBits() ).putLong( uuid.getLeastSignificantBits() );
+
+    /**
+     * Writes to the store are asynchronous, this many are allowed in flight before waiting on them
+     */
+    private static final int MAX_PENDING_WRITES = 1000;
+
+    private static final String SEEN = "1";
+
+    private final int exactLimit;
+    private final double falsePositiveProbability;
+    private final MapManager store;
+    private final int ttlSeconds;
+
+    private Set<UUID> exact = new HashSet<>();
+
+    private final List<BloomFilter<UUID>> filters = new ArrayList<>();
+
+    /**
+     * Devices written to the store whose write may not be readable yet
+     */
+    private final Map<UUID, ListenableFuture<Void>> pending = new HashMap<>();
+
+    private int capacity;
+    private int inserted;
+    private long falsePositives;
+
+
+    /**
+     * @param exactLimit The number of devices to track exactly in memory before switching to bloom filters
+     * @param falsePositiveProbability The probability the filters need a store read for an unseen device
+     * @param store The exact store devices are confirmed against once past the limit, scoped to one notification
+     * @param ttlSeconds How long devices are kept in the store
+     */
+    public DeviceDeduplicator( final int exactLimit, final double falsePositiveProbability, final MapManager store,
+                               final int ttlSeconds ) {
+        Preconditions.checkArgument( exactLimit > 0, "exactLimit must be > 0" );
+        Preconditions.checkArgument( falsePositiveProbability > 0 && falsePositiveProbability < 1,
+            "falsePositiveProbability must be between 0 and 1" );
+        Preconditions.checkNotNull( store, "store is required" );
+
+        this.exactLimit = exactLimit;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.store = store;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+
+    /**
+     * Record the device, returns true if it has not been seen before
+     */
+    public boolean add( final UUID deviceId ) {
+
+        if ( exact != null ) {
+            if ( !exact.add( deviceId ) ) {
+                return false;
+            }
+
+            if ( exact.size() > exactLimit ) {
+                // move everything into the first filter and the store, and drop the set
+                for ( final UUID seen : exact ) {
+                    put( seen );
+                }
+
+                exact = null;
+            }
+
+            return true;
+        }
+
+        if ( mightContain( deviceId ) && isStored( deviceId ) ) {
+            return false;
+        }
+
+        put( deviceId );
+
+        return true;
+    }
+
+
+    /**
+     * True once we've stopped tracking devices exactly in memory
+     */
+    public boolean isApproximate() {
+        return exact == null;
+    }
+
+
+    /**
+     * The number of devices the filters reported as seen that the store showed were new
+     */
+    public long getFalsePositives() {
+        return falsePositives;
+    }
+
+
+    private boolean mightContain( final UUID deviceId ) {
+        for ( final BloomFilter<UUID> filter : filters ) {
+            if ( filter.mightContain( deviceId ) ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    private boolean isStored( final UUID deviceId ) {
+        if ( pending.containsKey( deviceId ) || store.getString( deviceId.toString() ) != null ) {
+            return true;
+        }
+
+        falsePositives++;
+
+        return false;
+    }
+
+
+    private void put( final UUID deviceId ) {
+        if ( inserted == capacity ) {
+            final int stage = filters.size();
+
+            capacity = ( int ) Math.min( stage == 0 ? exactLimit * 2L : capacity * 2L, Integer.MAX_VALUE );
+            inserted = 0;
+
+            filters.add(
+                BloomFilter.create( UUID_FUNNEL, capacity, falsePositiveProbability * Math.pow( 0.5, stage ) ) );
+        }
+
+        filters.get( filters.size() - 1 ).put( deviceId );
+        inserted++;
+
+        pending.put( deviceId, store.putStringAsync( deviceId.toString(), SEEN, ttlSeconds ) );
+
+        if ( pending.size() >= MAX_PENDING_WRITES ) {
+            awaitPending();
+        }
+    }
+
+
+    /**
+     * Wait for the writes in flight.  A failed write means a later duplicate of that device could be queued twice,
+     * which is logged, it never causes a device to be skipped
+     */
+    private void awaitPending() {
+        int failed = 0;
+
+        for ( final ListenableFuture<Void> write : pending.values() ) {
+            try {
+                write.get();
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( "Interrupted while recording seen devices", e );
+            }
+            catch ( ExecutionException e ) {
+                failed++;
+            }
+        }
+
+        if ( failed > 0 ) {
+            logger.warn( "Unable to record {} seen devices, duplicates of them may be queued", failed );
+        }
+
+        pending.clear();
+    }
+}
@@ -22,8 +22,10 @@ import java.util.*;
 import org.apache.usergrid.persistence.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.apache.usergrid.batch.JobExecution;
 import org.apache.usergrid.persistence.entities.Activity;
 import org.apache.usergrid.persistence.entities.Activity.ActivityObject;
+import org.apache.usergrid.persistence.entities.JobData;
 import org.apache.usergrid.persistence.entities.User;
 import org.apache.usergrid.persistence.Query.Level;
 import org.apache.usergrid.services.ServiceContext;
@@ -36,6 +38,37 @@ public class ActivitiesService extends GenericCollectionService {
 
     private static final Logger logger = LoggerFactory.getLogger( ActivitiesService.class );
 
+    /** Number of follower feeds written per graph batch when an activity is pushed */
+    public static final String FEED_BATCH_SIZE = "usergrid.activities.feed.batch.size";
+
+    public static final long DEFAULT_FEED_BATCH_SIZE = 1000;
+
+    /** Authors with more followers than this are read from on demand instead of pushed, 0 always pushes */
+    public static final String FEED_PULL_THRESHOLD = "usergrid.activities.feed.pull.threshold";
+
+    public static final long DEFAULT_FEED_PULL_THRESHOLD = 10000;
+
+    /** Set on users whose activities followers pull when reading their feed */
+    public static final String PROPERTY_PULL_FEED = "pullfeed";
+
+    /** Set on activities to the number of follower feeds they have been written to */
+    public static final String PROPERTY_DISTRIBUTED = "distributed";
+
+    /** Set on activities to the followers cursor of the last batch written, while distribution is in progress */
+    public static final String PROPERTY_DISTRIBUTION_CURSOR = "distributioncursor";
+
+    /** Set on activities once distribution finished, to complete or pull */
+    public static final String PROPERTY_DISTRIBUTION = "distribution";
+
+    public static final String DISTRIBUTION_COMPLETE = "complete";
+
+    public static final String DISTRIBUTION_PULL = "pull";
+
+    /** The scheduled job that distributes an activity to follower feeds */
+    public static final String FEED_DISTRIBUTION_JOB = "feedDistributionJob";
+
+    private static final long SCHEDULER_GRACE_PERIOD = 250;
+
 
     public ActivitiesService() {
         super();
@@ -65,6 +98,11 @@ public class ActivitiesService extends GenericCollectionService {
             handleDynamicPayload( ( ActivityObject ) actor, user, payload );
         }
 
+        // feeds page by published time, so every activity needs one
+        if ( !payload.isBatch() && payload.getProperty( Schema.PROPERTY_PUBLISHED ) == null ) {
+            payload.setProperty( Schema.PROPERTY_PUBLISHED, System.currentTimeMillis() );
+        }
+
         ServiceResults results = super.postCollection( context );
 
         distribute( context.getOwner(), results.getEntity() );
@@ -134,31 +172,108 @@ public class ActivitiesService extends GenericCollectionService {
         //add activity
         em.addToCollection( user, "feed", activity );
 
-        //publish to all connections
-        Results results =  em.getSourceEntities(
-            new SimpleEntityRef(user.getType(), user.getUuid()),
-            "following", User.ENTITY_TYPE, Level.REFS);
-
-        if( results != null ){
-            PagingResultsIterator itr = new PagingResultsIterator(results);
-
-            List<EntityRef> refs = new ArrayList<EntityRef>();
-            EntityRef c;
-            int breaker = 10000;
-            //collect
-            while (itr.hasNext()) {
-                c = (EntityRef) itr.next();
-                refs.add(c);
-                //break out when you get too big
-                if( refs.size() > breaker ){
-                    em.addToCollections(refs, "feed", activity);
-                    refs.clear();
-                }
+        //publish to all connections with a scheduled job, so large follower lists don't hold up the post and an
+        //interrupted distribution resumes where it stopped
+        JobData jobData = new JobData();
+        jobData.setProperty( "applicationId", sm.getApplicationId() );
+        jobData.setProperty( "userId", user.getUuid() );
+        jobData.setProperty( "userType", user.getType() );
+        jobData.setProperty( "activityId", activity.getUuid() );
+
+        sm.getSchedulerService()
+          .createJob( FEED_DISTRIBUTION_JOB, System.currentTimeMillis() + SCHEDULER_GRACE_PERIOD, jobData );
+    }
+
+
+    /**
+     * Write the activity to the feed of every follower, a batch of edges at a time. The followers cursor and count are
+     * recorded on the activity after each batch, so a distribution interrupted by a restart resumes from the last
+     * batch written. Once an author turns out to have more followers than the pull threshold they are flagged
+     * instead, and their activities are merged into follower feeds when read.
+     *
+     * @param execution the job running the distribution, heartbeated after each batch. May be null
+     */
+    public void publishToFollowers( EntityRef user, UUID activityId, JobExecution execution ) throws Exception {
+
+        Entity activity = em.get( activityId );
+        if ( activity == null || activity.getProperty( PROPERTY_DISTRIBUTION ) != null ) {
+            return;
+        }
+
+        EntityRef userRef = new SimpleEntityRef( user.getType(), user.getUuid() );
+
+        long pullThreshold = getLongProperty( FEED_PULL_THRESHOLD, DEFAULT_FEED_PULL_THRESHOLD );
+
+        if ( pullThreshold > 0 ) {
+            Entity author = em.get( userRef );
+            if ( author != null && Boolean.TRUE.equals( author.getProperty( PROPERTY_PULL_FEED ) ) ) {
+                em.setProperty( activity, PROPERTY_DISTRIBUTION, DISTRIBUTION_PULL );
+                return;
             }
-            //add to collections
-            if (refs.size() > 0) {
-                em.addToCollections(refs, "feed", activity);
+        }
+
+        int batchSize = ( int ) getLongProperty( FEED_BATCH_SIZE, DEFAULT_FEED_BATCH_SIZE );
+
+        Object distributedProperty = activity.getProperty( PROPERTY_DISTRIBUTED );
+        long distributed = distributedProperty instanceof Number ? ( ( Number ) distributedProperty ).longValue() : 0;
+        String cursor = ( String ) activity.getProperty( PROPERTY_DISTRIBUTION_CURSOR );
+
+        do {
+            Query query = new Query();
+            query.setConnectionType( "following" );
+            query.setEntityType( User.ENTITY_TYPE );
+            query.setConnecting( true );
+            query.setResultsLevel( Level.REFS );
+            query.setLimit( batchSize );
+            if ( cursor != null ) {
+                query.setCursor( cursor );
             }
+
+            Results followers = em.searchTargetEntities( userRef, query );
+            if ( followers == null || followers.isEmpty() ) {
+                break;
+            }
+
+            List<EntityRef> refs = followers.getRefs();
+
+            // the follower count falls out of the pass, there is no separate scan to decide whether to push
+            if ( pullThreshold > 0 && distributed + refs.size() > pullThreshold ) {
+                em.setProperty( userRef, PROPERTY_PULL_FEED, true );
+                em.setProperty( activity, PROPERTY_DISTRIBUTION, DISTRIBUTION_PULL );
+                return;
+            }
+
+            em.addToCollections( refs, "feed", activity );
+            distributed += refs.size();
+            cursor = followers.getCursor();
+
+            Map<String, Object> progress = new HashMap<String, Object>();
+            progress.put( PROPERTY_DISTRIBUTED, distributed );
+            progress.put( PROPERTY_DISTRIBUTION_CURSOR, cursor );
+            em.updateProperties( activity, progress );
+
+            if ( execution != null ) {
+                execution.heartbeat();
+            }
+
+            if ( logger.isDebugEnabled() ) {
+                logger.debug( "Distributed activity {} to {} followers", activity.getUuid(), distributed );
+            }
+        }
+        while ( cursor != null );
+
+        Map<String, Object> done = new HashMap<String, Object>();
+        done.put( PROPERTY_DISTRIBUTED, distributed );
+        done.put( PROPERTY_DISTRIBUTION, DISTRIBUTION_COMPLETE );
+        em.updateProperties( activity, done );
+    }
+
+
+    private long getLongProperty( String name, long defaultValue ) {
+        Properties properties = sm.getProperties();
+        if ( properties == null ) {
+            return defaultValue;
         }
+        return Long.parseLong( properties.getProperty( name, String.valueOf( defaultValue ) ) );
     }
 }
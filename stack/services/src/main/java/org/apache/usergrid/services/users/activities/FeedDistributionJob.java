@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.users.activities;
+
+
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import org.apache.usergrid.batch.JobExecution;
+import org.apache.usergrid.batch.job.OnlyOnceJob;
+import org.apache.usergrid.persistence.SimpleEntityRef;
+import org.apache.usergrid.persistence.entities.JobData;
+import org.apache.usergrid.services.ServiceManager;
+import org.apache.usergrid.services.ServiceManagerFactory;
+
+
+/**
+ * Distributes a posted activity to the feeds of the author's followers. The job is durable, and the activity records
+ * how far distribution got, so a job re-run after a failure or restart picks up from the last batch written.
+ */
+@Component( ActivitiesService.FEED_DISTRIBUTION_JOB )
+public class FeedDistributionJob extends OnlyOnceJob {
+
+    private static final Logger logger = LoggerFactory.getLogger( FeedDistributionJob.class );
+
+    /** Retry soon if another node holds the lock, it is most likely finishing the same distribution */
+    private static final long LOCKED_DELAY = 60 * 1000;
+
+    @Autowired
+    private ServiceManagerFactory smf;
+
+
+    public FeedDistributionJob() {
+        if (logger.isTraceEnabled()) {
+            logger.trace( "FeedDistributionJob created" );
+        }
+    }
+
+
+    @Override
+    protected void doJob( JobExecution execution ) throws Exception {
+
+        JobData jobData = execution.getJobData();
+        UUID applicationId = ( UUID ) jobData.getProperty( "applicationId" );
+        UUID userId = ( UUID ) jobData.getProperty( "userId" );
+        String userType = ( String ) jobData.getProperty( "userType" );
+        UUID activityId = ( UUID ) jobData.getProperty( "activityId" );
+
+        ServiceManager sm = smf.getServiceManager( applicationId );
+        ActivitiesService activitiesService = ( ActivitiesService ) sm.getService( "/users/*/activities" );
+
+        if ( activitiesService == null ) {
+            logger.error( "No activities service for application {}, activity {} not distributed", applicationId,
+                activityId );
+            return;
+        }
+
+        activitiesService.publishToFollowers( new SimpleEntityRef( userType, userId ), activityId, execution );
+
+        if (logger.isTraceEnabled()) {
+            logger.trace( "Distributed activity {} of {}", activityId, userId );
+        }
+    }
+
+
+    @Override
+    protected long getDelay( JobExecution execution ) throws Exception {
+        return LOCKED_DELAY;
+    }
+
+
+    @Override
+    public void dead( JobExecution execution ) throws Exception {
+        logger.error( "Distribution of activity {} failed too many times, it stopped at the progress recorded on the "
+            + "activity", execution.getJobData().getProperty( "activityId" ) );
+    }
+}
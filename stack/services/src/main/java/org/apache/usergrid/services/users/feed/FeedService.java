@@ -0,0 +1,375 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.services.users.feed;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.EntityRef;
+import org.apache.usergrid.persistence.Query;
+import org.apache.usergrid.persistence.Query.Level;
+import org.apache.usergrid.persistence.Results;
+import org.apache.usergrid.persistence.core.rx.OrderedMerge;
+import org.apache.usergrid.persistence.entities.User;
+import org.apache.usergrid.services.ServiceContext;
+import org.apache.usergrid.services.ServiceResults;
+import org.apache.usergrid.services.generic.GenericCollectionService;
+import org.apache.usergrid.utils.JsonUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.BaseEncoding;
+
+import rx.Observable;
+
+import static org.apache.usergrid.persistence.Schema.PROPERTY_PUBLISHED;
+import static org.apache.usergrid.services.users.activities.ActivitiesService.DEFAULT_FEED_PULL_THRESHOLD;
+import static org.apache.usergrid.services.users.activities.ActivitiesService.FEED_PULL_THRESHOLD;
+import static org.apache.usergrid.services.users.activities.ActivitiesService.PROPERTY_PULL_FEED;
+
+
+/**
+ * A user's feed. Activities from most authors are pushed into the feed collection when they are posted, activities
+ * from authors with too many followers to push to are merged in from their activities collection when the feed is
+ * read. Merged pages carry a feed cursor that records the position in the pushed feed and the published time the
+ * pulled activities have been read down to.
+ */
+public class FeedService extends GenericCollectionService {
+
+    private static final Logger logger = LoggerFactory.getLogger( FeedService.class );
+
+    /** Marks cursors written by the merge, the dot never appears in the base64 cursors of the pushed feed */
+    private static final String FEED_CURSOR_PREFIX = "feed.";
+
+    private static final BaseEncoding CURSOR_ENCODING = BaseEncoding.base64Url().omitPadding();
+
+
+    public FeedService() {
+        super();
+        if (logger.isTraceEnabled()) {
+            logger.trace("/users/*/feed");
+        }
+    }
+
+
+    @Override
+    public ServiceResults getItemsByQuery( ServiceContext context, Query query ) throws Exception {
+
+        final boolean paging = query.getCursor().isPresent();
+        final FeedCursor feedCursor = paging ? FeedCursor.parse( query.getCursor().get() ) : new FeedCursor();
+
+        // searches read the pushed feed alone, as do later pages of a feed that had nothing to merge
+        if ( context.moreParameters() || query.hasQueryPredicates() || getPullThreshold() <= 0
+            || feedCursor == null ) {
+            return super.getItemsByQuery( context, query );
+        }
+
+        final int limit = query.getLimit();
+
+        List<Results> pulled = getPulledActivities( context.getOwner(), feedCursor, limit );
+        if ( pulled.isEmpty() && !paging ) {
+            return super.getItemsByQuery( context, query );
+        }
+
+        // the pushed feed is read from the start of the page it was left in, skipping what was already returned
+        List<Entity> pushedPage = Collections.emptyList();
+        String pushedNext = null;
+
+        if ( !feedCursor.pushedDone ) {
+            Query pushedQuery = new Query( query );
+            pushedQuery.setCursor( feedCursor.pushedCursor );
+            pushedQuery.setLimit( Math.min( feedCursor.pushedSkip + limit, Query.MAX_LIMIT ) );
+
+            Results pushedResults = super.getItemsByQuery( context, pushedQuery );
+            if ( pushedResults.getEntities() != null ) {
+                pushedPage = pushedResults.getEntities();
+            }
+            pushedNext = pushedResults.getCursor();
+        }
+
+        // stream 0 is the pushed feed, the rest are the pulled authors
+        List<List<Entity>> streams = new ArrayList<List<Entity>>( pulled.size() + 1 );
+        List<Boolean> more = new ArrayList<Boolean>( pulled.size() + 1 );
+
+        streams.add( pushedPage.subList( Math.min( feedCursor.pushedSkip, pushedPage.size() ), pushedPage.size() ) );
+        more.add( pushedNext != null );
+
+        for ( Results activities : pulled ) {
+            streams.add( activities.getEntities() );
+            more.add( activities.hasCursor() );
+        }
+
+        final int[] positions = new int[streams.size()];
+        final Set<UUID> returned = new HashSet<UUID>( feedCursor.seen );
+
+        List<Entity> page = mergeStreams( streams, more ).takeWhile( item -> item.activity != null )
+            // every item taken from a stream moves its position, duplicates included
+            .doOnNext( item -> positions[item.stream]++ )
+            // activities pushed before their author was flagged show up in both the feed and the author's activities
+            .filter( item -> returned.add( item.activity.getUuid() ) ).map( item -> item.activity ).take( limit )
+            .toList().toBlocking().single();
+
+        FeedCursor nextCursor = new FeedCursor();
+
+        int pushedConsumed = feedCursor.pushedSkip + positions[0];
+        if ( pushedConsumed < pushedPage.size() ) {
+            nextCursor.pushedCursor = feedCursor.pushedCursor;
+            nextCursor.pushedSkip = pushedConsumed;
+        }
+        else if ( pushedNext != null ) {
+            nextCursor.pushedCursor = pushedNext;
+        }
+        else {
+            nextCursor.pushedDone = true;
+        }
+
+        nextCursor.published = feedCursor.published;
+        nextCursor.seen.addAll( feedCursor.seen );
+
+        if ( !page.isEmpty() ) {
+            long last = getPublished( page.get( page.size() - 1 ) );
+            if ( feedCursor.published == null || last != feedCursor.published ) {
+                nextCursor.published = last;
+                nextCursor.seen.clear();
+            }
+            for ( Entity activity : page ) {
+                if ( getPublished( activity ) == last ) {
+                    nextCursor.seen.add( activity.getUuid() );
+                }
+            }
+        }
+
+        boolean hasMore = !nextCursor.pushedDone;
+        for ( int i = 1; i < streams.size(); i++ ) {
+            hasMore |= positions[i] < streams.get( i ).size() || more.get( i );
+        }
+
+        Results r = Results.fromEntities( page );
+        if ( hasMore ) {
+            r.setCursor( nextCursor.toString() );
+        }
+
+        return new ServiceResults( this, context, ServiceResults.Type.COLLECTION, r, null, null );
+    }
+
+
+    /**
+     * Merge the loaded streams newest first. A stream with more pages than were loaded ends with a marker at its
+     * oldest published time, nothing older than the marker can be ordered against that stream's next page.
+     */
+    @SuppressWarnings( "unchecked" )
+    private static Observable<FeedItem> mergeStreams( List<List<Entity>> streams, List<Boolean> more ) {
+
+        Observable<FeedItem>[] observables = new Observable[streams.size()];
+        int bufferSize = 1;
+
+        for ( int i = 0; i < streams.size(); i++ ) {
+            List<Entity> stream = streams.get( i );
+            List<FeedItem> items = new ArrayList<FeedItem>( stream.size() + 1 );
+
+            for ( Entity activity : stream ) {
+                items.add( new FeedItem( i, activity, getPublished( activity ) ) );
+            }
+
+            if ( more.get( i ) ) {
+                long oldest = items.isEmpty() ? Long.MAX_VALUE : items.get( items.size() - 1 ).published;
+                items.add( new FeedItem( i, null, oldest ) );
+            }
+
+            observables[i] = Observable.from( items );
+            bufferSize = Math.max( bufferSize, items.size() );
+        }
+
+        // the streams are in memory and emit on this thread, the buffer must hold a whole stream
+        return OrderedMerge.orderedMerge( FeedItem.NEWEST_FIRST, bufferSize, observables );
+    }
+
+
+    /**
+     * The newest activities of each followed user whose activities are pulled rather than pushed, no newer than the
+     * cursor has read down to
+     */
+    private List<Results> getPulledActivities( EntityRef owner, FeedCursor feedCursor, int limit ) throws Exception {
+
+        Query authorsQuery = Query.fromQL( "select * where " + PROPERTY_PULL_FEED + " = true" );
+        authorsQuery.setConnectionType( "following" );
+        authorsQuery.setEntityType( User.ENTITY_TYPE );
+        authorsQuery.setResultsLevel( Level.REFS );
+        authorsQuery.setLimit( Query.MAX_LIMIT );
+
+        // page through every followed author, a page is capped at the query limit
+        List<EntityRef> authors = new ArrayList<EntityRef>();
+        Results authorsPage;
+        do {
+            authorsPage = em.searchTargetEntities( owner, authorsQuery );
+            if ( authorsPage == null || authorsPage.isEmpty() ) {
+                break;
+            }
+            authors.addAll( authorsPage.getRefs() );
+            authorsQuery.setCursor( authorsPage.getCursor() );
+        }
+        while ( authorsPage.hasCursor() );
+
+        List<Results> pulled = new ArrayList<Results>();
+        if ( authors.isEmpty() ) {
+            return pulled;
+        }
+
+        String ql = feedCursor.published == null ? "select * order by " + PROPERTY_PUBLISHED + " desc" :
+                    "select * where " + PROPERTY_PUBLISHED + " <= " + feedCursor.published + " order by "
+                        + PROPERTY_PUBLISHED + " desc";
+
+        for ( EntityRef author : authors ) {
+            Query activitiesQuery = Query.fromQL( ql );
+            activitiesQuery.setResultsLevel( Level.ALL_PROPERTIES );
+            // activities at the cursor's published time that were already returned are read again and skipped
+            activitiesQuery.setLimit( Math.min( limit + feedCursor.seen.size(), Query.MAX_LIMIT ) );
+
+            Results activities = em.searchCollection( author, "activities", activitiesQuery );
+            if ( activities != null && !activities.isEmpty() ) {
+                pulled.add( activities );
+            }
+        }
+
+        return pulled;
+    }
+
+
+    private long getPullThreshold() {
+        Properties properties = sm.getProperties();
+        if ( properties == null ) {
+            return DEFAULT_FEED_PULL_THRESHOLD;
+        }
+        return Long.parseLong(
+            properties.getProperty( FEED_PULL_THRESHOLD, String.valueOf( DEFAULT_FEED_PULL_THRESHOLD ) ) );
+    }
+
+
+    private static long getPublished( Entity entity ) {
+        Object published = entity.getProperty( PROPERTY_PUBLISHED );
+        if ( published instanceof Number ) {
+            return ( ( Number ) published ).longValue();
+        }
+        return entity.getCreated() != null ? entity.getCreated() : 0;
+    }
+
+
+    /** An activity of one of the merged streams, or the marker ending a stream that has more pages */
+    private static final class FeedItem {
+
+        /** Newest first, and a marker after the activities published at its time */
+        private static final Comparator<FeedItem> NEWEST_FIRST = new Comparator<FeedItem>() {
+            @Override
+            public int compare( FeedItem o1, FeedItem o2 ) {
+                int compare = Long.compare( o2.published, o1.published );
+                if ( compare != 0 ) {
+                    return compare;
+                }
+                return Boolean.compare( o1.activity == null, o2.activity == null );
+            }
+        };
+
+        private final int stream;
+        private final Entity activity;
+        private final long published;
+
+
+        private FeedItem( int stream, Entity activity, long published ) {
+            this.stream = stream;
+            this.activity = activity;
+            this.published = published;
+        }
+    }
+
+
+    /**
+     * Position of a merged feed. The pushed feed is positional, its page cursor and how many of that page were already
+     * returned. The pulled activities are read by published time, down to and including the last time returned, less
+     * the activities at that time that were already returned.
+     */
+    private static final class FeedCursor {
+
+        private String pushedCursor;
+        private int pushedSkip;
+        private boolean pushedDone;
+        private Long published;
+        private final List<UUID> seen = new ArrayList<UUID>();
+
+
+        /** Parse a feed cursor, or return null if the cursor belongs to the pushed feed alone */
+        @SuppressWarnings( "unchecked" )
+        private static FeedCursor parse( String cursor ) {
+
+            if ( !cursor.startsWith( FEED_CURSOR_PREFIX ) ) {
+                return null;
+            }
+
+            String json = new String( CURSOR_ENCODING.decode( cursor.substring( FEED_CURSOR_PREFIX.length() ) ),
+                Charsets.UTF_8 );
+            Map<String, Object> map = ( Map<String, Object> ) JsonUtils.parse( json );
+
+            FeedCursor feedCursor = new FeedCursor();
+            feedCursor.pushedCursor = ( String ) map.get( "c" );
+            feedCursor.pushedSkip = map.get( "s" ) != null ? ( ( Number ) map.get( "s" ) ).intValue() : 0;
+            feedCursor.pushedDone = Boolean.TRUE.equals( map.get( "d" ) );
+            feedCursor.published = map.get( "p" ) != null ? ( ( Number ) map.get( "p" ) ).longValue() : null;
+
+            List<String> seen = ( List<String> ) map.get( "u" );
+            if ( seen != null ) {
+                for ( String uuid : seen ) {
+                    feedCursor.seen.add( UUID.fromString( uuid ) );
+                }
+            }
+
+            return feedCursor;
+        }
+
+
+        @Override
+        public String toString() {
+            Map<String, Object> map = new HashMap<String, Object>();
+            map.put( "c", pushedCursor );
+            map.put( "s", pushedSkip );
+            map.put( "d", pushedDone );
+            map.put( "p", published );
+
+            List<String> uuids = new ArrayList<String>( seen.size() );
+            for ( UUID uuid : seen ) {
+                uuids.add( uuid.toString() );
+            }
+            map.put( "u", uuids );
+
+            return FEED_CURSOR_PREFIX + CURSOR_ENCODING
+                .encode( JsonUtils.mapToJsonString( map ).getBytes( Charsets.UTF_8 ) );
+        }
+    }
+}
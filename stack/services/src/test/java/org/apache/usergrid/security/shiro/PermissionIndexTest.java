@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.security.shiro;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.apache.shiro.authz.Permission;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class PermissionIndexTest {
+
+    private static final String APP = "00000000-0000-0000-0000-000000000001";
+    private static final String OTHER_APP = "00000000-0000-0000-0000-000000000002";
+
+    private static final List<String> GRANTED = Arrays.asList(
+        "applications:get:" + APP + ":/foo",
+        "applications:get:" + APP + ":/foo/bar/*",
+        "applications:get,put:" + APP + ":/users/*/devices/**",
+        "applications:post:" + APP + ":/bar/*/boz/*",
+        "applications:delete:" + APP + ":/*/things",
+        "applications:*:" + APP + ":/everything/**",
+        "applications:get:" + APP + ":/multiple,/paths/**",
+        "applications:put:" + APP + ":*",
+        "applications:access:" + APP,
+        "applications:get:" + OTHER_APP + ":/**",
+        "organizations:access:00000000-0000-0000-0000-000000000003",
+        "users:access:*" );
+
+    private static final List<String> REQUESTED = Arrays.asList(
+        "applications:get:" + APP + ":/foo",
+        "applications:get:" + APP + ":/foo/",
+        "applications:get:" + APP + ":/foo/bar",
+        "applications:get:" + APP + ":/foo/bar/baz",
+        "applications:get:" + APP + ":/foo/bar/baz/boz",
+        "applications:get:" + APP + ":/FOO/Bar/baz",
+        "applications:put:" + APP + ":/users/bob/devices/1/2",
+        "applications:get:" + APP + ":/users/bob/devices",
+        "applications:delete:" + APP + ":/users/bob/devices",
+        "applications:post:" + APP + ":/bar/1/boz/2",
+        "applications:post:" + APP + ":/bar/1/boz/2/3",
+        "applications:delete:" + APP + ":/cats/things",
+        "applications:delete:" + APP + ":/cats/things/1",
+        "applications:post:" + APP + ":/everything/1/2/3",
+        "applications:get:" + APP + ":/multiple",
+        "applications:get:" + APP + ":/paths/1",
+        "applications:get:" + APP + ":/other",
+        "applications:put:" + APP + ":/anything/at/all",
+        "applications:access:" + APP,
+        "applications:admin:" + APP,
+        "applications:get:" + APP,
+        "applications:get,put:" + APP + ":/foo",
+        "applications:get:" + APP + ":/foo,/other",
+        "applications:get:" + OTHER_APP + ":/anything",
+        "applications:put:" + OTHER_APP + ":/anything",
+        "applications:get:00000000-0000-0000-0000-000000000004:/foo",
+        "applications:get:*:/foo",
+        "organizations:access:00000000-0000-0000-0000-000000000003",
+        "organizations:access:00000000-0000-0000-0000-000000000004",
+        "users:access:00000000-0000-0000-0000-000000000005",
+        "foo",
+        "/foo/bar" );
+
+
+    @Test
+    public void sameAsCheckingEveryPermission() {
+
+        final List<Permission> permissions = new ArrayList<>();
+
+        for ( String granted : GRANTED ) {
+            permissions.add( new CustomPermission( granted ) );
+        }
+
+        final PermissionIndex index = new PermissionIndex( permissions );
+
+        for ( String requested : REQUESTED ) {
+            final CustomPermission permission = new CustomPermission( requested );
+
+            boolean expected = false;
+
+            for ( Permission granted : permissions ) {
+                expected |= granted.implies( permission );
+            }
+
+            assertEquals( requested, expected, index.implies( permission ) );
+        }
+    }
+
+
+    @Test
+    public void pathChecks() {
+
+        final PermissionIndex index = new PermissionIndex(
+            Arrays.<Permission>asList( new CustomPermission( "applications:get:" + APP + ":/foo/bar/*" ) ) );
+
+        assertTrue( index.implies( new CustomPermission( "applications:get:" + APP + ":/foo/bar/baz" ) ) );
+        assertFalse( index.implies( new CustomPermission( "applications:get:" + APP + ":/foo/bar/baz/boz" ) ) );
+        assertFalse( index.implies( new CustomPermission( "applications:put:" + APP + ":/foo/bar/baz" ) ) );
+        assertFalse( index.implies( new CustomPermission( "applications:get:" + OTHER_APP + ":/foo/bar/baz" ) ) );
+    }
+
+
+    @Test
+    public void emptyIndex() {
+        assertFalse( new PermissionIndex( new ArrayList<Permission>() )
+            .implies( new CustomPermission( "applications:get:" + APP + ":/foo" ) ) );
+    }
+}
@@ -440,6 +440,48 @@ public class TokenServiceIT {
         assertTrue( invalidTokenException );
     }
 
+    @Test
+    public void accessTimeWriteBehind() throws Exception {
+
+        AuthPrincipalInfo adminPrincipal =
+                new AuthPrincipalInfo( AuthPrincipalType.ADMIN_USER, adminUser.getUuid(), UUIDUtils.newTimeUUID() );
+
+        String tokenStr = setup.getTokenSvc().createToken( TokenCategory.ACCESS, null, adminPrincipal, null, 0 );
+
+        TokenInfo first = setup.getTokenSvc().getTokenInfo( tokenStr );
+
+        Thread.sleep( 10 );
+
+        TokenInfo second = setup.getTokenSvc().getTokenInfo( tokenStr );
+
+        // served from memory, but the access is still recorded
+        assertTrue( first.getAccessed() < second.getAccessed() );
+        assertTrue( second.getInactive() >= 10 );
+
+        ( ( TokenServiceImpl ) setup.getTokenSvc() ).flushAccessTimes();
+
+        // read the row itself, the cached token would report the access times whether or not they were written
+        TokenInfo third = ( ( TokenServiceImpl ) setup.getTokenSvc() ).getStoredTokenInfo( tokenStr );
+
+        assertTrue( second.getAccessed() < third.getAccessed() );
+        assertEquals( second.getInactive(), third.getInactive() );
+
+        // revoking drops the cached token
+        setup.getTokenSvc().revokeToken( tokenStr );
+
+        boolean invalidTokenException = false;
+
+        try {
+            setup.getTokenSvc().getTokenInfo( tokenStr );
+        }
+        catch ( InvalidTokenException ite ) {
+            invalidTokenException = true;
+        }
+
+        assertTrue( invalidTokenException );
+    }
+
+
     @Test
     public void testImportToken() throws Exception {
 
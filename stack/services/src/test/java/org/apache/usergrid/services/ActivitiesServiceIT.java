@@ -17,15 +17,23 @@
 package org.apache.usergrid.services;
 
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.EntityManager;
 import org.apache.usergrid.persistence.Query;
 import org.apache.usergrid.persistence.entities.Activity;
+import org.apache.usergrid.services.users.activities.ActivitiesService;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 
 
@@ -65,6 +73,8 @@ public class ActivitiesServiceIT extends AbstractServiceIT {
         Entity activity = app.testRequest( ServiceAction.POST, 1, "users", userA.getUuid(), "activities" ).getEntity();
         assertNotNull( activity );
 
+        distribute( userA, activity );
+
         app.testRequest( ServiceAction.GET, 1, "users", userA.getUuid(), "activities" );
 
         app.testRequest( ServiceAction.GET, 1, null, "activities" );
@@ -79,18 +89,24 @@ public class ActivitiesServiceIT extends AbstractServiceIT {
         activity = app.testRequest( ServiceAction.POST, 1, "users", userA.getUuid(), "activities" ).getEntity();
         assertNotNull( activity );
 
+        distribute( userA, activity );
+
         app.add( Activity.newActivity( Activity.VERB_POST, null, "I ate a cookie", null, userA, null, "tweet", null,
                 null ) );
 
         activity = app.testRequest( ServiceAction.POST, 1, "users", userA.getUuid(), "activities" ).getEntity();
         assertNotNull( activity );
 
+        distribute( userA, activity );
+
         app.add( Activity.newActivity( Activity.VERB_CHECKIN, null, "I'm at the cookie shop", null, userA, null,
                 Activity.OBJECT_TYPE_PLACE, "Cookie Shop", null ) );
 
         activity = app.testRequest( ServiceAction.POST, 1, "users", userA.getUuid(), "activities" ).getEntity();
         assertNotNull( activity );
 
+        distribute( userA, activity );
+
         app.testRequest( ServiceAction.GET, 4, null, "users", userC.getUuid(), "feed" );
 
         app.testRequest( ServiceAction.GET, 2, null, "users", userC.getUuid(), "feed",
@@ -109,4 +125,213 @@ public class ActivitiesServiceIT extends AbstractServiceIT {
 
         app.testRequest( ServiceAction.GET, 4, null, "users", userD.getUuid(), "feed" );
     }
+
+
+    @Test
+    public void testPulledFeed() throws Exception {
+        Object previousThreshold = setup.set( ActivitiesService.FEED_PULL_THRESHOLD, "1" );
+
+        try {
+            app.put( "username", "jake" );
+            app.put( "email", "jake@ooo.com" );
+
+            Entity author = app.testRequest( ServiceAction.POST, 1, "users" ).getEntity();
+            assertNotNull( author );
+
+            app.put( "username", "bmo" );
+            app.put( "email", "bmo@ooo.com" );
+
+            Entity followerA = app.testRequest( ServiceAction.POST, 1, "users" ).getEntity();
+            assertNotNull( followerA );
+
+            app.put( "username", "gunter" );
+            app.put( "email", "gunter@ooo.com" );
+
+            Entity followerB = app.testRequest( ServiceAction.POST, 1, "users" ).getEntity();
+            assertNotNull( followerB );
+
+            app.testRequest( ServiceAction.POST, 1, "users", followerA.getUuid(), "connections", "following",
+                author.getUuid() );
+
+            app.testRequest( ServiceAction.POST, 1, "users", followerB.getUuid(), "connections", "following",
+                author.getUuid() );
+
+            // two followers is over the threshold, so the activity is not pushed to their feeds
+            app.add( Activity.newActivity( Activity.VERB_POST, null, "Mathematical", null, author, null, "tweet",
+                null, null ) );
+
+            Entity activity = app.testRequest( ServiceAction.POST, 1, "users", author.getUuid(), "activities" )
+                                 .getEntity();
+            assertNotNull( activity );
+
+            distribute( author, activity );
+
+            app.refreshIndex();
+
+            Entity flagged = app.getEntityManager().get( author.getUuid() );
+            assertEquals( Boolean.TRUE, flagged.getProperty( ActivitiesService.PROPERTY_PULL_FEED ) );
+
+            // but is merged in when the feeds are read
+            app.testRequest( ServiceAction.GET, 1, null, "users", followerA.getUuid(), "feed" );
+
+            app.testRequest( ServiceAction.GET, 1, null, "users", followerB.getUuid(), "feed" );
+        }
+        finally {
+            if ( previousThreshold != null ) {
+                setup.set( ActivitiesService.FEED_PULL_THRESHOLD, previousThreshold.toString() );
+            }
+            else {
+                setup.getProps().remove( ActivitiesService.FEED_PULL_THRESHOLD );
+            }
+        }
+    }
+
+
+    @Test
+    public void testPulledFeedPaging() throws Exception {
+        Object previousThreshold = setup.set( ActivitiesService.FEED_PULL_THRESHOLD, "1" );
+
+        try {
+            app.put( "username", "marceline" );
+            app.put( "email", "marceline@ooo.com" );
+
+            Entity pulledAuthor = app.testRequest( ServiceAction.POST, 1, "users" ).getEntity();
+            assertNotNull( pulledAuthor );
+
+            app.put( "username", "bubblegum" );
+            app.put( "email", "bubblegum@ooo.com" );
+
+            Entity pushedAuthor = app.testRequest( ServiceAction.POST, 1, "users" ).getEntity();
+            assertNotNull( pushedAuthor );
+
+            app.put( "username", "lsp" );
+            app.put( "email", "lsp@ooo.com" );
+
+            Entity follower = app.testRequest( ServiceAction.POST, 1, "users" ).getEntity();
+            assertNotNull( follower );
+
+            app.put( "username", "peppermint" );
+            app.put( "email", "peppermint@ooo.com" );
+
+            Entity otherFollower = app.testRequest( ServiceAction.POST, 1, "users" ).getEntity();
+            assertNotNull( otherFollower );
+
+            app.testRequest( ServiceAction.POST, 1, "users", follower.getUuid(), "connections", "following",
+                pulledAuthor.getUuid() );
+
+            app.testRequest( ServiceAction.POST, 1, "users", otherFollower.getUuid(), "connections", "following",
+                pulledAuthor.getUuid() );
+
+            app.testRequest( ServiceAction.POST, 1, "users", follower.getUuid(), "connections", "following",
+                pushedAuthor.getUuid() );
+
+            // published oldest to newest: pushed, pulled, pushed, pulled, pulled
+            List<UUID> posted = new ArrayList<UUID>();
+            Entity[] authors = { pushedAuthor, pulledAuthor, pushedAuthor, pulledAuthor, pulledAuthor };
+
+            for ( int i = 0; i < authors.length; i++ ) {
+                app.add( Activity.newActivity( Activity.VERB_POST, null, "post " + i, null, authors[i], null,
+                    "tweet", null, null ) );
+                app.put( "published", 1000L * ( i + 1 ) );
+
+                Entity activity = app.testRequest( ServiceAction.POST, 1, "users", authors[i].getUuid(),
+                    "activities" ).getEntity();
+                assertNotNull( activity );
+
+                distribute( authors[i], activity );
+                posted.add( 0, activity.getUuid() );
+            }
+
+            app.refreshIndex();
+
+            // every page merges, later pages included, and no page is larger than the limit
+            List<UUID> read = new ArrayList<UUID>();
+            int[] pageSizes = { 2, 2, 1 };
+            String cursor = null;
+
+            for ( int pageSize : pageSizes ) {
+                Query query = new Query();
+                query.setLimit( 2 );
+                query.setCursor( cursor );
+
+                ServiceResults results =
+                    app.testRequest( ServiceAction.GET, pageSize, null, "users", follower.getUuid(), "feed", query );
+
+                for ( Entity activity : results.getEntities() ) {
+                    read.add( activity.getUuid() );
+                }
+
+                cursor = results.getCursor();
+            }
+
+            assertNull( cursor );
+            assertEquals( posted, read );
+        }
+        finally {
+            if ( previousThreshold != null ) {
+                setup.set( ActivitiesService.FEED_PULL_THRESHOLD, previousThreshold.toString() );
+            }
+            else {
+                setup.getProps().remove( ActivitiesService.FEED_PULL_THRESHOLD );
+            }
+        }
+    }
+
+
+    @Test
+    public void testResumedDistribution() throws Exception {
+        app.put( "username", "lemongrab" );
+        app.put( "email", "lemongrab@ooo.com" );
+
+        Entity author = app.testRequest( ServiceAction.POST, 1, "users" ).getEntity();
+        assertNotNull( author );
+
+        app.put( "username", "fionna" );
+        app.put( "email", "fionna@ooo.com" );
+
+        Entity followerA = app.testRequest( ServiceAction.POST, 1, "users" ).getEntity();
+        assertNotNull( followerA );
+
+        app.put( "username", "cake" );
+        app.put( "email", "cake@ooo.com" );
+
+        Entity followerB = app.testRequest( ServiceAction.POST, 1, "users" ).getEntity();
+        assertNotNull( followerB );
+
+        app.testRequest( ServiceAction.POST, 1, "users", followerA.getUuid(), "connections", "following",
+            author.getUuid() );
+
+        app.testRequest( ServiceAction.POST, 1, "users", followerB.getUuid(), "connections", "following",
+            author.getUuid() );
+
+        app.add( Activity.newActivity( Activity.VERB_POST, null, "Unacceptable", null, author, null, "tweet", null,
+            null ) );
+
+        Entity activity = app.testRequest( ServiceAction.POST, 1, "users", author.getUuid(), "activities" )
+                             .getEntity();
+        assertNotNull( activity );
+
+        distribute( author, activity );
+
+        // a job interrupted after writing the batch but before recording its cursor writes the batch again
+        EntityManager em = app.getEntityManager();
+        em.deleteProperty( activity, ActivitiesService.PROPERTY_DISTRIBUTION );
+        em.deleteProperty( activity, ActivitiesService.PROPERTY_DISTRIBUTION_CURSOR );
+        em.deleteProperty( activity, ActivitiesService.PROPERTY_DISTRIBUTED );
+
+        distribute( author, activity );
+
+        // each feed holds a single copy of the activity
+        app.testRequest( ServiceAction.GET, 1, null, "users", followerA.getUuid(), "feed" );
+
+        app.testRequest( ServiceAction.GET, 1, null, "users", followerB.getUuid(), "feed" );
+    }
+
+
+    /** Distribution runs as a scheduled job, tests run it directly rather than starting the scheduler */
+    private void distribute( Entity author, Entity activity ) throws Exception {
+        ActivitiesService activitiesService = ( ActivitiesService ) app.getSm().getService( "/users/*/activities" );
+        activitiesService.publishToFollowers( author, activity.getUuid(), null );
+        app.refreshIndex();
+    }
 }
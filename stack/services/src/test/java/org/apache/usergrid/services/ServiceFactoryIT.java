@@ -17,7 +17,14 @@
 package org.apache.usergrid.services;
 
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.usergrid.persistence.Entity;
 import org.apache.usergrid.utils.UUIDUtils;
@@ -32,6 +39,7 @@ import static org.apache.usergrid.TestHelper.uniqueApp;
 import static org.apache.usergrid.TestHelper.uniqueOrg;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
 
 
@@ -54,4 +62,56 @@ public class ServiceFactoryIT extends AbstractServiceIT {
         assertNotNull( service );
         assertEquals( SimpleService.class, service.getClass() );
     }
+
+
+    @Test
+    public void testServiceReused() throws Exception {
+
+        Entity appInfo = setup.getEmf().createApplicationV2( uniqueOrg(), uniqueApp() );
+        UUID applicationId = appInfo.getUuid();
+
+        ServiceManager sm = setup.getSmf().getServiceManager( applicationId );
+        Service service = sm.getService( "simple" );
+
+        // later requests to the application get the same service manager and the initialized service
+        assertSame( sm, setup.getSmf().getServiceManager( applicationId ) );
+        assertSame( service, sm.getService( "simple" ) );
+        assertSame( service, setup.getSmf().getServiceManager( applicationId ).getService( "simple" ) );
+    }
+
+
+    @Test
+    public void testConcurrentServiceLookup() throws Exception {
+
+        Entity appInfo = setup.getEmf().createApplicationV2( uniqueOrg(), uniqueApp() );
+        final ServiceManager sm = setup.getSmf().getServiceManager( appInfo.getUuid() );
+
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+
+        try {
+            List<Future<Service>> lookups = new ArrayList<>( threads );
+
+            for ( int i = 0; i < threads; i++ ) {
+                lookups.add( executor.submit( () -> {
+                    start.await();
+                    return sm.getService( "simple" );
+                } ) );
+            }
+
+            start.countDown();
+
+            // every caller sees the one instance, whichever thread initialized it
+            Service service = lookups.get( 0 ).get( 30, TimeUnit.SECONDS );
+            assertNotNull( service );
+
+            for ( Future<Service> lookup : lookups ) {
+                assertSame( service, lookup.get( 30, TimeUnit.SECONDS ) );
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.usergrid.services;
+
+
+import java.util.Properties;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.EntityManagerFactory;
+import org.apache.usergrid.persistence.entities.Application;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.google.inject.Injector;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class ServiceManagerFactoryTest {
+
+
+    @Test
+    public void serviceManagerReused() throws Exception {
+
+        final UUID applicationId = UUIDGenerator.newTimeUUID();
+        final EntityManagerFactory emf = mock( EntityManagerFactory.class );
+        final EntityManager em = mockEntityManager( applicationId );
+
+        when( emf.getEntityManager( applicationId ) ).thenReturn( em );
+
+        final ServiceManagerFactory smf = newFactory( emf, new Properties() );
+
+        final ServiceManager sm = smf.getServiceManager( applicationId );
+
+        assertSame( sm, smf.getServiceManager( applicationId ) );
+        assertSame( em, sm.getEntityManager() );
+    }
+
+
+    @Test
+    public void serviceManagerReplacedWithEntityManager() throws Exception {
+
+        final UUID applicationId = UUIDGenerator.newTimeUUID();
+        final EntityManagerFactory emf = mock( EntityManagerFactory.class );
+        final EntityManager first = mockEntityManager( applicationId );
+        final EntityManager second = mockEntityManager( applicationId );
+
+        when( emf.getEntityManager( applicationId ) ).thenReturn( first, second );
+
+        final ServiceManagerFactory smf = newFactory( emf, new Properties() );
+
+        final ServiceManager firstSm = smf.getServiceManager( applicationId );
+        final ServiceManager secondSm = smf.getServiceManager( applicationId );
+
+        // services hold the entity manager they were initialized with, a new one needs a new service manager
+        assertNotSame( firstSm, secondSm );
+        assertSame( second, secondSm.getEntityManager() );
+
+        // and the new one is cached in its place
+        assertSame( secondSm, smf.getServiceManager( applicationId ) );
+    }
+
+
+    @Test
+    public void serviceManagerExpires() throws Exception {
+
+        final UUID applicationId = UUIDGenerator.newTimeUUID();
+        final EntityManagerFactory emf = mock( EntityManagerFactory.class );
+        final EntityManager em = mockEntityManager( applicationId );
+
+        when( emf.getEntityManager( applicationId ) ).thenReturn( em );
+
+        final Properties properties = new Properties();
+        properties.setProperty( ServiceManagerFactory.SERVICE_MANAGER_CACHE_TIMEOUT, "50" );
+
+        final ServiceManagerFactory smf = newFactory( emf, properties );
+
+        final ServiceManager sm = smf.getServiceManager( applicationId );
+
+        assertSame( sm, smf.getServiceManager( applicationId ) );
+
+        Thread.sleep( 100 );
+
+        assertNotSame( sm, smf.getServiceManager( applicationId ) );
+    }
+
+
+    @Test
+    public void serviceManagerEvictedBySize() throws Exception {
+
+        final UUID firstId = UUIDGenerator.newTimeUUID();
+        final UUID secondId = UUIDGenerator.newTimeUUID();
+        final EntityManagerFactory emf = mock( EntityManagerFactory.class );
+        final EntityManager firstEm = mockEntityManager( firstId );
+        final EntityManager secondEm = mockEntityManager( secondId );
+
+        when( emf.getEntityManager( firstId ) ).thenReturn( firstEm );
+        when( emf.getEntityManager( secondId ) ).thenReturn( secondEm );
+
+        final Properties properties = new Properties();
+        properties.setProperty( ServiceManagerFactory.SERVICE_MANAGER_CACHE_SIZE, "1" );
+
+        final ServiceManagerFactory smf = newFactory( emf, properties );
+
+        final ServiceManager sm = smf.getServiceManager( firstId );
+
+        smf.getServiceManager( secondId );
+
+        assertNotSame( sm, smf.getServiceManager( firstId ) );
+    }
+
+
+    private static ServiceManagerFactory newFactory( final EntityManagerFactory emf, final Properties properties ) {
+        return new ServiceManagerFactory( emf, properties, null, null, mock( Injector.class ) );
+    }
+
+
+    private static EntityManager mockEntityManager( final UUID applicationId ) throws Exception {
+        final EntityManager em = mock( EntityManager.class );
+
+        when( em.getApplication() ).thenReturn( new Application( applicationId ) );
+        when( em.getApplicationId() ).thenReturn( applicationId );
+
+        return em;
+    }
+}
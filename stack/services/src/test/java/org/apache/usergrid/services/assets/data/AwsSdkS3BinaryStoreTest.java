@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.assets.data;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.usergrid.persistence.entities.Asset;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Checks the ranges the AWS SDK store asks S3 for
+ */
+public class AwsSdkS3BinaryStoreTest {
+
+    private static final String BUCKET = "usergrid-test";
+
+    private static UUID appId = new UUID( 0, 1 );
+
+    private AmazonS3 s3Client;
+    private AwsSdkS3BinaryStore binaryStore;
+    private Asset asset;
+    private byte[] data;
+
+
+    @Before
+    public void setup() {
+        s3Client = mock( AmazonS3.class );
+
+        asset = new Asset();
+        asset.setUuid( UUID.randomUUID() );
+
+        data = new byte[1000];
+        for ( int i = 0; i < data.length; i++ ) {
+            data[i] = ( byte ) i;
+        }
+
+        //answer like S3 does, the end of the range is inclusive
+        when( s3Client.getObject( any( GetObjectRequest.class ) ) ).thenAnswer( invocation -> {
+            GetObjectRequest request = ( GetObjectRequest ) invocation.getArguments()[0];
+            long[] range = request.getRange();
+
+            S3Object object = new S3Object();
+            object.setObjectContent( new ByteArrayInputStream(
+                Arrays.copyOfRange( data, ( int ) range[0], ( int ) Math.min( range[1] + 1, data.length ) ) ) );
+            return object;
+        } );
+
+        binaryStore = new AwsSdkS3BinaryStore( s3Client, BUCKET );
+    }
+
+
+    @Test
+    public void readRange() throws Exception {
+        try ( InputStream in = binaryStore.read( appId, asset, 100, 100 ) ) {
+            assertArrayEquals( Arrays.copyOfRange( data, 100, 200 ), IOUtils.toByteArray( in ) );
+        }
+
+        ArgumentCaptor<GetObjectRequest> request = ArgumentCaptor.forClass( GetObjectRequest.class );
+        verify( s3Client ).getObject( request.capture() );
+
+        assertEquals( BUCKET, request.getValue().getBucketName() );
+        assertEquals( AssetUtils.buildAssetKey( appId, asset ), request.getValue().getKey() );
+        assertArrayEquals( new long[] { 100, 199 }, request.getValue().getRange() );
+    }
+
+
+    @Test
+    public void readRangeFromStart() throws Exception {
+        try ( InputStream in = binaryStore.read( appId, asset, 0, 100 ) ) {
+            assertArrayEquals( Arrays.copyOfRange( data, 0, 100 ), IOUtils.toByteArray( in ) );
+        }
+    }
+}
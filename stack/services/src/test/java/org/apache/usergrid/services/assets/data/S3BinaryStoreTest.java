@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.assets.data;
+
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.usergrid.persistence.entities.Asset;
+
+import static org.junit.Assert.assertArrayEquals;
+
+
+/**
+ * Reads ranges through the jclouds store, using the in memory provider in place of S3
+ */
+public class S3BinaryStoreTest {
+
+    private static final String BUCKET = "usergrid-test";
+
+    private static UUID appId = new UUID( 0, 1 );
+
+    private BlobStoreContext context;
+    private S3BinaryStore binaryStore;
+    private Asset asset;
+    private byte[] data;
+
+
+    @Before
+    public void setup() {
+        context = ContextBuilder.newBuilder( "transient" ).buildView( BlobStoreContext.class );
+
+        asset = new Asset();
+        asset.setUuid( UUID.randomUUID() );
+
+        data = new byte[1000];
+        for ( int i = 0; i < data.length; i++ ) {
+            data[i] = ( byte ) i;
+        }
+
+        BlobStore blobStore = context.getBlobStore();
+        blobStore.createContainerInLocation( null, BUCKET );
+        blobStore.putBlob( BUCKET,
+            blobStore.blobBuilder( AssetUtils.buildAssetKey( appId, asset ) ).payload( data ).build() );
+
+        binaryStore = new S3BinaryStore( context, BUCKET );
+    }
+
+
+    @After
+    public void shutDown() {
+        binaryStore.destroy();
+    }
+
+
+    @Test
+    public void readRange() throws Exception {
+        try ( InputStream in = binaryStore.read( appId, asset, 100, 100 ) ) {
+            assertArrayEquals( Arrays.copyOfRange( data, 100, 200 ), IOUtils.toByteArray( in ) );
+        }
+    }
+
+
+    @Test
+    public void readRangeFromStart() throws Exception {
+        try ( InputStream in = binaryStore.read( appId, asset, 0, 100 ) ) {
+            assertArrayEquals( Arrays.copyOfRange( data, 0, 100 ), IOUtils.toByteArray( in ) );
+        }
+    }
+
+
+    @Test
+    public void readLastByte() throws Exception {
+        try ( InputStream in = binaryStore.read( appId, asset, data.length - 1, 1 ) ) {
+            assertArrayEquals( new byte[] { data[data.length - 1] }, IOUtils.toByteArray( in ) );
+        }
+    }
+
+
+    @Test
+    public void readAll() throws Exception {
+        try ( InputStream in = binaryStore.read( appId, asset ) ) {
+            assertArrayEquals( data, IOUtils.toByteArray( in ) );
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.usergrid.services.notifications;
+
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.entities.Notification;
+import org.apache.usergrid.persistence.entities.Notifier;
+import org.apache.usergrid.persistence.entities.Receipt;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class TaskManagerTest {
+
+    private static final String FLUSH_INTERVAL_PROP = "usergrid.push.receipts.flush.interval";
+
+
+    @Before
+    public void setup() {
+        // only the batch size and finishing the batch should flush
+        System.setProperty( FLUSH_INTERVAL_PROP, "600000" );
+    }
+
+
+    @After
+    public void cleanup() {
+        System.clearProperty( FLUSH_INTERVAL_PROP );
+    }
+
+
+    @Test
+    public void receiptsAndCountersWrittenWhenBatchFinishes() throws Exception {
+
+        final EntityManager em = mock( EntityManager.class );
+
+        final Notification notification = new Notification();
+        notification.setUuid( UUIDGenerator.newTimeUUID() );
+
+        when( em.get( notification.getUuid(), Notification.class ) ).thenReturn( notification );
+        when( em.create( any( Receipt.class ) ) ).thenAnswer( invocation -> invocation.getArguments()[0] );
+
+        final TaskManager taskManager = new TaskManager( em, notification );
+        final Notifier notifier = new Notifier();
+
+        for ( int i = 0; i < 3; i++ ) {
+            final UUID deviceId = UUIDGenerator.newTimeUUID();
+            taskManager.failed( notifier, new Receipt( notification.getUuid(), "notifier", "payload", deviceId ),
+                deviceId, 1, "error" );
+        }
+
+        verify( em, never() ).create( any( Receipt.class ) );
+        verify( em, never() ).incrementAggregateCounters( any( UUID.class ), any( UUID.class ), anyString(),
+            anyMapOf( String.class, Long.class ) );
+
+        taskManager.finishedBatch();
+
+        verify( em, times( 3 ) ).create( any( Receipt.class ) );
+
+        final ArgumentCaptor<Map> counters = ArgumentCaptor.forClass( Map.class );
+
+        verify( em, times( 1 ) )
+            .incrementAggregateCounters( isNull( UUID.class ), isNull( UUID.class ), isNull( String.class ),
+                counters.capture() );
+
+        assertEquals( 3L, counters.getValue().get( "counters.notifications." + notification.getUuid() + ".failed" ) );
+
+        verify( em, times( 1 ) ).update( eq( notification ) );
+    }
+
+
+    @Test
+    public void summaryOnlySkipsReceipts() throws Exception {
+
+        System.setProperty( "usergrid.push.receipts.summary.only", "true" );
+
+        try {
+            final EntityManager em = mock( EntityManager.class );
+
+            final Notification notification = new Notification();
+            notification.setUuid( UUIDGenerator.newTimeUUID() );
+
+            when( em.get( notification.getUuid(), Notification.class ) ).thenReturn( notification );
+
+            final TaskManager taskManager = new TaskManager( em, notification );
+
+            final UUID deviceId = UUIDGenerator.newTimeUUID();
+            taskManager.failed( new Notifier(), new Receipt( notification.getUuid(), "notifier", "payload", deviceId ),
+                deviceId, 1, "error" );
+
+            taskManager.finishedBatch();
+
+            verify( em, never() ).create( any( Receipt.class ) );
+            assertEquals( 1L, notification.getStatistics().get( "errors" ) );
+        }
+        finally {
+            System.clearProperty( "usergrid.push.receipts.summary.only" );
+        }
+    }
+}
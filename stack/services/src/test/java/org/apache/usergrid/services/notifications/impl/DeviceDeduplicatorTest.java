@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.usergrid.services.notifications.impl;
+
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.map.MapManager;
+
+import com.google.common.util.concurrent.Futures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+
+public class DeviceDeduplicatorTest {
+
+    private MapManager store;
+
+
+    @Before
+    public void setup() {
+        final Map<String, String> values = new ConcurrentHashMap<>();
+
+        store = mock( MapManager.class );
+
+        when( store.putStringAsync( anyString(), anyString(), anyInt() ) ).thenAnswer( invocation -> {
+            values.put( ( String ) invocation.getArguments()[0], ( String ) invocation.getArguments()[1] );
+            return Futures.immediateFuture( null );
+        } );
+
+        when( store.getString( anyString() ) )
+            .thenAnswer( invocation -> values.get( ( String ) invocation.getArguments()[0] ) );
+    }
+
+
+    @Test
+    public void exactBelowLimit() {
+
+        final DeviceDeduplicator deduplicator = new DeviceDeduplicator( 100, 0.0001, store, 60 );
+
+        final UUID device = UUID.randomUUID();
+
+        assertTrue( deduplicator.add( device ) );
+        assertFalse( deduplicator.add( device ) );
+        assertTrue( deduplicator.add( UUID.randomUUID() ) );
+
+        assertFalse( deduplicator.isApproximate() );
+
+        // nothing leaves memory until the limit is passed
+        verifyZeroInteractions( store );
+    }
+
+
+    @Test
+    public void duplicatesRemovedPastLimit() {
+
+        final DeviceDeduplicator deduplicator = new DeviceDeduplicator( 1000, 0.0001, store, 60 );
+
+        final Set<UUID> devices = createDevices( 20000 );
+
+        int added = 0;
+
+        for ( final UUID device : devices ) {
+            if ( deduplicator.add( device ) ) {
+                added++;
+            }
+        }
+
+        assertTrue( deduplicator.isApproximate() );
+
+        // no device is lost
+        assertEquals( devices.size(), added );
+
+        // every device we've seen, before and after the switch, is a duplicate
+        for ( final UUID device : devices ) {
+            assertFalse( deduplicator.add( device ) );
+        }
+    }
+
+
+    @Test
+    public void falsePositivesConfirmedAgainstStore() {
+
+        // a filter this loose reports most unseen devices as seen
+        final DeviceDeduplicator deduplicator = new DeviceDeduplicator( 10, 0.5, store, 60 );
+
+        final Set<UUID> devices = createDevices( 5000 );
+
+        int added = 0;
+
+        for ( final UUID device : devices ) {
+            if ( deduplicator.add( device ) ) {
+                added++;
+            }
+        }
+
+        assertEquals( devices.size(), added );
+        assertTrue( deduplicator.getFalsePositives() > 0 );
+
+        for ( final UUID device : devices ) {
+            assertFalse( deduplicator.add( device ) );
+        }
+    }
+
+
+    @Test( expected = IllegalArgumentException.class )
+    public void invalidProbability() {
+        new DeviceDeduplicator( 100, 1, store, 60 );
+    }
+
+
+    private Set<UUID> createDevices( final int count ) {
+        final Set<UUID> devices = new HashSet<>();
+
+        while ( devices.size() < count ) {
+            devices.add( UUID.randomUUID() );
+        }
+
+        return devices;
+    }
+}